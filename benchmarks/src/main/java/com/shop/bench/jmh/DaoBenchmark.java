@@ -0,0 +1,206 @@
+package com.shop.bench.jmh;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.shop.bench.DataSeeder;
+import com.shop.dao.AdminDao;
+import com.shop.dao.OrderDao;
+import com.shop.dao.OrderHistoryQuery;
+import com.shop.dao.Page;
+import com.shop.dao.ProductDao;
+import com.shop.dao.UserColumn;
+import com.shop.dao.UserDao;
+import com.shop.model.CartItem;
+import com.shop.model.Product;
+import com.shop.model.User;
+import com.shop.util.DBUtil;
+
+/**
+ * Benchmarks for every DAO hot path, parameterized by catalog size and user count
+ *
+ * Each fork runs against its own in-memory H2 database, seeded by DataSeeder for the
+ * (catalogSize, userCount) pair of the trial. The product cache is disabled so the numbers
+ * reflect the data-access layer; add -jvmArgsAppend -Dcache.products.enabled=true to include it.
+ *
+ * Usage: java -jar benchmarks/target/benchmarks.jar DaoBenchmark -p catalogSize=10000 -p userCount=5000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {
+    "-Ddb.url=jdbc:h2:mem:bench;MODE=MySQL;DB_CLOSE_DELAY=-1;IGNORE_UNKNOWN_SETTINGS=TRUE",
+    "-Ddb.user=sa",
+    "-Ddb.password=",
+    "-Dcache.products.enabled=false"
+})
+public class DaoBenchmark {
+    
+    private static final int ORDERS_PER_USER = 5;
+    private static final int PAGE_SIZE = 20;
+    
+    @Param({"1000", "100000"})
+    public int catalogSize;
+    
+    @Param({"1000", "10000"})
+    public int userCount;
+    
+    private final ProductDao productDao = new ProductDao();
+    private final UserDao userDao = new UserDao();
+    private final OrderDao orderDao = new OrderDao();
+    private final AdminDao adminDao = new AdminDao();
+    private final Set<UserColumn> columns = EnumSet.allOf(UserColumn.class);
+    private final AtomicLong registrations = new AtomicLong();
+    
+    @Setup(Level.Trial)
+    public void seed() throws SQLException {
+        DataSeeder.seed(catalogSize, userCount, ORDERS_PER_USER);
+    }
+    
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        DBUtil.shutdown();
+    }
+    
+    /**
+     * Cart placed by placeOrder; products come from the first page of the catalog
+     */
+    @State(Scope.Benchmark)
+    public static class Cart {
+        
+        @Param({"1", "5", "20"})
+        public int cartSize;
+        
+        private final List<CartItem> items = new ArrayList<>();
+        
+        @Setup(Level.Trial)
+        public void fill(DaoBenchmark benchmark) throws SQLException {
+            List<Product> products = benchmark.productDao.getProductsPage(null, null, null, 100).getItems();
+            for (int i = 0; i < cartSize; i++) {
+                Product product = products.get(i % products.size());
+                items.add(new CartItem(product.getProductId(), product.getName(), product.getPriceCents(), 1));
+            }
+        }
+        
+        /**
+         * Top stock back up so long runs never fail checkout for lack of it
+         */
+        @Setup(Level.Iteration)
+        public void restock() throws SQLException {
+            DataSeeder.setStock(1_000_000);
+        }
+    }
+    
+    @Benchmark
+    public List<Product> productDaoGetAllSortedByPriceAsc() throws SQLException {
+        return productDao.getAllProductsSortedByPriceAsc();
+    }
+    
+    @Benchmark
+    public Page<Product> productDaoGetProductsPageFirst() throws SQLException {
+        return productDao.getProductsPage(null, null, null, PAGE_SIZE);
+    }
+    
+    @Benchmark
+    public Product productDaoGetById() throws SQLException {
+        return productDao.getById(randomProductId());
+    }
+    
+    @Benchmark
+    public Map<Integer, Product> productDaoGetByIds() throws SQLException {
+        List<Integer> productIds = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            productIds.add(randomProductId());
+        }
+        return productDao.getByIds(productIds);
+    }
+    
+    @Benchmark
+    public User userDaoLogin() throws SQLException {
+        int userId = randomUserId();
+        User user = userDao.login("user" + userId, DataSeeder.PASSWORD);
+        if (user == null) {
+            throw new IllegalStateException("Seeded user cannot log in: user" + userId);
+        }
+        return user;
+    }
+    
+    @Benchmark
+    public boolean userDaoRegister() throws SQLException {
+        long n = registrations.incrementAndGet();
+        User user = new User();
+        user.setFirstName("Bench");
+        user.setLastName("User");
+        user.setUsername("bench_" + n);
+        user.setPassword(DataSeeder.PASSWORD);
+        user.setCity("Pune");
+        user.setEmail("bench" + n + "@example.com");
+        user.setMobile("9000000000");
+        return userDao.register(user);
+    }
+    
+    @Benchmark
+    public int orderDaoPlaceOrder(Cart cart) throws SQLException {
+        return orderDao.placeOrder(randomUserId(), cart.items);
+    }
+    
+    @Benchmark
+    public int orderDaoStreamOrdersForUser() throws SQLException {
+        return orderDao.streamOrdersForUser(randomUserId(), OrderHistoryQuery.all(), order -> { });
+    }
+    
+    @Benchmark
+    public int adminDaoStreamUserHistory() throws SQLException {
+        return adminDao.streamUserHistoryByUsername("user" + randomUserId(), OrderHistoryQuery.all(), order -> { });
+    }
+    
+    @Benchmark
+    public Page<User> adminDaoGetUsersPageFirst() throws SQLException {
+        return adminDao.getUsersPage(null, null, 0, PAGE_SIZE, columns);
+    }
+    
+    @Benchmark
+    public Page<User> adminDaoGetUsersPageDeep() throws SQLException {
+        return adminDao.getUsersPage(null, null, random().nextInt(userCount), PAGE_SIZE, columns);
+    }
+    
+    @Benchmark
+    public Page<User> adminDaoGetUsersPageCity() throws SQLException {
+        return adminDao.getUsersPage("USER", "Pune", random().nextInt(userCount), PAGE_SIZE, columns);
+    }
+    
+    private int randomProductId() {
+        return 1 + random().nextInt(catalogSize);
+    }
+    
+    private int randomUserId() {
+        return 1 + random().nextInt(userCount);
+    }
+    
+    private static ThreadLocalRandom random() {
+        return ThreadLocalRandom.current();
+    }
+}
@@ -0,0 +1,127 @@
+package com.shop.bench.jmh;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.shop.model.Money;
+
+/**
+ * Compares cart/order total arithmetic with double, BigDecimal and long cents (Money)
+ *
+ * Each operation totals CARTS pre-generated carts of cartSize lines; divide the reported
+ * time by CARTS for one cart. main() prints the drift double accumulates over many lines.
+ *
+ * Usage: java -jar benchmarks/target/benchmarks.jar MoneyBenchmark -p cartSize=1,5,50
+ *        java -cp benchmarks/target/benchmarks.jar com.shop.bench.jmh.MoneyBenchmark   (exactness only)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+    
+    private static final int CARTS = 1000;
+    
+    @Param({"1", "5", "50"})
+    public int cartSize;
+    
+    private long[][] priceCents;
+    private double[][] priceDoubles;
+    private BigDecimal[][] priceDecimals;
+    private int[][] quantities;
+    
+    @Setup(Level.Trial)
+    public void generateCarts() {
+        Random random = new Random(42);
+        priceCents = new long[CARTS][cartSize];
+        priceDoubles = new double[CARTS][cartSize];
+        priceDecimals = new BigDecimal[CARTS][cartSize];
+        quantities = new int[CARTS][cartSize];
+        
+        for (int cart = 0; cart < CARTS; cart++) {
+            for (int line = 0; line < cartSize; line++) {
+                long cents = 1 + random.nextInt(10_000_000);
+                priceCents[cart][line] = cents;
+                priceDoubles[cart][line] = cents / 100.0;
+                priceDecimals[cart][line] = Money.toBigDecimal(cents);
+                quantities[cart][line] = 1 + random.nextInt(5);
+            }
+        }
+    }
+    
+    @Benchmark
+    public double totalDouble() {
+        double sum = 0;
+        for (int cart = 0; cart < CARTS; cart++) {
+            double total = 0;
+            for (int line = 0; line < cartSize; line++) {
+                total += priceDoubles[cart][line] * quantities[cart][line];
+            }
+            sum += total;
+        }
+        return sum;
+    }
+    
+    @Benchmark
+    public BigDecimal totalBigDecimal() {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (int cart = 0; cart < CARTS; cart++) {
+            BigDecimal total = BigDecimal.ZERO;
+            for (int line = 0; line < cartSize; line++) {
+                total = total.add(priceDecimals[cart][line].multiply(BigDecimal.valueOf(quantities[cart][line])));
+            }
+            sum = sum.add(total);
+        }
+        return sum;
+    }
+    
+    @Benchmark
+    public long totalLongCents() {
+        long sum = 0;
+        for (int cart = 0; cart < CARTS; cart++) {
+            long total = 0;
+            for (int line = 0; line < cartSize; line++) {
+                total += Money.times(priceCents[cart][line], quantities[cart][line]);
+            }
+            sum += total;
+        }
+        return sum;
+    }
+    
+    /**
+     * Add 0.10 a million times with each representation and print the error against the exact total
+     */
+    public static void main(String[] args) {
+        int lines = 1_000_000;
+        double doubleTotal = 0;
+        BigDecimal decimalTotal = BigDecimal.ZERO;
+        BigDecimal dime = new BigDecimal("0.10");
+        long centsTotal = 0;
+        for (int i = 0; i < lines; i++) {
+            doubleTotal += 0.10;
+            decimalTotal = decimalTotal.add(dime);
+            centsTotal += 10;
+        }
+        
+        System.out.println("Adding 0.10 " + lines + " times (exact: 100000.00)");
+        System.out.println("  double:     " + new BigDecimal(doubleTotal).toPlainString());
+        System.out.println("  BigDecimal: " + decimalTotal.toPlainString());
+        System.out.println("  long cents: " + Money.format(centsTotal));
+    }
+}
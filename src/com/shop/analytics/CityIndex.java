@@ -0,0 +1,85 @@
+package com.shop.analytics;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.shop.util.DBUtil;
+
+/**
+ * Maps every user id to a small integer standing for the user's city
+ *
+ * Loaded once per analytics run in user_id order, a chunk at a time, so the order-line scan
+ * can attribute sales to cities with an int lookup instead of joining users for every line.
+ */
+class CityIndex {
+    
+    static final String NO_CITY = "(none)";
+    
+    private final IntLongMap cityOfUser;
+    private final List<String> cityNames;
+    
+    private CityIndex(IntLongMap cityOfUser, List<String> cityNames) {
+        this.cityOfUser = cityOfUser;
+        this.cityNames = cityNames;
+    }
+    
+    /**
+     * Read users.city for all users
+     * @param chunkSize users fetched per query
+     * @return CityIndex
+     * @throws SQLException if database error occurs
+     */
+    static CityIndex load(int chunkSize) throws SQLException {
+        String sql = "SELECT user_id, city FROM users WHERE user_id > ? ORDER BY user_id ASC LIMIT ?";
+        IntLongMap cityOfUser = new IntLongMap(chunkSize);
+        List<String> cityNames = new ArrayList<>();
+        Map<String, Integer> cityIds = new HashMap<>();
+        cityNames.add(NO_CITY);
+        cityIds.put(NO_CITY, 0);
+        
+        try (Connection connection = DBUtil.getReadConnection(null);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            int afterUserId = 0;
+            while (true) {
+                preparedStatement.setInt(1, afterUserId);
+                preparedStatement.setInt(2, chunkSize);
+                int rows = 0;
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        afterUserId = resultSet.getInt("user_id");
+                        String city = resultSet.getString("city");
+                        String name = city == null || city.trim().isEmpty() ? NO_CITY : city.trim();
+                        Integer cityId = cityIds.get(name);
+                        if (cityId == null) {
+                            cityId = cityNames.size();
+                            cityIds.put(name, cityId);
+                            cityNames.add(name);
+                        }
+                        cityOfUser.add(afterUserId, cityId);
+                        rows++;
+                    }
+                }
+                if (rows < chunkSize) {
+                    return new CityIndex(cityOfUser, cityNames);
+                }
+            }
+        }
+    }
+    
+    /**
+     * City index of a user; users added after the index was loaded map to NO_CITY
+     */
+    int cityOf(int userId) {
+        return (int) cityOfUser.get(userId);
+    }
+    
+    String name(int cityId) {
+        return cityNames.get(cityId);
+    }
+}
@@ -0,0 +1,124 @@
+package com.shop.analytics;
+
+/**
+ * Open-addressing hash map from int keys to long counters
+ *
+ * Avoids the boxed Integer/Long entries of a HashMap, which dominate memory and GC time
+ * when tens of millions of order lines are folded into per-product or per-day totals.
+ * Not thread-safe; each fork-join task fills its own map and the maps are merged.
+ */
+public class IntLongMap {
+    
+    private static final float LOAD_FACTOR = 0.5f;
+    
+    private int[] keys;
+    private long[] values;
+    private boolean[] used;
+    private int shift;
+    private int size;
+    
+    /**
+     * Receives one entry during forEach
+     */
+    public interface EntryConsumer {
+        void accept(int key, long value);
+    }
+    
+    public IntLongMap() {
+        this(16);
+    }
+    
+    /**
+     * Constructor for IntLongMap
+     * @param expectedSize entries expected, used to size the table up front
+     */
+    public IntLongMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        this.keys = new int[capacity];
+        this.values = new long[capacity];
+        this.used = new boolean[capacity];
+        this.shift = Integer.numberOfLeadingZeros(capacity) + 1;
+    }
+    
+    /**
+     * Add to a key's value, inserting it with the delta if absent
+     * @param key the key
+     * @param delta amount to add
+     */
+    public void add(int key, long delta) {
+        int slot = slot(key);
+        if (used[slot]) {
+            values[slot] += delta;
+            return;
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size > keys.length * LOAD_FACTOR) {
+            resize();
+        }
+    }
+    
+    /**
+     * Get a key's value
+     * @param key the key
+     * @return value, or 0 if the key is absent
+     */
+    public long get(int key) {
+        int slot = slot(key);
+        return used[slot] ? values[slot] : 0;
+    }
+    
+    /**
+     * Add every entry of another map to this one
+     * @param other map to merge in
+     */
+    public void addAll(IntLongMap other) {
+        other.forEach(this::add);
+    }
+    
+    /**
+     * Visit every entry in table order
+     * @param consumer receives each key and value
+     */
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    private int slot(int key) {
+        int mask = keys.length - 1;
+        // Fibonacci hashing spreads sequential ids so runs of keys do not form long probe chains
+        int slot = (key * 0x9E3779B9) >>> shift;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    private void resize() {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        boolean[] oldUsed = used;
+        keys = new int[oldKeys.length << 1];
+        values = new long[oldKeys.length << 1];
+        used = new boolean[oldKeys.length << 1];
+        shift--;
+        
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slot(oldKeys[i]);
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
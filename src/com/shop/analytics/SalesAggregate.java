@@ -0,0 +1,58 @@
+package com.shop.analytics;
+
+/**
+ * Partial sales totals for one slice of order lines
+ *
+ * Every fork-join leaf fills its own aggregate without locking; parents merge their
+ * children's aggregates, so the root ends up holding the totals for all lines.
+ */
+class SalesAggregate {
+    
+    final IntLongMap productUnits = new IntLongMap(1024);
+    final IntLongMap productRevenue = new IntLongMap(1024);
+    final IntLongMap dayUnits = new IntLongMap(256);
+    final IntLongMap dayRevenue = new IntLongMap(256);
+    final IntLongMap cityUnits = new IntLongMap(64);
+    final IntLongMap cityRevenue = new IntLongMap(64);
+    long lines;
+    long units;
+    long revenueCents;
+    
+    /**
+     * Fold one order line into the totals
+     * @param productId product sold
+     * @param qty units sold
+     * @param lineCents qty times the unit price, in cents
+     * @param epochDay order date as days since 1970-01-01
+     * @param cityId buyer's city in the CityIndex
+     */
+    void addLine(int productId, int qty, long lineCents, int epochDay, int cityId) {
+        productUnits.add(productId, qty);
+        productRevenue.add(productId, lineCents);
+        dayUnits.add(epochDay, qty);
+        dayRevenue.add(epochDay, lineCents);
+        cityUnits.add(cityId, qty);
+        cityRevenue.add(cityId, lineCents);
+        lines++;
+        units += qty;
+        revenueCents += lineCents;
+    }
+    
+    /**
+     * Add another aggregate's totals to this one
+     * @param other aggregate to merge in
+     * @return this
+     */
+    SalesAggregate merge(SalesAggregate other) {
+        productUnits.addAll(other.productUnits);
+        productRevenue.addAll(other.productRevenue);
+        dayUnits.addAll(other.dayUnits);
+        dayRevenue.addAll(other.dayRevenue);
+        cityUnits.addAll(other.cityUnits);
+        cityRevenue.addAll(other.cityRevenue);
+        lines += other.lines;
+        units += other.units;
+        revenueCents += other.revenueCents;
+        return this;
+    }
+}
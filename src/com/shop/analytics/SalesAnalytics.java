@@ -0,0 +1,174 @@
+package com.shop.analytics;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.shop.model.Money;
+import com.shop.util.AppConfig;
+import com.shop.util.DBUtil;
+
+/**
+ * Parallel aggregation of all order lines into per-product, per-day and per-city sales
+ *
+ * The item_id range of order_items is split recursively by a fork-join pool until each piece
+ * spans at most rangeSize ids. Each leaf streams its piece with keyset queries of chunkSize
+ * rows on its own (replica) connection and folds the rows into a private SalesAggregate of
+ * primitive maps; parents merge their children's aggregates. Memory is bounded by the number
+ * of distinct products, days and users, never by the number of order lines, and at most
+ * parallelism connections are in use at once.
+ */
+public class SalesAnalytics {
+    
+    private static final String CHUNK_SQL =
+        "SELECT oi.item_id, oi.product_id, oi.qty, oi.price_at_purchase, o.user_id, o.order_time " +
+        "FROM order_items oi JOIN orders o ON o.order_id = oi.order_id " +
+        "WHERE oi.item_id > ? AND oi.item_id <= ? ORDER BY oi.item_id ASC LIMIT ?";
+    
+    private final int parallelism;
+    private final int chunkSize;
+    private final long rangeSize;
+    
+    /**
+     * Create an engine from the analytics.* configuration keys
+     * Parallelism defaults to the CPU count, capped so a report leaves connections for shoppers
+     * @return SalesAnalytics
+     */
+    public static SalesAnalytics fromConfig() {
+        int defaultParallelism = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+                                                      AppConfig.getInt("db.pool.maxSize", 10) / 2));
+        return new SalesAnalytics(AppConfig.getInt("analytics.parallelism", defaultParallelism),
+                                  AppConfig.getInt("analytics.chunkSize", 10000),
+                                  AppConfig.getLong("analytics.rangeSize", 1_000_000));
+    }
+    
+    /**
+     * Constructor for SalesAnalytics
+     * @param parallelism fork-join threads, and so concurrent scans
+     * @param chunkSize order lines fetched per query
+     * @param rangeSize item_id span handled by one leaf task
+     */
+    public SalesAnalytics(int parallelism, int chunkSize, long rangeSize) {
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+        this.rangeSize = rangeSize;
+    }
+    
+    /**
+     * Scan every order line and build the sales report
+     * @return SalesReport
+     * @throws SQLException if database error occurs
+     */
+    public SalesReport run() throws SQLException {
+        long start = System.nanoTime();
+        CityIndex cities = CityIndex.load(chunkSize);
+        
+        long minItemId;
+        long maxItemId;
+        try (Connection connection = DBUtil.getReadConnection(null);
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT MIN(item_id), MAX(item_id) FROM order_items")) {
+            resultSet.next();
+            minItemId = resultSet.getLong(1);
+            maxItemId = resultSet.getLong(2);
+            if (resultSet.wasNull()) {
+                return new SalesReport(new SalesAggregate(), cities, System.nanoTime() - start);
+            }
+        }
+        
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            SalesAggregate totals = pool.invoke(new RangeTask(cities, minItemId - 1, maxItemId));
+            return new SalesReport(totals, cities, System.nanoTime() - start);
+        } catch (ScanFailure e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    /**
+     * Aggregate order lines with item_id in (afterItemId, lastItemId]
+     */
+    private final class RangeTask extends RecursiveTask<SalesAggregate> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final transient CityIndex cities;
+        private final long afterItemId;
+        private final long lastItemId;
+        
+        private RangeTask(CityIndex cities, long afterItemId, long lastItemId) {
+            this.cities = cities;
+            this.afterItemId = afterItemId;
+            this.lastItemId = lastItemId;
+        }
+        
+        @Override
+        protected SalesAggregate compute() {
+            if (lastItemId - afterItemId > rangeSize) {
+                long middle = afterItemId + (lastItemId - afterItemId) / 2;
+                RangeTask left = new RangeTask(cities, afterItemId, middle);
+                left.fork();
+                SalesAggregate right = new RangeTask(cities, middle, lastItemId).compute();
+                return left.join().merge(right);
+            }
+            try {
+                return scan();
+            } catch (SQLException e) {
+                throw new ScanFailure(e);
+            }
+        }
+        
+        private SalesAggregate scan() throws SQLException {
+            SalesAggregate aggregate = new SalesAggregate();
+            
+            try (Connection connection = DBUtil.getReadConnection(null);
+                 PreparedStatement preparedStatement = connection.prepareStatement(CHUNK_SQL)) {
+                preparedStatement.setFetchSize(chunkSize);
+                long cursor = afterItemId;
+                while (true) {
+                    preparedStatement.setLong(1, cursor);
+                    preparedStatement.setLong(2, lastItemId);
+                    preparedStatement.setInt(3, chunkSize);
+                    int rows = 0;
+                    try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                        while (resultSet.next()) {
+                            cursor = resultSet.getLong(1);
+                            int qty = resultSet.getInt(3);
+                            long priceCents = Money.fromBigDecimal(resultSet.getBigDecimal(4));
+                            int epochDay = (int) resultSet.getTimestamp(6).toLocalDateTime().toLocalDate().toEpochDay();
+                            aggregate.addLine(resultSet.getInt(2), qty, Money.times(priceCents, qty), epochDay,
+                                              cities.cityOf(resultSet.getInt(5)));
+                            rows++;
+                        }
+                    }
+                    if (rows < chunkSize) {
+                        return aggregate;
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Carries an SQLException out of a fork-join task
+     */
+    private static final class ScanFailure extends RuntimeException {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private ScanFailure(SQLException cause) {
+            super(cause);
+        }
+        
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
+        }
+    }
+}
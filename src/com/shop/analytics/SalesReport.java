@@ -0,0 +1,103 @@
+package com.shop.analytics;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.shop.model.Money;
+
+/**
+ * Result of a SalesAnalytics run
+ */
+public class SalesReport {
+    
+    private final SalesAggregate totals;
+    private final CityIndex cities;
+    private final long elapsedNanos;
+    
+    SalesReport(SalesAggregate totals, CityIndex cities, long elapsedNanos) {
+        this.totals = totals;
+        this.cities = cities;
+        this.elapsedNanos = elapsedNanos;
+    }
+    
+    /**
+     * Best-selling products by units sold
+     * @param limit maximum rows
+     * @return rows keyed by product id, most units first
+     */
+    public List<SalesRow> topProductsByUnits(int limit) {
+        return top(productRows(), Comparator.comparingLong(SalesRow::getUnits), limit);
+    }
+    
+    /**
+     * Products by revenue
+     * @param limit maximum rows
+     * @return rows keyed by product id, highest revenue first
+     */
+    public List<SalesRow> topProductsByRevenue(int limit) {
+        return top(productRows(), Comparator.comparingLong(SalesRow::getRevenueCents), limit);
+    }
+    
+    /**
+     * Revenue per calendar day of order_time
+     * @return rows keyed by epoch day, oldest first
+     */
+    public List<SalesRow> revenueByDay() {
+        List<SalesRow> rows = new ArrayList<>(totals.dayRevenue.size());
+        totals.dayRevenue.forEach((day, revenue) ->
+            rows.add(new SalesRow(day, LocalDate.ofEpochDay(day).toString(), totals.dayUnits.get(day), revenue)));
+        rows.sort(Comparator.comparingInt(SalesRow::getKey));
+        return rows;
+    }
+    
+    /**
+     * Sales per buyer city
+     * @return rows keyed by city index, highest revenue first
+     */
+    public List<SalesRow> salesByCity() {
+        List<SalesRow> rows = new ArrayList<>(totals.cityRevenue.size());
+        totals.cityRevenue.forEach((city, revenue) ->
+            rows.add(new SalesRow(city, cities.name(city), totals.cityUnits.get(city), revenue)));
+        rows.sort(Comparator.comparingLong(SalesRow::getRevenueCents).reversed());
+        return rows;
+    }
+    
+    // Getters
+    
+    public long getLines() {
+        return totals.lines;
+    }
+    
+    public long getUnits() {
+        return totals.units;
+    }
+    
+    public long getRevenueCents() {
+        return totals.revenueCents;
+    }
+    
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+    
+    @Override
+    public String toString() {
+        return totals.lines + " order lines, " + totals.units + " units, " + Money.format(totals.revenueCents) +
+               " revenue, " + totals.productUnits.size() + " products, " + totals.dayRevenue.size() + " days in " +
+               getElapsedMillis() + " ms";
+    }
+    
+    private List<SalesRow> productRows() {
+        List<SalesRow> rows = new ArrayList<>(totals.productUnits.size());
+        totals.productUnits.forEach((productId, units) ->
+            rows.add(new SalesRow(productId, String.valueOf(productId), units, totals.productRevenue.get(productId))));
+        return rows;
+    }
+    
+    private static List<SalesRow> top(List<SalesRow> rows, Comparator<SalesRow> order, int limit) {
+        rows.sort(order.reversed().thenComparingInt(SalesRow::getKey));
+        return new ArrayList<>(rows.subList(0, Math.min(limit, rows.size())));
+    }
+}
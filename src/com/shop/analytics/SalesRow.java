@@ -0,0 +1,51 @@
+package com.shop.analytics;
+
+import com.shop.model.Money;
+
+/**
+ * One line of a sales report: a product, a day or a city with its units and revenue
+ */
+public class SalesRow {
+    
+    private final int key;
+    private final String label;
+    private final long units;
+    private final long revenueCents;
+    
+    /**
+     * Constructor for SalesRow
+     * @param key product id, epoch day or city index
+     * @param label printable form of the key
+     * @param units units sold
+     * @param revenueCents revenue in cents
+     */
+    public SalesRow(int key, String label, long units, long revenueCents) {
+        this.key = key;
+        this.label = label;
+        this.units = units;
+        this.revenueCents = revenueCents;
+    }
+    
+    // Getters
+    
+    public int getKey() {
+        return key;
+    }
+    
+    public String getLabel() {
+        return label;
+    }
+    
+    public long getUnits() {
+        return units;
+    }
+    
+    public long getRevenueCents() {
+        return revenueCents;
+    }
+    
+    @Override
+    public String toString() {
+        return label + ": " + units + " units, " + Money.format(revenueCents);
+    }
+}
@@ -0,0 +1,285 @@
+package com.shop.app;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.Collections;
+
+import com.shop.dao.AdminDao;
+import com.shop.dao.OrderHistoryQuery;
+import com.shop.dao.OrderSummaryDao;
+import com.shop.dao.Page;
+import com.shop.model.Money;
+import com.shop.model.Product;
+import com.shop.service.NotLoggedInException;
+import com.shop.service.ShopService;
+import com.shop.service.ShopperSession;
+import com.shop.util.AppConfig;
+import com.shop.util.DBUtil;
+
+/**
+ * Non-interactive mode: runs a command script against ShopService at full speed
+ *
+ * The script is read from a file or stdin, one command per line; blank lines and lines
+ * starting with # are skipped. All output goes through one buffered stream, as text tables
+ * or as JSON Lines (--format json). A failing command is reported and the script continues,
+ * unless --fail-fast is given; the exit status is 1 if any command failed.
+ *
+ * Commands:
+ *   login USERNAME PASSWORD    logout
+ *   list [PAGE_SIZE]           range MIN_PRICE MAX_PRICE [PAGE_SIZE]
+ *   search WORDS...            product PRODUCT_ID
+ *   add PRODUCT_ID QTY         cart
+ *   checkout                   orders [LIMIT]
+ *   summary                    stock PRODUCT_ID (admin)
+ *
+ * Usage: BatchMode [--format text|json] [--fail-fast] [script | -]
+ * or:    MainApp --batch [options] [script | -]
+ */
+public class BatchMode {
+    
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    
+    private final ShopService shopService;
+    private final AdminDao adminDao = new AdminDao();
+    private final OrderSummaryDao orderSummaryDao = new OrderSummaryDao();
+    private final BatchOutput output;
+    private final int pageSize = AppConfig.getInt("ui.pageSize", 20);
+    private ShopperSession session;
+    
+    /**
+     * Constructor for BatchMode
+     * @param shopService service executing the commands
+     * @param output result sink
+     */
+    BatchMode(ShopService shopService, BatchOutput output) {
+        this.shopService = shopService;
+        this.output = output;
+    }
+    
+    public static void main(String[] args) {
+        int status;
+        try {
+            status = run(args);
+        } finally {
+            DBUtil.shutdown();
+        }
+        System.exit(status);
+    }
+    
+    /**
+     * Parse options, run the script and flush the output
+     * @param args command-line options and optional script path
+     * @return process exit status: 0 all commands succeeded, 1 some failed, 2 bad usage or unreadable script
+     */
+    public static int run(String[] args) {
+        String format = "text";
+        boolean failFast = false;
+        String script = "-";
+        
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--format") && i + 1 < args.length) {
+                format = args[++i];
+            } else if (args[i].equals("--fail-fast")) {
+                failFast = true;
+            } else if (args[i].startsWith("--")) {
+                System.err.println("Usage: BatchMode [--format text|json] [--fail-fast] [script | -]");
+                return 2;
+            } else {
+                script = args[i];
+            }
+        }
+        
+        ShopService shopService = new ShopService();
+        try (BufferedReader reader = script.equals("-")
+                 ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                 : Files.newBufferedReader(Paths.get(script), StandardCharsets.UTF_8);
+             BatchOutput output = BatchOutput.forFormat(format, bufferedStdout())) {
+            int failed = new BatchMode(shopService, output).execute(reader, failFast);
+            return failed == 0 ? 0 : 1;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Batch error: " + e.getMessage());
+            return 2;
+        } finally {
+            shopService.shutdown();
+        }
+    }
+    
+    /**
+     * Execute every command in a script
+     * @param reader script source
+     * @param failFast stop at the first failing command
+     * @return number of failed commands
+     * @throws IOException if the script cannot be read
+     */
+    public int execute(BufferedReader reader, boolean failFast) throws IOException {
+        long start = System.nanoTime();
+        int commands = 0;
+        int failed = 0;
+        int lineNumber = 0;
+        String line;
+        
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            
+            commands++;
+            output.begin(lineNumber, line);
+            String error = null;
+            try {
+                executeCommand(line.split("\\s+"), line);
+            } catch (SQLException | RuntimeException e) {
+                error = e.getMessage() != null ? e.getMessage() : e.toString();
+            }
+            output.end(error);
+            
+            if (error != null) {
+                failed++;
+                if (failFast) {
+                    break;
+                }
+            }
+        }
+        
+        if (session != null) {
+            shopService.logout(session.getSessionId());
+        }
+        output.totals(commands, failed, System.nanoTime() - start);
+        return failed;
+    }
+    
+    private void executeCommand(String[] words, String line) throws SQLException {
+        switch (words[0].toLowerCase()) {
+            case "login":
+                requireArgs(words, 2);
+                if (session != null) {
+                    shopService.logout(session.getSessionId());
+                }
+                session = shopService.login(words[1], words[2]);
+                if (session == null) {
+                    throw new IllegalArgumentException("Invalid username or password.");
+                }
+                output.field("user", session.getUser().getUsername());
+                output.field("role", session.getUser().getRole());
+                break;
+            case "logout":
+                requireSession();
+                shopService.logout(session.getSessionId());
+                session = null;
+                break;
+            case "list":
+                output.products(shopService.getProductDao()
+                    .getProductsPage(null, null, null, words.length > 1 ? parseInt(words[1]) : pageSize)
+                    .getItems());
+                break;
+            case "range": {
+                requireArgs(words, 2);
+                Page<Product> page = shopService.getProductDao().getProductsPage(
+                    Money.parse(words[1]), Money.parse(words[2]), null,
+                    words.length > 3 ? parseInt(words[3]) : pageSize);
+                output.products(page.getItems());
+                break;
+            }
+            case "search":
+                requireArgs(words, 1);
+                output.products(shopService.getProductDao().search(line.substring(words[0].length()).trim(),
+                                                                     pageSize));
+                break;
+            case "product": {
+                requireArgs(words, 1);
+                Product product = shopService.getProductDao().getById(parseInt(words[1]));
+                if (product == null) {
+                    throw new IllegalArgumentException("Product not found.");
+                }
+                output.products(Collections.singletonList(product));
+                break;
+            }
+            case "add":
+                requireArgs(words, 2);
+                requireSession();
+                output.field("inCart", shopService.addToCart(session.getSessionId(), parseInt(words[1]),
+                                                             parseInt(words[2])));
+                break;
+            case "cart":
+                requireSession();
+                output.cart(shopService.getCart(session.getSessionId()));
+                break;
+            case "checkout":
+                requireSession();
+                output.field("orderId", shopService.checkout(session.getSessionId()));
+                break;
+            case "orders": {
+                requireSession();
+                OrderHistoryQuery query = OrderHistoryQuery.all()
+                    .mostRecent(words.length > 1 ? parseInt(words[1]) : 0);
+                int orderCount = shopService.getOrderDao().streamOrdersForUser(
+                    session.getUser().getUserId(), query, output.beginOrders());
+                output.endOrders(orderCount);
+                break;
+            }
+            case "summary":
+                requireSession();
+                output.summary(orderSummaryDao.getSummary(session.getUser().getUserId()));
+                break;
+            case "stock": {
+                requireArgs(words, 1);
+                requireSession();
+                if (!"ADMIN".equalsIgnoreCase(session.getUser().getRole())) {
+                    throw new IllegalStateException("stock requires an admin login.");
+                }
+                Integer quantity = adminDao.checkQuantity(parseInt(words[1]));
+                if (quantity == null) {
+                    throw new IllegalArgumentException("Product not found.");
+                }
+                output.field("quantity", quantity);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown command: " + words[0]);
+        }
+    }
+    
+    private void requireSession() {
+        if (session == null) {
+            throw new NotLoggedInException("Not logged in.");
+        }
+    }
+    
+    private static void requireArgs(String[] words, int count) {
+        if (words.length < count + 1) {
+            throw new IllegalArgumentException(words[0] + " needs " + count + " argument(s).");
+        }
+    }
+    
+    private static int parseInt(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a whole number: " + text);
+        }
+    }
+    
+    /**
+     * stdout behind a 64 KB buffer that is flushed only when full or closed
+     */
+    private static PrintStream bufferedStdout() {
+        try {
+            return new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out),
+                                                            OUTPUT_BUFFER_SIZE), false, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
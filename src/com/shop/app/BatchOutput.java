@@ -0,0 +1,76 @@
+package com.shop.app;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.shop.model.CartItem;
+import com.shop.model.Order;
+import com.shop.model.OrderSummary;
+import com.shop.model.Product;
+
+/**
+ * Result sink for BatchMode, one begin/end pair per script command
+ *
+ * Implementations write to a single buffered PrintStream that is flushed only when full
+ * and at close(), so a long script does not pay for a system call per printed row.
+ */
+abstract class BatchOutput implements AutoCloseable {
+    
+    protected final PrintStream out;
+    
+    BatchOutput(PrintStream out) {
+        this.out = out;
+    }
+    
+    /**
+     * Create the output for a format name
+     * @param format "text" or "json"
+     * @param out buffered destination
+     * @return BatchOutput
+     * @throws IllegalArgumentException if the format is unknown
+     */
+    static BatchOutput forFormat(String format, PrintStream out) {
+        switch (format) {
+            case "text":
+                return new TextBatchOutput(out);
+            case "json":
+                return new JsonBatchOutput(out);
+            default:
+                throw new IllegalArgumentException("Unknown format: " + format + " (expected text or json)");
+        }
+    }
+    
+    abstract void begin(int lineNumber, String input);
+    
+    abstract void field(String name, long value);
+    
+    abstract void field(String name, String value);
+    
+    abstract void products(List<Product> products);
+    
+    abstract void cart(List<CartItem> cart);
+    
+    abstract void summary(OrderSummary summary);
+    
+    /**
+     * Start streaming orders
+     * @return consumer receiving each order; call endOrders when the stream is done
+     */
+    abstract Consumer<Order> beginOrders();
+    
+    abstract void endOrders(int orderCount);
+    
+    /**
+     * Finish the current command
+     * @param error failure message, or null if the command succeeded
+     */
+    abstract void end(String error);
+    
+    abstract void totals(int commands, int failed, long elapsedNanos);
+    
+    @Override
+    public void close() {
+        out.flush();
+    }
+}
@@ -3,6 +3,7 @@ package com.shop.app;
 import java.sql.Connection;
 
 import com.shop.util.DBUtil;
+import com.shop.util.PoolStats;
 
 /**
  * Test class to verify database connectivity
@@ -13,9 +14,20 @@ public class DbTest {
         try (Connection connection = DBUtil.getConnection()) {
             boolean connected = connection != null && !connection.isClosed();
             System.out.println("CONNECTED: " + connected);
+            System.out.println("POOL: " + DBUtil.getPoolStats());
+            
+            // Borrow one connection per replica to check each of them is reachable
+            try (Connection replica = DBUtil.getReadConnection(null)) {
+                System.out.println("READ CONNECTION: " + !replica.isClosed());
+            }
+            for (PoolStats replicaStats : DBUtil.getReplicaPoolStats()) {
+                System.out.println("REPLICA POOL: " + replicaStats);
+            }
         } catch (Exception e) {
             System.err.println("Connection error: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            DBUtil.shutdown();
         }
     }
 }
@@ -0,0 +1,74 @@
+package com.shop.app;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.shop.dao.CatalogSnapshot;
+import com.shop.http.ShopHttpServer;
+import com.shop.http.StorefrontApi;
+import com.shop.service.ShopService;
+import com.shop.util.AppConfig;
+import com.shop.util.DBUtil;
+import com.shop.util.ExecutorFactory;
+
+/**
+ * Runs the HTTP/JSON storefront until the process is stopped
+ *
+ * Every http.statsIntervalSeconds the request rate and latency are printed, and sessions
+ * idle for longer than http.sessionIdleMillis are closed.
+ *
+ * Usage: HttpMode   (port and threads from the http.* keys, e.g. -Dhttp.port=9090)
+ */
+public class HttpMode {
+    
+    public static void main(String[] args) throws Exception {
+        CatalogSnapshot snapshot = CatalogSnapshot.fromConfig();
+        if (snapshot.isEnabled()) {
+            // Serve the first requests from a warm cache; a cold one still works
+            try {
+                System.out.println("Catalog: " + snapshot.warmUp());
+            } catch (Exception e) {
+                System.out.println("Catalog warm-up skipped: " + e.getMessage());
+            }
+        }
+        
+        ShopService shopService = new ShopService();
+        try {
+            // Before the server takes orders, so nothing is appended while the gap is filled
+            int appended = shopService.getOrderDao().catchUpJournal();
+            if (appended > 0) {
+                System.out.println("Journal: appended " + appended + " orders missing since the last run");
+            }
+        } catch (Exception e) {
+            System.out.println("Journal catch-up skipped: " + e.getMessage());
+        }
+        ShopHttpServer server = ShopHttpServer.fromConfig();
+        new StorefrontApi(shopService, AppConfig.getInt("ui.pageSize", 20)).register(server);
+        
+        long statsIntervalSeconds = AppConfig.getLong("http.statsIntervalSeconds", 10);
+        long sessionIdleMillis = AppConfig.getLong("http.sessionIdleMillis", 1_800_000);
+        ScheduledExecutorService housekeeping =
+            Executors.newSingleThreadScheduledExecutor(ExecutorFactory.namedDaemonThreads("http-housekeeping"));
+        if (statsIntervalSeconds > 0) {
+            housekeeping.scheduleAtFixedRate(() -> System.out.println("HTTP " + server.getStats()),
+                                             statsIntervalSeconds, statsIntervalSeconds, TimeUnit.SECONDS);
+        }
+        housekeeping.scheduleAtFixedRate(() -> shopService.getSessions().expireIdle(sessionIdleMillis),
+                                         1, 1, TimeUnit.MINUTES);
+        
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            housekeeping.shutdownNow();
+            server.close();
+            shopService.shutdown();
+            System.out.println("HTTP " + server.getStats());
+            DBUtil.shutdown();
+        }, "http-shutdown"));
+        
+        server.start();
+        System.out.println("Storefront listening on port " + server.getPort() + " (" +
+                           (ExecutorFactory.isVirtualThreadsAvailable() &&
+                            AppConfig.getBoolean("executor.virtualThreads", true)
+                               ? "virtual threads" : "platform threads") + ")");
+    }
+}
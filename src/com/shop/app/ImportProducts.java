@@ -0,0 +1,41 @@
+package com.shop.app;
+
+import java.nio.file.Paths;
+
+import com.shop.importer.ImportReport;
+import com.shop.importer.ProductImporter;
+import com.shop.util.DBUtil;
+
+/**
+ * Command-line bulk import of a supplier catalog
+ *
+ * Batch size, chunk size and upsert come from the import.* keys in shop.properties and can be
+ * overridden with -D, e.g. -Dimport.upsert=false to reject product_ids that already exist.
+ *
+ * Usage: ImportProducts <catalog.csv | catalog.jsonl>
+ */
+public class ImportProducts {
+    
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: ImportProducts <catalog.csv | catalog.jsonl>");
+            System.exit(2);
+        }
+        
+        try {
+            ImportReport report = ProductImporter.fromConfig().importFile(Paths.get(args[0]));
+            System.out.println("Import finished: " + report);
+            for (String reject : report.getRejectSamples()) {
+                System.out.println("  rejected " + reject);
+            }
+            if (report.getRejected() > report.getRejectSamples().size()) {
+                System.out.println("  ... and " + (report.getRejected() - report.getRejectSamples().size()) + " more");
+            }
+        } catch (Exception e) {
+            System.err.println("Import error: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            DBUtil.shutdown();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.shop.app;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.shop.http.ModelJson;
+import com.shop.model.CartItem;
+import com.shop.model.Order;
+import com.shop.model.OrderSummary;
+import com.shop.model.Product;
+import com.shop.util.JsonWriter;
+
+/**
+ * Machine-readable BatchOutput: one JSON object per command, one per line (JSON Lines)
+ *
+ * Every object carries line, input and ok (plus error when ok is false); amounts are
+ * integer cents. The last line is a totals object.
+ */
+class JsonBatchOutput extends BatchOutput {
+    
+    private final JsonWriter json;
+    
+    JsonBatchOutput(PrintStream out) {
+        super(out);
+        this.json = new JsonWriter(out);
+    }
+    
+    @Override
+    void begin(int lineNumber, String input) {
+        json.beginObject().field("line", lineNumber).field("input", input);
+    }
+    
+    @Override
+    void field(String name, long value) {
+        json.field(name, value);
+    }
+    
+    @Override
+    void field(String name, String value) {
+        json.field(name, value);
+    }
+    
+    @Override
+    void products(List<Product> products) {
+        json.name("products").beginArray();
+        for (Product product : products) {
+            ModelJson.product(json, product);
+        }
+        json.endArray();
+    }
+    
+    @Override
+    void cart(List<CartItem> cart) {
+        long totalCents = 0;
+        json.name("cart").beginArray();
+        for (CartItem cartItem : cart) {
+            totalCents += cartItem.getLineTotalCents();
+            ModelJson.cartItem(json, cartItem);
+        }
+        json.endArray().field("totalCents", totalCents);
+    }
+    
+    @Override
+    void summary(OrderSummary summary) {
+        json.name("summary");
+        ModelJson.summary(json, summary);
+    }
+    
+    @Override
+    Consumer<Order> beginOrders() {
+        json.name("orders").beginArray();
+        return order -> ModelJson.order(json, order);
+    }
+    
+    @Override
+    void endOrders(int orderCount) {
+        json.endArray();
+    }
+    
+    @Override
+    void end(String error) {
+        // A command that failed mid-listing leaves arrays open; close them inside its object
+        json.closeTo(1);
+        json.name("ok").value(error == null);
+        if (error != null) {
+            json.field("error", error);
+        }
+        json.endObject().newline();
+    }
+    
+    @Override
+    void totals(int commands, int failed, long elapsedNanos) {
+        json.beginObject()
+            .field("commands", commands)
+            .field("failed", failed)
+            .field("elapsedMillis", elapsedNanos / 1_000_000)
+            .endObject().newline();
+    }
+}
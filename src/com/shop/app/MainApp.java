@@ -1,16 +1,45 @@
 package com.shop.app;
 
+import java.nio.file.Paths;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
 
+import com.shop.analytics.SalesAnalytics;
+import com.shop.analytics.SalesReport;
+import com.shop.analytics.SalesRow;
 import com.shop.dao.AdminDao;
+import com.shop.dao.CatalogSnapshot;
+import com.shop.dao.InventoryFeed;
+import com.shop.dao.InventoryLedger;
+import com.shop.dao.InventorySubscription;
 import com.shop.dao.OrderDao;
+import com.shop.dao.OrderHistoryQuery;
+import com.shop.dao.OrderSummaryDao;
+import com.shop.dao.Page;
+import com.shop.dao.ProductCursor;
 import com.shop.dao.ProductDao;
+import com.shop.dao.UserColumn;
 import com.shop.dao.UserDao;
+import com.shop.importer.ImportReport;
+import com.shop.importer.ProductImporter;
+import com.shop.journal.JournalStats;
+import com.shop.journal.OrderJournal;
+import com.shop.metrics.MetricsRegistry;
+import com.shop.metrics.MetricsSnapshot;
 import com.shop.model.CartItem;
+import com.shop.model.Money;
+import com.shop.model.OrderSummary;
 import com.shop.model.Product;
 import com.shop.model.User;
+import com.shop.util.AppConfig;
+import com.shop.util.DBUtil;
 
 /**
  * Main application class for E-Commerce Console Application
@@ -21,12 +50,67 @@ public class MainApp {
     private static ProductDao productDao = new ProductDao();
     private static UserDao userDao = new UserDao();
     private static AdminDao adminDao = new AdminDao();
+    private static OrderSummaryDao orderSummaryDao = new OrderSummaryDao();
+    private static InventorySubscription lowStockAlerts;
+    private static final int PAGE_SIZE = AppConfig.getInt("ui.pageSize", 20);
+    private static final int HISTORY_LIMIT = AppConfig.getInt("ui.historyLimit", 50);
     
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            int status;
+            try {
+                status = BatchMode.run(Arrays.copyOfRange(args, 1, args.length));
+            } finally {
+                DBUtil.shutdown();
+            }
+            System.exit(status);
+        }
+        
+        warmCatalog();
+        catchUpJournal();
         try {
             mainMenu();
         } finally {
             scanner.close();
+            try {
+                InventoryLedger.getInstance().shutdown();
+            } catch (SQLException e) {
+                System.err.println("Inventory flush failed at exit; pending rows are applied on the next start: " +
+                                   e.getMessage());
+            }
+            DBUtil.shutdown();
+        }
+    }
+    
+    /**
+     * Fill the product cache from the catalog snapshot when catalog.snapshot.enabled is set
+     */
+    private static void warmCatalog() {
+        CatalogSnapshot snapshot = CatalogSnapshot.fromConfig();
+        if (!snapshot.isEnabled()) {
+            return;
+        }
+        try {
+            System.out.println("Catalog: " + snapshot.warmUp());
+        } catch (Exception e) {
+            System.out.println("Catalog warm-up skipped: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Append orders that committed but were not journaled before the last exit, when journal.enabled is set
+     */
+    private static void catchUpJournal() {
+        if (!OrderJournal.getInstance().isEnabled()) {
+            return;
+        }
+        try {
+            int appended = new OrderDao().catchUpJournal();
+            if (appended > 0) {
+                System.out.println("Journal: appended " + appended + " orders missing since the last run");
+            }
+        } catch (Exception e) {
+            System.out.println("Journal catch-up skipped: " + e.getMessage());
         }
     }
     
@@ -70,6 +154,8 @@ public class MainApp {
         while (true) {
             System.out.println("\n--- GUEST MENU ---");
             System.out.println("1. View products (sort by price ASC)");
+            System.out.println("2. View products by price range");
+            System.out.println("3. Search products");
             System.out.println("0. Back");
             System.out.print("Enter choice: ");
             
@@ -81,12 +167,13 @@ public class MainApp {
             
             switch (choice) {
                 case 1:
-                    try {
-                        List<Product> products = productDao.getAllProductsSortedByPriceAsc();
-                        displayProducts(products);
-                    } catch (Exception e) {
-                        System.out.println("Error: " + e.getMessage());
-                    }
+                    browseProducts(null, null);
+                    break;
+                case 2:
+                    browseProductsByPriceRange();
+                    break;
+                case 3:
+                    searchProducts();
                     break;
                 default:
                     System.out.println("Invalid choice. Please try again.");
@@ -139,6 +226,8 @@ public class MainApp {
             System.out.println("3. View cart");
             System.out.println("4. Purchase (Checkout)");
             System.out.println("5. View my orders");
+            System.out.println("6. View products by price range");
+            System.out.println("7. Search products");
             System.out.println("0. Logout");
             System.out.print("Enter choice: ");
             
@@ -151,12 +240,7 @@ public class MainApp {
             
             switch (choice) {
                 case 1:
-                    try {
-                        List<Product> products = productDao.getAllProductsSortedByPriceAsc();
-                        displayProducts(products);
-                    } catch (Exception e) {
-                        System.out.println("Error: " + e.getMessage());
-                    }
+                    browseProducts(null, null);
                     break;
                 case 2:
                     addToCart(cart);
@@ -169,11 +253,24 @@ public class MainApp {
                     break;
                 case 5:
                     try {
-                        orderDao.printOrdersForUser(user.getUserId());
+                        OrderSummary summary = orderSummaryDao.getSummary(user.getUserId());
+                        if (summary != null) {
+                            System.out.println("Summary: " + summary);
+                        }
+                        OrderHistoryPrinter printer = new OrderHistoryPrinter(System.out, null);
+                        printer.printHeader();
+                        orderDao.streamOrdersForUser(user.getUserId(), historyQuery(), printer);
+                        printHistoryFooter(printer);
                     } catch (Exception e) {
                         System.out.println("Error: " + e.getMessage());
                     }
                     break;
+                case 6:
+                    browseProductsByPriceRange();
+                    break;
+                case 7:
+                    searchProducts();
+                    break;
                 default:
                     System.out.println("Invalid choice. Please try again.");
             }
@@ -190,6 +287,14 @@ public class MainApp {
             System.out.println("2. Check quantity by product id");
             System.out.println("3. View user history by username");
             System.out.println("4. View registered users");
+            System.out.println("5. View DAO metrics");
+            System.out.println("6. Bulk import products from file");
+            System.out.println("7. View user order summary");
+            System.out.println("8. Rebuild order summaries");
+            System.out.println("9. Sales reports");
+            System.out.println("10. Order journal");
+            System.out.println("11. Save catalog snapshot");
+            System.out.println("12. Low-stock alerts " + (lowStockAlerts == null ? "(off)" : "(on)"));
             System.out.println("0. Back");
             System.out.print("Enter choice: ");
             
@@ -210,11 +315,31 @@ public class MainApp {
                     doViewUserHistory();
                     break;
                 case 4:
-                    try {
-                        adminDao.printAllUsers();
-                    } catch (Exception e) {
-                        System.out.println("Error: " + e.getMessage());
-                    }
+                    doViewUsers();
+                    break;
+                case 5:
+                    doViewMetrics();
+                    break;
+                case 6:
+                    doImportProducts();
+                    break;
+                case 7:
+                    doViewOrderSummary();
+                    break;
+                case 8:
+                    doRebuildOrderSummaries();
+                    break;
+                case 9:
+                    salesReportsMenu();
+                    break;
+                case 10:
+                    doOrderJournal();
+                    break;
+                case 11:
+                    doSaveCatalogSnapshot();
+                    break;
+                case 12:
+                    doToggleLowStockAlerts();
                     break;
                 default:
                     System.out.println("Invalid choice. Please try again.");
@@ -277,11 +402,7 @@ public class MainApp {
             product.setDescription(scanner.nextLine());
             
             System.out.print("Price: ");
-            while (!scanner.hasNextDouble()) {
-                System.out.print("Enter valid price: ");
-                scanner.next();
-            }
-            product.setPrice(scanner.nextDouble());
+            product.setPriceCents(readMoney());
             
             System.out.print("Quantity: ");
             product.setQuantity(readInt());
@@ -298,6 +419,26 @@ public class MainApp {
         }
     }
     
+    /**
+     * Bulk import a CSV or JSON-lines catalog (admin function)
+     */
+    private static void doImportProducts() {
+        scanner.nextLine(); // consume newline
+        
+        try {
+            System.out.print("Catalog file path (.csv or .jsonl): ");
+            String path = scanner.nextLine().trim();
+            
+            ImportReport report = ProductImporter.fromConfig().importFile(Paths.get(path));
+            System.out.println("Import finished: " + report);
+            for (String reject : report.getRejectSamples()) {
+                System.out.println("  rejected " + reject);
+            }
+        } catch (Exception e) {
+            System.out.println("Import error: " + e.getMessage());
+        }
+    }
+    
     /**
      * Check product quantity (admin function)
      */
@@ -318,6 +459,26 @@ public class MainApp {
         }
     }
     
+    /**
+     * Print per-operation DAO latency metrics (admin function)
+     */
+    private static void doViewMetrics() {
+        scanner.nextLine(); // consume newline
+        System.out.print("Format (text/json, blank for text): ");
+        String format = scanner.nextLine().trim();
+        
+        MetricsSnapshot snapshot = MetricsRegistry.getInstance().snapshot();
+        if (snapshot.getOperations().isEmpty()) {
+            System.out.println("No DAO calls recorded yet" +
+                               (MetricsRegistry.getInstance().isEnabled() ? "." : " (metrics.enabled=false)."));
+        } else if (format.equalsIgnoreCase("json")) {
+            System.out.println(snapshot.toJson());
+        } else {
+            System.out.print(snapshot.toText());
+        }
+        System.out.println("Pool: " + DBUtil.getPoolStats());
+    }
+    
     /**
      * View user purchase history (admin function)
      */
@@ -327,9 +488,274 @@ public class MainApp {
         try {
             System.out.print("Enter username: ");
             String username = scanner.nextLine();
-            adminDao.printUserHistoryByUsername(username);
+            OrderHistoryPrinter printer = new OrderHistoryPrinter(System.out, username);
+            printer.printHeader();
+            adminDao.streamUserHistoryByUsername(username, historyQuery(), printer);
+            printHistoryFooter(printer);
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * View a user's order count and lifetime spend from the summary table (admin function)
+     */
+    private static void doViewOrderSummary() {
+        scanner.nextLine(); // consume newline
+        
+        try {
+            System.out.print("Enter username: ");
+            String username = scanner.nextLine();
+            OrderSummary summary = orderSummaryDao.getSummaryByUsername(username);
+            
+            if (summary == null) {
+                System.out.println("No orders found for " + username + ".");
+            } else {
+                System.out.println(username + ": " + summary);
+            }
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Regenerate all order summaries from the order tables (admin function)
+     */
+    private static void doRebuildOrderSummaries() {
+        try {
+            int users = orderSummaryDao.rebuild();
+            System.out.println("Order summaries rebuilt for " + users + " users.");
+        } catch (Exception e) {
+            System.out.println("Rebuild error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Show journal status, replay it and optionally compact old orders (admin function)
+     */
+    private static void doOrderJournal() {
+        scanner.nextLine(); // consume newline
+        
+        try {
+            OrderJournal journal = OrderJournal.getInstance();
+            JournalStats stats = journal.getStats();
+            System.out.println("Journal: " + stats);
+            if (!stats.isEnabled()) {
+                return;
+            }
+            
+            long[] totals = new long[2];
+            long start = System.nanoTime();
+            long orders = journal.replay(0, event -> {
+                totals[0] += event.getLineCount();
+                totals[1] += event.getTotalCents();
+            });
+            System.out.printf("Replayed %d orders (%d lines, %s) in %.1f ms%n",
+                              orders, totals[0], Money.format(totals[1]), (System.nanoTime() - start) / 1e6);
+            
+            System.out.print("Drop orders older than how many days? (blank to skip): ");
+            String days = scanner.nextLine().trim();
+            if (!days.isEmpty()) {
+                long cutoff = System.currentTimeMillis() - Long.parseLong(days) * 86_400_000L;
+                System.out.println("Compacted: " + journal.compact(cutoff) + " orders dropped.");
+            }
+        } catch (Exception e) {
+            System.out.println("Journal error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Dump the catalog to the snapshot file used for warm starts (admin function)
+     */
+    private static void doSaveCatalogSnapshot() {
+        try {
+            long start = System.nanoTime();
+            int products = CatalogSnapshot.fromConfig().write();
+            System.out.printf("Catalog snapshot saved: %d products in %.1f ms%n",
+                              products, (System.nanoTime() - start) / 1e6);
+        } catch (Exception e) {
+            System.out.println("Snapshot error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Switch low-stock alerts on or off; alerts print as orders run stock down (admin function)
+     */
+    private static void doToggleLowStockAlerts() {
+        if (lowStockAlerts != null) {
+            System.out.println("Low-stock alerts off: " + lowStockAlerts);
+            lowStockAlerts.close();
+            lowStockAlerts = null;
+            return;
+        }
+        
+        System.out.print("Alert when quantity drops to: ");
+        int threshold = readInt();
+        lowStockAlerts = InventoryFeed.getInstance().subscribeLowStock("console", threshold, event ->
+            System.out.println("\n[Low stock] " + event));
+        System.out.println("Low-stock alerts on for quantity <= " + threshold + ".");
+    }
+    
+    /**
+     * Aggregate all order lines once, then show reports from the result (admin function)
+     */
+    private static void salesReportsMenu() {
+        SalesReport report;
+        try {
+            System.out.println("Aggregating sales...");
+            report = SalesAnalytics.fromConfig().run();
+            System.out.println("Scanned " + report);
+        } catch (Exception e) {
+            System.out.println("Sales report error: " + e.getMessage());
+            return;
+        }
+        
+        while (true) {
+            System.out.println("\n--- SALES REPORTS ---");
+            System.out.println("1. Top-selling products (units)");
+            System.out.println("2. Revenue per product");
+            System.out.println("3. Revenue per day");
+            System.out.println("4. Sales per city");
+            System.out.println("0. Back");
+            System.out.print("Enter choice: ");
+            
+            int choice = readInt();
+            
+            if (choice == 0) {
+                return;
+            }
+            
+            switch (choice) {
+                case 1:
+                    printProductSales(report.topProductsByUnits(PAGE_SIZE));
+                    break;
+                case 2:
+                    printProductSales(report.topProductsByRevenue(PAGE_SIZE));
+                    break;
+                case 3:
+                    printSalesRows("DAY", report.revenueByDay());
+                    break;
+                case 4:
+                    printSalesRows("CITY", report.salesByCity());
+                    break;
+                default:
+                    System.out.println("Invalid choice. Please try again.");
+            }
+        }
+    }
+    
+    /**
+     * Print product sales rows with product names looked up in one query
+     */
+    private static void printProductSales(List<SalesRow> rows) {
+        List<Integer> productIds = new ArrayList<>(rows.size());
+        for (SalesRow row : rows) {
+            productIds.add(row.getKey());
+        }
+        
+        Map<Integer, Product> products;
+        try {
+            products = productDao.getByIds(productIds);
         } catch (Exception e) {
             System.out.println("Error: " + e.getMessage());
+            return;
+        }
+        
+        System.out.printf("\n%-6s %-22s %-10s %-14s%n", "ID", "NAME", "UNITS", "REVENUE");
+        System.out.printf("%-6s %-22s %-10s %-14s%n", "------", "----------------------", "----------",
+                          "--------------");
+        for (SalesRow row : rows) {
+            Product product = products.get(row.getKey());
+            System.out.printf("%-6d %-22s %-10d %-14s%n", row.getKey(),
+                              product == null ? "(removed)" : product.getName(), row.getUnits(),
+                              Money.format(row.getRevenueCents()));
+        }
+    }
+    
+    /**
+     * Print day or city sales rows
+     */
+    private static void printSalesRows(String keyHeader, List<SalesRow> rows) {
+        System.out.printf("\n%-22s %-10s %-14s%n", keyHeader, "UNITS", "REVENUE");
+        System.out.printf("%-22s %-10s %-14s%n", "----------------------", "----------", "--------------");
+        for (SalesRow row : rows) {
+            System.out.printf("%-22s %-10d %-14s%n", row.getLabel(), row.getUnits(),
+                              Money.format(row.getRevenueCents()));
+        }
+    }
+    
+    /**
+     * Page through registered users, optionally filtered by role and city (admin function)
+     */
+    private static void doViewUsers() {
+        scanner.nextLine(); // consume newline
+        
+        try {
+            System.out.print("Role (ADMIN/USER, blank for all): ");
+            String role = blankToNull(scanner.nextLine());
+            System.out.print("City (blank for all): ");
+            String city = blankToNull(scanner.nextLine());
+            
+            Set<UserColumn> columns = EnumSet.of(UserColumn.ROLE, UserColumn.NAME, UserColumn.USERNAME,
+                                                 UserColumn.EMAIL, UserColumn.MOBILE, UserColumn.CITY);
+            int afterUserId = 0;
+            
+            while (true) {
+                Page<User> page = adminDao.getUsersPage(role, city, afterUserId, PAGE_SIZE, columns);
+                
+                if (page.isEmpty() && afterUserId == 0) {
+                    System.out.println("No users found.");
+                    return;
+                }
+                
+                System.out.println("\nID | ROLE | NAME | USERNAME | EMAIL | MOBILE | CITY");
+                for (User user : page.getItems()) {
+                    System.out.println(
+                        user.getUserId() + " | " +
+                        user.getRole() + " | " +
+                        user.getFirstName() + " " + user.getLastName() + " | " +
+                        user.getUsername() + " | " +
+                        user.getEmail() + " | " +
+                        user.getMobile() + " | " +
+                        user.getCity()
+                    );
+                }
+                
+                if (!page.hasMore()) {
+                    return;
+                }
+                
+                System.out.print("1. Next page  0. Back: ");
+                if (readInt() != 1) {
+                    return;
+                }
+                afterUserId = page.getLast().getUserId();
+            }
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+    
+    private static String blankToNull(String value) {
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+    
+    /**
+     * History limits used by the console: the ui.historyLimit most recent orders
+     */
+    private static OrderHistoryQuery historyQuery() {
+        return OrderHistoryQuery.all().mostRecent(HISTORY_LIMIT);
+    }
+    
+    /**
+     * Print a note after a streamed history listing
+     */
+    private static void printHistoryFooter(OrderHistoryPrinter printer) {
+        if (printer.getOrderCount() == 0) {
+            System.out.println("No orders found.");
+        } else if (printer.getOrderCount() == HISTORY_LIMIT) {
+            System.out.println("Showing the " + HISTORY_LIMIT + " most recent orders.");
         }
     }
     
@@ -355,22 +781,37 @@ public class MainApp {
                 return;
             }
             
-            if (quantity > product.getQuantity()) {
-                System.out.println("Not enough stock. Available: " + product.getQuantity());
-                return;
-            }
-            
             // Check if product already in cart
-            for (CartItem cartItem : cart) {
-                if (cartItem.getProductId() == productId) {
-                    cartItem.setQty(cartItem.getQty() + quantity);
-                    System.out.println("Updated quantity in cart.");
+            for (ListIterator<CartItem> lines = cart.listIterator(); lines.hasNext(); ) {
+                CartItem cartItem = lines.next();
+                if (cartItem.getProductId() != productId) {
+                    continue;
+                }
+                int newQty = cartItem.getQty() + quantity;
+                if (newQty > product.getQuantity()) {
+                    System.out.println("Not enough stock. Available: " + product.getQuantity() +
+                                       ", already in cart: " + cartItem.getQty());
                     return;
                 }
+                if (cartItem.getPriceCents() != product.getPriceCents()) {
+                    // The whole line moves to the current price, not just the added units
+                    lines.set(new CartItem(productId, product.getName(), product.getPriceCents(), newQty));
+                    System.out.println("Price changed from " + Money.format(cartItem.getPriceCents()) + " to " +
+                                       Money.format(product.getPriceCents()) + "; updated quantity at the new price.");
+                } else {
+                    cartItem.setQty(newQty);
+                    System.out.println("Updated quantity in cart.");
+                }
+                return;
+            }
+            
+            if (quantity > product.getQuantity()) {
+                System.out.println("Not enough stock. Available: " + product.getQuantity());
+                return;
             }
             
             // Add new item to cart
-            cart.add(new CartItem(productId, product.getName(), product.getPrice(), quantity));
+            cart.add(new CartItem(productId, product.getName(), product.getPriceCents(), quantity));
             System.out.println("Added to cart successfully.");
         } catch (Exception e) {
             System.out.println("Add to cart error: " + e.getMessage());
@@ -386,54 +827,158 @@ public class MainApp {
             return;
         }
         
-        double totalAmount = 0;
+        long totalCents = 0;
         System.out.printf("\n%-6s %-22s %-10s %-6s %-10s%n", "ID", "NAME", "PRICE", "QTY", "TOTAL");
-        System.out.printf("%-6s %-22s %-10s %-6s %-10s%n", "------", "----------------------", 
+        System.out.printf("%-6s %-22s %-10s %-6s %-10s%n", "------", "----------------------",
                           "----------", "------", "----------");
         
         for (CartItem cartItem : cart) {
-            double lineTotal = cartItem.getLineTotal();
-            totalAmount += lineTotal;
+            long lineTotalCents = cartItem.getLineTotalCents();
+            totalCents += lineTotalCents;
             
-            System.out.printf("%-6d %-22s %-10.2f %-6d %-10.2f%n",
+            System.out.printf("%-6d %-22s %-10s %-6d %-10s%n",
                 cartItem.getProductId(),
                 cartItem.getName(),
-                cartItem.getPrice(),
+                Money.format(cartItem.getPriceCents()),
                 cartItem.getQty(),
-                lineTotal);
+                Money.format(lineTotalCents));
         }
         
-        System.out.printf("%-6s %-22s %-10s %-6s %-10.2f%n", "", "", "", "TOTAL:", totalAmount);
+        System.out.printf("%-6s %-22s %-10s %-6s %-10s%n", "", "", "", "TOTAL:", Money.format(totalCents));
     }
     
     /**
      * Process cart checkout and place order
+     * The cart is repriced before the user confirms; if the order is still rejected because a
+     * price changed meanwhile, the cart is repriced again and the user asked to confirm again
      */
     private static void purchaseCart(User user, List<CartItem> cart, OrderDao orderDao) {
-        if (cart.isEmpty()) {
-            System.out.println("Your cart is empty. Cannot place order.");
-            return;
-        }
-        
-        viewCart(cart);
-        
-        System.out.print("Confirm purchase? (yes/no): ");
         scanner.nextLine(); // consume newline
-        String confirm = scanner.nextLine();
         
-        if (!confirm.equalsIgnoreCase("yes")) {
-            System.out.println("Order cancelled.");
+        try {
+            repriceCart(cart, orderDao);
+            while (true) {
+                if (cart.isEmpty()) {
+                    System.out.println("Your cart is empty. Cannot place order.");
+                    return;
+                }
+                
+                viewCart(cart);
+                
+                System.out.print("Confirm purchase? (yes/no): ");
+                String confirm = scanner.nextLine();
+                
+                if (!confirm.equalsIgnoreCase("yes")) {
+                    System.out.println("Order cancelled.");
+                    return;
+                }
+                
+                try {
+                    int orderId = orderDao.placeOrder(user.getUserId(), cart);
+                    System.out.println("Order placed successfully! Order ID: " + orderId);
+                    
+                    // Clear cart after successful order
+                    cart.clear();
+                    return;
+                } catch (SQLException e) {
+                    // Anything but a price change or a removed product is not fixed by repricing
+                    if (!repriceCart(cart, orderDao)) {
+                        throw e;
+                    }
+                    System.out.println("Your cart was updated; please review it and confirm again.");
+                }
+            }
+        } catch (Exception e) {
+            System.out.println("Purchase error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Bring every cart line to the product's current price, dropping products that no longer exist
+     * @param cart the shopper's cart
+     * @param orderDao DAO that reprices the cart
+     * @return true if any line was repriced or removed
+     * @throws SQLException if database error occurs
+     */
+    private static boolean repriceCart(List<CartItem> cart, OrderDao orderDao) throws SQLException {
+        List<String> changes = orderDao.repriceCart(cart);
+        for (String change : changes) {
+            System.out.println(change);
+        }
+        return !changes.isEmpty();
+    }
+    
+    /**
+     * Page through products sorted by price, optionally within a price range
+     * @param minPriceCents lowest price in cents to show, or null
+     * @param maxPriceCents highest price in cents to show, or null
+     */
+    private static void browseProducts(Long minPriceCents, Long maxPriceCents) {
+        try {
+            ProductCursor cursor = null;
+            int pageNumber = 1;
+            
+            while (true) {
+                Page<Product> page = productDao.getProductsPage(minPriceCents, maxPriceCents, cursor, PAGE_SIZE);
+                
+                if (page.isEmpty() && cursor == null) {
+                    System.out.println("No products found.");
+                    return;
+                }
+                
+                System.out.println("\nPage " + pageNumber);
+                displayProducts(page.getItems());
+                
+                if (!page.hasMore()) {
+                    return;
+                }
+                
+                System.out.print("1. Next page  0. Back: ");
+                if (readInt() != 1) {
+                    return;
+                }
+                cursor = ProductCursor.after(page.getLast());
+                pageNumber++;
+            }
+        } catch (Exception e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Ask for a price range and page through matching products
+     */
+    private static void browseProductsByPriceRange() {
+        System.out.print("Min price: ");
+        long minPriceCents = readMoney();
+        System.out.print("Max price: ");
+        long maxPriceCents = readMoney();
+        
+        if (minPriceCents > maxPriceCents) {
+            System.out.println("Min price must not exceed max price.");
             return;
         }
+        browseProducts(minPriceCents, maxPriceCents);
+    }
+    
+    /**
+     * Ask for keywords and show the best matching products
+     */
+    private static void searchProducts() {
+        scanner.nextLine(); // consume newline
         
         try {
-            int orderId = orderDao.placeOrder(user.getUserId(), cart);
-            System.out.println("Order placed successfully! Order ID: " + orderId);
+            System.out.print("Search (words or word beginnings): ");
+            String query = scanner.nextLine();
+            List<Product> products = productDao.search(query, PAGE_SIZE);
             
-            // Clear cart after successful order
-            cart.clear();
+            if (products.isEmpty()) {
+                System.out.println("No matching products.");
+            } else {
+                displayProducts(products);
+            }
         } catch (Exception e) {
-            System.out.println("Purchase error: " + e.getMessage());
+            System.out.println("Search error: " + e.getMessage());
         }
     }
     
@@ -442,14 +987,14 @@ public class MainApp {
      */
     private static void displayProducts(List<Product> products) {
         System.out.printf("\n%-6s %-22s %-10s %-6s%n", "ID", "NAME", "PRICE", "QTY");
-        System.out.printf("%-6s %-22s %-10s %-6s%n", "------", "----------------------", 
+        System.out.printf("%-6s %-22s %-10s %-6s%n", "------", "----------------------",
                           "----------", "------");
         
         for (Product product : products) {
-            System.out.printf("%-6d %-22s %-10.2f %-6d%n",
+            System.out.printf("%-6d %-22s %-10s %-6d%n",
                 product.getProductId(),
                 product.getName(),
-                product.getPrice(),
+                Money.format(product.getPriceCents()),
                 product.getQuantity());
         }
     }
@@ -464,4 +1009,22 @@ public class MainApp {
         }
         return scanner.nextInt();
     }
+    
+    /**
+     * Read a money amount with at most two decimals, returned in cents
+     */
+    private static long readMoney() {
+        while (true) {
+            String token = scanner.next();
+            try {
+                long cents = Money.parse(token);
+                if (cents >= 0) {
+                    return cents;
+                }
+            } catch (NumberFormatException e) {
+                // Fall through to the prompt below
+            }
+            System.out.print("Please enter a valid amount (e.g. 12.50): ");
+        }
+    }
 }
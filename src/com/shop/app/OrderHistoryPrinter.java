@@ -0,0 +1,64 @@
+package com.shop.app;
+
+import java.io.PrintStream;
+import java.util.function.Consumer;
+
+import com.shop.model.Money;
+import com.shop.model.Order;
+import com.shop.model.OrderLine;
+
+/**
+ * Renders streamed orders as one text row per order line
+ */
+public class OrderHistoryPrinter implements Consumer<Order> {
+    
+    private final PrintStream out;
+    private final String username;
+    private int orderCount;
+    
+    /**
+     * Constructor for OrderHistoryPrinter
+     * @param out destination stream
+     * @param username shown as the first column when not null (admin view)
+     */
+    public OrderHistoryPrinter(PrintStream out, String username) {
+        this.out = out;
+        this.username = username;
+    }
+    
+    /**
+     * Print the column header
+     */
+    public void printHeader() {
+        out.println(username != null
+            ? "\nUSERNAME | ORDER_ID | TIME | TOTAL | PID | PRODUCT | QTY | PRICE"
+            : "\nORDER_ID | TIME | TOTAL | PID | PRODUCT | QTY | PRICE");
+    }
+    
+    @Override
+    public void accept(Order order) {
+        orderCount++;
+        for (OrderLine line : order.getLines()) {
+            StringBuilder row = new StringBuilder();
+            if (username != null) {
+                row.append(username).append(" | ");
+            }
+            row.append(order.getOrderId()).append(" | ")
+               .append(order.getOrderTime()).append(" | ")
+               .append(Money.format(order.getTotalAmountCents())).append(" | ")
+               .append(line.getProductId()).append(" | ")
+               .append(line.getProductName()).append(" | ")
+               .append(line.getQty()).append(" | ")
+               .append(Money.format(line.getPriceAtPurchaseCents()));
+            out.println(row);
+        }
+    }
+    
+    /**
+     * Number of orders printed so far
+     * @return order count
+     */
+    public int getOrderCount() {
+        return orderCount;
+    }
+}
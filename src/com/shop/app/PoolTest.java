@@ -0,0 +1,173 @@
+package com.shop.app;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import com.shop.util.ConnectionPool;
+import com.shop.util.PoolStats;
+
+/**
+ * Test class to verify ConnectionPool against an embedded H2 database
+ * Run with the H2 jar on the classpath; exits with status 1 if any check fails
+ */
+public class PoolTest {
+    
+    private static int failures;
+    
+    public static void main(String[] args) {
+        try {
+            checkAcquireTimeout();
+            checkValidationOnBorrow();
+            checkIdleEviction();
+            checkStats();
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+            failures++;
+        }
+        System.out.println(failures == 0 ? "ALL CHECKS PASSED" : failures + " CHECK(S) FAILED");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+    
+    /**
+     * An exhausted pool fails the borrow after acquireTimeoutMillis and counts the timeout
+     */
+    private static void checkAcquireTimeout() throws SQLException {
+        ConnectionPool pool = newPool("timeout", 0, 1, 200, 600_000, 600_000);
+        Connection held = pool.getConnection();
+        try {
+            long start = System.nanoTime();
+            try {
+                pool.getConnection().close();
+                check("acquire timeout", false);
+            } catch (SQLException e) {
+                long waitedMillis = (System.nanoTime() - start) / 1_000_000;
+                check("acquire timeout waits about acquireTimeoutMillis (" + waitedMillis + " ms)",
+                      waitedMillis >= 150 && waitedMillis < 2000);
+            }
+            check("timeout counted", pool.getStats().getTimeoutCount() == 1);
+        } finally {
+            held.close();
+        }
+        try (Connection afterReturn = pool.getConnection()) {
+            check("borrow succeeds once the connection is returned", !afterReturn.isClosed());
+        } finally {
+            pool.close();
+        }
+    }
+    
+    /**
+     * An idle connection that died while pooled is discarded on borrow and replaced
+     */
+    private static void checkValidationOnBorrow() throws SQLException {
+        ConnectionPool pool = newPool("validation", 0, 2, 1000, 600_000, 600_000);
+        try {
+            pool.getConnection().close();
+            
+            // Kill the database under the idle connection; the next borrow opens a fresh one
+            try (Connection direct = DriverManager.getConnection(url("validation"), "sa", "");
+                 Statement statement = direct.createStatement()) {
+                statement.execute("SHUTDOWN");
+            }
+            try (Connection connection = pool.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("SELECT 1");
+                check("borrow after the database restarted returns a working connection", true);
+            }
+            PoolStats stats = pool.getStats();
+            check("dead connection destroyed on borrow", stats.getDestroyedCount() == 1);
+            check("replacement connection created", stats.getCreatedCount() == 2);
+        } finally {
+            pool.close();
+        }
+    }
+    
+    /**
+     * Connections idle past idleTimeoutMillis are closed down to minIdle
+     */
+    private static void checkIdleEviction() throws Exception {
+        ConnectionPool pool = newPool("eviction", 1, 4, 1000, 100, 50);
+        try {
+            Connection first = pool.getConnection();
+            Connection second = pool.getConnection();
+            Connection third = pool.getConnection();
+            first.close();
+            second.close();
+            third.close();
+            check("three connections idle after return", pool.getStats().getIdle() == 3);
+            
+            Thread.sleep(600);
+            PoolStats stats = pool.getStats();
+            check("idle connections evicted down to minIdle (idle=" + stats.getIdle() + ")", stats.getIdle() == 1);
+            check("evicted connections counted", stats.getDestroyedCount() == 2);
+        } finally {
+            pool.close();
+        }
+    }
+    
+    /**
+     * Borrow and return counters match what was done
+     */
+    private static void checkStats() throws SQLException {
+        ConnectionPool pool = newPool("stats", 0, 3, 1000, 600_000, 600_000);
+        try {
+            Connection first = pool.getConnection();
+            Connection second = pool.getConnection();
+            PoolStats busy = pool.getStats();
+            check("two active while borrowed", busy.getActive() == 2 && busy.getIdle() == 0);
+            check("pool reports active count", pool.getActiveCount() == 2);
+            
+            first.close();
+            first.close(); // returned only once
+            second.close();
+            pool.getConnection().close();
+            
+            PoolStats stats = pool.getStats();
+            check("nothing active after return", stats.getActive() == 0 && stats.getIdle() == 2);
+            check("acquires counted", stats.getAcquireCount() == 3);
+            check("idle connection reused", stats.getCreatedCount() == 2);
+            check("closed lease rejects use", isRejected(first));
+        } finally {
+            pool.close();
+        }
+        try {
+            pool.getConnection();
+            check("closed pool rejects borrow", false);
+        } catch (SQLException e) {
+            check("closed pool rejects borrow", true);
+        }
+    }
+    
+    private static boolean isRejected(Connection returned) {
+        try {
+            returned.createStatement();
+            return false;
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+    
+    private static ConnectionPool newPool(String database, int minIdle, int maxSize, long acquireTimeoutMillis,
+                                          long idleTimeoutMillis, long evictionIntervalMillis) {
+        Properties properties = new Properties();
+        properties.setProperty("user", "sa");
+        properties.setProperty("password", "");
+        // validationBypassMillis=0 so every borrow of an idle connection is validated
+        return new ConnectionPool(url(database), properties, minIdle, maxSize, acquireTimeoutMillis,
+                                  idleTimeoutMillis, evictionIntervalMillis, 0, 2);
+    }
+    
+    private static String url(String database) {
+        return "jdbc:h2:mem:pool_" + database + ";DB_CLOSE_DELAY=-1";
+    }
+    
+    private static void check(String name, boolean passed) {
+        System.out.println((passed ? "PASS: " : "FAIL: ") + name);
+        if (!passed) {
+            failures++;
+        }
+    }
+}
@@ -2,7 +2,9 @@ package com.shop.app;
 
 import java.util.List;
 
+import com.shop.dao.ProductCache;
 import com.shop.dao.ProductDao;
+import com.shop.model.Money;
 import com.shop.model.Product;
 
 /**
@@ -16,16 +18,20 @@ public class ProductTest {
             List<Product> products = productDao.getAllProductsSortedByPriceAsc();
             
             System.out.printf("%-6s %-22s %-10s %-6s%n", "ID", "NAME", "PRICE", "QTY");
-            System.out.printf("%-6s %-22s %-10s %-6s%n", "------", "----------------------", 
+            System.out.printf("%-6s %-22s %-10s %-6s%n", "------", "----------------------",
                             "----------", "------");
             
             for (Product product : products) {
-                System.out.printf("%-6d %-22s %-10.2f %-6d%n",
+                System.out.printf("%-6d %-22s %-10s %-6d%n",
                     product.getProductId(),
                     product.getName(),
-                    product.getPrice(),
+                    Money.format(product.getPriceCents()),
                     product.getQuantity());
             }
+            
+            // Second read should be served by the catalog cache
+            productDao.getAllProductsSortedByPriceAsc();
+            System.out.println("\nCACHE: " + ProductCache.getInstance().getStats());
         } catch (Exception e) {
             System.err.println("Error: " + e.getMessage());
             e.printStackTrace();
@@ -0,0 +1,261 @@
+package com.shop.app;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import com.shop.dao.ConsistencyKeys;
+import com.shop.dao.ProductCache;
+import com.shop.dao.ProductDao;
+import com.shop.model.Product;
+import com.shop.util.ConnectionPool;
+import com.shop.util.DBUtil;
+import com.shop.util.ReplicaSet;
+
+/**
+ * Test class to verify read routing across a primary and two replicas, all embedded H2 databases
+ * Every database holds a whoami table naming it, so each check can tell which pool served a read;
+ * product checks give the replicas a different stock than the primary instead.
+ * Run with the H2 jar on the classpath; exits with status 1 if any check fails
+ */
+public class ReplicaRoutingTest {
+    
+    private static final long READ_YOUR_WRITES_MILLIS = 300;
+    
+    private static int failures;
+    
+    public static void main(String[] args) {
+        try {
+            checkRoundRobin();
+            checkLeastLoaded();
+            checkReplicaFailover();
+            checkReadYourWrites();
+            checkRecentlyWrittenProducts();
+            checkFallbackToPrimary();
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+            failures++;
+        } finally {
+            DBUtil.shutdown();
+        }
+        System.out.println(failures == 0 ? "ALL CHECKS PASSED" : failures + " CHECK(S) FAILED");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+    
+    /**
+     * Round-robin hands out the replicas in turn
+     */
+    private static void checkRoundRobin() throws SQLException {
+        createDatabase("rr1");
+        createDatabase("rr2");
+        ReplicaSet replicas = new ReplicaSet(Arrays.asList(newPool("rr1"), newPool("rr2")),
+                                             ReplicaSet.Selection.ROUND_ROBIN);
+        try {
+            List<String> served = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                try (Connection connection = replicas.getConnection()) {
+                    served.add(whoami(connection));
+                }
+            }
+            check("round-robin alternates replicas " + served,
+                  served.equals(Arrays.asList("rr1", "rr2", "rr1", "rr2")));
+        } finally {
+            replicas.close();
+        }
+    }
+    
+    /**
+     * Least-loaded picks the replica with the fewest borrowed connections, the first on a tie
+     */
+    private static void checkLeastLoaded() throws SQLException {
+        createDatabase("ll1");
+        createDatabase("ll2");
+        ReplicaSet replicas = new ReplicaSet(Arrays.asList(newPool("ll1"), newPool("ll2")),
+                                             ReplicaSet.Selection.LEAST_LOADED);
+        try {
+            Connection first = replicas.getConnection();
+            Connection second = replicas.getConnection();
+            Connection third = replicas.getConnection();
+            try {
+                check("least-loaded takes the first replica when both are idle", whoami(first).equals("ll1"));
+                check("least-loaded avoids the busy replica", whoami(second).equals("ll2"));
+                check("least-loaded takes the first replica on a tie", whoami(third).equals("ll1"));
+            } finally {
+                third.close();
+                second.close();
+            }
+            try (Connection fourth = replicas.getConnection()) {
+                check("least-loaded follows returned connections", whoami(fourth).equals("ll2"));
+            } finally {
+                first.close();
+            }
+        } finally {
+            replicas.close();
+        }
+    }
+    
+    /**
+     * A replica that cannot hand out connections is skipped
+     */
+    private static void checkReplicaFailover() throws SQLException {
+        createDatabase("fo2");
+        // fo1 is never created, so IFEXISTS makes every connection attempt fail
+        ReplicaSet replicas = new ReplicaSet(Arrays.asList(newPool("fo1"), newPool("fo2")),
+                                             ReplicaSet.Selection.ROUND_ROBIN);
+        try {
+            boolean allFromSecond = true;
+            for (int i = 0; i < 4; i++) {
+                try (Connection connection = replicas.getConnection()) {
+                    allFromSecond &= whoami(connection).equals("fo2");
+                }
+            }
+            check("reads skip the unavailable replica", allFromSecond);
+        } finally {
+            replicas.close();
+        }
+    }
+    
+    /**
+     * Within db.readYourWritesMillis of a write, reads of its key go to the primary; others use replicas
+     */
+    private static void checkReadYourWrites() throws Exception {
+        createDatabase("primary");
+        createDatabase("r1");
+        createDatabase("r2");
+        configureDbUtil();
+        
+        check("read without a key goes to a replica", isReplica(readFrom(null)));
+        check("read of an unwritten key goes to a replica", isReplica(readFrom("user:1")));
+        
+        DBUtil.markWritten("user:1");
+        check("read of a just-written key goes to the primary", readFrom("user:1").equals("primary"));
+        check("read of another key still goes to a replica", isReplica(readFrom("user:2")));
+        
+        Thread.sleep(READ_YOUR_WRITES_MILLIS + 200);
+        check("read of the key goes back to a replica after the window", isReplica(readFrom("user:1")));
+    }
+    
+    /**
+     * Products whose stock changed recently are read from the primary, alone or inside a listing,
+     * and the lagging replica copy never reaches the product cache
+     */
+    private static void checkRecentlyWrittenProducts() throws SQLException {
+        // The replicas still hold the stock from before an order the primary has committed
+        createProducts("primary", 10);
+        createProducts("r1", 99);
+        createProducts("r2", 99);
+        ProductDao productDao = new ProductDao();
+        
+        check("unwritten product is read from a replica", productDao.getById(2).getQuantity() == 99);
+        
+        DBUtil.markWritten(ConsistencyKeys.product(1));
+        ProductCache.getInstance().invalidate(1);
+        check("product with a recent stock write is read from the primary", productDao.getById(1).getQuantity() == 10);
+        check("cached copy is the primary one", productDao.getById(1).getQuantity() == 10);
+        
+        Map<Integer, Product> listed = new HashMap<>();
+        for (Product product : productDao.getProductsPage(null, null, null, 10).getItems()) {
+            listed.put(product.getProductId(), product);
+        }
+        check("listing takes the recently written product from the primary",
+              listed.get(1).getQuantity() == 10 && listed.get(2).getQuantity() == 99);
+    }
+    
+    /**
+     * When no replica can serve, reads fall back to the primary
+     */
+    private static void checkFallbackToPrimary() throws SQLException {
+        shutdownDatabase("r1");
+        shutdownDatabase("r2");
+        check("read falls back to the primary when every replica is down", readFrom(null).equals("primary"));
+        check("keyed read falls back to the primary too", readFrom("user:3").equals("primary"));
+    }
+    
+    /**
+     * Point DBUtil at the primary and replicas; must run before anything else touches DBUtil
+     */
+    private static void configureDbUtil() {
+        System.setProperty("db.url", url("primary"));
+        System.setProperty("db.user", "sa");
+        System.setProperty("db.password", "");
+        System.setProperty("db.pool.minIdle", "0");
+        // Validate every borrow, so a replica that went down is noticed at once
+        System.setProperty("db.pool.validationBypassMillis", "0");
+        System.setProperty("db.replicas", "r1,r2");
+        System.setProperty("db.replica.r1.url", url("r1"));
+        System.setProperty("db.replica.r2.url", url("r2"));
+        System.setProperty("db.replicaSelection", "round-robin");
+        System.setProperty("db.readYourWritesMillis", String.valueOf(READ_YOUR_WRITES_MILLIS));
+    }
+    
+    private static String readFrom(String consistencyKey) throws SQLException {
+        try (Connection connection = DBUtil.getReadConnection(consistencyKey)) {
+            return whoami(connection);
+        }
+    }
+    
+    private static boolean isReplica(String database) {
+        return database.equals("r1") || database.equals("r2");
+    }
+    
+    private static String whoami(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT name FROM whoami")) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+    
+    private static void createDatabase(String database) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url(database).replace(";IFEXISTS=TRUE", ""), "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE whoami (name VARCHAR(20))");
+            statement.execute("INSERT INTO whoami VALUES ('" + database + "')");
+        }
+    }
+    
+    private static void createProducts(String database, int quantity) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url(database), "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE products (product_id INT PRIMARY KEY, name VARCHAR(100), " +
+                              "description VARCHAR(255), price DECIMAL(10,2), quantity INT)");
+            statement.execute("INSERT INTO products VALUES (1, 'Mouse', 'Wireless', 10.00, " + quantity + "), " +
+                              "(2, 'Keyboard', 'Mechanical', 20.00, " + quantity + ")");
+        }
+    }
+    
+    private static void shutdownDatabase(String database) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url(database), "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+    
+    private static ConnectionPool newPool(String database) {
+        Properties properties = new Properties();
+        properties.setProperty("user", "sa");
+        properties.setProperty("password", "");
+        return new ConnectionPool(url(database), properties, 0, 4, 1000, 600_000, 600_000, 0, 2);
+    }
+    
+    private static String url(String database) {
+        // IFEXISTS keeps a database that was shut down (or never created) from coming back empty
+        return "jdbc:h2:mem:routing_" + database + ";DB_CLOSE_DELAY=-1;IFEXISTS=TRUE;IGNORE_UNKNOWN_SETTINGS=TRUE";
+    }
+    
+    private static void check(String name, boolean passed) {
+        System.out.println((passed ? "PASS: " : "FAIL: ") + name);
+        if (!passed) {
+            failures++;
+        }
+    }
+}
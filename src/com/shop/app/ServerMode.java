@@ -0,0 +1,141 @@
+package com.shop.app;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.shop.dao.ProductCache;
+import com.shop.metrics.MetricsRegistry;
+import com.shop.model.Product;
+import com.shop.service.ShopService;
+import com.shop.service.ShopperSession;
+import com.shop.util.DBUtil;
+import com.shop.util.ExecutorFactory;
+
+/**
+ * Server mode: hosts many concurrent shopper sessions in one JVM
+ *
+ * Each session runs as its own task (a virtual thread on Java 21+, otherwise a bounded
+ * platform-thread pool), logs in, fills a cart and checks out repeatedly. All sessions share
+ * one ShopService, so the DAOs, connection pool and catalog cache are shared as in production.
+ *
+ * Usage: ServerMode [sessions] [ordersPerSession] [linesPerOrder] [username] [password]
+ * e.g.   ServerMode 200 20 3 ajay secret
+ */
+public class ServerMode {
+    
+    public static void main(String[] args) throws Exception {
+        int sessionCount = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int ordersPerSession = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int linesPerOrder = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        String username = args.length > 3 ? args[3] : "admin";
+        String password = args.length > 4 ? args[4] : "admin";
+        
+        ShopService shopService = new ShopService();
+        List<Product> products = shopService.getProductDao().getAllProductsSortedByPriceAsc();
+        if (products.isEmpty()) {
+            System.err.println("No products found; seed the products table first.");
+            return;
+        }
+        
+        int platformThreads = Runtime.getRuntime().availableProcessors() * 4;
+        ExecutorService executor = ExecutorFactory.newTaskExecutor("shopper", platformThreads, sessionCount);
+        
+        System.out.println("Sessions: " + sessionCount + ", orders/session: " + ordersPerSession +
+                           ", lines/order: " + linesPerOrder + ", cores: " +
+                           Runtime.getRuntime().availableProcessors() + ", threads: " +
+                           (ExecutorFactory.isVirtualThreadsAvailable() ? "virtual" : platformThreads + " platform"));
+        
+        SessionStats stats = new SessionStats();
+        long start = System.nanoTime();
+        
+        try {
+            List<Future<?>> futures = new ArrayList<>(sessionCount);
+            for (int i = 0; i < sessionCount; i++) {
+                futures.add(executor.submit(() -> {
+                    runSession(shopService, username, password, products, ordersPerSession, linesPerOrder, stats);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long orders = stats.orders.get();
+        System.out.printf("Orders placed: %d, stock conflicts: %d, errors: %d in %.2f s%n",
+                          orders, stats.stockConflicts.get(), stats.errors.get(), seconds);
+        System.out.printf("Checkout throughput: %.1f orders/s, avg checkout latency: %.2f ms%n",
+                          orders / seconds,
+                          orders == 0 ? 0.0 : stats.checkoutNanos.get() / 1e6 / orders);
+        System.out.println("Pool: " + DBUtil.getPoolStats());
+        System.out.println("Cache: " + ProductCache.getInstance().getStats());
+        System.out.print(MetricsRegistry.getInstance().snapshot().toText());
+        shopService.shutdown();
+        DBUtil.shutdown();
+    }
+    
+    /**
+     * One shopper: log in, then repeatedly fill the cart with random products and check out
+     */
+    private static void runSession(ShopService shopService, String username, String password,
+                                   List<Product> products, int orders, int linesPerOrder, SessionStats stats) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ShopperSession session = null;
+        
+        try {
+            session = shopService.login(username, password);
+            if (session == null) {
+                stats.errors.incrementAndGet();
+                return;
+            }
+            
+            for (int order = 0; order < orders; order++) {
+                try {
+                    for (int line = 0; line < linesPerOrder; line++) {
+                        Product product = products.get(random.nextInt(products.size()));
+                        shopService.addToCart(session.getSessionId(), product.getProductId(), 1);
+                    }
+                    
+                    long checkoutStart = System.nanoTime();
+                    shopService.checkout(session.getSessionId());
+                    stats.checkoutNanos.addAndGet(System.nanoTime() - checkoutStart);
+                    stats.orders.incrementAndGet();
+                } catch (IllegalArgumentException e) {
+                    // Product ran out of stock before it reached the cart
+                    stats.stockConflicts.incrementAndGet();
+                    session.clearCart();
+                } catch (SQLException e) {
+                    if (e.getMessage() != null && e.getMessage().startsWith("Not enough stock")) {
+                        stats.stockConflicts.incrementAndGet();
+                    } else {
+                        stats.errors.incrementAndGet();
+                    }
+                    session.clearCart();
+                }
+            }
+        } catch (SQLException e) {
+            stats.errors.incrementAndGet();
+        } finally {
+            if (session != null) {
+                shopService.logout(session.getSessionId());
+            }
+        }
+    }
+    
+    private static final class SessionStats {
+        private final AtomicLong orders = new AtomicLong();
+        private final AtomicLong stockConflicts = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong checkoutNanos = new AtomicLong();
+    }
+}
@@ -0,0 +1,93 @@
+package com.shop.app;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.shop.model.CartItem;
+import com.shop.model.Money;
+import com.shop.model.Order;
+import com.shop.model.OrderSummary;
+import com.shop.model.Product;
+
+/**
+ * Human-readable BatchOutput using the same tables as the interactive menus
+ */
+class TextBatchOutput extends BatchOutput {
+    
+    TextBatchOutput(PrintStream out) {
+        super(out);
+    }
+    
+    @Override
+    void begin(int lineNumber, String input) {
+        out.println("> [" + lineNumber + "] " + input);
+    }
+    
+    @Override
+    void field(String name, long value) {
+        out.println(name + ": " + value);
+    }
+    
+    @Override
+    void field(String name, String value) {
+        out.println(name + ": " + value);
+    }
+    
+    @Override
+    void products(List<Product> products) {
+        out.printf("%-6s %-22s %-10s %-6s%n", "ID", "NAME", "PRICE", "QTY");
+        for (Product product : products) {
+            out.printf("%-6d %-22s %-10s %-6d%n",
+                product.getProductId(),
+                product.getName(),
+                Money.format(product.getPriceCents()),
+                product.getQuantity());
+        }
+    }
+    
+    @Override
+    void cart(List<CartItem> cart) {
+        long totalCents = 0;
+        out.printf("%-6s %-22s %-10s %-6s %-10s%n", "ID", "NAME", "PRICE", "QTY", "TOTAL");
+        for (CartItem cartItem : cart) {
+            totalCents += cartItem.getLineTotalCents();
+            out.printf("%-6d %-22s %-10s %-6d %-10s%n",
+                cartItem.getProductId(),
+                cartItem.getName(),
+                Money.format(cartItem.getPriceCents()),
+                cartItem.getQty(),
+                Money.format(cartItem.getLineTotalCents()));
+        }
+        out.printf("%-6s %-22s %-10s %-6s %-10s%n", "", "", "", "TOTAL:", Money.format(totalCents));
+    }
+    
+    @Override
+    void summary(OrderSummary summary) {
+        out.println(summary == null ? "No orders yet." : "Summary: " + summary);
+    }
+    
+    @Override
+    Consumer<Order> beginOrders() {
+        OrderHistoryPrinter printer = new OrderHistoryPrinter(out, null);
+        printer.printHeader();
+        return printer;
+    }
+    
+    @Override
+    void endOrders(int orderCount) {
+        out.println(orderCount + " orders");
+    }
+    
+    @Override
+    void end(String error) {
+        if (error != null) {
+            out.println("ERROR: " + error);
+        }
+    }
+    
+    @Override
+    void totals(int commands, int failed, long elapsedNanos) {
+        out.printf("Commands: %d, failed: %d in %.1f ms%n", commands, failed, elapsedNanos / 1e6);
+    }
+}
@@ -0,0 +1,217 @@
+package com.shop.bench;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.shop.dao.OrderDao;
+import com.shop.dao.OrderSummaryDao;
+import com.shop.dao.ProductDao;
+import com.shop.model.CartItem;
+import com.shop.model.Money;
+import com.shop.model.Product;
+import com.shop.util.DBUtil;
+
+/**
+ * Compares the per-line checkout (one UPDATE and one INSERT round-trip per cart line)
+ * with the batched OrderDao.insertOrder path for several cart sizes.
+ *
+ * Both paths also fold the order into the user's summary tables, so the comparison covers the
+ * same work and differs only in how the stock and item statements are sent.
+ * Every order runs in a transaction that is rolled back, so stock and order tables are unchanged.
+ * Round-trips are counted as execute/executeQuery/executeUpdate/executeBatch calls; executeBatch
+ * is one round-trip when the driver rewrites batches (rewriteBatchedStatements=true on MySQL).
+ *
+ * Usage: CheckoutBenchmark [userId] [iterations] [cartSizes]
+ * e.g.   CheckoutBenchmark 1 500 1,5,10,20
+ */
+public class CheckoutBenchmark {
+    
+    private static final OrderSummaryDao SUMMARY_DAO = new OrderSummaryDao();
+    
+    public static void main(String[] args) throws Exception {
+        int userId = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int[] cartSizes = args.length > 2
+            ? Arrays.stream(args[2].split(",")).mapToInt(Integer::parseInt).toArray()
+            : new int[] { 1, 5, 10, 20 };
+        
+        List<Product> products = new ProductDao().getAllProductsSortedByPriceAsc();
+        if (products.isEmpty()) {
+            System.err.println("No products found; seed the products table first.");
+            return;
+        }
+        
+        OrderDao orderDao = new OrderDao();
+        
+        System.out.printf("%-6s %-10s %-12s %-12s %-12s %-12s%n",
+                          "LINES", "MODE", "STATEMENTS", "ROUNDTRIPS", "AVG_US", "ORDERS/S");
+        
+        try {
+            for (int cartSize : cartSizes) {
+                List<CartItem> cart = buildCart(products, cartSize);
+                
+                run("per-line", cart, iterations,
+                    connection -> placeOrderPerLine(connection, userId, cart));
+                run("batched", cart, iterations,
+                    connection -> orderDao.insertOrder(connection, userId, cart));
+            }
+        } finally {
+            DBUtil.shutdown();
+        }
+    }
+    
+    /**
+     * Checkout body under test; runs inside a transaction that is rolled back afterwards
+     */
+    private interface CheckoutBody {
+        int run(Connection connection) throws SQLException;
+    }
+    
+    private static void run(String mode, List<CartItem> cart, int iterations, CheckoutBody body)
+            throws SQLException {
+        // Warm up statement caches and JIT before measuring
+        for (int i = 0; i < Math.max(10, iterations / 10); i++) {
+            runOnce(body, new Counters());
+        }
+        
+        Counters counters = new Counters();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            runOnce(body, counters);
+        }
+        long elapsed = System.nanoTime() - start;
+        
+        double avgMicros = elapsed / 1000.0 / iterations;
+        System.out.printf("%-6d %-10s %-12d %-12d %-12.1f %-12.1f%n",
+                          cart.size(), mode,
+                          counters.prepared / iterations,
+                          counters.roundTrips / iterations,
+                          avgMicros,
+                          1_000_000.0 / avgMicros);
+    }
+    
+    private static void runOnce(CheckoutBody body, Counters counters) throws SQLException {
+        try (Connection connection = DBUtil.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                body.run(counting(connection, counters));
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+    
+    private static List<CartItem> buildCart(List<Product> products, int lines) {
+        List<CartItem> cart = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            Product product = products.get(i % products.size());
+            cart.add(new CartItem(product.getProductId(), product.getName(), product.getPriceCents(), 1));
+        }
+        return cart;
+    }
+    
+    /**
+     * The checkout loop as it was before batching: two statements prepared and executed per line,
+     * followed by the same summary update insertOrder makes
+     */
+    private static int placeOrderPerLine(Connection connection, int userId, List<CartItem> cart)
+            throws SQLException {
+        String insertOrderSql = "INSERT INTO orders(user_id, total_amount) VALUES(?, ?)";
+        String insertItemSql = "INSERT INTO order_items(order_id, product_id, qty, price_at_purchase) " +
+                               "VALUES(?, ?, ?, ?)";
+        String updateStockSql = "UPDATE products SET quantity = quantity - ? " +
+                                "WHERE product_id = ? AND quantity >= ?";
+        
+        long totalCents = 0;
+        Set<Integer> productIds = new LinkedHashSet<>();
+        for (CartItem cartItem : cart) {
+            totalCents += cartItem.getLineTotalCents();
+            productIds.add(cartItem.getProductId());
+        }
+        
+        int orderId;
+        try (PreparedStatement ps = connection.prepareStatement(insertOrderSql, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setInt(1, userId);
+            ps.setBigDecimal(2, Money.toBigDecimal(totalCents));
+            ps.executeUpdate();
+            try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
+                generatedKeys.next();
+                orderId = generatedKeys.getInt(1);
+            }
+        }
+        
+        for (CartItem cartItem : cart) {
+            try (PreparedStatement ps = connection.prepareStatement(updateStockSql)) {
+                ps.setInt(1, cartItem.getQty());
+                ps.setInt(2, cartItem.getProductId());
+                ps.setInt(3, cartItem.getQty());
+                if (ps.executeUpdate() != 1) {
+                    throw new SQLException("Not enough stock for product id " + cartItem.getProductId());
+                }
+            }
+            try (PreparedStatement ps = connection.prepareStatement(insertItemSql)) {
+                ps.setInt(1, orderId);
+                ps.setInt(2, cartItem.getProductId());
+                ps.setInt(3, cartItem.getQty());
+                ps.setBigDecimal(4, Money.toBigDecimal(cartItem.getPriceCents()));
+                ps.executeUpdate();
+            }
+        }
+        
+        SUMMARY_DAO.recordOrder(connection, userId, productIds, totalCents);
+        return orderId;
+    }
+    
+    private static final class Counters {
+        private long prepared;
+        private long roundTrips;
+    }
+    
+    /**
+     * Wrap a connection so prepared statements and executions are counted
+     */
+    private static Connection counting(Connection connection, Counters counters) {
+        return (Connection) Proxy.newProxyInstance(CheckoutBenchmark.class.getClassLoader(),
+            new Class<?>[] { Connection.class },
+            (proxy, method, args) -> {
+                Object result = invoke(connection, method, args);
+                if (method.getName().startsWith("prepare")) {
+                    counters.prepared++;
+                    return countingStatement((PreparedStatement) result, counters);
+                }
+                return result;
+            });
+    }
+    
+    private static PreparedStatement countingStatement(PreparedStatement statement, Counters counters) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getName().startsWith("execute")) {
+                counters.roundTrips++;
+            }
+            return invoke(statement, method, args);
+        };
+        return (PreparedStatement) Proxy.newProxyInstance(CheckoutBenchmark.class.getClassLoader(),
+                                                          new Class<?>[] { PreparedStatement.class }, handler);
+    }
+    
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
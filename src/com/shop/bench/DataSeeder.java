@@ -0,0 +1,276 @@
+package com.shop.bench;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+import com.shop.dao.OrderSummaryDao;
+import com.shop.model.Money;
+import com.shop.util.DBUtil;
+
+/**
+ * Creates the schema (if missing) and fills it with synthetic data for benchmarks
+ *
+ * The DDL is the README schema written so it runs on MySQL and on H2 in MySQL mode, e.g.
+ * -Ddb.url=jdbc:h2:mem:bench;MODE=MySQL;DB_CLOSE_DELAY=-1 -Ddb.user=sa -Ddb.password=
+ *
+ * Seeded users are named user1..userN with password "password"; products use ids 1..N.
+ */
+public class DataSeeder {
+    
+    public static final String PASSWORD = "password";
+    
+    private static final int BATCH_SIZE = 1000;
+    private static final String[] CITIES = {
+        "Pune", "Mumbai", "Nagpur", "Delhi", "Chennai", "Bengaluru", "Hyderabad", "Kolkata", "Jaipur", "Indore"
+    };
+    
+    private static final String[] SCHEMA = {
+        "CREATE TABLE users (" +
+        "  user_id INT AUTO_INCREMENT PRIMARY KEY," +
+        "  role ENUM('ADMIN','USER') NOT NULL DEFAULT 'USER'," +
+        "  first_name VARCHAR(50) NOT NULL," +
+        "  last_name VARCHAR(50) NOT NULL," +
+        "  username VARCHAR(50) NOT NULL UNIQUE," +
+        "  password VARCHAR(100) NOT NULL," +
+        "  city VARCHAR(50)," +
+        "  email VARCHAR(100)," +
+        "  mobile VARCHAR(15))",
+        "CREATE INDEX idx_users_role ON users (role, user_id)",
+        "CREATE INDEX idx_users_city ON users (city, user_id)",
+        
+        "CREATE TABLE products (" +
+        "  product_id INT PRIMARY KEY," +
+        "  name VARCHAR(100) NOT NULL," +
+        "  description VARCHAR(255)," +
+        "  price DECIMAL(10,2) NOT NULL," +
+        "  quantity INT NOT NULL)",
+        "CREATE INDEX idx_products_price ON products (price, product_id)",
+        
+        "CREATE TABLE orders (" +
+        "  order_id INT AUTO_INCREMENT PRIMARY KEY," +
+        "  user_id INT NOT NULL," +
+        "  order_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+        "  total_amount DECIMAL(10,2) NOT NULL DEFAULT 0," +
+        "  CONSTRAINT fk_orders_user FOREIGN KEY (user_id) REFERENCES users(user_id))",
+        "CREATE INDEX idx_orders_user ON orders (user_id, order_id)",
+        
+        "CREATE TABLE order_items (" +
+        "  item_id INT AUTO_INCREMENT PRIMARY KEY," +
+        "  order_id INT NOT NULL," +
+        "  product_id INT NOT NULL," +
+        "  qty INT NOT NULL," +
+        "  price_at_purchase DECIMAL(10,2) NOT NULL," +
+        "  CONSTRAINT fk_items_order FOREIGN KEY (order_id) REFERENCES orders(order_id)," +
+        "  CONSTRAINT fk_items_product FOREIGN KEY (product_id) REFERENCES products(product_id))",
+        
+        "CREATE TABLE inventory_pending (" +
+        "  pending_id BIGINT AUTO_INCREMENT PRIMARY KEY," +
+        "  product_id INT NOT NULL," +
+        "  qty INT NOT NULL)",
+        "CREATE INDEX idx_pending_product ON inventory_pending (product_id)",
+        
+        "CREATE TABLE user_order_summary (" +
+        "  user_id INT PRIMARY KEY," +
+        "  order_count INT NOT NULL," +
+        "  total_spent DECIMAL(14,2) NOT NULL," +
+        "  last_order_time TIMESTAMP NULL," +
+        "  distinct_products INT NOT NULL," +
+        "  CONSTRAINT fk_summary_user FOREIGN KEY (user_id) REFERENCES users(user_id))",
+        
+        "CREATE TABLE user_product_purchases (" +
+        "  user_id INT NOT NULL," +
+        "  product_id INT NOT NULL," +
+        "  PRIMARY KEY (user_id, product_id))"
+    };
+    
+    private DataSeeder() {
+    }
+    
+    /**
+     * Create the tables and indexes unless the products table already exists
+     * @throws SQLException if database error occurs
+     */
+    public static void ensureSchema() throws SQLException {
+        try (Connection connection = DBUtil.getConnection()) {
+            if (tableExists(connection, "products")) {
+                return;
+            }
+            try (Statement statement = connection.createStatement()) {
+                for (String ddl : SCHEMA) {
+                    statement.execute(ddl);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Replace all data with a synthetic catalog, user base and order history
+     * @param catalogSize number of products (ids 1..catalogSize)
+     * @param userCount number of users (user1..userN)
+     * @param ordersPerUser orders generated per user, each with 1-5 lines
+     * @throws SQLException if database error occurs
+     */
+    public static void seed(int catalogSize, int userCount, int ordersPerUser) throws SQLException {
+        ensureSchema();
+        Random random = new Random(42);
+        
+        try (Connection connection = DBUtil.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                clear(connection);
+                seedProducts(connection, catalogSize, random);
+                seedUsers(connection, userCount);
+                int orderCount = seedOrders(connection, userCount, ordersPerUser, catalogSize, random);
+                restartIdentity(connection, "users", "user_id", userCount + 1);
+                restartIdentity(connection, "orders", "order_id", orderCount + 1);
+                new OrderSummaryDao().rebuild(connection);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+    
+    /**
+     * Set every product's stock to the same quantity, e.g. to provoke stock conflicts under load
+     * @param quantity units in stock per product
+     * @throws SQLException if database error occurs
+     */
+    public static void setStock(int quantity) throws SQLException {
+        try (Connection connection = DBUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement("UPDATE products SET quantity = ?")) {
+            ps.setInt(1, quantity);
+            ps.executeUpdate();
+        }
+    }
+    
+    private static void clear(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM user_product_purchases");
+            statement.executeUpdate("DELETE FROM user_order_summary");
+            statement.executeUpdate("DELETE FROM order_items");
+            statement.executeUpdate("DELETE FROM orders");
+            statement.executeUpdate("DELETE FROM inventory_pending");
+            statement.executeUpdate("DELETE FROM products");
+            statement.executeUpdate("DELETE FROM users");
+        }
+    }
+    
+    private static void seedProducts(Connection connection, int catalogSize, Random random) throws SQLException {
+        String sql = "INSERT INTO products(product_id, name, description, price, quantity) VALUES(?, ?, ?, ?, ?)";
+        
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int id = 1; id <= catalogSize; id++) {
+                ps.setInt(1, id);
+                ps.setString(2, "Product " + id);
+                ps.setString(3, "Benchmark product number " + id);
+                ps.setBigDecimal(4, Money.toBigDecimal(1 + random.nextInt(10_000_000)));
+                ps.setInt(5, 1_000_000);
+                ps.addBatch();
+                if (id % BATCH_SIZE == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+    
+    private static void seedUsers(Connection connection, int userCount) throws SQLException {
+        String sql = "INSERT INTO users(user_id, role, first_name, last_name, username, password, city, email, mobile) " +
+                     "VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int id = 1; id <= userCount; id++) {
+                ps.setInt(1, id);
+                ps.setString(2, id == 1 ? "ADMIN" : "USER");
+                ps.setString(3, "First" + id);
+                ps.setString(4, "Last" + id);
+                ps.setString(5, "user" + id);
+                ps.setString(6, PASSWORD);
+                ps.setString(7, CITIES[id % CITIES.length]);
+                ps.setString(8, "user" + id + "@example.com");
+                ps.setString(9, String.format("9%09d", id));
+                ps.addBatch();
+                if (id % BATCH_SIZE == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+    
+    private static int seedOrders(Connection connection, int userCount, int ordersPerUser, int catalogSize,
+                                  Random random) throws SQLException {
+        String orderSql = "INSERT INTO orders(order_id, user_id, total_amount) VALUES(?, ?, ?)";
+        String itemSql = "INSERT INTO order_items(order_id, product_id, qty, price_at_purchase) VALUES(?, ?, ?, ?)";
+        
+        try (PreparedStatement orderPs = connection.prepareStatement(orderSql);
+             PreparedStatement itemPs = connection.prepareStatement(itemSql)) {
+            int orderId = 0;
+            for (int userId = 1; userId <= userCount; userId++) {
+                for (int i = 0; i < ordersPerUser; i++) {
+                    orderId++;
+                    long totalCents = 0;
+                    int lines = 1 + random.nextInt(5);
+                    for (int line = 0; line < lines; line++) {
+                        int qty = 1 + random.nextInt(3);
+                        long priceCents = 1 + random.nextInt(1_000_000);
+                        totalCents += Money.times(priceCents, qty);
+                        itemPs.setInt(1, orderId);
+                        itemPs.setInt(2, 1 + random.nextInt(catalogSize));
+                        itemPs.setInt(3, qty);
+                        itemPs.setBigDecimal(4, Money.toBigDecimal(priceCents));
+                        itemPs.addBatch();
+                    }
+                    orderPs.setInt(1, orderId);
+                    orderPs.setInt(2, userId);
+                    orderPs.setBigDecimal(3, Money.toBigDecimal(totalCents));
+                    orderPs.addBatch();
+                    
+                    if (orderId % BATCH_SIZE == 0) {
+                        orderPs.executeBatch();
+                        itemPs.executeBatch();
+                    }
+                }
+            }
+            orderPs.executeBatch();
+            itemPs.executeBatch();
+            return orderId;
+        }
+    }
+    
+    /**
+     * Make generated keys continue after explicitly inserted ids
+     * MySQL advances AUTO_INCREMENT past explicit values by itself; H2 needs to be told
+     */
+    private static void restartIdentity(Connection connection, String table, String column, int next)
+            throws SQLException {
+        if (!connection.getMetaData().getDatabaseProductName().startsWith("H2")) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE " + table + " ALTER COLUMN " + column + " RESTART WITH " + next);
+        }
+    }
+    
+    private static boolean tableExists(Connection connection, String table) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        // Unquoted identifiers are stored upper-case by some databases (H2) and as written by others
+        for (String name : new String[] { table, table.toUpperCase() }) {
+            try (ResultSet resultSet = metaData.getTables(connection.getCatalog(), null, name, null)) {
+                if (resultSet.next()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
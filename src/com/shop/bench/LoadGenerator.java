@@ -0,0 +1,369 @@
+package com.shop.bench;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.shop.dao.InventoryLedger;
+import com.shop.dao.OrderDao;
+import com.shop.dao.ProductCache;
+import com.shop.dao.ProductDao;
+import com.shop.dao.UserDao;
+import com.shop.metrics.HistogramSnapshot;
+import com.shop.metrics.LatencyHistogram;
+import com.shop.metrics.MetricsRegistry;
+import com.shop.metrics.OperationSnapshot;
+import com.shop.model.CartItem;
+import com.shop.model.Product;
+import com.shop.model.User;
+import com.shop.util.DBUtil;
+
+/**
+ * Closed-loop load generator: N simulated shoppers calling the DAOs concurrently
+ *
+ * Each shopper waits for its previous call, thinks for an exponentially distributed time
+ * (mean thinkMillis), then picks its next action from the weighted mix. A shopper who picks
+ * checkout without being logged in logs in instead, and one with an empty cart adds an item
+ * instead, so the executed mix can differ from the requested one. Nothing is recorded during
+ * the warm-up phase; the report covers the steady phase only.
+ *
+ * Stock conflicts are checkouts rejected for lack of stock; rollbacks are orders that reached
+ * the write transaction and were rolled back (failed OrderDao.insertOrder calls, so they need
+ * metrics.enabled). Lower stock or hotProducts to make shoppers compete for the same rows.
+ *
+ * Usage: LoadGenerator [key=value ...]
+ *   shoppers=50  thinkMillis=100  warmupSeconds=10  steadySeconds=60
+ *   mix=browse:60,login:10,add:20,checkout:10  maxQty=2
+ *   seed=true  catalogSize=10000  userCount=10000  ordersPerUser=2  stock=1000000  hotProducts=0
+ * e.g. java -Ddb.url=jdbc:h2:mem:load;MODE=MySQL;DB_CLOSE_DELAY=-1 -Ddb.user=sa -Ddb.password= \
+ *      com.shop.bench.LoadGenerator shoppers=200 stock=50 hotProducts=20
+ */
+public class LoadGenerator {
+    
+    /**
+     * What a shopper can do next
+     */
+    private enum Action {
+        BROWSE, LOGIN, ADD, CHECKOUT
+    }
+    
+    private final ProductDao productDao = new ProductDao();
+    private final UserDao userDao = new UserDao();
+    private final OrderDao orderDao = new OrderDao();
+    
+    private final int catalogSize;
+    private final int userCount;
+    private final int hotProducts;
+    private final int maxQty;
+    private final long thinkMillis;
+    private final int[] cumulativeWeights;
+    
+    private final Map<Action, LatencyHistogram> latencies = new HashMap<>();
+    private final Map<Action, LongAdder> failures = new HashMap<>();
+    private final LongAdder stockConflicts = new LongAdder();
+    
+    private volatile boolean running = true;
+    private volatile boolean measuring;
+    
+    /**
+     * Constructor for LoadGenerator
+     * @param catalogSize products are picked from ids 1..catalogSize
+     * @param userCount shoppers log in as user1..userN
+     * @param hotProducts when positive, products are picked from ids 1..hotProducts only
+     * @param maxQty largest quantity added to the cart at once
+     * @param thinkMillis mean think time between a shopper's actions
+     * @param mix relative weight of each action
+     */
+    public LoadGenerator(int catalogSize, int userCount, int hotProducts, int maxQty, long thinkMillis,
+                         Map<String, Integer> mix) {
+        this.catalogSize = catalogSize;
+        this.userCount = userCount;
+        this.hotProducts = hotProducts;
+        this.maxQty = maxQty;
+        this.thinkMillis = thinkMillis;
+        this.cumulativeWeights = new int[Action.values().length];
+        
+        int total = 0;
+        for (Action action : Action.values()) {
+            total += mix.getOrDefault(action.name().toLowerCase(), 0);
+            cumulativeWeights[action.ordinal()] = total;
+            latencies.put(action, new LatencyHistogram());
+            failures.put(action, new LongAdder());
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("mix needs at least one positive weight");
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int shoppers = Integer.parseInt(options.getOrDefault("shoppers", "50"));
+        int catalogSize = Integer.parseInt(options.getOrDefault("catalogSize", "10000"));
+        int userCount = Integer.parseInt(options.getOrDefault("userCount", "10000"));
+        long warmupSeconds = Long.parseLong(options.getOrDefault("warmupSeconds", "10"));
+        long steadySeconds = Long.parseLong(options.getOrDefault("steadySeconds", "60"));
+        
+        LoadGenerator generator = new LoadGenerator(
+            catalogSize, userCount,
+            Integer.parseInt(options.getOrDefault("hotProducts", "0")),
+            Integer.parseInt(options.getOrDefault("maxQty", "2")),
+            Long.parseLong(options.getOrDefault("thinkMillis", "100")),
+            parseMix(options.getOrDefault("mix", "browse:60,login:10,add:20,checkout:10")));
+        
+        try {
+            if (Boolean.parseBoolean(options.getOrDefault("seed", "true"))) {
+                System.out.printf("Seeding %d products and %d users...%n", catalogSize, userCount);
+                DataSeeder.seed(catalogSize, userCount, Integer.parseInt(options.getOrDefault("ordersPerUser", "2")));
+            }
+            if (options.containsKey("stock")) {
+                DataSeeder.setStock(Integer.parseInt(options.get("stock")));
+            }
+            // Start from what is in the database now
+            ProductCache.getInstance().clear();
+            InventoryLedger ledger = InventoryLedger.getInstance();
+            if (ledger.isEnabled()) {
+                ledger.rebuild();
+            }
+            
+            generator.run(shoppers, warmupSeconds, steadySeconds);
+        } finally {
+            try {
+                InventoryLedger.getInstance().shutdown();
+            } catch (SQLException e) {
+                System.err.println("Inventory flush failed at exit; pending rows are applied on the next start: " +
+                                   e.getMessage());
+            }
+            DBUtil.shutdown();
+        }
+    }
+    
+    /**
+     * Run the warm-up and steady phases and print the report
+     * @param shoppers number of concurrent shoppers
+     * @param warmupSeconds length of the unrecorded warm-up phase
+     * @param steadySeconds length of the measured phase
+     * @throws InterruptedException if interrupted while waiting for the phases to end
+     */
+    public void run(int shoppers, long warmupSeconds, long steadySeconds) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>(shoppers);
+        for (int i = 0; i < shoppers; i++) {
+            Thread thread = new Thread(new Shopper(), "shopper-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+        
+        System.out.printf("Warming up %d shoppers for %ds...%n", shoppers, warmupSeconds);
+        TimeUnit.SECONDS.sleep(warmupSeconds);
+        
+        MetricsRegistry.getInstance().reset();
+        measuring = true;
+        long start = System.nanoTime();
+        System.out.printf("Measuring for %ds...%n", steadySeconds);
+        TimeUnit.SECONDS.sleep(steadySeconds);
+        measuring = false;
+        long elapsed = System.nanoTime() - start;
+        
+        // Let in-flight calls finish rather than interrupting them mid-statement
+        running = false;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        
+        printReport(shoppers, elapsed);
+    }
+    
+    private void printReport(int shoppers, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%n%-10s %10s %10s %8s %10s %10s %10s %10s %10s%n",
+                          "ACTION", "OPS", "OPS/S", "ERRORS", "AVG_MS", "P50_MS", "P99_MS", "P999_MS", "MAX_MS");
+        for (Action action : Action.values()) {
+            HistogramSnapshot snapshot = latencies.get(action).snapshot();
+            System.out.printf("%-10s %10d %10.1f %8d %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                              action.name().toLowerCase(),
+                              snapshot.getCount(),
+                              snapshot.getCount() / seconds,
+                              failures.get(action).sum(),
+                              snapshot.getMean() / 1e6,
+                              snapshot.getP50() / 1e6,
+                              snapshot.getP99() / 1e6,
+                              snapshot.getP999() / 1e6,
+                              snapshot.getMax() / 1e6);
+        }
+        
+        long checkouts = latencies.get(Action.CHECKOUT).snapshot().getCount();
+        long failedCheckouts = failures.get(Action.CHECKOUT).sum();
+        long conflicts = stockConflicts.sum();
+        System.out.printf("%nShoppers: %d, measured: %.1fs%n", shoppers, seconds);
+        System.out.printf("Orders placed: %d (%.1f/s)%n",
+                          checkouts - failedCheckouts, (checkouts - failedCheckouts) / seconds);
+        System.out.printf("Stock conflicts: %d (%.2f%% of checkouts)%n",
+                          conflicts, checkouts == 0 ? 0.0 : 100.0 * conflicts / checkouts);
+        System.out.println("Rollbacks: " + rollbacks());
+    }
+    
+    private String rollbacks() {
+        if (!MetricsRegistry.getInstance().isEnabled()) {
+            return "n/a (metrics.enabled=false)";
+        }
+        for (OperationSnapshot operation : MetricsRegistry.getInstance().snapshot().getOperations()) {
+            if (operation.getName().equals("OrderDao.insertOrder")) {
+                return String.valueOf(operation.getErrors());
+            }
+        }
+        return "0";
+    }
+    
+    /**
+     * One simulated shopper with its own login and cart
+     */
+    private final class Shopper implements Runnable {
+        
+        private User user;
+        private final List<CartItem> cart = new ArrayList<>();
+        
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    think();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                
+                Action action = nextAction();
+                // Calls that started during warm-up are not counted
+                boolean recorded = measuring;
+                long start = System.nanoTime();
+                boolean failed = false;
+                try {
+                    perform(action);
+                } catch (SQLException | RuntimeException e) {
+                    failed = true;
+                }
+                if (recorded) {
+                    latencies.get(action).record(System.nanoTime() - start);
+                    if (failed) {
+                        failures.get(action).increment();
+                    }
+                }
+            }
+        }
+        
+        private Action nextAction() {
+            int pick = random().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            Action action = Action.BROWSE;
+            for (Action candidate : Action.values()) {
+                if (pick < cumulativeWeights[candidate.ordinal()]) {
+                    action = candidate;
+                    break;
+                }
+            }
+            
+            if (action == Action.CHECKOUT && user == null) {
+                return Action.LOGIN;
+            }
+            if (action == Action.CHECKOUT && cart.isEmpty()) {
+                return Action.ADD;
+            }
+            return action;
+        }
+        
+        private void perform(Action action) throws SQLException {
+            switch (action) {
+                case BROWSE:
+                    productDao.getById(randomProductId());
+                    break;
+                case LOGIN:
+                    user = userDao.login("user" + (1 + random().nextInt(userCount)), DataSeeder.PASSWORD);
+                    cart.clear();
+                    if (user == null) {
+                        throw new IllegalStateException("Seeded user cannot log in");
+                    }
+                    break;
+                case ADD:
+                    addToCart();
+                    break;
+                case CHECKOUT:
+                    checkout();
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown action " + action);
+            }
+        }
+        
+        private void addToCart() throws SQLException {
+            Product product = productDao.getById(randomProductId());
+            if (product == null) {
+                throw new IllegalStateException("Product not found");
+            }
+            cart.add(new CartItem(product.getProductId(), product.getName(), product.getPriceCents(),
+                                  1 + random().nextInt(maxQty)));
+        }
+        
+        private void checkout() throws SQLException {
+            boolean recordConflict = measuring;
+            try {
+                orderDao.placeOrder(user.getUserId(), cart);
+            } catch (SQLException e) {
+                if (recordConflict && e.getMessage() != null && e.getMessage().startsWith("Not enough stock")) {
+                    stockConflicts.increment();
+                }
+                throw e;
+            } finally {
+                // Successful or not, the shopper starts over with an empty cart
+                cart.clear();
+            }
+        }
+        
+        private void think() throws InterruptedException {
+            if (thinkMillis > 0) {
+                // Exponential think time, capped so one unlucky draw cannot stall a shopper
+                double draw = -Math.log(1.0 - random().nextDouble());
+                Thread.sleep((long) (Math.min(draw, 10.0) * thinkMillis));
+            }
+        }
+        
+        private int randomProductId() {
+            return 1 + random().nextInt(hotProducts > 0 ? Math.min(hotProducts, catalogSize) : catalogSize);
+        }
+    }
+    
+    private static ThreadLocalRandom random() {
+        return ThreadLocalRandom.current();
+    }
+    
+    private static Map<String, Integer> parseMix(String value) {
+        Map<String, Integer> mix = new HashMap<>();
+        for (String entry : value.split(",")) {
+            String[] parts = entry.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected action:weight but got: " + entry);
+            }
+            String action = parts[0].trim().toLowerCase();
+            if (Arrays.stream(Action.values()).noneMatch(a -> a.name().equalsIgnoreCase(action))) {
+                throw new IllegalArgumentException("Unknown action in mix: " + parts[0]);
+            }
+            mix.put(action, Integer.parseInt(parts[1].trim()));
+        }
+        return mix;
+    }
+    
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+}
@@ -4,8 +4,17 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
+import com.shop.metrics.MetricsRegistry;
+import com.shop.model.Money;
+import com.shop.model.Order;
 import com.shop.model.Product;
+import com.shop.model.User;
 import com.shop.util.DBUtil;
 
 /**
@@ -13,6 +22,9 @@ import com.shop.util.DBUtil;
  */
 public class AdminDao {
     
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+    private final InventoryFeed inventoryFeed = InventoryFeed.getInstance();
+    
     /**
      * Add a new product to the inventory
      * @param product Product object to add
@@ -20,114 +32,166 @@ public class AdminDao {
      * @throws SQLException if database error occurs
      */
     public boolean addProduct(Product product) throws SQLException {
-        String sql = "INSERT INTO products(product_id, name, description, price, quantity) " +
-                     "VALUES(?, ?, ?, ?, ?)";
-        
-        try (Connection connection = DBUtil.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
-            
-            preparedStatement.setInt(1, product.getProductId());
-            preparedStatement.setString(2, product.getName());
-            preparedStatement.setString(3, product.getDescription());
-            preparedStatement.setDouble(4, product.getPrice());
-            preparedStatement.setInt(5, product.getQuantity());
+        return metrics.time("AdminDao.addProduct", () -> {
+            String sql = "INSERT INTO products(product_id, name, description, price, quantity) " +
+                         "VALUES(?, ?, ?, ?, ?)";
             
-            return preparedStatement.executeUpdate() == 1;
-        }
+            try (Connection connection = DBUtil.getConnection();
+                 PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                
+                preparedStatement.setInt(1, product.getProductId());
+                preparedStatement.setString(2, product.getName());
+                preparedStatement.setString(3, product.getDescription());
+                preparedStatement.setBigDecimal(4, Money.toBigDecimal(product.getPriceCents()));
+                preparedStatement.setInt(5, product.getQuantity());
+                
+                // Taken before the insert: no order can change the row before it exists
+                long version = inventoryFeed.hasSubscribers() ? inventoryFeed.nextVersion() : 0;
+                boolean added = preparedStatement.executeUpdate() == 1;
+                if (added) {
+                    DBUtil.markWritten(ConsistencyKeys.CATALOG);
+                    DBUtil.markWritten(ConsistencyKeys.product(product.getProductId()));
+                    ProductCache.getInstance().invalidate(product.getProductId());
+                    ProductSearchIndex.getInstance().index(product);
+                    if (version != 0) {
+                        inventoryFeed.publish(product.getProductId(), product.getQuantity(), version);
+                    }
+                }
+                return added;
+            }
+        });
     }
     
     /**
-     * Print user's order history
+     * Stream a user's order history by username, newest order first
+     * Served by a replica when configured; admin views accept replication lag
      * @param username the username to search for
+     * @param query limits such as most recent N orders or a since-timestamp
+     * @param consumer receives one Order at a time
+     * @return number of orders streamed
      * @throws SQLException if database error occurs
      */
-    public void printUserHistoryByUsername(String username) throws SQLException {
-        String sql = "SELECT u.username, o.order_id, o.order_time, o.total_amount, " +
-                     "  oi.product_id, p.name AS product_name, oi.qty, oi.price_at_purchase " +
-                     "FROM users u " +
-                     "JOIN orders o ON u.user_id = o.user_id " +
-                     "JOIN order_items oi ON o.order_id = oi.order_id " +
-                     "JOIN products p ON oi.product_id = p.product_id " +
-                     "WHERE u.username = ? " +
-                     "ORDER BY o.order_id DESC";
-        
-        try (Connection connection = DBUtil.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
-            
-            preparedStatement.setString(1, username);
-            
-            try (ResultSet resultSet = preparedStatement.executeQuery()) {
-                System.out.println("\nUSERNAME | ORDER_ID | TIME | TOTAL | PID | PRODUCT | QTY | PRICE");
-                while (resultSet.next()) {
-                    System.out.println(
-                        resultSet.getString("username") + " | " +
-                        resultSet.getInt("order_id") + " | " +
-                        resultSet.getTimestamp("order_time") + " | " +
-                        resultSet.getDouble("total_amount") + " | " +
-                        resultSet.getInt("product_id") + " | " +
-                        resultSet.getString("product_name") + " | " +
-                        resultSet.getInt("qty") + " | " +
-                        resultSet.getDouble("price_at_purchase")
-                    );
-                }
-            }
-        }
+    public int streamUserHistoryByUsername(String username, OrderHistoryQuery query, Consumer<Order> consumer)
+            throws SQLException {
+        return metrics.time("AdminDao.streamUserHistoryByUsername", () -> {
+            return OrderHistoryReader.stream("orders o JOIN users u ON u.user_id = o.user_id",
+                                             "u.username = ?", username, query, consumer, null);
+        });
     }
     
     /**
-     * Print all registered users
+     * Retrieve one page of the user directory ordered by user_id
+     * Uses keyset pagination on user_id and reads only the requested columns, from a replica when configured
+     * @param role only users with this role, or null for any role
+     * @param city only users in this city, or null for any city
+     * @param afterUserId last user_id of the previous page, 0 for the first page
+     * @param pageSize maximum number of users to return
+     * @param columns columns to fetch in addition to user_id
+     * @return Page of User objects with only the fetched fields set
      * @throws SQLException if database error occurs
      */
-    public void printAllUsers() throws SQLException {
-        String sql = "SELECT user_id, role, first_name, last_name, username, email, mobile, city " +
-                     "FROM users ORDER BY user_id";
-        
-        try (Connection connection = DBUtil.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql);
-             ResultSet resultSet = preparedStatement.executeQuery()) {
+    public Page<User> getUsersPage(String role, String city, int afterUserId, int pageSize,
+                                   Set<UserColumn> columns) throws SQLException {
+        return metrics.time("AdminDao.getUsersPage", () -> {
+            StringBuilder sql = new StringBuilder("SELECT user_id");
+            for (UserColumn column : columns) {
+                sql.append(", ").append(column.getSql());
+            }
+            sql.append(" FROM users WHERE user_id > ?");
+            if (role != null) {
+                sql.append(" AND role = ?");
+            }
+            if (city != null) {
+                sql.append(" AND city = ?");
+            }
+            sql.append(" ORDER BY user_id ASC LIMIT ?");
             
-            System.out.println("\nID | ROLE | NAME | USERNAME | EMAIL | MOBILE | CITY");
-            boolean found = false;
+            List<User> userList = new ArrayList<>();
             
-            while (resultSet.next()) {
-                found = true;
-                System.out.println(
-                    resultSet.getInt("user_id") + " | " +
-                    resultSet.getString("role") + " | " +
-                    resultSet.getString("first_name") + " " + resultSet.getString("last_name") + " | " +
-                    resultSet.getString("username") + " | " +
-                    resultSet.getString("email") + " | " +
-                    resultSet.getString("mobile") + " | " +
-                    resultSet.getString("city")
-                );
+            try (Connection connection = DBUtil.getReadConnection(null);
+                 PreparedStatement preparedStatement = connection.prepareStatement(sql.toString())) {
+                
+                int index = 1;
+                preparedStatement.setInt(index++, afterUserId);
+                if (role != null) {
+                    preparedStatement.setString(index++, role);
+                }
+                if (city != null) {
+                    preparedStatement.setString(index++, city);
+                }
+                // Fetch one extra row to learn whether another page exists
+                preparedStatement.setInt(index, pageSize + 1);
+                
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        userList.add(mapUser(resultSet, columns));
+                    }
+                }
             }
             
-            if (!found) {
-                System.out.println("No users found.");
+            boolean hasMore = userList.size() > pageSize;
+            if (hasMore) {
+                userList.remove(pageSize);
+            }
+            return new Page<>(userList, hasMore);
+        });
+    }
+    
+    private User mapUser(ResultSet resultSet, Set<UserColumn> columns) throws SQLException {
+        User user = new User();
+        user.setUserId(resultSet.getInt("user_id"));
+        for (UserColumn column : columns) {
+            switch (column) {
+                case ROLE:
+                    user.setRole(resultSet.getString("role"));
+                    break;
+                case NAME:
+                    user.setFirstName(resultSet.getString("first_name"));
+                    user.setLastName(resultSet.getString("last_name"));
+                    break;
+                case USERNAME:
+                    user.setUsername(resultSet.getString("username"));
+                    break;
+                case EMAIL:
+                    user.setEmail(resultSet.getString("email"));
+                    break;
+                case MOBILE:
+                    user.setMobile(resultSet.getString("mobile"));
+                    break;
+                case CITY:
+                    user.setCity(resultSet.getString("city"));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown column: " + column);
             }
         }
+        return user;
     }
     
     /**
      * Check the quantity of a product
+     * With the inventory ledger enabled, units sold but not yet flushed are already subtracted.
+     * To follow stock as it changes, subscribe to InventoryFeed rather than polling this
      * @param productId the product identifier
      * @return quantity available, null if product not found
      * @throws SQLException if database error occurs
      */
     public Integer checkQuantity(int productId) throws SQLException {
-        String sql = "SELECT quantity FROM products WHERE product_id = ?";
-        
-        try (Connection connection = DBUtil.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+        return metrics.time("AdminDao.checkQuantity", () -> {
+            String sql = "SELECT " + ProductDao.QUANTITY_COLUMN + " AS quantity FROM products p WHERE p.product_id = ?";
             
-            preparedStatement.setInt(1, productId);
-            
-            try (ResultSet resultSet = preparedStatement.executeQuery()) {
-                if (resultSet.next()) {
-                    return resultSet.getInt("quantity");
+            try (Connection connection = ProductDao.getReadConnection(Collections.singleton(productId));
+                 PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                
+                preparedStatement.setInt(1, productId);
+                
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    if (resultSet.next()) {
+                        return resultSet.getInt("quantity");
+                    }
                 }
             }
-        }
-        return null;
+            return null;
+        });
     }
 }
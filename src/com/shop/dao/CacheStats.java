@@ -0,0 +1,64 @@
+package com.shop.dao;
+
+/**
+ * Point-in-time snapshot of ProductCache counters
+ */
+public class CacheStats {
+    
+    private final int size;
+    private final int maxSize;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+    
+    public CacheStats(int size, int maxSize, long hits, long misses, long evictions, long expirations) {
+        this.size = size;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+    }
+    
+    // Getters
+    
+    public int getSize() {
+        return size;
+    }
+    
+    public int getMaxSize() {
+        return maxSize;
+    }
+    
+    public long getHits() {
+        return hits;
+    }
+    
+    public long getMisses() {
+        return misses;
+    }
+    
+    public long getEvictions() {
+        return evictions;
+    }
+    
+    public long getExpirations() {
+        return expirations;
+    }
+    
+    /**
+     * Fraction of lookups served from the cache
+     * @return hit ratio between 0 and 1
+     */
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("size=%d/%d, hits=%d, misses=%d, hitRatio=%.2f, evictions=%d, expirations=%d",
+                             size, maxSize, hits, misses, getHitRatio(), evictions, expirations);
+    }
+}
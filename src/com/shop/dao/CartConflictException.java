@@ -0,0 +1,32 @@
+package com.shop.dao;
+
+import java.sql.SQLException;
+
+/**
+ * A cart that cannot be ordered as it stands: a product was removed, repriced or lacks stock,
+ * or the same session is already checking out
+ *
+ * Retrying the same request fails again until the shopper changes the cart or the catalog
+ * changes, unlike transient failures such as a pool timeout (SQLTransientException).
+ */
+public class CartConflictException extends SQLException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * Constructor for CartConflictException
+     * @param message error message shown to the shopper
+     */
+    public CartConflictException(String message) {
+        super(message);
+    }
+    
+    /**
+     * Constructor for CartConflictException
+     * @param message error message shown to the shopper
+     * @param cause the rejection that led to this one
+     */
+    public CartConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
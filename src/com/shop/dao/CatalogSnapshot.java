@@ -0,0 +1,302 @@
+package com.shop.dao;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import com.shop.model.Money;
+import com.shop.model.Product;
+import com.shop.util.AppConfig;
+import com.shop.util.DBUtil;
+
+/**
+ * Binary snapshot of the product catalog for warming ProductCache at startup
+ *
+ * write() streams the products table in product_id order into a versioned file. The file holds
+ * only what rarely changes (id, name, description); price and stock change with every admin edit
+ * and sale, and a COUNT(*)/MAX(product_id) probe cannot see that. warmUp() maps the file
+ * read-only and checks it against the probe; if it still matches, the names are decoded from
+ * the file and the current price and stock of those products are read with one narrow range
+ * query. A missing, damaged, too old or stale snapshot is replaced by a fresh dump, whose
+ * products warm the cache instead. Either way products are decoded one at a time and only until
+ * the by-id cache is full (cache.products.maxSize), so a catalog larger than the cache is never
+ * held in memory; the unbounded price-sorted listing is left to load on first use.
+ *
+ * Layout: int magic, int version, long createdMillis, int productCount, int maxProductId and
+ * the CRC32 of the body; then per product int productId and the UTF-8 name and description,
+ * each prefixed by a short length (-1 for a null description).
+ */
+public class CatalogSnapshot {
+    
+    private static final int MAGIC = 0x43534E50; // "CSNP"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 28;
+    private static final int FETCH_SIZE = 1000;
+    
+    private final boolean enabled;
+    private final Path file;
+    private final long maxAgeMillis;
+    private final ProductCache cache = ProductCache.getInstance();
+    
+    /**
+     * Create a snapshot from the catalog.snapshot.* configuration keys
+     * @return CatalogSnapshot
+     */
+    public static CatalogSnapshot fromConfig() {
+        return new CatalogSnapshot(AppConfig.getBoolean("catalog.snapshot.enabled", false),
+                                   Paths.get(AppConfig.get("catalog.snapshot.file", "catalog.snapshot")),
+                                   AppConfig.getLong("catalog.snapshot.maxAgeMillis", 86_400_000));
+    }
+    
+    /**
+     * Constructor for CatalogSnapshot
+     * @param enabled whether applications should warm the cache at startup
+     * @param file snapshot file
+     * @param maxAgeMillis age after which a snapshot is rewritten even if the probe matches
+     */
+    public CatalogSnapshot(boolean enabled, Path file, long maxAgeMillis) {
+        this.enabled = enabled;
+        this.file = file;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Fill ProductCache from the snapshot, or from a fresh dump if the snapshot is unusable
+     * @return CatalogWarmUp describing where the catalog came from
+     * @throws SQLException if database error occurs
+     * @throws IOException if a fresh snapshot cannot be written
+     */
+    public CatalogWarmUp warmUp() throws SQLException, IOException {
+        long start = System.nanoTime();
+        // Taken before the probe, so a write committed meanwhile keeps the cache from being filled
+        long generation = cache.generation();
+        int limit = cache.isEnabled() ? cache.getMaxSize() : 0;
+        
+        ByteBuffer snapshot = Files.isRegularFile(file) ? map() : null;
+        String staleReason = snapshot == null ? "no snapshot" : validate(snapshot);
+        List<Product> products = new ArrayList<>();
+        int total;
+        if (staleReason == null) {
+            total = snapshot.getInt(16);
+            decode(snapshot, limit, products);
+            loadPricesAndStock(products);
+        } else {
+            total = dump(limit, products);
+        }
+        
+        int cached = cache.putAll(products, generation);
+        return new CatalogWarmUp(staleReason, total, cached, System.nanoTime() - start);
+    }
+    
+    /**
+     * Dump the current catalog to the snapshot file, replacing it atomically
+     * @return number of products written
+     * @throws SQLException if database error occurs
+     * @throws IOException if the file cannot be written
+     */
+    public int write() throws SQLException, IOException {
+        return dump(0, new ArrayList<Product>());
+    }
+    
+    /**
+     * Stream the products table into the snapshot file, keeping the first few products
+     * @param keep how many products to collect for the cache
+     * @param kept receives the first keep products in product_id order
+     * @return number of products written
+     */
+    private int dump(int keep, List<Product> kept) throws SQLException, IOException {
+        String sql = ProductDao.SELECT_PRODUCTS + " ORDER BY p.product_id";
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        int count = 0;
+        int maxProductId = 0;
+        
+        try (Connection connection = DBUtil.getReadConnection(ConsistencyKeys.CATALOG);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql,
+                 ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+             FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            preparedStatement.setFetchSize(FETCH_SIZE);
+            channel.position(HEADER_BYTES);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(Channels.newOutputStream(channel), crc), 65536));
+            
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    Product product = ProductDao.mapProduct(resultSet);
+                    out.writeInt(product.getProductId());
+                    writeString(out, product.getName());
+                    writeString(out, product.getDescription());
+                    if (count < keep) {
+                        kept.add(product);
+                    }
+                    count++;
+                    maxProductId = product.getProductId();
+                }
+            }
+            out.flush();
+            
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC)
+                  .putInt(VERSION)
+                  .putLong(System.currentTimeMillis())
+                  .putInt(count)
+                  .putInt(maxProductId)
+                  .putInt((int) crc.getValue());
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+    
+    private ByteBuffer map() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+    
+    /**
+     * Check a mapped snapshot's header, age and checksum, then probe the database
+     * @return why the snapshot cannot be used, or null if it can
+     */
+    private String validate(ByteBuffer snapshot) throws SQLException {
+        if (snapshot.limit() < HEADER_BYTES || snapshot.getInt(0) != MAGIC) {
+            return "not a catalog snapshot";
+        }
+        if (snapshot.getInt(4) != VERSION) {
+            return "snapshot version " + snapshot.getInt(4);
+        }
+        if (System.currentTimeMillis() - snapshot.getLong(8) > maxAgeMillis) {
+            return "snapshot older than " + maxAgeMillis + " ms";
+        }
+        
+        ByteBuffer body = snapshot.duplicate();
+        body.position(HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if ((int) crc.getValue() != snapshot.getInt(24)) {
+            return "checksum mismatch";
+        }
+        
+        int count = snapshot.getInt(16);
+        int maxProductId = snapshot.getInt(20);
+        try (Connection connection = DBUtil.getReadConnection(ConsistencyKeys.CATALOG);
+             PreparedStatement preparedStatement = connection.prepareStatement(
+                 "SELECT COUNT(*), MAX(product_id) FROM products");
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            resultSet.next();
+            if (resultSet.getInt(1) != count || resultSet.getInt(2) != maxProductId) {
+                return "catalog changed: " + resultSet.getInt(1) + " products, max id " + resultSet.getInt(2) +
+                       "; snapshot has " + count + ", max id " + maxProductId;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Decode products from the start of a validated snapshot, without price and stock
+     * @param limit most products to decode; the rest of the file is never read
+     * @param products receives the decoded products in product_id order
+     */
+    private static void decode(ByteBuffer snapshot, int limit, List<Product> products) {
+        int count = Math.min(snapshot.getInt(16), limit);
+        ByteBuffer body = snapshot.duplicate();
+        body.position(HEADER_BYTES);
+        
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setProductId(body.getInt());
+            product.setName(readString(body));
+            product.setDescription(readString(body));
+            products.add(product);
+        }
+    }
+    
+    /**
+     * Fill in the current price and stock of decoded products, dropping those deleted since the dump
+     * The products are the first ones by product_id, so one primary-key range scan covers them
+     * @param products decoded products in product_id order, updated in place
+     */
+    private static void loadPricesAndStock(List<Product> products) throws SQLException {
+        if (products.isEmpty()) {
+            return;
+        }
+        String sql = "SELECT p.product_id, p.price, " + ProductDao.QUANTITY_COLUMN + " AS quantity " +
+                     "FROM products p WHERE p.product_id BETWEEN ? AND ? ORDER BY p.product_id";
+        
+        try (Connection connection = DBUtil.getReadConnection(ConsistencyKeys.CATALOG);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql,
+                 ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            preparedStatement.setFetchSize(FETCH_SIZE);
+            preparedStatement.setInt(1, products.get(0).getProductId());
+            preparedStatement.setInt(2, products.get(products.size() - 1).getProductId());
+            
+            // Both sides are in product_id order: walk them together, skipping ids only one side has
+            Iterator<Product> decoded = products.iterator();
+            Product product = decoded.next();
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (product != null && resultSet.next()) {
+                    int productId = resultSet.getInt("product_id");
+                    while (product != null && product.getProductId() < productId) {
+                        decoded.remove();
+                        product = decoded.hasNext() ? decoded.next() : null;
+                    }
+                    if (product != null && product.getProductId() == productId) {
+                        product.setPriceCents(Money.fromBigDecimal(resultSet.getBigDecimal("price")));
+                        product.setQuantity(resultSet.getInt("quantity"));
+                        product = decoded.hasNext() ? decoded.next() : null;
+                    }
+                }
+            }
+            // Deleted after the dump, past the last row read
+            while (product != null) {
+                decoded.remove();
+                product = decoded.hasNext() ? decoded.next() : null;
+            }
+        }
+    }
+    
+    private static String readString(ByteBuffer body) {
+        int length = body.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
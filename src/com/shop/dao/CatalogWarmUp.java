@@ -0,0 +1,54 @@
+package com.shop.dao;
+
+/**
+ * Outcome of CatalogSnapshot.warmUp()
+ */
+public class CatalogWarmUp {
+    
+    private final String staleReason;
+    private final int products;
+    private final int cached;
+    private final long elapsedNanos;
+    
+    public CatalogWarmUp(String staleReason, int products, int cached, long elapsedNanos) {
+        this.staleReason = staleReason;
+        this.products = products;
+        this.cached = cached;
+        this.elapsedNanos = elapsedNanos;
+    }
+    
+    // Getters
+    
+    public boolean isFromSnapshot() {
+        return staleReason == null;
+    }
+    
+    /**
+     * Why the snapshot was rewritten from the database
+     * @return reason, or null if the catalog was loaded from the snapshot
+     */
+    public String getStaleReason() {
+        return staleReason;
+    }
+    
+    public int getProducts() {
+        return products;
+    }
+    
+    public int getCached() {
+        return cached;
+    }
+    
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+    
+    @Override
+    public String toString() {
+        String source = staleReason == null
+            ? "loaded from snapshot"
+            : "loaded from database, snapshot rewritten (" + staleReason + ")";
+        return String.format("%d products (%d cached by id) %s in %.1f ms",
+                             products, cached, source, elapsedNanos / 1e6);
+    }
+}
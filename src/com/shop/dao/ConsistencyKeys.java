@@ -0,0 +1,43 @@
+package com.shop.dao;
+
+/**
+ * Keys passed to DBUtil.getReadConnection / DBUtil.markWritten
+ *
+ * A read names the key whose recent writes it must observe; a write marks the keys it
+ * changed. Reads whose key was written within db.readYourWritesMillis go to the primary.
+ */
+public final class ConsistencyKeys {
+    
+    /** Catalog content changed by admin operations (product rows added, prices, bulk imports) */
+    public static final String CATALOG = "catalog";
+    
+    private ConsistencyKeys() {
+    }
+    
+    /**
+     * Key of one product's row, written by every stock change (checkout, reduceQuantity, addProduct)
+     * @param productId the product identifier
+     * @return consistency key
+     */
+    public static String product(int productId) {
+        return "product:" + productId;
+    }
+    
+    /**
+     * Key of one user's orders
+     * @param userId the user identifier
+     * @return consistency key
+     */
+    public static String ordersOf(int userId) {
+        return "orders:" + userId;
+    }
+    
+    /**
+     * Key of the account registered under a username
+     * @param username the username
+     * @return consistency key
+     */
+    public static String account(String username) {
+        return "account:" + username;
+    }
+}
@@ -0,0 +1,51 @@
+package com.shop.dao;
+
+/**
+ * One stock change published by InventoryFeed
+ *
+ * version orders changes to the same product the way their transactions committed; sequence
+ * is the event's position in the feed's ring buffer.
+ */
+public class InventoryEvent {
+    
+    private final long sequence;
+    private final long version;
+    private final int productId;
+    private final int quantity;
+    private final long timeMillis;
+    
+    public InventoryEvent(long sequence, long version, int productId, int quantity, long timeMillis) {
+        this.sequence = sequence;
+        this.version = version;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.timeMillis = timeMillis;
+    }
+    
+    // Getters
+    
+    public long getSequence() {
+        return sequence;
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public int getProductId() {
+        return productId;
+    }
+    
+    public int getQuantity() {
+        return quantity;
+    }
+    
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+    
+    @Override
+    public String toString() {
+        return "Product " + productId + " | Qty: " + quantity + " | v" + version;
+    }
+}
@@ -0,0 +1,241 @@
+package com.shop.dao;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.shop.util.AppConfig;
+
+/**
+ * In-process feed of stock changes, pushed to subscribers instead of polled with checkQuantity
+ *
+ * OrderDao.placeOrder, ProductDao.reduceQuantity and AdminDao.addProduct publish the new
+ * quantity of every product they change once their transaction has committed. Events go into
+ * a bounded ring buffer: publishers claim a sequence with one atomic increment and write the
+ * slot with a CAS, so they never block and never wait for subscribers. Each subscription
+ * drains the ring on its own thread, coalescing a batch to the newest event per product.
+ * A subscriber that falls a full ring behind is resynchronised from the latest quantity per
+ * product instead of replaying what it missed. Those latest quantities are only kept while a
+ * subscription is open: publishers skip the feed without subscribers, so anything remembered
+ * from before such a gap could be stale and is dropped when the last subscription closes.
+ *
+ * Publishing costs nothing while there are no subscribers; the DAOs check hasSubscribers()
+ * before collecting anything.
+ */
+public class InventoryFeed {
+    
+    private static final InventoryFeed INSTANCE = new InventoryFeed(
+        AppConfig.getInt("inventory.feed.capacity", 65536),
+        AppConfig.getInt("inventory.feed.batchSize", 1024));
+    
+    private final int mask;
+    private final int batchSize;
+    private final AtomicReferenceArray<InventoryEvent> slots;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final AtomicLong versions = new AtomicLong();
+    private final ConcurrentHashMap<Integer, InventoryEvent> latest = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<InventorySubscription> subscriptions = new CopyOnWriteArrayList<>();
+    
+    // Makes reading the ledger and taking a version one step, see publishAvailable()
+    private final Object ledgerLock = new Object();
+    
+    /**
+     * Constructor for InventoryFeed
+     * @param capacity ring buffer slots, rounded up to a power of two
+     * @param batchSize most events a subscription drains and coalesces at a time
+     */
+    public InventoryFeed(int capacity, int batchSize) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("capacity and batchSize must be positive");
+        }
+        int slotCount = Integer.highestOneBit(capacity);
+        if (slotCount < capacity) {
+            slotCount <<= 1;
+        }
+        this.mask = slotCount - 1;
+        this.batchSize = batchSize;
+        this.slots = new AtomicReferenceArray<>(slotCount);
+    }
+    
+    /**
+     * Get the shared feed
+     * @return InventoryFeed instance used by all DAOs
+     */
+    public static InventoryFeed getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Whether anyone is listening; publishers skip all work when not
+     * @return true if at least one subscription is open
+     */
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+    
+    /**
+     * Take the version for a stock change
+     * Call it while the changed rows are still locked, so versions follow commit order
+     * @return a version greater than every version taken before
+     */
+    public long nextVersion() {
+        return versions.incrementAndGet();
+    }
+    
+    /**
+     * Publish the new quantity of one product
+     * @param productId the product identifier
+     * @param quantity stock after the change
+     * @param version value of nextVersion() taken while the change held the row lock
+     */
+    public void publish(int productId, int quantity, long version) {
+        long sequence = nextSequence.getAndIncrement();
+        InventoryEvent event = new InventoryEvent(sequence, version, productId, quantity, System.currentTimeMillis());
+        latest.merge(productId, event, InventoryFeed::newer);
+        // The last subscription closed meanwhile and may have cleared latest before this merge
+        if (subscriptions.isEmpty()) {
+            latest.remove(productId, event);
+        }
+        
+        int index = (int) (sequence & mask);
+        while (true) {
+            InventoryEvent current = slots.get(index);
+            // A publisher a whole lap ahead already took this slot; readers will see the overrun
+            if (current != null && current.getSequence() > sequence) {
+                break;
+            }
+            if (slots.compareAndSet(index, current, event)) {
+                break;
+            }
+        }
+        
+        for (InventorySubscription subscription : subscriptions) {
+            subscription.wake();
+        }
+    }
+    
+    /**
+     * Publish several products changed by one transaction
+     * @param quantities stock after the change per product id
+     * @param version value of nextVersion() taken while the change held the row locks
+     */
+    public void publishAll(Map<Integer, Integer> quantities, long version) {
+        for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+            publish(entry.getKey(), entry.getValue(), version);
+        }
+    }
+    
+    /**
+     * Publish the stock the inventory ledger holds for some products
+     * The ledger is read and the version taken under one lock, so a later version never
+     * carries an older quantity
+     * @param ledger the inventory ledger
+     * @param productIds products whose reservations just committed
+     */
+    public void publishAvailable(InventoryLedger ledger, Collection<Integer> productIds) {
+        for (Integer productId : productIds) {
+            Integer quantity;
+            long version;
+            synchronized (ledgerLock) {
+                try {
+                    quantity = ledger.getAvailable(productId);
+                } catch (SQLException e) {
+                    // Only happens for a product the ledger has not loaded, i.e. not just reserved
+                    continue;
+                }
+                version = nextVersion();
+            }
+            if (quantity != null) {
+                publish(productId, quantity, version);
+            }
+        }
+    }
+    
+    /**
+     * Subscribe to every stock change
+     * @param name name of the subscription and its thread
+     * @param listener receives the changes
+     * @return started InventorySubscription; close it to unsubscribe
+     */
+    public InventorySubscription subscribe(String name, InventoryListener listener) {
+        return start(new InventorySubscription(this, name, listener, null));
+    }
+    
+    /**
+     * Subscribe to products running low
+     * A product is reported once when its quantity drops to the threshold or below, and again
+     * only after it has been restocked above the threshold and dropped again
+     * @param name name of the subscription and its thread
+     * @param threshold quantity at or below which a product is low
+     * @param listener receives the low-stock events
+     * @return started InventorySubscription; close it to unsubscribe
+     */
+    public InventorySubscription subscribeLowStock(String name, int threshold, InventoryListener listener) {
+        return start(new InventorySubscription(this, name, listener, threshold));
+    }
+    
+    /**
+     * Open subscriptions
+     * @return unmodifiable snapshot of the subscriptions
+     */
+    public List<InventorySubscription> getSubscriptions() {
+        return Collections.unmodifiableList(new ArrayList<>(subscriptions));
+    }
+    
+    /**
+     * Number of events published so far
+     * @return sequence of the next event
+     */
+    public long getPublished() {
+        return nextSequence.get();
+    }
+    
+    private InventorySubscription start(InventorySubscription subscription) {
+        subscriptions.add(subscription);
+        subscription.start(nextSequence.get());
+        return subscription;
+    }
+    
+    void remove(InventorySubscription subscription) {
+        subscriptions.remove(subscription);
+        if (subscriptions.isEmpty()) {
+            latest.clear();
+        }
+    }
+    
+    int getBatchSize() {
+        return batchSize;
+    }
+    
+    int getCapacity() {
+        return slots.length();
+    }
+    
+    /**
+     * Event in the slot for a sequence; its own sequence tells whether it is the one asked for
+     * @param sequence feed sequence
+     * @return event in the slot, or null if the slot was never written
+     */
+    InventoryEvent slot(long sequence) {
+        return slots.get((int) (sequence & mask));
+    }
+    
+    /**
+     * Newest event of every product changed while subscriptions were open, for resynchronising a lapped subscriber
+     * @return latest events
+     */
+    Collection<InventoryEvent> latestEvents() {
+        return latest.values();
+    }
+    
+    static InventoryEvent newer(InventoryEvent a, InventoryEvent b) {
+        return b.getVersion() > a.getVersion() ? b : a;
+    }
+}
@@ -0,0 +1,499 @@
+package com.shop.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.shop.util.AppConfig;
+import com.shop.util.DBUtil;
+import com.shop.util.ExecutorFactory;
+
+/**
+ * In-memory stock reservation ledger for hot products
+ *
+ * When enabled (inventory.ledger.enabled=true), purchases are admitted or rejected by a CAS on a
+ * per-product AtomicInteger instead of "UPDATE products ... WHERE quantity >= ?", so buyers of the
+ * same product never queue on its InnoDB row lock. Each accepted purchase writes an
+ * inventory_pending row in its own transaction; a background flush periodically folds pending
+ * rows into products.quantity in one batched transaction and deletes them.
+ *
+ * Available stock is always products.quantity minus the pending rows, so after a restart
+ * rebuild() recovers the exact ledger from the database.
+ *
+ * A reservation is in flight from tryReserve() until its pending row commits (confirm()) or it is
+ * given back (release()). Its stock is already gone from the counter but not yet from the
+ * database, so rebuild() and reload() close an admission gate and wait for every in-flight
+ * reservation to finish before reading stock; new reservations wait for the gate to reopen.
+ */
+public class InventoryLedger {
+    
+    private static final InventoryLedger INSTANCE = new InventoryLedger(
+        AppConfig.getBoolean("inventory.ledger.enabled", false),
+        AppConfig.getLong("inventory.ledger.flushIntervalMillis", 500),
+        AppConfig.getInt("inventory.ledger.flushBatchSize", 5000),
+        AppConfig.getLong("inventory.ledger.reloadWaitMillis", 2000));
+    
+    private final boolean enabled;
+    private final int flushBatchSize;
+    private final long reloadWaitMillis;
+    private final ConcurrentHashMap<Integer, AtomicInteger> available = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+    private final ScheduledExecutorService flusher;
+    
+    // Admission gate, see the class comment
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Object gate = new Object();
+    private final Object reloadLock = new Object();
+    private volatile boolean gateClosed;
+    
+    /**
+     * Constructor for InventoryLedger
+     * @param enabled when false the ledger is bypassed and stock is checked with SQL as before
+     * @param flushIntervalMillis delay between background flushes
+     * @param flushBatchSize maximum pending rows folded into products per flush transaction
+     * @param reloadWaitMillis how long a reservation waits for a reload to finish before it fails
+     */
+    public InventoryLedger(boolean enabled, long flushIntervalMillis, int flushBatchSize, long reloadWaitMillis) {
+        this.enabled = enabled;
+        this.flushBatchSize = flushBatchSize;
+        this.reloadWaitMillis = reloadWaitMillis;
+        
+        if (enabled) {
+            flusher = Executors.newSingleThreadScheduledExecutor(ExecutorFactory.namedDaemonThreads("inventory-flush"));
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                                           TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+    
+    /**
+     * Get the shared ledger
+     * @return InventoryLedger instance used by all DAOs
+     */
+    public static InventoryLedger getInstance() {
+        return INSTANCE;
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Reserve stock for one product without blocking, except while a reload is running
+     * A successful reservation must end with confirm() once its pending row committed, or release()
+     * @param productId the product identifier
+     * @param qty quantity to reserve
+     * @return true if reserved, false if the product is unknown or has too little stock
+     * @throws SQLException if the product's stock has to be loaded and that fails, or a reload
+     *                      did not finish within reloadWaitMillis
+     */
+    public boolean tryReserve(int productId, int qty) throws SQLException {
+        admit();
+        boolean reserved = false;
+        try {
+            AtomicInteger counter = counterFor(productId);
+            if (counter == null) {
+                return false;
+            }
+            while (true) {
+                int current = counter.get();
+                if (current < qty) {
+                    return false;
+                }
+                if (counter.compareAndSet(current, current - qty)) {
+                    reserved = true;
+                    return true;
+                }
+            }
+        } finally {
+            if (!reserved) {
+                leave();
+            }
+        }
+    }
+    
+    /**
+     * Reserve stock for several products, all or nothing
+     * @param requested quantity per product id
+     * @return id of the first product that could not be reserved, or null if all were reserved
+     * @throws SQLException if a product's stock has to be loaded and that fails
+     */
+    public Integer tryReserveAll(Map<Integer, Integer> requested) throws SQLException {
+        Map<Integer, Integer> reserved = new HashMap<>();
+        try {
+            for (Map.Entry<Integer, Integer> entry : requested.entrySet()) {
+                if (!tryReserve(entry.getKey(), entry.getValue())) {
+                    releaseAll(reserved);
+                    return entry.getKey();
+                }
+                reserved.put(entry.getKey(), entry.getValue());
+            }
+            return null;
+        } catch (SQLException | RuntimeException e) {
+            releaseAll(reserved);
+            throw e;
+        }
+    }
+    
+    /**
+     * Give back a reservation whose purchase did not commit
+     * @param productId the product identifier
+     * @param qty quantity to return
+     */
+    public void release(int productId, int qty) {
+        AtomicInteger counter = available.get(productId);
+        if (counter != null) {
+            counter.addAndGet(qty);
+        }
+        leave();
+    }
+    
+    /**
+     * Give back several reservations
+     * @param reserved quantity per product id
+     */
+    public void releaseAll(Map<Integer, Integer> reserved) {
+        for (Map.Entry<Integer, Integer> entry : reserved.entrySet()) {
+            release(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    /**
+     * End a reservation whose pending row has committed
+     * @param productId the product identifier
+     */
+    public void confirm(int productId) {
+        leave();
+    }
+    
+    /**
+     * End several reservations whose pending rows have committed
+     * @param reserved quantity per product id
+     */
+    public void confirmAll(Map<Integer, Integer> reserved) {
+        for (Integer productId : reserved.keySet()) {
+            confirm(productId);
+        }
+    }
+    
+    /**
+     * Stock the ledger currently considers available
+     * @param productId the product identifier
+     * @return available quantity, or null if the product is unknown
+     * @throws SQLException if the product's stock has to be loaded and that fails
+     */
+    public Integer getAvailable(int productId) throws SQLException {
+        AtomicInteger counter = counterFor(productId);
+        return counter == null ? null : counter.get();
+    }
+    
+    /**
+     * Record accepted decrements so flush() can apply them to products.quantity
+     * Must run in the same transaction as the purchase it belongs to
+     * @param connection connection of the purchase transaction
+     * @param requested quantity per product id
+     * @throws SQLException if database error occurs
+     */
+    void insertPending(Connection connection, Map<Integer, Integer> requested) throws SQLException {
+        String sql = "INSERT INTO inventory_pending(product_id, qty) VALUES(?, ?)";
+        
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (Map.Entry<Integer, Integer> entry : requested.entrySet()) {
+                ps.setInt(1, entry.getKey());
+                ps.setInt(2, entry.getValue());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+    
+    /**
+     * Reload every product's available stock from the database
+     * Used at startup (recovery after a restart) and after the products table was changed
+     * outside the ledger. Safe while purchases run: they are paused until the reload is done
+     * @throws SQLException if database error occurs or in-flight purchases did not finish in time
+     */
+    public void rebuild() throws SQLException {
+        String sql = "SELECT p.product_id, p.quantity - COALESCE(s.pending, 0) AS available " +
+                     "FROM products p " +
+                     "LEFT JOIN (SELECT product_id, SUM(qty) AS pending FROM inventory_pending " +
+                     "           GROUP BY product_id) s ON s.product_id = p.product_id";
+        
+        synchronized (reloadLock) {
+            closeGate();
+            try {
+                Map<Integer, AtomicInteger> loaded = new HashMap<>();
+                try (Connection connection = DBUtil.getConnection();
+                     PreparedStatement preparedStatement = connection.prepareStatement(sql);
+                     ResultSet resultSet = preparedStatement.executeQuery()) {
+                    
+                    while (resultSet.next()) {
+                        loaded.put(resultSet.getInt("product_id"), new AtomicInteger(resultSet.getInt("available")));
+                    }
+                }
+                
+                synchronized (flushLock) {
+                    available.clear();
+                    available.putAll(loaded);
+                }
+            } finally {
+                openGate();
+            }
+        }
+    }
+    
+    /**
+     * Reload the available stock of some products after their rows were changed outside the
+     * ledger (e.g. by a catalog import); purchases are paused only if one of them is loaded
+     * @param productIds products whose stock changed
+     * @throws SQLException if database error occurs or in-flight purchases did not finish in time
+     */
+    public void reload(Collection<Integer> productIds) throws SQLException {
+        synchronized (reloadLock) {
+            List<Integer> loadedIds = new ArrayList<>();
+            for (Integer productId : productIds) {
+                if (available.containsKey(productId)) {
+                    loadedIds.add(productId);
+                }
+            }
+            // Products without a counter are read from the database when first reserved
+            if (loadedIds.isEmpty()) {
+                return;
+            }
+            
+            closeGate();
+            try {
+                for (Integer productId : loadedIds) {
+                    Integer loaded = loadAvailable(productId);
+                    if (loaded == null) {
+                        available.remove(productId);
+                    } else {
+                        available.put(productId, new AtomicInteger(loaded));
+                    }
+                }
+            } finally {
+                openGate();
+            }
+        }
+    }
+    
+    /**
+     * Fold pending decrements into products.quantity
+     * @return number of pending rows applied
+     * @throws SQLException if database error occurs
+     */
+    public int flush() throws SQLException {
+        String selectSql = "SELECT pending_id, product_id, qty FROM inventory_pending ORDER BY pending_id LIMIT ?";
+        String updateSql = "UPDATE products SET quantity = quantity - ? WHERE product_id = ?";
+        String deleteSql = "DELETE FROM inventory_pending WHERE pending_id = ?";
+        
+        synchronized (flushLock) {
+            try (Connection connection = DBUtil.getConnection()) {
+                connection.setAutoCommit(false);
+                
+                try {
+                    List<Long> pendingIds = new ArrayList<>();
+                    Map<Integer, Integer> decrements = new HashMap<>();
+                    
+                    try (PreparedStatement ps = connection.prepareStatement(selectSql)) {
+                        ps.setInt(1, flushBatchSize);
+                        try (ResultSet resultSet = ps.executeQuery()) {
+                            while (resultSet.next()) {
+                                pendingIds.add(resultSet.getLong("pending_id"));
+                                decrements.merge(resultSet.getInt("product_id"), resultSet.getInt("qty"),
+                                                 Integer::sum);
+                            }
+                        }
+                    }
+                    
+                    if (pendingIds.isEmpty()) {
+                        connection.commit();
+                        return 0;
+                    }
+                    
+                    // One UPDATE per product however many purchases it had since the last flush
+                    try (PreparedStatement ps = connection.prepareStatement(updateSql)) {
+                        for (Map.Entry<Integer, Integer> entry : decrements.entrySet()) {
+                            ps.setInt(1, entry.getValue());
+                            ps.setInt(2, entry.getKey());
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                    
+                    // Delete exactly the rows applied; rows committed meanwhile wait for the next flush
+                    try (PreparedStatement ps = connection.prepareStatement(deleteSql)) {
+                        for (Long pendingId : pendingIds) {
+                            ps.setLong(1, pendingId);
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                    
+                    connection.commit();
+                    ProductCache.getInstance().invalidate(decrements.keySet());
+                    return pendingIds.size();
+                
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Flush everything still pending and stop the background flusher
+     * @throws SQLException if the final flush fails
+     */
+    public void shutdown() throws SQLException {
+        if (flusher != null) {
+            flusher.shutdown();
+            while (flush() > 0) {
+                // Keep flushing until the pending table is drained
+            }
+        }
+    }
+    
+    /**
+     * Wait for the admission gate to be open, then count one more reservation in flight
+     */
+    private void admit() throws SQLException {
+        while (true) {
+            if (gateClosed) {
+                awaitGateOpen();
+            }
+            inFlight.incrementAndGet();
+            if (!gateClosed) {
+                return;
+            }
+            // Closed meanwhile: back out so the reload is not kept waiting for this reservation
+            leave();
+        }
+    }
+    
+    private void leave() {
+        if (inFlight.decrementAndGet() == 0 && gateClosed) {
+            synchronized (gate) {
+                gate.notifyAll();
+            }
+        }
+    }
+    
+    private void awaitGateOpen() throws SQLException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(reloadWaitMillis);
+        synchronized (gate) {
+            while (gateClosed) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    // Also frees a caller that holds reservations the reload is waiting for
+                    throw new SQLTransientException("Stock is being reloaded, please try again.");
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(gate, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLTransientException("Interrupted while stock was being reloaded.", e);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Stop new reservations and wait until none is in flight
+     * Waits twice reloadWaitMillis, so a caller stuck in admit() while holding reservations
+     * (e.g. the group-commit writer mid-batch) gives up first and lets the reload proceed
+     */
+    private void closeGate() throws SQLException {
+        gateClosed = true;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(2 * reloadWaitMillis);
+        synchronized (gate) {
+            while (inFlight.get() > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    openGateLocked();
+                    throw new SQLTransientException(inFlight.get() +
+                                                    " purchases still in flight; stock was not reloaded.");
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(gate, remaining);
+                } catch (InterruptedException e) {
+                    openGateLocked();
+                    Thread.currentThread().interrupt();
+                    throw new SQLTransientException("Interrupted while waiting for purchases to finish.", e);
+                }
+            }
+        }
+    }
+    
+    private void openGate() {
+        synchronized (gate) {
+            openGateLocked();
+        }
+    }
+    
+    private void openGateLocked() {
+        gateClosed = false;
+        gate.notifyAll();
+    }
+    
+    private void flushQuietly() {
+        try {
+            while (flush() == flushBatchSize) {
+                // A full batch means more rows are probably waiting
+            }
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Inventory flush failed, will retry: " + e.getMessage());
+        }
+    }
+    
+    private AtomicInteger counterFor(int productId) throws SQLException {
+        AtomicInteger counter = available.get(productId);
+        if (counter != null) {
+            return counter;
+        }
+        
+        Integer loaded = loadAvailable(productId);
+        if (loaded == null) {
+            return null;
+        }
+        AtomicInteger existing = available.putIfAbsent(productId, new AtomicInteger(loaded));
+        return existing != null ? existing : available.get(productId);
+    }
+    
+    private Integer loadAvailable(int productId) throws SQLException {
+        String sql = "SELECT quantity - COALESCE((SELECT SUM(qty) FROM inventory_pending WHERE product_id = ?), 0) " +
+                     "AS available FROM products WHERE product_id = ?";
+        
+        // A single statement sees products and inventory_pending from the same snapshot,
+        // so a concurrent flush is observed either entirely or not at all
+        try (Connection connection = DBUtil.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            
+            preparedStatement.setInt(1, productId);
+            preparedStatement.setInt(2, productId);
+            
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (resultSet.next()) {
+                    return resultSet.getInt("available");
+                }
+            }
+        }
+        return null;
+    }
+}
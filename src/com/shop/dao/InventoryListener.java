@@ -0,0 +1,14 @@
+package com.shop.dao;
+
+/**
+ * Receives stock changes from an InventorySubscription, always on the subscription's own thread
+ */
+@FunctionalInterface
+public interface InventoryListener {
+    
+    /**
+     * Called with the newest known quantity of a product
+     * @param event the stock change
+     */
+    void onStockChange(InventoryEvent event);
+}
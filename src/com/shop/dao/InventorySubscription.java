@@ -0,0 +1,206 @@
+package com.shop.dao;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.shop.util.ExecutorFactory;
+
+/**
+ * One subscriber of InventoryFeed, draining the ring buffer on its own daemon thread
+ *
+ * Each pass reads up to the feed's batch size of events and keeps only the newest per product,
+ * so a slow listener sees fewer, fresher events rather than an ever longer backlog. Changes
+ * reach the listener in version order per product; an event older than one already delivered
+ * is dropped.
+ */
+public class InventorySubscription implements AutoCloseable {
+    
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    
+    private final InventoryFeed feed;
+    private final String name;
+    private final InventoryListener listener;
+    private final Integer lowStockThreshold;
+    private final Thread thread;
+    
+    // Owned by the subscription thread
+    private final Map<Integer, Long> deliveredVersions = new HashMap<>();
+    private final Set<Integer> lowProducts = new HashSet<>();
+    
+    private volatile long cursor;
+    private volatile boolean parked;
+    private volatile boolean closed;
+    private volatile long delivered;
+    private volatile long coalesced;
+    private volatile long overruns;
+    
+    InventorySubscription(InventoryFeed feed, String name, InventoryListener listener, Integer lowStockThreshold) {
+        this.feed = feed;
+        this.name = name;
+        this.listener = listener;
+        this.lowStockThreshold = lowStockThreshold;
+        this.thread = ExecutorFactory.namedDaemonThreads("inventory-feed-" + name).newThread(this::run);
+    }
+    
+    void start(long head) {
+        cursor = head;
+        thread.start();
+    }
+    
+    /**
+     * Unpark the subscription thread if it is waiting for events
+     */
+    void wake() {
+        if (parked) {
+            LockSupport.unpark(thread);
+        }
+    }
+    
+    private void run() {
+        while (!closed) {
+            Map<Integer, InventoryEvent> batch = drain();
+            if (batch.isEmpty()) {
+                parked = true;
+                if (!closed && !hasNext()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                parked = false;
+                continue;
+            }
+            for (InventoryEvent event : batch.values()) {
+                deliver(event);
+            }
+        }
+    }
+    
+    /**
+     * Read up to one batch from the ring, keeping the newest event per product
+     * @return events in the order their products first appeared in the batch
+     */
+    private Map<Integer, InventoryEvent> drain() {
+        Map<Integer, InventoryEvent> batch = new LinkedHashMap<>();
+        long next = cursor;
+        int read = 0;
+        
+        while (read < feed.getBatchSize()) {
+            InventoryEvent event = feed.slot(next);
+            if (event == null || event.getSequence() < next) {
+                break; // Not published yet
+            }
+            if (event.getSequence() > next) {
+                // Lapped: what was in between is gone, so start over from the latest quantities.
+                // Jumping back to the oldest slot still in the ring picks up publishers that
+                // claimed a sequence but had not reached the latest map yet; whatever they
+                // repeat is dropped by version.
+                overruns++;
+                for (InventoryEvent latest : feed.latestEvents()) {
+                    add(batch, latest);
+                }
+                next = Math.max(next + 1, feed.getPublished() - feed.getCapacity());
+                break;
+            }
+            add(batch, event);
+            next++;
+            read++;
+        }
+        cursor = next;
+        return batch;
+    }
+    
+    private void add(Map<Integer, InventoryEvent> batch, InventoryEvent event) {
+        batch.merge(event.getProductId(), event, (previous, current) -> {
+            coalesced++;
+            return InventoryFeed.newer(previous, current);
+        });
+    }
+    
+    private boolean hasNext() {
+        InventoryEvent event = feed.slot(cursor);
+        return event != null && event.getSequence() >= cursor;
+    }
+    
+    private void deliver(InventoryEvent event) {
+        Long deliveredVersion = deliveredVersions.get(event.getProductId());
+        if (deliveredVersion != null && deliveredVersion >= event.getVersion()) {
+            return;
+        }
+        deliveredVersions.put(event.getProductId(), event.getVersion());
+        
+        if (lowStockThreshold != null) {
+            if (event.getQuantity() > lowStockThreshold) {
+                lowProducts.remove(event.getProductId());
+                return;
+            }
+            if (!lowProducts.add(event.getProductId())) {
+                return; // Already reported low and not restocked since
+            }
+        }
+        
+        try {
+            listener.onStockChange(event);
+            delivered++;
+        } catch (RuntimeException e) {
+            System.err.println("Inventory subscriber " + name + " failed on " + event + ": " + e);
+        }
+    }
+    
+    /**
+     * Stop the subscription; events published afterwards are not delivered
+     */
+    @Override
+    public void close() {
+        closed = true;
+        feed.remove(this);
+        LockSupport.unpark(thread);
+        if (Thread.currentThread() == thread) {
+            return; // Closed from its own listener
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    // Getters
+    
+    public String getName() {
+        return name;
+    }
+    
+    public Integer getLowStockThreshold() {
+        return lowStockThreshold;
+    }
+    
+    public long getDelivered() {
+        return delivered;
+    }
+    
+    public long getCoalesced() {
+        return coalesced;
+    }
+    
+    public long getOverruns() {
+        return overruns;
+    }
+    
+    /**
+     * Events published but not yet read by this subscription
+     * @return lag in events
+     */
+    public long getLag() {
+        return Math.max(0, feed.getPublished() - cursor);
+    }
+    
+    @Override
+    public String toString() {
+        return name + (lowStockThreshold == null ? "" : " (qty <= " + lowStockThreshold + ")") +
+               " | Delivered: " + delivered + " | Coalesced: " + coalesced +
+               " | Overruns: " + overruns + " | Lag: " + getLag();
+    }
+}
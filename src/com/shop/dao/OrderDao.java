@@ -1,13 +1,29 @@
 package com.shop.dao;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
+import com.shop.journal.OrderEvent;
+import com.shop.journal.OrderJournal;
+import com.shop.metrics.MetricsRegistry;
 import com.shop.model.CartItem;
+import com.shop.model.Money;
+import com.shop.model.Order;
+import com.shop.model.OrderLine;
+import com.shop.model.Product;
 import com.shop.util.DBUtil;
 
 /**
@@ -15,120 +31,480 @@ import com.shop.util.DBUtil;
  */
 public class OrderDao {
     
+    // Orders below the journal's last order id that catchUpJournal() also checks; concurrent
+    // orders are appended in commit order, which can trail order_id order by a few
+    private static final int JOURNAL_CATCH_UP_OVERLAP = 1000;
+    
+    private final InventoryLedger ledger = InventoryLedger.getInstance();
+    private final InventoryFeed inventoryFeed = InventoryFeed.getInstance();
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+    private final ProductDao productDao = new ProductDao();
+    private final OrderSummaryDao summaryDao = new OrderSummaryDao();
+    
     /**
      * Place an order for a user with transaction support
-     * Creates order and order_items records, updates product quantities atomically
+     * The cart is revalidated in one query first (see revalidateCart), then order and
+     * order_items records are created and product quantities updated atomically
      * @param userId the user placing the order
      * @param cart list of CartItem objects
      * @return the generated order_id if successful
      * @throws SQLException if database error occurs or insufficient stock
      */
     public int placeOrder(int userId, List<CartItem> cart) throws SQLException {
-        String insertOrderSql = "INSERT INTO orders(user_id, total_amount) VALUES(?, ?)";
-        String insertItemSql = "INSERT INTO order_items(order_id, product_id, qty, price_at_purchase) " +
-                               "VALUES(?, ?, ?, ?)";
-        String updateStockSql = "UPDATE products SET quantity = quantity - ? " +
-                                "WHERE product_id = ? AND quantity >= ?";
-        
-        // Calculate total amount
-        double total = 0;
-        for (CartItem cartItem : cart) {
-            total += cartItem.getLineTotal();
+        return metrics.time("OrderDao.placeOrder", () -> {
+            // Reject stale carts before any row is locked
+            revalidateCart(cart);
+            
+            // With the inventory ledger enabled, stock is reserved in memory before touching the database
+            Map<Integer, Integer> reserved = reserveStock(cart);
+            
+            try (Connection connection = DBUtil.getConnection()) {
+                // Disable auto-commit to manage transactions manually
+                connection.setAutoCommit(false);
+                
+                try {
+                    StockUpdate stockUpdate = new StockUpdate();
+                    int orderId = insertOrder(connection, userId, cart, stockUpdate);
+                    
+                    // Commit transaction
+                    connection.commit();
+                    confirmStock(reserved);
+                    reserved = null;
+                    DBUtil.markWritten(ConsistencyKeys.ordersOf(userId));
+                    markStockWritten(cart);
+                    journalOrder(orderId, userId, cart);
+                    stockUpdate.publish();
+                    return orderId;
+                
+                } catch (SQLException e) {
+                    // Rollback transaction on error
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            } finally {
+                // Still set only if the order did not commit
+                releaseStock(reserved);
+            }
+        });
+    }
+    
+    /**
+     * Check a cart against current product data with a single multi-get
+     * Runs outside the write transaction so stale carts are rejected without taking row locks.
+     * Stock is checked again under lock when the order is written; with the inventory ledger
+     * enabled only prices are checked here, since the ledger reservation decides stock.
+     * @param cart list of CartItem objects
+     * @throws SQLException naming the first product that no longer exists, changed price or lacks stock
+     */
+    public void revalidateCart(List<CartItem> cart) throws SQLException {
+        metrics.time("OrderDao.revalidateCart", () -> {
+            Map<Integer, Integer> requested = requestedQuantities(cart);
+            if (requested.isEmpty()) {
+                return null;
+            }
+            Map<Integer, Product> current = productDao.loadByIds(requested.keySet());
+            
+            for (CartItem cartItem : cart) {
+                Product product = current.get(cartItem.getProductId());
+                if (product == null) {
+                    throw new CartConflictException("Product id " + cartItem.getProductId() +
+                                                    " is no longer available.");
+                }
+                if (product.getPriceCents() != cartItem.getPriceCents()) {
+                    throw new CartConflictException("Price changed for product id " + cartItem.getProductId() +
+                                                    ": was " + Money.format(cartItem.getPriceCents()) + ", now " +
+                                                    Money.format(product.getPriceCents()));
+                }
+                if (!ledger.isEnabled() && product.getQuantity() < requested.get(cartItem.getProductId())) {
+                    throw new CartConflictException("Not enough stock for product id " + cartItem.getProductId());
+                }
+            }
+            return null;
+        });
+    }
+    
+    /**
+     * Bring every cart line to the product's current price, dropping products that no longer exist
+     * Lets a cart rejected by revalidateCart() check out again once the shopper has seen the change
+     * @param cart list of CartItem objects, updated in place
+     * @return one message per line repriced or removed, empty if nothing changed
+     * @throws SQLException if database error occurs
+     */
+    public List<String> repriceCart(List<CartItem> cart) throws SQLException {
+        List<String> changes = new ArrayList<>();
+        Map<Integer, Integer> requested = requestedQuantities(cart);
+        if (requested.isEmpty()) {
+            return changes;
         }
+        // Uncached, so the prices are the ones revalidateCart checks against
+        Map<Integer, Product> current = productDao.loadByIds(requested.keySet());
         
-        try (Connection connection = DBUtil.getConnection()) {
-            // Disable auto-commit to manage transactions manually
-            connection.setAutoCommit(false);
+        for (ListIterator<CartItem> lines = cart.listIterator(); lines.hasNext(); ) {
+            CartItem cartItem = lines.next();
+            Product product = current.get(cartItem.getProductId());
+            if (product == null) {
+                lines.remove();
+                changes.add(cartItem.getName() + " is no longer available and was removed from your cart.");
+            } else if (product.getPriceCents() != cartItem.getPriceCents()) {
+                lines.set(new CartItem(product.getProductId(), product.getName(), product.getPriceCents(),
+                                       cartItem.getQty()));
+                changes.add("Price of " + product.getName() + " changed from " +
+                            Money.format(cartItem.getPriceCents()) + " to " +
+                            Money.format(product.getPriceCents()) + ".");
+            }
+        }
+        return changes;
+    }
+    
+    /**
+     * Write an order inside a transaction owned by the caller
+     * Each statement is prepared once per call regardless of cart size: one locking stock read,
+     * one order insert, one batched stock update and one batched order_items insert, followed
+     * by the user's order summary update.
+     * When the inventory ledger is enabled the caller must already hold a reservation for the
+     * cart (see reserveStock); stock is then recorded as pending instead of updated in place,
+     * and the caller ends the reservation with confirmStock or releaseStock.
+     * @param connection connection with auto-commit disabled
+     * @param userId the user placing the order
+     * @param cart list of CartItem objects
+     * @return the generated order_id
+     * @throws SQLException if database error occurs or insufficient stock
+     */
+    public int insertOrder(Connection connection, int userId, List<CartItem> cart) throws SQLException {
+        return insertOrder(connection, userId, cart, null);
+    }
+    
+    /**
+     * Write an order inside a transaction owned by the caller, collecting its stock changes
+     * While InventoryFeed has subscribers, the new quantities are recorded under the row locks
+     * for the caller to publish once the transaction has committed.
+     * @param connection connection with auto-commit disabled
+     * @param userId the user placing the order
+     * @param cart list of CartItem objects
+     * @param stockUpdate receives the stock changes, may be null
+     * @return the generated order_id
+     * @throws SQLException if database error occurs or insufficient stock
+     */
+    int insertOrder(Connection connection, int userId, List<CartItem> cart, StockUpdate stockUpdate)
+            throws SQLException {
+        return metrics.time("OrderDao.insertOrder", () -> {
+            String insertOrderSql = "INSERT INTO orders(user_id, total_amount) VALUES(?, ?)";
+            String insertItemSql = "INSERT INTO order_items(order_id, product_id, qty, price_at_purchase) " +
+                                   "VALUES(?, ?, ?, ?)";
+            String updateStockSql = "UPDATE products SET quantity = quantity - ? " +
+                                    "WHERE product_id = ? AND quantity >= ?";
             
-            try {
-                // Step 1: Insert order and get generated order_id
-                int orderId;
-                try (PreparedStatement ps = connection.prepareStatement(insertOrderSql, 
-                                                                        Statement.RETURN_GENERATED_KEYS)) {
-                    ps.setInt(1, userId);
-                    ps.setDouble(2, total);
-                    ps.executeUpdate();
-                    
-                    try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
-                        if (!generatedKeys.next()) {
-                            throw new SQLException("Order id not generated.");
-                        }
-                        orderId = generatedKeys.getInt(1);
+            if (cart.isEmpty()) {
+                throw new SQLException("Cannot place an order with an empty cart.");
+            }
+            
+            // Calculate total amount and the quantity requested per product
+            long totalCents = 0;
+            for (CartItem cartItem : cart) {
+                totalCents = Math.addExact(totalCents, cartItem.getLineTotalCents());
+            }
+            Map<Integer, Integer> requested = requestedQuantities(cart);
+            
+            // Step 1: Lock the cart's product rows and validate stock in one round-trip
+            Map<Integer, Integer> available = null;
+            if (!ledger.isEnabled()) {
+                available = lockAndValidateStock(connection, requested);
+            }
+            
+            // Step 2: Insert order and get generated order_id
+            int orderId;
+            try (PreparedStatement ps = connection.prepareStatement(insertOrderSql,
+                                                                    Statement.RETURN_GENERATED_KEYS)) {
+                ps.setInt(1, userId);
+                ps.setBigDecimal(2, Money.toBigDecimal(totalCents));
+                ps.executeUpdate();
+                
+                try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
+                    if (!generatedKeys.next()) {
+                        throw new SQLException("Order id not generated.");
                     }
+                    orderId = generatedKeys.getInt(1);
                 }
-                
-                // Step 2: For each cart item, reduce stock and insert order item
+            }
+            
+            // Step 3: Reduce stock for every product in one batch
+            if (ledger.isEnabled()) {
+                ledger.insertPending(connection, requested);
+            } else {
+                reduceStock(connection, requested, updateStockSql);
+            }
+            if (stockUpdate != null && inventoryFeed.hasSubscribers()) {
+                recordStockUpdate(stockUpdate, requested, available);
+            }
+            
+            // Step 4: Insert all order items in one batch
+            try (PreparedStatement ps = connection.prepareStatement(insertItemSql)) {
                 for (CartItem cartItem : cart) {
-                    // Step 2a: Update stock (fails if not enough quantity)
-                    try (PreparedStatement ps = connection.prepareStatement(updateStockSql)) {
-                        ps.setInt(1, cartItem.getQty());
-                        ps.setInt(2, cartItem.getProductId());
-                        ps.setInt(3, cartItem.getQty());
-                        
-                        int updated = ps.executeUpdate();
-                        if (updated != 1) {
-                            throw new SQLException("Not enough stock for product id " + 
-                                                   cartItem.getProductId());
-                        }
-                    }
-                    
-                    // Step 2b: Insert order item
-                    try (PreparedStatement ps = connection.prepareStatement(insertItemSql)) {
-                        ps.setInt(1, orderId);
-                        ps.setInt(2, cartItem.getProductId());
-                        ps.setInt(3, cartItem.getQty());
-                        ps.setDouble(4, cartItem.getPrice());
-                        ps.executeUpdate();
-                    }
+                    ps.setInt(1, orderId);
+                    ps.setInt(2, cartItem.getProductId());
+                    ps.setInt(3, cartItem.getQty());
+                    ps.setBigDecimal(4, Money.toBigDecimal(cartItem.getPriceCents()));
+                    ps.addBatch();
                 }
-                
-                // Commit transaction
-                connection.commit();
-                return orderId;
-                
-            } catch (SQLException e) {
-                // Rollback transaction on error
-                connection.rollback();
-                throw e;
-            } finally {
-                connection.setAutoCommit(true);
+                ps.executeBatch();
             }
+            
+            // Step 5: Fold the order into the user's summary
+            summaryDao.recordOrder(connection, userId, requested.keySet(), totalCents);
+            
+            return orderId;
+        });
+    }
+    
+    /**
+     * Reserve the cart's stock in the inventory ledger, if it is enabled
+     * @param cart list of CartItem objects
+     * @return the reservation to release if the order does not commit, or null when the ledger is off
+     * @throws SQLException naming the first product without enough stock
+     */
+    public Map<Integer, Integer> reserveStock(List<CartItem> cart) throws SQLException {
+        if (!ledger.isEnabled()) {
+            return null;
         }
+        Map<Integer, Integer> requested = requestedQuantities(cart);
+        Integer failedProductId = ledger.tryReserveAll(requested);
+        if (failedProductId != null) {
+            throw new CartConflictException("Not enough stock for product id " + failedProductId);
+        }
+        return requested;
     }
     
     /**
-     * Print all orders for a specific user
-     * @param userId the user identifier
+     * End a reservation returned by reserveStock once its order has committed
+     * @param reserved reservation, may be null
+     */
+    public void confirmStock(Map<Integer, Integer> reserved) {
+        if (reserved != null) {
+            ledger.confirmAll(reserved);
+        }
+    }
+    
+    /**
+     * Release a reservation returned by reserveStock
+     * @param reserved reservation, may be null
+     */
+    public void releaseStock(Map<Integer, Integer> reserved) {
+        if (reserved != null) {
+            ledger.releaseAll(reserved);
+        }
+    }
+    
+    /**
+     * Decrement stock in place for every product in one batch
+     * @param connection connection with auto-commit disabled
+     * @param requested quantity per product id
+     * @param updateStockSql guarded UPDATE statement
+     * @throws SQLException if database error occurs or insufficient stock
+     */
+    private void reduceStock(Connection connection, Map<Integer, Integer> requested, String updateStockSql)
+            throws SQLException {
+        List<Integer> productIds = new ArrayList<>(requested.keySet());
+        try (PreparedStatement ps = connection.prepareStatement(updateStockSql)) {
+            for (Map.Entry<Integer, Integer> entry : requested.entrySet()) {
+                ps.setInt(1, entry.getValue());
+                ps.setInt(2, entry.getKey());
+                ps.setInt(3, entry.getValue());
+                ps.addBatch();
+            }
+            
+            int[] updateCounts = ps.executeBatch();
+            for (int i = 0; i < updateCounts.length; i++) {
+                // Rows are locked, so this only trips if the guard disagrees with the validation above
+                if (updateCounts[i] == 0) {
+                    throw new CartConflictException("Not enough stock for product id " + productIds.get(i));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Record an order's new quantities for InventoryFeed
+     * Runs while the product rows are locked, so the version taken here follows commit order
+     * @param stockUpdate receives the stock changes
+     * @param requested quantity per product id
+     * @param available stock read under lock, or null when the inventory ledger keeps stock
+     */
+    private void recordStockUpdate(StockUpdate stockUpdate, Map<Integer, Integer> requested,
+                                   Map<Integer, Integer> available) {
+        if (available == null) {
+            stockUpdate.recordLedger(requested.keySet());
+            return;
+        }
+        Map<Integer, Integer> remaining = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Integer> entry : requested.entrySet()) {
+            remaining.put(entry.getKey(), available.get(entry.getKey()) - entry.getValue());
+        }
+        stockUpdate.record(remaining, inventoryFeed.nextVersion());
+    }
+    
+    /**
+     * Sum cart quantities per product, keeping cart order
+     * @param cart list of CartItem objects
+     * @return quantity per product id
+     */
+    static Map<Integer, Integer> requestedQuantities(List<CartItem> cart) {
+        Map<Integer, Integer> requested = new LinkedHashMap<>();
+        for (CartItem cartItem : cart) {
+            requested.merge(cartItem.getProductId(), cartItem.getQty(), Integer::sum);
+        }
+        return requested;
+    }
+    
+    /**
+     * Mark the products whose stock was changed by a committed order as written and drop their cached copies
+     * @param cart the committed cart
+     */
+    static void markStockWritten(List<CartItem> cart) {
+        List<Integer> productIds = new ArrayList<>(cart.size());
+        for (CartItem cartItem : cart) {
+            productIds.add(cartItem.getProductId());
+            DBUtil.markWritten(ConsistencyKeys.product(cartItem.getProductId()));
+        }
+        ProductCache.getInstance().invalidate(productIds);
+    }
+    
+    /**
+     * Record a committed order in the order journal, if it is enabled
+     * @param orderId the committed order
+     * @param userId the user who placed it
+     * @param cart the committed cart
+     */
+    static void journalOrder(int orderId, int userId, List<CartItem> cart) {
+        OrderJournal journal = OrderJournal.getInstance();
+        if (journal.isEnabled()) {
+            journal.append(OrderEvent.placed(orderId, userId, cart));
+        }
+    }
+    
+    /**
+     * Append committed orders that never reached the order journal
+     * Orders are journaled after they commit, so a crash in between leaves them only in the
+     * tables. Compares the journal's last order id with MAX(order_id) and appends every order
+     * missing from the journal after it, or shortly before it. Call at startup, before orders are taken.
+     * @return number of orders appended
      * @throws SQLException if database error occurs
+     * @throws IOException if the journal cannot be read
      */
-    public void printOrdersForUser(int userId) throws SQLException {
-        String sql = "SELECT o.order_id, o.order_time, o.total_amount, " +
-                     "  oi.product_id, p.name AS product_name, oi.qty, oi.price_at_purchase " +
-                     "FROM orders o " +
-                     "JOIN order_items oi ON o.order_id = oi.order_id " +
-                     "JOIN products p ON oi.product_id = p.product_id " +
-                     "WHERE o.user_id = ? " +
-                     "ORDER BY o.order_id DESC";
+    public int catchUpJournal() throws SQLException, IOException {
+        OrderJournal journal = OrderJournal.getInstance();
+        if (!journal.isEnabled()) {
+            return 0;
+        }
         
-        try (Connection connection = DBUtil.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
-            
-            preparedStatement.setInt(1, userId);
+        int lastOrderId = journal.getLastOrderId();
+        int afterOrderId = Math.max(0, lastOrderId - JOURNAL_CATCH_UP_OVERLAP);
+        String maxOrderSql = "SELECT MAX(order_id) FROM orders";
+        String ordersSql = "SELECT o.order_id, o.user_id, o.order_time, o.total_amount, " +
+                           "  oi.product_id, oi.qty, oi.price_at_purchase " +
+                           "FROM orders o JOIN order_items oi ON o.order_id = oi.order_id " +
+                           "WHERE o.order_id > ? ORDER BY o.order_id, oi.item_id";
+        
+        List<Order> orders = new ArrayList<>();
+        try (Connection connection = DBUtil.getConnection()) {
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(maxOrderSql)) {
+                resultSet.next();
+                if (resultSet.getInt(1) <= afterOrderId) {
+                    return 0;
+                }
+            }
             
-            try (ResultSet resultSet = preparedStatement.executeQuery()) {
-                System.out.println("\nORDER_ID | TIME | TOTAL | PID | PRODUCT | QTY | PRICE");
+            try (PreparedStatement ps = connection.prepareStatement(ordersSql)) {
+                ps.setInt(1, afterOrderId);
+                try (ResultSet resultSet = ps.executeQuery()) {
+                    Order current = null;
+                    while (resultSet.next()) {
+                        int orderId = resultSet.getInt("order_id");
+                        if (current == null || current.getOrderId() != orderId) {
+                            current = new Order();
+                            current.setOrderId(orderId);
+                            current.setUserId(resultSet.getInt("user_id"));
+                            current.setOrderTime(resultSet.getTimestamp("order_time"));
+                            current.setTotalAmountCents(Money.fromBigDecimal(resultSet.getBigDecimal("total_amount")));
+                            orders.add(current);
+                        }
+                        current.addLine(new OrderLine(
+                            resultSet.getInt("product_id"),
+                            null,
+                            resultSet.getInt("qty"),
+                            Money.fromBigDecimal(resultSet.getBigDecimal("price_at_purchase"))));
+                    }
+                }
+            }
+        }
+        
+        // Within the overlap, skip the orders the journal already has
+        Set<Integer> journaled = new HashSet<>();
+        if (lastOrderId > afterOrderId) {
+            journal.replay(afterOrderId, event -> journaled.add(event.getOrderId()));
+        }
+        int appended = 0;
+        for (Order order : orders) {
+            if (!journaled.contains(order.getOrderId())) {
+                journal.append(OrderEvent.of(order));
+                appended++;
+            }
+        }
+        return appended;
+    }
+    
+    /**
+     * Lock the given product rows and check each has enough stock
+     * @param connection connection with auto-commit disabled
+     * @param requested quantity requested per product id
+     * @return stock per product id as read under lock
+     * @throws SQLException naming the first product that is missing or lacks stock
+     */
+    private Map<Integer, Integer> lockAndValidateStock(Connection connection, Map<Integer, Integer> requested) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT product_id, quantity FROM products WHERE product_id IN (");
+        for (int i = 0; i < requested.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") FOR UPDATE");
+        
+        Map<Integer, Integer> available = new HashMap<>();
+        try (PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (Integer productId : requested.keySet()) {
+                ps.setInt(index++, productId);
+            }
+            try (ResultSet resultSet = ps.executeQuery()) {
                 while (resultSet.next()) {
-                    System.out.println(
-                        resultSet.getInt("order_id") + " | " +
-                        resultSet.getTimestamp("order_time") + " | " +
-                        resultSet.getDouble("total_amount") + " | " +
-                        resultSet.getInt("product_id") + " | " +
-                        resultSet.getString("product_name") + " | " +
-                        resultSet.getInt("qty") + " | " +
-                        resultSet.getDouble("price_at_purchase")
-                    );
+                    available.put(resultSet.getInt("product_id"), resultSet.getInt("quantity"));
                 }
             }
         }
+        
+        for (Map.Entry<Integer, Integer> entry : requested.entrySet()) {
+            Integer quantity = available.get(entry.getKey());
+            if (quantity == null || quantity < entry.getValue()) {
+                throw new CartConflictException("Not enough stock for product id " + entry.getKey());
+            }
+        }
+        return available;
+    }
+    
+    /**
+     * Stream a user's orders, newest first, each with all of its lines
+     * Read from a replica unless the user placed an order within db.readYourWritesMillis
+     * @param userId the user identifier
+     * @param query limits such as most recent N orders or a since-timestamp
+     * @param consumer receives one Order at a time
+     * @return number of orders streamed
+     * @throws SQLException if database error occurs
+     */
+    public int streamOrdersForUser(int userId, OrderHistoryQuery query, Consumer<Order> consumer)
+            throws SQLException {
+        return metrics.time("OrderDao.streamOrdersForUser", () -> {
+            return OrderHistoryReader.stream("orders o", "o.user_id = ?", userId, query, consumer,
+                                            ConsistencyKeys.ordersOf(userId));
+        });
     }
 }
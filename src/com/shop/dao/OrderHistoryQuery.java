@@ -0,0 +1,56 @@
+package com.shop.dao;
+
+import java.sql.Timestamp;
+
+/**
+ * Limits applied when streaming a user's order history
+ */
+public class OrderHistoryQuery {
+    
+    private static final OrderHistoryQuery ALL = new OrderHistoryQuery(0, null);
+    
+    private final int limit;
+    private final Timestamp since;
+    
+    private OrderHistoryQuery(int limit, Timestamp since) {
+        this.limit = limit;
+        this.since = since;
+    }
+    
+    /**
+     * Every order the user has placed
+     * @return OrderHistoryQuery without limits
+     */
+    public static OrderHistoryQuery all() {
+        return ALL;
+    }
+    
+    /**
+     * Restrict to the most recent orders
+     * @param orderCount maximum number of orders, 0 for no limit
+     * @return new OrderHistoryQuery
+     */
+    public OrderHistoryQuery mostRecent(int orderCount) {
+        if (orderCount < 0) {
+            throw new IllegalArgumentException("Order count must not be negative: " + orderCount);
+        }
+        return new OrderHistoryQuery(orderCount, since);
+    }
+    
+    /**
+     * Restrict to orders placed at or after a point in time
+     * @param orderTime earliest order_time to include, null for no limit
+     * @return new OrderHistoryQuery
+     */
+    public OrderHistoryQuery since(Timestamp orderTime) {
+        return new OrderHistoryQuery(limit, orderTime);
+    }
+    
+    public int getLimit() {
+        return limit;
+    }
+    
+    public Timestamp getSince() {
+        return since;
+    }
+}
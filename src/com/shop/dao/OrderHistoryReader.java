@@ -0,0 +1,105 @@
+package com.shop.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+
+import com.shop.model.Money;
+import com.shop.model.Order;
+import com.shop.model.OrderLine;
+import com.shop.util.AppConfig;
+import com.shop.util.DBUtil;
+
+/**
+ * Streams order history rows and groups them into Order objects
+ *
+ * The order filter (user, time, limit) is applied in a derived table so LIMIT counts
+ * orders rather than lines. Rows arrive sorted by order, so only the order currently
+ * being assembled is held in memory; history.fetchSize bounds how many rows the driver
+ * buffers (MySQL needs useCursorFetch=true to honour it).
+ */
+class OrderHistoryReader {
+    
+    private static final int FETCH_SIZE = AppConfig.getInt("history.fetchSize", 500);
+    
+    private OrderHistoryReader() {
+    }
+    
+    /**
+     * Stream orders selected by a filter on the orders table
+     * @param ordersFrom FROM/JOIN clause for the orders being selected, aliased o
+     * @param ordersWhere WHERE condition selecting the owner's orders, with one parameter
+     * @param owner value bound to the ordersWhere parameter (user id or username)
+     * @param query history limits
+     * @param consumer receives each order with all of its lines, newest order first
+     * @param consistencyKey key whose recent writes must be visible, or null to accept replica lag
+     * @return number of orders emitted
+     * @throws SQLException if database error occurs
+     */
+    static int stream(String ordersFrom, String ordersWhere, Object owner, OrderHistoryQuery query,
+                      Consumer<Order> consumer, String consistencyKey) throws SQLException {
+        StringBuilder sql = new StringBuilder(
+            "SELECT o.order_id, o.user_id, o.order_time, o.total_amount, " +
+            "  oi.product_id, p.name AS product_name, oi.qty, oi.price_at_purchase " +
+            "FROM (SELECT o.order_id, o.user_id, o.order_time, o.total_amount FROM ")
+            .append(ordersFrom)
+            .append(" WHERE ").append(ordersWhere);
+        if (query.getSince() != null) {
+            sql.append(" AND o.order_time >= ?");
+        }
+        sql.append(" ORDER BY o.order_id DESC");
+        if (query.getLimit() > 0) {
+            sql.append(" LIMIT ?");
+        }
+        sql.append(") o " +
+                   "JOIN order_items oi ON o.order_id = oi.order_id " +
+                   "JOIN products p ON oi.product_id = p.product_id " +
+                   "ORDER BY o.order_id DESC, oi.item_id ASC");
+        
+        try (Connection connection = DBUtil.getReadConnection(consistencyKey);
+             PreparedStatement preparedStatement = connection.prepareStatement(sql.toString(),
+                 ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            
+            int index = 1;
+            preparedStatement.setObject(index++, owner);
+            if (query.getSince() != null) {
+                preparedStatement.setTimestamp(index++, query.getSince());
+            }
+            if (query.getLimit() > 0) {
+                preparedStatement.setInt(index, query.getLimit());
+            }
+            preparedStatement.setFetchSize(FETCH_SIZE);
+            
+            int emitted = 0;
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                Order current = null;
+                while (resultSet.next()) {
+                    int orderId = resultSet.getInt("order_id");
+                    if (current == null || current.getOrderId() != orderId) {
+                        if (current != null) {
+                            consumer.accept(current);
+                            emitted++;
+                        }
+                        current = new Order();
+                        current.setOrderId(orderId);
+                        current.setUserId(resultSet.getInt("user_id"));
+                        current.setOrderTime(resultSet.getTimestamp("order_time"));
+                        current.setTotalAmountCents(Money.fromBigDecimal(resultSet.getBigDecimal("total_amount")));
+                    }
+                    current.addLine(new OrderLine(
+                        resultSet.getInt("product_id"),
+                        resultSet.getString("product_name"),
+                        resultSet.getInt("qty"),
+                        Money.fromBigDecimal(resultSet.getBigDecimal("price_at_purchase"))));
+                }
+                if (current != null) {
+                    consumer.accept(current);
+                    emitted++;
+                }
+            }
+            return emitted;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.shop.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+
+import com.shop.metrics.MetricsRegistry;
+import com.shop.model.Money;
+import com.shop.model.OrderSummary;
+import com.shop.util.DBUtil;
+
+/**
+ * Data Access Object for the per-user order summary
+ *
+ * user_order_summary holds one row per user with order count, lifetime spend, last order time
+ * and distinct products bought; user_product_purchases records which products each user has
+ * bought so the distinct count can be maintained without scanning order_items. Both are updated
+ * by OrderDao.insertOrder in the order's own transaction, so reads are single-row lookups with
+ * no joins. rebuild() regenerates both tables from orders and order_items.
+ */
+public class OrderSummaryDao {
+    
+    private static final String SUMMARY_COLUMNS =
+        "user_id, order_count, total_spent, last_order_time, distinct_products";
+    
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+    
+    /**
+     * Add one order to its user's summary inside the order's transaction
+     * The summary row is upserted first, so concurrent orders by the same user serialize on it
+     * before touching user_product_purchases and the distinct count stays exact.
+     * @param connection connection with auto-commit disabled
+     * @param userId the user placing the order
+     * @param productIds distinct products in the order
+     * @param totalCents order total in cents
+     * @throws SQLException if database error occurs
+     */
+    public void recordOrder(Connection connection, int userId, Collection<Integer> productIds, long totalCents)
+            throws SQLException {
+        String upsertSummarySql = "INSERT INTO user_order_summary(" + SUMMARY_COLUMNS + ") " +
+                                  "VALUES(?, 1, ?, CURRENT_TIMESTAMP, 0) " +
+                                  "ON DUPLICATE KEY UPDATE order_count = order_count + 1, " +
+                                  "total_spent = total_spent + VALUES(total_spent), " +
+                                  "last_order_time = VALUES(last_order_time)";
+        String insertPurchaseSql = "INSERT IGNORE INTO user_product_purchases(user_id, product_id) VALUES(?, ?)";
+        String countProductsSql = "UPDATE user_order_summary SET distinct_products = " +
+                                  "(SELECT COUNT(*) FROM user_product_purchases WHERE user_id = ?) " +
+                                  "WHERE user_id = ?";
+        
+        try (PreparedStatement ps = connection.prepareStatement(upsertSummarySql)) {
+            ps.setInt(1, userId);
+            ps.setBigDecimal(2, Money.toBigDecimal(totalCents));
+            ps.executeUpdate();
+        }
+        
+        try (PreparedStatement ps = connection.prepareStatement(insertPurchaseSql)) {
+            for (int productId : productIds) {
+                ps.setInt(1, userId);
+                ps.setInt(2, productId);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        
+        // Batched INSERT IGNORE counts are unreliable with rewriteBatchedStatements, so recount
+        // the user's rows (a primary-key range) instead of adding up update counts
+        try (PreparedStatement ps = connection.prepareStatement(countProductsSql)) {
+            ps.setInt(1, userId);
+            ps.setInt(2, userId);
+            ps.executeUpdate();
+        }
+    }
+    
+    /**
+     * Get a user's order summary
+     * @param userId the user identifier
+     * @return OrderSummary, or null if the user has never ordered
+     * @throws SQLException if database error occurs
+     */
+    public OrderSummary getSummary(int userId) throws SQLException {
+        return metrics.time("OrderSummaryDao.getSummary", () -> {
+            String sql = "SELECT " + SUMMARY_COLUMNS + " FROM user_order_summary WHERE user_id = ?";
+            
+            try (Connection connection = DBUtil.getReadConnection(ConsistencyKeys.ordersOf(userId));
+                 PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                preparedStatement.setInt(1, userId);
+                return readSummary(preparedStatement);
+            }
+        });
+    }
+    
+    /**
+     * Get a user's order summary by username (admin function)
+     * @param username the user's username
+     * @return OrderSummary, or null if the user does not exist or has never ordered
+     * @throws SQLException if database error occurs
+     */
+    public OrderSummary getSummaryByUsername(String username) throws SQLException {
+        return metrics.time("OrderSummaryDao.getSummaryByUsername", () -> {
+            String sql = "SELECT " + SUMMARY_COLUMNS + " FROM user_order_summary " +
+                         "WHERE user_id = (SELECT user_id FROM users WHERE username = ?)";
+            
+            try (Connection connection = DBUtil.getReadConnection(null);
+                 PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                preparedStatement.setString(1, username);
+                return readSummary(preparedStatement);
+            }
+        });
+    }
+    
+    /**
+     * Regenerate every summary from the orders and order_items tables in one transaction
+     * Orders placed while the rebuild runs wait for it (or fail on a lock timeout), so run it
+     * when checkout traffic is low.
+     * @return number of users with a summary
+     * @throws SQLException if database error occurs
+     */
+    public int rebuild() throws SQLException {
+        return metrics.time("OrderSummaryDao.rebuild", () -> {
+            try (Connection connection = DBUtil.getConnection()) {
+                connection.setAutoCommit(false);
+                try {
+                    int users = rebuild(connection);
+                    connection.commit();
+                    return users;
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Regenerate every summary inside a transaction owned by the caller
+     * @param connection connection with auto-commit disabled
+     * @return number of users with a summary
+     * @throws SQLException if database error occurs
+     */
+    public int rebuild(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM user_order_summary");
+            statement.executeUpdate("DELETE FROM user_product_purchases");
+            statement.executeUpdate(
+                "INSERT INTO user_product_purchases(user_id, product_id) " +
+                "SELECT DISTINCT o.user_id, oi.product_id " +
+                "FROM orders o JOIN order_items oi ON o.order_id = oi.order_id");
+            return statement.executeUpdate(
+                "INSERT INTO user_order_summary(" + SUMMARY_COLUMNS + ") " +
+                "SELECT o.user_id, COUNT(*), SUM(o.total_amount), MAX(o.order_time), " +
+                "  (SELECT COUNT(*) FROM user_product_purchases p WHERE p.user_id = o.user_id) " +
+                "FROM orders o GROUP BY o.user_id");
+        }
+    }
+    
+    private OrderSummary readSummary(PreparedStatement preparedStatement) throws SQLException {
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            if (!resultSet.next()) {
+                return null;
+            }
+            return new OrderSummary(
+                resultSet.getInt("user_id"),
+                resultSet.getInt("order_count"),
+                Money.fromBigDecimal(resultSet.getBigDecimal("total_spent")),
+                resultSet.getTimestamp("last_order_time"),
+                resultSet.getInt("distinct_products"));
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.shop.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.shop.model.CartItem;
+import com.shop.util.AppConfig;
+import com.shop.util.DBUtil;
+
+/**
+ * Group-commit stage for OrderDao.placeOrder
+ *
+ * Callers from any thread submit orders to a bounded queue. A single writer thread drains
+ * up to maxBatchSize requests (waiting at most lingerMillis for the batch to fill) and writes
+ * them in one transaction, so many checkouts share one commit and one log flush. Every order
+ * runs behind its own savepoint: an order that fails is rolled back to its savepoint and its
+ * caller's future fails, while the rest of the batch still commits.
+ */
+public class OrderWriter implements AutoCloseable {
+    
+    // Queued by close() behind the pending orders; never written
+    private static final OrderRequest SHUTDOWN = new OrderRequest(0, Collections.<CartItem>emptyList());
+    
+    private final OrderDao orderDao;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final BlockingQueue<OrderRequest> queue;
+    private final Thread writerThread;
+    // submit() queues under the read lock; whoever stops the writer flips running under the write lock
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private boolean running = true;
+    
+    /**
+     * Create a writer from the orders.groupCommit.* configuration keys
+     * @param orderDao DAO used to write each order
+     * @return started OrderWriter
+     */
+    public static OrderWriter fromConfig(OrderDao orderDao) {
+        return new OrderWriter(orderDao,
+                               AppConfig.getInt("orders.groupCommit.maxBatchSize", 64),
+                               AppConfig.getLong("orders.groupCommit.lingerMillis", 2),
+                               AppConfig.getInt("orders.groupCommit.queueCapacity", 4096));
+    }
+    
+    /**
+     * Constructor for OrderWriter
+     * @param orderDao DAO used to write each order
+     * @param maxBatchSize maximum orders committed together
+     * @param lingerMillis how long to wait for a batch to fill after its first order arrives
+     * @param queueCapacity queued orders before submit() blocks the caller
+     */
+    public OrderWriter(OrderDao orderDao, int maxBatchSize, long lingerMillis, int queueCapacity) {
+        this.orderDao = orderDao;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writerThread = new Thread(this::runWriter, "order-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+    
+    /**
+     * Queue an order for the next group commit, blocking while the queue is full
+     * The cart is revalidated on the calling thread first, so stale carts never reach the batch
+     * @param userId the user placing the order
+     * @param cart list of CartItem objects
+     * @return future completed with the generated order_id, or with the SQLException that rejected it
+     */
+    public CompletableFuture<Integer> submit(int userId, List<CartItem> cart) {
+        OrderRequest request = new OrderRequest(userId, cart);
+        try {
+            orderDao.revalidateCart(cart);
+        } catch (SQLException e) {
+            request.future.completeExceptionally(e);
+            return request.future;
+        }
+        // Held until the order is queued, so the shutdown marker can never overtake it
+        stateLock.readLock().lock();
+        try {
+            if (!running) {
+                request.future.completeExceptionally(new SQLTransientException("Order writer is closed."));
+                return request.future;
+            }
+            queue.put(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            request.future.completeExceptionally(new SQLTransientException("Interrupted while queueing order.", e));
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        return request.future;
+    }
+    
+    /**
+     * Stop accepting orders, write everything already queued and stop the writer thread
+     * The writer is never interrupted: a shutdown marker is queued behind the pending orders,
+     * so a batch in progress (possibly waiting for a connection) finishes normally
+     */
+    @Override
+    public void close() {
+        if (!stopAccepting()) {
+            return;
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(SHUTDOWN);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        while (true) {
+            try {
+                writerThread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Reject later submits; returns once every submit() in progress has queued its order,
+     * so the shutdown marker queued next is the last request the writer sees
+     * @return true if this call stopped the writer, false if it was already stopped
+     */
+    private boolean stopAccepting() {
+        stateLock.writeLock().lock();
+        try {
+            boolean wasRunning = running;
+            running = false;
+            return wasRunning;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+    
+    private void runWriter() {
+        List<OrderRequest> batch = new ArrayList<>(maxBatchSize);
+        boolean stopping = false;
+        
+        while (!stopping) {
+            try {
+                OrderRequest first = queue.take();
+                if (first == SHUTDOWN) {
+                    break;
+                }
+                batch.add(first);
+                
+                // Linger briefly so concurrent checkouts can join this commit
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    OrderRequest next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    if (next == SHUTDOWN) {
+                        stopping = true;
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Only the shutdown marker stops the writer; stopping here would strand queued orders
+            }
+            
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+    
+    /**
+     * Write a batch of orders in one transaction, each isolated by a savepoint
+     */
+    private void writeBatch(List<OrderRequest> batch) {
+        List<OrderRequest> written = new ArrayList<>(batch.size());
+        
+        try (Connection connection = DBUtil.getConnection()) {
+            connection.setAutoCommit(false);
+            
+            try {
+                for (OrderRequest request : batch) {
+                    try {
+                        request.reserved = orderDao.reserveStock(request.cart);
+                    } catch (SQLException e) {
+                        request.future.completeExceptionally(e);
+                        continue;
+                    }
+                    
+                    Savepoint savepoint = connection.setSavepoint();
+                    try {
+                        request.orderId = orderDao.insertOrder(connection, request.userId, request.cart,
+                                                               request.stockUpdate);
+                    } catch (SQLException e) {
+                        connection.rollback(savepoint);
+                        orderDao.releaseStock(request.reserved);
+                        request.future.completeExceptionally(e);
+                        continue;
+                    }
+                    // The order is in; do not keep one savepoint per order open until commit
+                    connection.releaseSavepoint(savepoint);
+                    written.add(request);
+                }
+                
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException | RuntimeException e) {
+            // Nothing in this batch committed
+            for (OrderRequest request : batch) {
+                if (!request.future.isDone()) {
+                    orderDao.releaseStock(request.reserved);
+                    request.future.completeExceptionally(e);
+                }
+            }
+            return;
+        }
+        
+        for (OrderRequest request : written) {
+            orderDao.confirmStock(request.reserved);
+            DBUtil.markWritten(ConsistencyKeys.ordersOf(request.userId));
+            OrderDao.markStockWritten(request.cart);
+            OrderDao.journalOrder(request.orderId, request.userId, request.cart);
+            request.stockUpdate.publish();
+            request.future.complete(request.orderId);
+        }
+    }
+    
+    /**
+     * One queued placeOrder call
+     */
+    private static final class OrderRequest {
+        
+        private final int userId;
+        private final List<CartItem> cart;
+        private final CompletableFuture<Integer> future = new CompletableFuture<>();
+        private final StockUpdate stockUpdate = new StockUpdate();
+        private Map<Integer, Integer> reserved;
+        private int orderId;
+        
+        private OrderRequest(int userId, List<CartItem> cart) {
+            this.userId = userId;
+            this.cart = cart;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.shop.dao;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated query
+ * @param <T> row type
+ */
+public class Page<T> {
+    
+    private final List<T> items;
+    private final boolean hasMore;
+    
+    /**
+     * Constructor for Page
+     * @param items rows on this page, in query order
+     * @param hasMore true if at least one more row follows the last item
+     */
+    public Page(List<T> items, boolean hasMore) {
+        this.items = items;
+        this.hasMore = hasMore;
+    }
+    
+    public List<T> getItems() {
+        return items;
+    }
+    
+    public boolean hasMore() {
+        return hasMore;
+    }
+    
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+    
+    /**
+     * Last row on the page, used to build the cursor for the next page
+     * @return last item, or null if the page is empty
+     */
+    public T getLast() {
+        return items.isEmpty() ? null : items.get(items.size() - 1);
+    }
+}
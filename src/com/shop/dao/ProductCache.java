@@ -0,0 +1,228 @@
+package com.shop.dao;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.shop.model.Product;
+import com.shop.util.AppConfig;
+
+/**
+ * In-process read-through cache for the product catalog
+ *
+ * Holds single products by id (LRU, bounded by cache.products.maxSize) plus the full
+ * price-sorted listing, each expiring after cache.products.ttlMillis. Writers call
+ * invalidate() after their change is committed. Cached Product objects are shared
+ * between callers and must be treated as read-only.
+ */
+public class ProductCache {
+    
+    private static final ProductCache INSTANCE = new ProductCache(
+        AppConfig.getBoolean("cache.products.enabled", true),
+        AppConfig.getInt("cache.products.maxSize", 10000),
+        AppConfig.getLong("cache.products.ttlMillis", 60000));
+    
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlNanos;
+    
+    // All fields below are guarded by this
+    private final LinkedHashMap<Integer, CachedValue<Product>> byId;
+    private CachedValue<List<Product>> sortedByPrice;
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    
+    /**
+     * Constructor for ProductCache
+     * @param enabled when false every lookup is a miss and nothing is stored
+     * @param maxSize maximum number of products cached by id
+     * @param ttlMillis time after which an entry is reloaded from the database
+     */
+    public ProductCache(boolean enabled, int maxSize, long ttlMillis) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.byId = new LinkedHashMap<Integer, CachedValue<Product>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CachedValue<Product>> eldest) {
+                if (size() > ProductCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * Get the shared catalog cache
+     * @return ProductCache instance used by all DAOs
+     */
+    public static ProductCache getInstance() {
+        return INSTANCE;
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public int getMaxSize() {
+        return maxSize;
+    }
+    
+    /**
+     * Current invalidation generation; pass it back to put() so a value read from the
+     * database before a concurrent invalidation is not cached
+     * @return generation counter
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+    
+    /**
+     * Look up a product by id
+     * @param productId the product identifier
+     * @return cached Product, or null on a miss
+     */
+    public synchronized Product get(int productId) {
+        CachedValue<Product> entry = byId.get(productId);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.isExpired()) {
+            byId.remove(productId);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+    
+    /**
+     * Cache a product read from the database
+     * @param product the product to cache
+     * @param readGeneration value of generation() taken before the database read
+     */
+    public synchronized void put(Product product, long readGeneration) {
+        if (enabled && readGeneration == generation) {
+            byId.put(product.getProductId(), new CachedValue<>(product, System.nanoTime() + ttlNanos));
+        }
+    }
+    
+    /**
+     * Cache many products at once, e.g. when warming the cache at startup
+     * Stops once the cache is full, so warming never evicts anything
+     * @param products products read from the database or a catalog snapshot
+     * @param readGeneration value of generation() taken before the read
+     * @return number of products cached
+     */
+    public synchronized int putAll(Collection<Product> products, long readGeneration) {
+        if (!enabled || readGeneration != generation) {
+            return 0;
+        }
+        long expiresAtNanos = System.nanoTime() + ttlNanos;
+        int cached = 0;
+        for (Product product : products) {
+            if (byId.size() >= maxSize && !byId.containsKey(product.getProductId())) {
+                break;
+            }
+            byId.put(product.getProductId(), new CachedValue<>(product, expiresAtNanos));
+            cached++;
+        }
+        return cached;
+    }
+    
+    /**
+     * Get the cached price-sorted product listing
+     * @return unmodifiable list, or null on a miss
+     */
+    public synchronized List<Product> getSortedByPrice() {
+        if (sortedByPrice == null) {
+            misses++;
+            return null;
+        }
+        if (sortedByPrice.isExpired()) {
+            sortedByPrice = null;
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return sortedByPrice.value;
+    }
+    
+    /**
+     * Cache the price-sorted product listing
+     * @param products listing read from the database
+     * @param readGeneration value of generation() taken before the database read
+     */
+    public synchronized void putSortedByPrice(List<Product> products, long readGeneration) {
+        if (enabled && readGeneration == generation) {
+            sortedByPrice = new CachedValue<>(Collections.unmodifiableList(products), System.nanoTime() + ttlNanos);
+        }
+    }
+    
+    /**
+     * Drop a changed product and every listing that may contain it
+     * @param productId the product identifier
+     */
+    public synchronized void invalidate(int productId) {
+        generation++;
+        byId.remove(productId);
+        sortedByPrice = null;
+    }
+    
+    /**
+     * Drop several changed products and every listing that may contain them
+     * @param productIds product identifiers
+     */
+    public synchronized void invalidate(Collection<Integer> productIds) {
+        generation++;
+        for (Integer productId : productIds) {
+            byId.remove(productId);
+        }
+        sortedByPrice = null;
+    }
+    
+    /**
+     * Drop everything
+     */
+    public synchronized void clear() {
+        generation++;
+        byId.clear();
+        sortedByPrice = null;
+    }
+    
+    /**
+     * Snapshot of hit/miss/eviction counters
+     * @return CacheStats
+     */
+    public synchronized CacheStats getStats() {
+        return new CacheStats(byId.size(), maxSize, hits, misses, evictions, expirations);
+    }
+    
+    private static final class CachedValue<T> {
+        
+        private final T value;
+        private final long expiresAtNanos;
+        
+        private CachedValue(T value, long expiresAtNanos) {
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+        
+        private boolean isExpired() {
+            return System.nanoTime() - expiresAtNanos > 0;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.shop.dao;
+
+import com.shop.model.Product;
+
+/**
+ * Keyset position in the (price, product_id) ordering of the catalog
+ */
+public class ProductCursor {
+    
+    private final long priceCents;
+    private final int productId;
+    
+    public ProductCursor(long priceCents, int productId) {
+        this.priceCents = priceCents;
+        this.productId = productId;
+    }
+    
+    /**
+     * Cursor positioned just after the given product
+     * @param product last product of the previous page
+     * @return ProductCursor
+     */
+    public static ProductCursor after(Product product) {
+        return new ProductCursor(product.getPriceCents(), product.getProductId());
+    }
+    
+    public long getPriceCents() {
+        return priceCents;
+    }
+    
+    public int getProductId() {
+        return productId;
+    }
+}
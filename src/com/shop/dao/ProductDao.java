@@ -1,12 +1,22 @@
 package com.shop.dao;
 
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
 
+import com.shop.metrics.MetricsRegistry;
+import com.shop.model.Money;
 import com.shop.model.Product;
 import com.shop.util.DBUtil;
 
@@ -15,61 +25,300 @@ import com.shop.util.DBUtil;
  */
 public class ProductDao {
     
+    // Keeps IN lists well below driver and optimizer limits for very large carts
+    private static final int MULTI_GET_CHUNK_SIZE = 500;
+    
+    /**
+     * Available stock of the product aliased p
+     * With the inventory ledger, units sold since the last flush are still in inventory_pending,
+     * so products.quantity alone would show stock that is already gone
+     */
+    static final String QUANTITY_COLUMN = InventoryLedger.getInstance().isEnabled()
+        ? "p.quantity - COALESCE((SELECT SUM(ip.qty) FROM inventory_pending ip WHERE ip.product_id = p.product_id), 0)"
+        : "p.quantity";
+    
+    /** Product rows as mapProduct reads them; append WHERE / ORDER BY on the alias p */
+    static final String SELECT_PRODUCTS =
+        "SELECT p.product_id, p.name, p.description, p.price, " + QUANTITY_COLUMN + " AS quantity FROM products p";
+    
+    private final ProductCache cache = ProductCache.getInstance();
+    private final ProductSearchIndex searchIndex = ProductSearchIndex.getInstance();
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+    private final InventoryFeed inventoryFeed = InventoryFeed.getInstance();
+    
     /**
      * Retrieve all products sorted by price in ascending order
+     * Served from ProductCache when a fresh copy is cached
      * @return List of Product objects sorted by price
      * @throws SQLException if database error occurs
      */
     public List<Product> getAllProductsSortedByPriceAsc() throws SQLException {
-        String sql = "SELECT product_id, name, description, price, quantity " +
-                     "FROM products ORDER BY price ASC";
-        
-        List<Product> productList = new ArrayList<>();
-        
-        try (Connection connection = DBUtil.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql);
-             ResultSet resultSet = preparedStatement.executeQuery()) {
+        return metrics.time("ProductDao.getAllProductsSortedByPriceAsc", () -> {
+            String sql = SELECT_PRODUCTS + " ORDER BY p.price ASC";
             
-            while (resultSet.next()) {
-                Product product = new Product();
-                product.setProductId(resultSet.getInt("product_id"));
-                product.setName(resultSet.getString("name"));
-                product.setDescription(resultSet.getString("description"));
-                product.setPrice(resultSet.getDouble("price"));
-                product.setQuantity(resultSet.getInt("quantity"));
-                productList.add(product);
+            List<Product> cached = cache.getSortedByPrice();
+            if (cached != null) {
+                return cached;
             }
-        }
-        return productList;
+            
+            long generation = cache.generation();
+            List<Product> productList = new ArrayList<>();
+            
+            try (Connection connection = DBUtil.getReadConnection(ConsistencyKeys.CATALOG);
+                 PreparedStatement preparedStatement = connection.prepareStatement(sql);
+                 ResultSet resultSet = preparedStatement.executeQuery()) {
+                
+                while (resultSet.next()) {
+                    productList.add(mapProduct(resultSet));
+                }
+            }
+            reloadRecentlyWritten(productList);
+            cache.putSortedByPrice(productList, generation);
+            return productList;
+        });
     }
     
     /**
      * Get a product by its ID
+     * Served from ProductCache when a fresh copy is cached
      * @param productId the product identifier
      * @return Product object if found, null otherwise
      * @throws SQLException if database error occurs
      */
     public Product getById(int productId) throws SQLException {
-        String sql = "SELECT product_id, name, description, price, quantity FROM products WHERE product_id = ?";
+        return metrics.time("ProductDao.getById", () -> {
+            String sql = SELECT_PRODUCTS + " WHERE p.product_id = ?";
+            
+            Product cached = cache.get(productId);
+            if (cached != null) {
+                return cached;
+            }
+            
+            long generation = cache.generation();
+            try (Connection connection = getReadConnection(Collections.singleton(productId));
+                 PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                
+                preparedStatement.setInt(1, productId);
+                
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    if (resultSet.next()) {
+                        Product product = mapProduct(resultSet);
+                        cache.put(product, generation);
+                        return product;
+                    }
+                }
+            }
+            return null;
+        });
+    }
+    
+    /**
+     * Get many products by ID
+     * Ids with a fresh cached copy are served from ProductCache; the rest are read with one
+     * IN-list query per chunk of ids over a single connection
+     * @param productIds product identifiers; duplicates are ignored
+     * @return Product by product_id, without entries for ids that do not exist
+     * @throws SQLException if database error occurs
+     */
+    public Map<Integer, Product> getByIds(Collection<Integer> productIds) throws SQLException {
+        return metrics.time("ProductDao.getByIds", () -> {
+            Map<Integer, Product> products = new HashMap<>();
+            Set<Integer> missing = new LinkedHashSet<>();
+            for (Integer productId : productIds) {
+                Product cached = cache.get(productId);
+                if (cached != null) {
+                    products.put(productId, cached);
+                } else {
+                    missing.add(productId);
+                }
+            }
+            
+            if (!missing.isEmpty()) {
+                try (Connection connection = getReadConnection(missing)) {
+                    fetchByIds(connection, missing, products);
+                }
+            }
+            return products;
+        });
+    }
+    
+    /**
+     * Read many products by ID straight from the database, bypassing the cache
+     * Used where a stale copy is not acceptable, e.g. revalidating a cart at checkout;
+     * the cache is refreshed with what was read
+     * @param productIds product identifiers; duplicates are ignored
+     * @return Product by product_id, without entries for ids that do not exist
+     * @throws SQLException if database error occurs
+     */
+    public Map<Integer, Product> loadByIds(Collection<Integer> productIds) throws SQLException {
+        return metrics.time("ProductDao.loadByIds", () -> {
+            Map<Integer, Product> products = new HashMap<>();
+            try (Connection connection = DBUtil.getConnection()) {
+                fetchByIds(connection, new LinkedHashSet<>(productIds), products);
+            }
+            return products;
+        });
+    }
+    
+    /**
+     * Get a connection for reading some products, from the primary if any of them had its stock
+     * changed within db.readYourWritesMillis, so a lagging replica never refills the cache with old stock
+     * @param productIds products the read returns
+     * @return Connection object
+     * @throws SQLException if no connection could be obtained
+     */
+    static Connection getReadConnection(Collection<Integer> productIds) throws SQLException {
+        for (Integer productId : productIds) {
+            if (DBUtil.isRecentlyWritten(ConsistencyKeys.product(productId))) {
+                return DBUtil.getConnection();
+            }
+        }
+        return DBUtil.getReadConnection(ConsistencyKeys.CATALOG);
+    }
+    
+    /**
+     * Replace products of a listing read from a replica whose stock changed recently with primary copies
+     * Stock writes leave prices alone, so the listing order still holds
+     */
+    private void reloadRecentlyWritten(List<Product> productList) throws SQLException {
+        Set<Integer> recent = new LinkedHashSet<>();
+        for (Product product : productList) {
+            if (DBUtil.isRecentlyWritten(ConsistencyKeys.product(product.getProductId()))) {
+                recent.add(product.getProductId());
+            }
+        }
+        if (recent.isEmpty()) {
+            return;
+        }
+        Map<Integer, Product> current = loadByIds(recent);
+        for (ListIterator<Product> products = productList.listIterator(); products.hasNext(); ) {
+            Product product = products.next();
+            if (recent.contains(product.getProductId())) {
+                Product reloaded = current.get(product.getProductId());
+                if (reloaded == null) {
+                    products.remove();
+                } else {
+                    products.set(reloaded);
+                }
+            }
+        }
+    }
+    
+    private void fetchByIds(Connection connection, Set<Integer> productIds, Map<Integer, Product> products)
+            throws SQLException {
+        long generation = cache.generation();
+        List<Integer> ids = new ArrayList<>(productIds);
         
-        try (Connection connection = DBUtil.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+        for (int from = 0; from < ids.size(); from += MULTI_GET_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(ids.size(), from + MULTI_GET_CHUNK_SIZE));
             
-            preparedStatement.setInt(1, productId);
+            StringBuilder sql = new StringBuilder(SELECT_PRODUCTS + " WHERE p.product_id IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(")");
             
-            try (ResultSet resultSet = preparedStatement.executeQuery()) {
-                if (resultSet.next()) {
-                    Product product = new Product();
-                    product.setProductId(resultSet.getInt("product_id"));
-                    product.setName(resultSet.getString("name"));
-                    product.setDescription(resultSet.getString("description"));
-                    product.setPrice(resultSet.getDouble("price"));
-                    product.setQuantity(resultSet.getInt("quantity"));
-                    return product;
+            try (PreparedStatement preparedStatement = connection.prepareStatement(sql.toString())) {
+                int index = 1;
+                for (Integer productId : chunk) {
+                    preparedStatement.setInt(index++, productId);
+                }
+                
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        Product product = mapProduct(resultSet);
+                        cache.put(product, generation);
+                        products.put(product.getProductId(), product);
+                    }
                 }
             }
         }
-        return null;
+    }
+    
+    /**
+     * Search product names and descriptions by keywords or keyword prefixes
+     * Matching runs against ProductSearchIndex; the hits are then loaded with getByIds
+     * @param query words to search for; each must match a word of the product
+     * @param limit maximum number of products to return
+     * @return matching products, best match first
+     * @throws SQLException if database error occurs
+     */
+    public List<Product> search(String query, int limit) throws SQLException {
+        return metrics.time("ProductDao.search", () -> {
+            List<Integer> productIds = searchIndex.search(query, limit);
+            Map<Integer, Product> products = getByIds(productIds);
+            
+            List<Product> ranked = new ArrayList<>(productIds.size());
+            for (Integer productId : productIds) {
+                Product product = products.get(productId);
+                if (product != null) {
+                    ranked.add(product);
+                }
+            }
+            return ranked;
+        });
+    }
+    
+    /**
+     * Retrieve one page of products ordered by (price, product_id)
+     * Uses keyset pagination, so every page costs the same index range scan no matter how deep it is
+     * @param minPriceCents lowest price in cents to include, or null for no lower bound
+     * @param maxPriceCents highest price in cents to include, or null for no upper bound
+     * @param after cursor from the previous page, or null for the first page
+     * @param pageSize maximum number of products to return
+     * @return Page of Product objects
+     * @throws SQLException if database error occurs
+     */
+    public Page<Product> getProductsPage(Long minPriceCents, Long maxPriceCents, ProductCursor after, int pageSize)
+            throws SQLException {
+        return metrics.time("ProductDao.getProductsPage", () -> {
+            StringBuilder sql = new StringBuilder(SELECT_PRODUCTS + " WHERE 1 = 1");
+            if (minPriceCents != null) {
+                sql.append(" AND p.price >= ?");
+            }
+            if (maxPriceCents != null) {
+                sql.append(" AND p.price <= ?");
+            }
+            if (after != null) {
+                sql.append(" AND (p.price > ? OR (p.price = ? AND p.product_id > ?))");
+            }
+            sql.append(" ORDER BY p.price ASC, p.product_id ASC LIMIT ?");
+            
+            List<Product> productList = new ArrayList<>();
+            
+            try (Connection connection = DBUtil.getReadConnection(ConsistencyKeys.CATALOG);
+                 PreparedStatement preparedStatement = connection.prepareStatement(sql.toString())) {
+                
+                int index = 1;
+                if (minPriceCents != null) {
+                    preparedStatement.setBigDecimal(index++, Money.toBigDecimal(minPriceCents));
+                }
+                if (maxPriceCents != null) {
+                    preparedStatement.setBigDecimal(index++, Money.toBigDecimal(maxPriceCents));
+                }
+                if (after != null) {
+                    BigDecimal afterPrice = Money.toBigDecimal(after.getPriceCents());
+                    preparedStatement.setBigDecimal(index++, afterPrice);
+                    preparedStatement.setBigDecimal(index++, afterPrice);
+                    preparedStatement.setInt(index++, after.getProductId());
+                }
+                // Fetch one extra row to learn whether another page exists
+                preparedStatement.setInt(index, pageSize + 1);
+                
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        productList.add(mapProduct(resultSet));
+                    }
+                }
+            }
+            
+            boolean hasMore = productList.size() > pageSize;
+            if (hasMore) {
+                productList.remove(pageSize);
+            }
+            reloadRecentlyWritten(productList);
+            return new Page<>(productList, hasMore);
+        });
     }
     
     /**
@@ -80,17 +329,121 @@ public class ProductDao {
      * @throws SQLException if database error occurs
      */
     public boolean reduceQuantity(int productId, int qty) throws SQLException {
-        String sql = "UPDATE products SET quantity = quantity - ? " +
-                     "WHERE product_id = ? AND quantity >= ?";
-        
-        try (Connection connection = DBUtil.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+        return metrics.time("ProductDao.reduceQuantity", () -> {
+            String sql = "UPDATE products SET quantity = quantity - ? " +
+                         "WHERE product_id = ? AND quantity >= ?";
             
-            preparedStatement.setInt(1, qty);
-            preparedStatement.setInt(2, productId);
-            preparedStatement.setInt(3, qty);
+            InventoryLedger ledger = InventoryLedger.getInstance();
+            if (ledger.isEnabled()) {
+                return reduceQuantityThroughLedger(ledger, productId, qty);
+            }
+            if (inventoryFeed.hasSubscribers()) {
+                return reduceQuantityAndPublish(productId, qty, sql);
+            }
+            
+            try (Connection connection = DBUtil.getConnection();
+                 PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                
+                preparedStatement.setInt(1, qty);
+                preparedStatement.setInt(2, productId);
+                preparedStatement.setInt(3, qty);
+                
+                boolean reduced = preparedStatement.executeUpdate() == 1;
+                if (reduced) {
+                    DBUtil.markWritten(ConsistencyKeys.product(productId));
+                    cache.invalidate(productId);
+                }
+                return reduced;
+            }
+        });
+    }
+    
+    /**
+     * Reserve stock in the ledger and record the decrement as pending
+     * Rejections never reach the database and accepted decrements never lock the product row
+     */
+    private boolean reduceQuantityThroughLedger(InventoryLedger ledger, int productId, int qty)
+            throws SQLException {
+        if (!ledger.tryReserve(productId, qty)) {
+            return false;
+        }
+        
+        boolean recorded = false;
+        try (Connection connection = DBUtil.getConnection()) {
+            ledger.insertPending(connection, Collections.singletonMap(productId, qty));
+            recorded = true;
+            ledger.confirm(productId);
+        } finally {
+            if (!recorded) {
+                ledger.release(productId, qty);
+            }
+        }
+        DBUtil.markWritten(ConsistencyKeys.product(productId));
+        cache.invalidate(productId);
+        if (inventoryFeed.hasSubscribers()) {
+            inventoryFeed.publishAvailable(ledger, Collections.singleton(productId));
+        }
+        return true;
+    }
+    
+    /**
+     * Decrement stock and read the new quantity in one transaction, then publish it to InventoryFeed
+     * The version is taken while the UPDATE still holds the row lock, so it follows commit order
+     */
+    private boolean reduceQuantityAndPublish(int productId, int qty, String updateSql) throws SQLException {
+        String selectSql = "SELECT quantity FROM products WHERE product_id = ?";
+        int quantity;
+        long version;
+        
+        try (Connection connection = DBUtil.getConnection()) {
+            connection.setAutoCommit(false);
             
-            return preparedStatement.executeUpdate() == 1;
+            try {
+                try (PreparedStatement ps = connection.prepareStatement(updateSql)) {
+                    ps.setInt(1, qty);
+                    ps.setInt(2, productId);
+                    ps.setInt(3, qty);
+                    if (ps.executeUpdate() != 1) {
+                        connection.rollback();
+                        return false;
+                    }
+                }
+                try (PreparedStatement ps = connection.prepareStatement(selectSql)) {
+                    ps.setInt(1, productId);
+                    try (ResultSet resultSet = ps.executeQuery()) {
+                        resultSet.next();
+                        quantity = resultSet.getInt("quantity");
+                    }
+                }
+                version = inventoryFeed.nextVersion();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
         }
+        
+        DBUtil.markWritten(ConsistencyKeys.product(productId));
+        cache.invalidate(productId);
+        inventoryFeed.publish(productId, quantity, version);
+        return true;
+    }
+    
+    /**
+     * Map the current row of a products query to a Product
+     * @param resultSet result set positioned on a row
+     * @return Product object
+     * @throws SQLException if a column cannot be read
+     */
+    static Product mapProduct(ResultSet resultSet) throws SQLException {
+        Product product = new Product();
+        product.setProductId(resultSet.getInt("product_id"));
+        product.setName(resultSet.getString("name"));
+        product.setDescription(resultSet.getString("description"));
+        product.setPriceCents(Money.fromBigDecimal(resultSet.getBigDecimal("price")));
+        product.setQuantity(resultSet.getInt("quantity"));
+        return product;
     }
 }
@@ -0,0 +1,265 @@
+package com.shop.dao;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.shop.model.Product;
+
+/**
+ * In-process inverted index over product names and descriptions
+ *
+ * Text is lower-cased and split on anything that is not a letter or digit. Each term maps
+ * to the products containing it with a weight (name occurrences count NAME_WEIGHT, description
+ * occurrences DESCRIPTION_WEIGHT). Terms are kept sorted, so every query word also matches
+ * the terms it is a prefix of, found with one range lookup instead of a table scan.
+ *
+ * A product matches when every query word matches one of its terms. Its score is the sum,
+ * over query words, of the best matching term's weight times that term's inverse document
+ * frequency, halved when the match is only a prefix.
+ *
+ * The index is built from ProductDao on the first search. AdminDao.addProduct indexes the new
+ * product; a bulk import invalidates the index so the next search rebuilds it.
+ */
+public class ProductSearchIndex {
+    
+    private static final ProductSearchIndex INSTANCE = new ProductSearchIndex();
+    
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final double PREFIX_FACTOR = 0.5;
+    private static final int BUILD_PAGE_SIZE = 1000;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    // All fields below are guarded by lock
+    private final TreeMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+    private final Map<Integer, Set<String>> termsOf = new HashMap<>();
+    private boolean built;
+    
+    /**
+     * Get the shared instance
+     * @return ProductSearchIndex
+     */
+    public static ProductSearchIndex getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Find products matching every word of a query, best match first
+     * @param query words or word prefixes
+     * @param limit maximum results
+     * @return product ids ordered by score, then by id
+     * @throws SQLException if the index has to be built and the catalog cannot be read
+     */
+    public List<Integer> search(String query, int limit) throws SQLException {
+        Set<String> words = new LinkedHashSet<>(tokenize(query));
+        if (words.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        ensureBuilt();
+        
+        lock.readLock().lock();
+        try {
+            Map<Integer, Double> scores = null;
+            for (String word : words) {
+                Map<Integer, Double> wordScores = scoreWord(word);
+                if (scores == null) {
+                    scores = wordScores;
+                } else {
+                    // Keep only products matching every word so far
+                    Iterator<Map.Entry<Integer, Double>> it = scores.entrySet().iterator();
+                    while (it.hasNext()) {
+                        Map.Entry<Integer, Double> entry = it.next();
+                        Double score = wordScores.get(entry.getKey());
+                        if (score == null) {
+                            it.remove();
+                        } else {
+                            entry.setValue(entry.getValue() + score);
+                        }
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+            
+            List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort((a, b) -> {
+                int byScore = Double.compare(b.getValue(), a.getValue());
+                return byScore != 0 ? byScore : Integer.compare(a.getKey(), b.getKey());
+            });
+            List<Integer> productIds = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (int i = 0; i < ranked.size() && i < limit; i++) {
+                productIds.add(ranked.get(i).getKey());
+            }
+            return productIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Add or re-index one product; a no-op until the index has been built
+     * @param product product with its current name and description
+     */
+    public void index(Product product) {
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                add(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Drop the index so the next search rebuilds it from the catalog
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            termsOf.clear();
+            built = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Number of distinct indexed terms
+     * @return term count, 0 until the first search
+     */
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Split text into lower-case letter/digit runs
+     * @param text text to split, may be null
+     * @return terms in order of appearance
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+    
+    /**
+     * Build the index from the whole catalog unless it is already built
+     * Holding the write lock makes concurrent searches wait for the build and queues
+     * index() calls behind it, so no update is overwritten by an older catalog page.
+     */
+    private void ensureBuilt() throws SQLException {
+        lock.readLock().lock();
+        try {
+            if (built) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                return;
+            }
+            ProductDao productDao = new ProductDao();
+            ProductCursor cursor = null;
+            while (true) {
+                Page<Product> page = productDao.getProductsPage(null, null, cursor, BUILD_PAGE_SIZE);
+                for (Product product : page.getItems()) {
+                    add(product);
+                }
+                if (!page.hasMore()) {
+                    break;
+                }
+                cursor = ProductCursor.after(page.getLast());
+            }
+            built = true;
+        } catch (SQLException | RuntimeException e) {
+            postings.clear();
+            termsOf.clear();
+            throw e;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private Map<Integer, Double> scoreWord(String word) {
+        Map<Integer, Double> scores = new HashMap<>();
+        double productCount = Math.max(1, termsOf.size());
+        
+        for (Map.Entry<String, Map<Integer, Integer>> term
+                : postings.subMap(word, true, word + Character.MAX_VALUE, false).entrySet()) {
+            Map<Integer, Integer> products = term.getValue();
+            double idf = Math.log(1 + productCount / products.size());
+            double factor = term.getKey().equals(word) ? idf : idf * PREFIX_FACTOR;
+            for (Map.Entry<Integer, Integer> posting : products.entrySet()) {
+                // A word scores its best matching term, so many prefix matches do not add up
+                scores.merge(posting.getKey(), posting.getValue() * factor, Math::max);
+            }
+        }
+        return scores;
+    }
+    
+    private void add(Product product) {
+        remove(product.getProductId());
+        
+        Map<String, Integer> weights = new HashMap<>();
+        for (String term : tokenize(product.getName())) {
+            weights.merge(term, NAME_WEIGHT, Integer::sum);
+        }
+        for (String term : tokenize(product.getDescription())) {
+            weights.merge(term, DESCRIPTION_WEIGHT, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> weight : weights.entrySet()) {
+            postings.computeIfAbsent(weight.getKey(), term -> new HashMap<>())
+                    .put(product.getProductId(), weight.getValue());
+        }
+        termsOf.put(product.getProductId(), weights.keySet());
+    }
+    
+    private void remove(int productId) {
+        Set<String> terms = termsOf.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Integer, Integer> products = postings.get(term);
+            products.remove(productId);
+            if (products.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+}
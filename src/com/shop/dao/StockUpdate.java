@@ -0,0 +1,45 @@
+package com.shop.dao;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Stock changes made by one transaction, held until it commits and then published to InventoryFeed
+ */
+final class StockUpdate {
+    
+    private Map<Integer, Integer> quantities;
+    private long version;
+    private Collection<Integer> ledgerProductIds;
+    
+    /**
+     * Record the new quantities read or computed while the rows were locked
+     * @param quantities stock after the change per product id
+     * @param version value of InventoryFeed.nextVersion() taken under the same locks
+     */
+    void record(Map<Integer, Integer> quantities, long version) {
+        this.quantities = quantities;
+        this.version = version;
+    }
+    
+    /**
+     * Record products whose new quantity is kept by the inventory ledger
+     * @param productIds products reserved through the ledger
+     */
+    void recordLedger(Collection<Integer> productIds) {
+        this.ledgerProductIds = productIds;
+    }
+    
+    /**
+     * Publish what was recorded; call only after the transaction committed
+     */
+    void publish() {
+        InventoryFeed feed = InventoryFeed.getInstance();
+        if (quantities != null) {
+            feed.publishAll(quantities, version);
+        }
+        if (ledgerProductIds != null) {
+            feed.publishAvailable(InventoryLedger.getInstance(), ledgerProductIds);
+        }
+    }
+}
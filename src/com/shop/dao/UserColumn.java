@@ -0,0 +1,28 @@
+package com.shop.dao;
+
+/**
+ * Optional user columns a directory listing can fetch
+ * user_id is always fetched because it is the pagination key; password never is
+ */
+public enum UserColumn {
+    ROLE("role"),
+    NAME("first_name, last_name"),
+    USERNAME("username"),
+    EMAIL("email"),
+    MOBILE("mobile"),
+    CITY("city");
+    
+    private final String sql;
+    
+    UserColumn(String sql) {
+        this.sql = sql;
+    }
+    
+    /**
+     * Column list for the SELECT clause
+     * @return comma separated column names
+     */
+    public String getSql() {
+        return sql;
+    }
+}
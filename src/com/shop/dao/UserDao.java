@@ -5,6 +5,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+import com.shop.metrics.MetricsRegistry;
 import com.shop.model.User;
 import com.shop.util.DBUtil;
 
@@ -13,6 +14,8 @@ import com.shop.util.DBUtil;
  */
 public class UserDao {
     
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+    
     /**
      * Register a new user
      * @param user User object with registration details
@@ -20,22 +23,28 @@ public class UserDao {
      * @throws SQLException if database error occurs
      */
     public boolean register(User user) throws SQLException {
-        String sql = "INSERT INTO users(role, first_name, last_name, username, password, city, email, mobile) " +
-                     "VALUES('USER', ?, ?, ?, ?, ?, ?, ?)";
-        
-        try (Connection connection = DBUtil.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
-            
-            preparedStatement.setString(1, user.getFirstName());
-            preparedStatement.setString(2, user.getLastName());
-            preparedStatement.setString(3, user.getUsername());
-            preparedStatement.setString(4, user.getPassword());
-            preparedStatement.setString(5, user.getCity());
-            preparedStatement.setString(6, user.getEmail());
-            preparedStatement.setString(7, user.getMobile());
+        return metrics.time("UserDao.register", () -> {
+            String sql = "INSERT INTO users(role, first_name, last_name, username, password, city, email, mobile) " +
+                         "VALUES('USER', ?, ?, ?, ?, ?, ?, ?)";
             
-            return preparedStatement.executeUpdate() == 1;
-        }
+            try (Connection connection = DBUtil.getConnection();
+                 PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                
+                preparedStatement.setString(1, user.getFirstName());
+                preparedStatement.setString(2, user.getLastName());
+                preparedStatement.setString(3, user.getUsername());
+                preparedStatement.setString(4, user.getPassword());
+                preparedStatement.setString(5, user.getCity());
+                preparedStatement.setString(6, user.getEmail());
+                preparedStatement.setString(7, user.getMobile());
+                
+                boolean registered = preparedStatement.executeUpdate() == 1;
+                if (registered) {
+                    DBUtil.markWritten(ConsistencyKeys.account(user.getUsername()));
+                }
+                return registered;
+            }
+        });
     }
     
     /**
@@ -46,27 +55,30 @@ public class UserDao {
      * @throws SQLException if database error occurs
      */
     public User login(String username, String password) throws SQLException {
-        String sql = "SELECT user_id, role, first_name, last_name, username " +
-                     "FROM users WHERE username = ? AND password = ?";
-        
-        try (Connection connection = DBUtil.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
-            
-            preparedStatement.setString(1, username);
-            preparedStatement.setString(2, password);
+        return metrics.time("UserDao.login", () -> {
+            String sql = "SELECT user_id, role, first_name, last_name, username " +
+                         "FROM users WHERE username = ? AND password = ?";
             
-            try (ResultSet resultSet = preparedStatement.executeQuery()) {
-                if (resultSet.next()) {
-                    User user = new User();
-                    user.setUserId(resultSet.getInt("user_id"));
-                    user.setRole(resultSet.getString("role"));
-                    user.setFirstName(resultSet.getString("first_name"));
-                    user.setLastName(resultSet.getString("last_name"));
-                    user.setUsername(resultSet.getString("username"));
-                    return user;
+            // A freshly registered account may not have reached the replicas yet
+            try (Connection connection = DBUtil.getReadConnection(ConsistencyKeys.account(username));
+                 PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                
+                preparedStatement.setString(1, username);
+                preparedStatement.setString(2, password);
+                
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    if (resultSet.next()) {
+                        User user = new User();
+                        user.setUserId(resultSet.getInt("user_id"));
+                        user.setRole(resultSet.getString("role"));
+                        user.setFirstName(resultSet.getString("first_name"));
+                        user.setLastName(resultSet.getString("last_name"));
+                        user.setUsername(resultSet.getString("username"));
+                        return user;
+                    }
                 }
             }
-        }
-        return null;
+            return null;
+        });
     }
 }
@@ -0,0 +1,73 @@
+package com.shop.dao.async;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import com.shop.dao.AdminDao;
+import com.shop.dao.OrderHistoryQuery;
+import com.shop.dao.Page;
+import com.shop.dao.UserColumn;
+import com.shop.model.Order;
+import com.shop.model.Product;
+import com.shop.model.User;
+
+/**
+ * AdminDao operations run on a JdbcExecutor
+ */
+public class AsyncAdminDao {
+    
+    private final AdminDao adminDao;
+    private final JdbcExecutor executor;
+    private final long timeoutMillis;
+    
+    /**
+     * Constructor for AsyncAdminDao
+     * @param adminDao DAO doing the blocking work
+     * @param executor executor running the calls
+     * @param timeoutMillis per-call timeout of reads, 0 for none; writes have none
+     */
+    public AsyncAdminDao(AdminDao adminDao, JdbcExecutor executor, long timeoutMillis) {
+        this.adminDao = adminDao;
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+    }
+    
+    /**
+     * Copy of this facade with a different per-call timeout for reads
+     * @param timeoutMillis per-call timeout of reads, 0 for none; writes have none
+     * @return AsyncAdminDao sharing the same DAO and executor
+     */
+    public AsyncAdminDao withTimeout(long timeoutMillis) {
+        return new AsyncAdminDao(adminDao, executor, timeoutMillis);
+    }
+    
+    public CompletableFuture<Boolean> addProduct(Product product) {
+        return executor.submitWrite(() -> adminDao.addProduct(product));
+    }
+    
+    public CompletableFuture<Integer> checkQuantity(int productId) {
+        return executor.submit(() -> adminDao.checkQuantity(productId), timeoutMillis);
+    }
+    
+    public CompletableFuture<Page<User>> getUsersPage(String role, String city, int afterUserId, int pageSize,
+                                                      Set<UserColumn> columns) {
+        return executor.submit(() -> adminDao.getUsersPage(role, city, afterUserId, pageSize, columns),
+                               timeoutMillis);
+    }
+    
+    /**
+     * Load a user's orders by username, newest first
+     * @param username the user's username
+     * @param query history limits
+     * @return future completed with the orders and their lines
+     */
+    public CompletableFuture<List<Order>> getUserHistoryByUsername(String username, OrderHistoryQuery query) {
+        return executor.submit(() -> {
+            List<Order> orders = new ArrayList<>();
+            adminDao.streamUserHistoryByUsername(username, query, orders::add);
+            return orders;
+        }, timeoutMillis);
+    }
+}
@@ -0,0 +1,69 @@
+package com.shop.dao.async;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.shop.dao.OrderDao;
+import com.shop.dao.OrderHistoryQuery;
+import com.shop.model.CartItem;
+import com.shop.model.Order;
+
+/**
+ * OrderDao operations run on a JdbcExecutor
+ *
+ * History is collected into a list, so callers should bound it with OrderHistoryQuery.mostRecent.
+ */
+public class AsyncOrderDao {
+    
+    private final OrderDao orderDao;
+    private final JdbcExecutor executor;
+    private final long timeoutMillis;
+    
+    /**
+     * Constructor for AsyncOrderDao
+     * @param orderDao DAO doing the blocking work
+     * @param executor executor running the calls
+     * @param timeoutMillis per-call timeout of reads, 0 for none; writes have none
+     */
+    public AsyncOrderDao(OrderDao orderDao, JdbcExecutor executor, long timeoutMillis) {
+        this.orderDao = orderDao;
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+    }
+    
+    /**
+     * Copy of this facade with a different per-call timeout for reads
+     * @param timeoutMillis per-call timeout of reads, 0 for none; writes have none
+     * @return AsyncOrderDao sharing the same DAO and executor
+     */
+    public AsyncOrderDao withTimeout(long timeoutMillis) {
+        return new AsyncOrderDao(orderDao, executor, timeoutMillis);
+    }
+    
+    /**
+     * Place an order
+     * Runs without a timeout so the future always reports whether the order was placed;
+     * cancelling it only drops an order that has not started
+     * @param userId the user placing the order
+     * @param cart list of CartItem objects
+     * @return future completed with the generated order_id
+     */
+    public CompletableFuture<Integer> placeOrder(int userId, List<CartItem> cart) {
+        return executor.submitWrite(() -> orderDao.placeOrder(userId, cart));
+    }
+    
+    /**
+     * Load a user's orders, newest first
+     * @param userId the user whose orders to load
+     * @param query history limits
+     * @return future completed with the orders and their lines
+     */
+    public CompletableFuture<List<Order>> getOrdersForUser(int userId, OrderHistoryQuery query) {
+        return executor.submit(() -> {
+            List<Order> orders = new ArrayList<>();
+            orderDao.streamOrdersForUser(userId, query, orders::add);
+            return orders;
+        }, timeoutMillis);
+    }
+}
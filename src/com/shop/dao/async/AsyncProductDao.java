@@ -0,0 +1,64 @@
+package com.shop.dao.async;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import com.shop.dao.Page;
+import com.shop.dao.ProductCursor;
+import com.shop.dao.ProductDao;
+import com.shop.model.Product;
+
+/**
+ * ProductDao operations run on a JdbcExecutor
+ */
+public class AsyncProductDao {
+    
+    private final ProductDao productDao;
+    private final JdbcExecutor executor;
+    private final long timeoutMillis;
+    
+    /**
+     * Constructor for AsyncProductDao
+     * @param productDao DAO doing the blocking work
+     * @param executor executor running the calls
+     * @param timeoutMillis per-call timeout of reads, 0 for none; writes have none
+     */
+    public AsyncProductDao(ProductDao productDao, JdbcExecutor executor, long timeoutMillis) {
+        this.productDao = productDao;
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+    }
+    
+    /**
+     * Copy of this facade with a different per-call timeout for reads
+     * @param timeoutMillis per-call timeout of reads, 0 for none; writes have none
+     * @return AsyncProductDao sharing the same DAO and executor
+     */
+    public AsyncProductDao withTimeout(long timeoutMillis) {
+        return new AsyncProductDao(productDao, executor, timeoutMillis);
+    }
+    
+    public CompletableFuture<List<Product>> getAllProductsSortedByPriceAsc() {
+        return executor.submit(productDao::getAllProductsSortedByPriceAsc, timeoutMillis);
+    }
+    
+    public CompletableFuture<Product> getById(int productId) {
+        return executor.submit(() -> productDao.getById(productId), timeoutMillis);
+    }
+    
+    public CompletableFuture<Map<Integer, Product>> getByIds(Collection<Integer> productIds) {
+        return executor.submit(() -> productDao.getByIds(productIds), timeoutMillis);
+    }
+    
+    public CompletableFuture<Page<Product>> getProductsPage(Long minPriceCents, Long maxPriceCents,
+                                                            ProductCursor after, int pageSize) {
+        return executor.submit(() -> productDao.getProductsPage(minPriceCents, maxPriceCents, after, pageSize),
+                               timeoutMillis);
+    }
+    
+    public CompletableFuture<Boolean> reduceQuantity(int productId, int qty) {
+        return executor.submitWrite(() -> productDao.reduceQuantity(productId, qty));
+    }
+}
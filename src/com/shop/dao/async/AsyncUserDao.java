@@ -0,0 +1,45 @@
+package com.shop.dao.async;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.shop.dao.UserDao;
+import com.shop.model.User;
+
+/**
+ * UserDao operations run on a JdbcExecutor
+ */
+public class AsyncUserDao {
+    
+    private final UserDao userDao;
+    private final JdbcExecutor executor;
+    private final long timeoutMillis;
+    
+    /**
+     * Constructor for AsyncUserDao
+     * @param userDao DAO doing the blocking work
+     * @param executor executor running the calls
+     * @param timeoutMillis per-call timeout of reads, 0 for none; writes have none
+     */
+    public AsyncUserDao(UserDao userDao, JdbcExecutor executor, long timeoutMillis) {
+        this.userDao = userDao;
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+    }
+    
+    /**
+     * Copy of this facade with a different per-call timeout for reads
+     * @param timeoutMillis per-call timeout of reads, 0 for none; writes have none
+     * @return AsyncUserDao sharing the same DAO and executor
+     */
+    public AsyncUserDao withTimeout(long timeoutMillis) {
+        return new AsyncUserDao(userDao, executor, timeoutMillis);
+    }
+    
+    public CompletableFuture<Boolean> register(User user) {
+        return executor.submitWrite(() -> userDao.register(user));
+    }
+    
+    public CompletableFuture<User> login(String username, String password) {
+        return executor.submit(() -> userDao.login(username, password), timeoutMillis);
+    }
+}
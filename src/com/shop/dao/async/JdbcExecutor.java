@@ -0,0 +1,216 @@
+package com.shop.dao.async;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.shop.metrics.SqlCallable;
+import com.shop.util.AppConfig;
+import com.shop.util.CancellableCall;
+import com.shop.util.ExecutorFactory;
+
+/**
+ * Bounded executor that runs blocking DAO calls and exposes them as CompletableFutures
+ *
+ * At most threads + queueCapacity calls are accepted at once. When that many are in flight,
+ * submit() waits up to submitTimeoutMillis for room and then fails the call with
+ * RejectedExecutionException, so a burst of callers slows down instead of queueing without
+ * bound. A read that times out or whose future is cancelled is removed from the queue if it
+ * has not started; if it has, its statement is cancelled in the database (see CancellableCall)
+ * and its thread interrupted, which also ends a wait for a pooled connection.
+ *
+ * Writes are never timed out or cancelled once started: cancelling a write between its
+ * statements or during its commit would leave the caller unable to tell whether it happened.
+ */
+public class JdbcExecutor implements AutoCloseable {
+    
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timer;
+    private final Semaphore permits;
+    private final int capacity;
+    private final long submitTimeoutMillis;
+    
+    /**
+     * Create an executor from the async.* configuration keys
+     * The thread count defaults to the primary pool size, as more threads would only wait for connections
+     * @return JdbcExecutor
+     */
+    public static JdbcExecutor fromConfig() {
+        return new JdbcExecutor(AppConfig.getInt("async.threads", AppConfig.getInt("db.pool.maxSize", 10)),
+                                AppConfig.getInt("async.queueCapacity", 1000),
+                                AppConfig.getLong("async.submitTimeoutMillis", 1000));
+    }
+    
+    /**
+     * Constructor for JdbcExecutor
+     * @param threads worker threads running DAO calls
+     * @param queueCapacity calls waiting for a worker before submit() applies backpressure
+     * @param submitTimeoutMillis how long submit() waits for room before rejecting a call
+     */
+    public JdbcExecutor(int threads, int queueCapacity, long submitTimeoutMillis) {
+        // The queue has slack for calls whose permit was released just before their worker freed up
+        this.executor = ExecutorFactory.newBoundedExecutor("jdbc-async", threads, queueCapacity + threads);
+        this.timer = Executors.newSingleThreadScheduledExecutor(ExecutorFactory.namedDaemonThreads("jdbc-timeout"));
+        this.capacity = threads + queueCapacity;
+        this.permits = new Semaphore(capacity);
+        this.submitTimeoutMillis = submitTimeoutMillis;
+    }
+    
+    /**
+     * Run a blocking read-only DAO call asynchronously
+     * @param body the DAO call
+     * @param timeoutMillis fail the future with TimeoutException and cancel the query after this long,
+     *                      0 for no timeout
+     * @param <T> result type
+     * @return future completed with the call's result or exception; cancel(true) abandons the call
+     */
+    public <T> CompletableFuture<T> submit(SqlCallable<T> body, long timeoutMillis) {
+        return submit(body, timeoutMillis, false);
+    }
+    
+    /**
+     * Run a blocking DAO call that changes data asynchronously, without a timeout
+     * @param body the DAO call
+     * @param <T> result type
+     * @return future completed with the call's result or exception; cancelling it only drops a call
+     *         that has not started, a started one still runs to completion
+     */
+    public <T> CompletableFuture<T> submitWrite(SqlCallable<T> body) {
+        return submit(body, 0, true);
+    }
+    
+    private <T> CompletableFuture<T> submit(SqlCallable<T> body, long timeoutMillis, boolean write) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        
+        try {
+            if (!permits.tryAcquire(submitTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                future.completeExceptionally(new RejectedExecutionException(
+                    "JDBC executor saturated: no room after " + submitTimeoutMillis + " ms"));
+                return future;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return future;
+        }
+        
+        AsyncCall<T> call = new AsyncCall<>(body, future, timeoutMillis, write);
+        try {
+            executor.execute(call);
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            future.completeExceptionally(e);
+            return future;
+        }
+        
+        if (timeoutMillis > 0) {
+            ScheduledFuture<?> timeout = timer.schedule(
+                () -> future.completeExceptionally(
+                    new TimeoutException("DAO call timed out after " + timeoutMillis + " ms")),
+                timeoutMillis, TimeUnit.MILLISECONDS);
+            future.whenComplete((result, error) -> timeout.cancel(false));
+        }
+        // Timed out or cancelled: drop the call if it is still queued, cancel it if it is a running read
+        future.whenComplete((result, error) -> {
+            if (error != null) {
+                call.abandon();
+            }
+        });
+        return future;
+    }
+    
+    /**
+     * Calls currently queued or running
+     * @return in-flight call count
+     */
+    public int getInFlight() {
+        return capacity - permits.availablePermits();
+    }
+    
+    /**
+     * Stop accepting calls and let queued ones finish
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        timer.shutdownNow();
+    }
+    
+    /**
+     * One submitted call; exactly one of run() and abandon() releases its permit
+     */
+    private final class AsyncCall<T> implements Runnable {
+        
+        private final SqlCallable<T> body;
+        private final CompletableFuture<T> future;
+        private final long deadlineNanos;
+        private final boolean timed;
+        private final boolean write;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private Thread runner;
+        private CancellableCall cancellable;
+        
+        private AsyncCall(SqlCallable<T> body, CompletableFuture<T> future, long timeoutMillis, boolean write) {
+            this.body = body;
+            this.future = future;
+            this.timed = timeoutMillis > 0;
+            this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            this.write = write;
+        }
+        
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            if (!write) {
+                // The timeout counts from submit(), so time spent queued is taken off the query's share
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+                CancellableCall call = CancellableCall.begin(timed ? Math.max(1, remainingMillis) : 0);
+                synchronized (this) {
+                    runner = Thread.currentThread();
+                    cancellable = call;
+                }
+            }
+            try {
+                if (!future.isDone()) {
+                    future.complete(body.call());
+                }
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                if (!write) {
+                    synchronized (this) {
+                        cancellable.end();
+                        cancellable = null;
+                        runner = null;
+                        // Do not leak an interrupt meant for this call into the next one
+                        Thread.interrupted();
+                    }
+                }
+                permits.release();
+            }
+        }
+        
+        private void abandon() {
+            if (claimed.compareAndSet(false, true)) {
+                // Never started; the queued task will return immediately
+                permits.release();
+                return;
+            }
+            synchronized (this) {
+                if (cancellable != null) {
+                    cancellable.cancel();
+                    runner.interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.shop.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.shop.model.Money;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Parsed view of one HTTP request: path variables, query string and form body
+ *
+ * The body is read completely up front (it must be consumed for the connection to be
+ * reused) and parsed as application/x-www-form-urlencoded. Form fields take precedence
+ * over query parameters of the same name.
+ */
+public class ApiRequest {
+    
+    public static final String SESSION_HEADER = "X-Session-Id";
+    public static final String SESSION_COOKIE = "SESSION";
+    
+    private final HttpExchange exchange;
+    private final Map<String, String> pathParams;
+    private final Map<String, String> params = new HashMap<>();
+    
+    ApiRequest(HttpExchange exchange, Map<String, String> pathParams, int maxBodyBytes) throws IOException {
+        this.exchange = exchange;
+        this.pathParams = pathParams;
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        
+        String body = readBody(exchange.getRequestBody(), maxBodyBytes);
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (!body.isEmpty() && (contentType == null || contentType.startsWith("application/x-www-form-urlencoded"))) {
+            parseForm(body, params);
+        }
+    }
+    
+    public String getMethod() {
+        return exchange.getRequestMethod();
+    }
+    
+    /**
+     * Value of a {name} segment of the route pattern
+     */
+    public String pathParam(String name) {
+        return pathParams.get(name);
+    }
+    
+    /**
+     * Form field or query parameter
+     * @param name parameter name
+     * @return value, or null if absent or blank
+     */
+    public String param(String name) {
+        String value = params.get(name);
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+    
+    /**
+     * Parameter that must be present
+     * @throws IllegalArgumentException if it is missing
+     */
+    public String requireParam(String name) {
+        String value = param(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+    
+    /**
+     * Whole-number parameter
+     * @param name parameter name
+     * @param defaultValue value used when the parameter is absent
+     * @return parsed value
+     * @throws IllegalArgumentException if the value is not a whole number
+     */
+    public int intParam(String name, int defaultValue) {
+        String value = param(name);
+        return value == null ? defaultValue : parseInt(name, value);
+    }
+    
+    /**
+     * Long whole-number parameter, e.g. an amount in cents
+     * @param name parameter name
+     * @param defaultValue value used when the parameter is absent
+     * @return parsed value
+     * @throws IllegalArgumentException if the value is not a whole number
+     */
+    public long longParam(String name, long defaultValue) {
+        String value = param(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a whole number for " + name + ": " + value);
+        }
+    }
+    
+    /**
+     * Path variable holding a whole number
+     * @throws IllegalArgumentException if the value is not a whole number
+     */
+    public int intPathParam(String name) {
+        return parseInt(name, pathParam(name));
+    }
+    
+    /**
+     * Amount parameter such as 12.50
+     * @param name parameter name
+     * @return cents, or null when absent
+     * @throws IllegalArgumentException if the value is not a valid amount
+     */
+    public Long moneyParam(String name) {
+        String value = param(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Money.parse(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount for " + name + ": " + value);
+        }
+    }
+    
+    /**
+     * Session id from the X-Session-Id header or the SESSION cookie
+     * @return session id, or null if the request carries none
+     */
+    public String sessionId() {
+        String header = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+        if (header != null) {
+            return header.trim();
+        }
+        for (String cookies : exchange.getRequestHeaders().getOrDefault("Cookie", Collections.emptyList())) {
+            for (String cookie : cookies.split(";")) {
+                String[] pair = cookie.trim().split("=", 2);
+                if (pair.length == 2 && pair[0].equals(SESSION_COOKIE)) {
+                    return pair[1];
+                }
+            }
+        }
+        return null;
+    }
+    
+    private static int parseInt(String name, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a whole number for " + name + ": " + value);
+        }
+    }
+    
+    private static String readBody(InputStream in, int maxBodyBytes) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (body.size() + read > maxBodyBytes) {
+                throw new HttpError(413, "Request body larger than " + maxBodyBytes + " bytes.");
+            }
+            body.write(buffer, 0, read);
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+    
+    private static void parseForm(String encoded, Map<String, String> into) throws UnsupportedEncodingException {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String pair : encoded.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            try {
+                into.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Malformed parameter encoding: " + pair);
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.shop.http;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import com.shop.util.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Streaming JSON response for one exchange
+ *
+ * Routes write straight into json(); the text goes through an 8 KB buffer and the status
+ * line is only sent when that buffer first spills or the route finishes. A route that fails
+ * before then gets a clean error response with the right status; one that fails after
+ * output has started has an "error" member added to its root object instead.
+ * Responses use chunked encoding, which keeps the connection reusable (keep-alive).
+ */
+public class ApiResponse {
+    
+    private static final int BUFFER_SIZE = 8192;
+    
+    private final HttpExchange exchange;
+    private final Writer writer;
+    private final JsonWriter json;
+    private int status = 200;
+    private boolean committed;
+    
+    ApiResponse(HttpExchange exchange) {
+        this.exchange = exchange;
+        this.writer = new BufferedWriter(new OutputStreamWriter(new CommittingStream(), StandardCharsets.UTF_8),
+                                         BUFFER_SIZE);
+        this.json = new JsonWriter(writer);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+    }
+    
+    /**
+     * Writer for the response body; write exactly one top-level value
+     * @return JsonWriter
+     */
+    public JsonWriter json() {
+        return json;
+    }
+    
+    /**
+     * Set the status sent with the body, e.g. 201 after creating something
+     * @param status HTTP status code
+     */
+    public void setStatus(int status) {
+        this.status = status;
+    }
+    
+    /**
+     * Add a response header; must be called before the body is written
+     */
+    public void setHeader(String name, String value) {
+        exchange.getResponseHeaders().add(name, value);
+    }
+    
+    int getStatus() {
+        return status;
+    }
+    
+    boolean isCommitted() {
+        return committed;
+    }
+    
+    /**
+     * Send everything written so far and end the body
+     */
+    void finish() throws IOException {
+        writer.flush();
+        if (!committed) {
+            // Nothing written at all: an empty body
+            exchange.sendResponseHeaders(status == 200 ? 204 : status, -1);
+            committed = true;
+        }
+    }
+    
+    /**
+     * Report a failure, discarding any output that has not been sent yet
+     * @param errorStatus status used if the status line has not been sent
+     * @param message error message
+     */
+    void fail(int errorStatus, String message) throws IOException {
+        if (!committed) {
+            byte[] body = errorBody(message);
+            status = errorStatus;
+            committed = true;
+            exchange.sendResponseHeaders(errorStatus, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            return;
+        }
+        json.closeTo(1);
+        if (json.getDepth() == 1) {
+            json.field("error", message);
+        }
+        json.closeTo(0);
+        writer.flush();
+    }
+    
+    private static byte[] errorBody(String message) {
+        StringBuilder body = new StringBuilder();
+        new JsonWriter(body).beginObject().field("error", message).endObject();
+        return body.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Sends the status line on the first byte of body output
+     */
+    private final class CommittingStream extends OutputStream {
+        
+        private OutputStream body;
+        
+        @Override
+        public void write(int b) throws IOException {
+            target().write(b);
+        }
+        
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (length > 0) {
+                target().write(bytes, offset, length);
+            }
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            if (body != null) {
+                body.flush();
+            }
+        }
+        
+        private OutputStream target() throws IOException {
+            if (body == null) {
+                if (!committed) {
+                    exchange.sendResponseHeaders(status, 0);
+                    committed = true;
+                }
+                body = exchange.getResponseBody();
+            }
+            return body;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.shop.http;
+
+/**
+ * Thrown by a route to answer with a specific HTTP status and message
+ */
+public class HttpError extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final int status;
+    
+    /**
+     * Constructor for HttpError
+     * @param status HTTP status code
+     * @param message error message returned to the client
+     */
+    public HttpError(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+    
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,90 @@
+package com.shop.http;
+
+import com.shop.model.CartItem;
+import com.shop.model.Order;
+import com.shop.model.OrderLine;
+import com.shop.model.OrderSummary;
+import com.shop.model.Product;
+import com.shop.model.User;
+import com.shop.util.JsonWriter;
+
+/**
+ * JSON encodings of the model classes, shared by the HTTP API and batch mode
+ *
+ * Amounts are written as integer cents (fields ending in Cents) so clients never parse
+ * decimal strings or lose precision in floating point.
+ */
+public class ModelJson {
+    
+    private ModelJson() {
+    }
+    
+    public static void product(JsonWriter json, Product product) {
+        json.beginObject()
+            .field("productId", product.getProductId())
+            .field("name", product.getName())
+            .field("description", product.getDescription())
+            .field("priceCents", product.getPriceCents())
+            .field("quantity", product.getQuantity())
+            .endObject();
+    }
+    
+    public static void cartItem(JsonWriter json, CartItem cartItem) {
+        json.beginObject()
+            .field("productId", cartItem.getProductId())
+            .field("name", cartItem.getName())
+            .field("priceCents", cartItem.getPriceCents())
+            .field("qty", cartItem.getQty())
+            .field("lineTotalCents", cartItem.getLineTotalCents())
+            .endObject();
+    }
+    
+    public static void order(JsonWriter json, Order order) {
+        json.beginObject()
+            .field("orderId", order.getOrderId())
+            .field("orderTime", String.valueOf(order.getOrderTime()))
+            .field("totalCents", order.getTotalAmountCents())
+            .name("lines").beginArray();
+        for (OrderLine line : order.getLines()) {
+            json.beginObject()
+                .field("productId", line.getProductId())
+                .field("name", line.getProductName())
+                .field("qty", line.getQty())
+                .field("priceCents", line.getPriceAtPurchaseCents())
+                .endObject();
+        }
+        json.endArray().endObject();
+    }
+    
+    /**
+     * Write a summary, or null when the user has never ordered
+     */
+    public static void summary(JsonWriter json, OrderSummary summary) {
+        if (summary == null) {
+            json.nullValue();
+            return;
+        }
+        json.beginObject()
+            .field("orderCount", summary.getOrderCount())
+            .field("totalSpentCents", summary.getTotalSpentCents())
+            .field("lastOrderTime", String.valueOf(summary.getLastOrderTime()))
+            .field("distinctProducts", summary.getDistinctProducts())
+            .endObject();
+    }
+    
+    /**
+     * Write a user without the password; fields that were not fetched are null
+     */
+    public static void user(JsonWriter json, User user) {
+        json.beginObject()
+            .field("userId", user.getUserId())
+            .field("role", user.getRole())
+            .field("firstName", user.getFirstName())
+            .field("lastName", user.getLastName())
+            .field("username", user.getUsername())
+            .field("city", user.getCity())
+            .field("email", user.getEmail())
+            .field("mobile", user.getMobile())
+            .endObject();
+    }
+}
@@ -0,0 +1,20 @@
+package com.shop.http;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Handler for one method and path pattern of the API
+ */
+@FunctionalInterface
+public interface Route {
+    
+    /**
+     * Handle a request, writing the body to response.json()
+     * @param request parsed request
+     * @param response streaming response
+     * @throws SQLException if database error occurs
+     * @throws IOException if the response cannot be written
+     */
+    void handle(ApiRequest request, ApiResponse response) throws SQLException, IOException;
+}
@@ -0,0 +1,115 @@
+package com.shop.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.shop.metrics.HistogramSnapshot;
+import com.shop.metrics.LatencyHistogram;
+import com.shop.util.JsonWriter;
+
+/**
+ * Request counters and latency for the HTTP server
+ *
+ * Latency goes into a LatencyHistogram; throughput is counted per wall-clock second in a
+ * ring of SECONDS_KEPT slots, so the recent request rate is available without keeping
+ * a timestamp per request.
+ */
+public class ServerStats {
+    
+    private static final int SECONDS_KEPT = 64;
+    
+    private final long startNanos = System.nanoTime();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder clientErrors = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final AtomicLongArray slotSecond = new AtomicLongArray(SECONDS_KEPT);
+    private final AtomicLongArray slotCount = new AtomicLongArray(SECONDS_KEPT);
+    
+    /**
+     * Record one completed request
+     * @param status HTTP status sent
+     * @param nanos time from dispatch to the end of the response
+     */
+    public void record(int status, long nanos) {
+        requests.increment();
+        latency.record(nanos);
+        if (status >= 500) {
+            serverErrors.increment();
+        } else if (status >= 400) {
+            clientErrors.increment();
+        }
+        
+        long second = currentSecond();
+        int slot = (int) Math.floorMod(second, SECONDS_KEPT);
+        long slotOwner = slotSecond.get(slot);
+        // First request of a new second claims the slot and restarts its count
+        if (slotOwner != second && slotSecond.compareAndSet(slot, slotOwner, second)) {
+            slotCount.set(slot, 0);
+        }
+        slotCount.incrementAndGet(slot);
+    }
+    
+    /**
+     * Average request rate over the last completed seconds
+     * @param windowSeconds seconds to average over, at most SECONDS_KEPT - 1
+     * @return requests per second
+     */
+    public double requestsPerSecond(int windowSeconds) {
+        int window = Math.max(1, Math.min(windowSeconds, SECONDS_KEPT - 1));
+        long now = currentSecond();
+        long total = 0;
+        for (long second = now - window; second < now; second++) {
+            int slot = (int) Math.floorMod(second, SECONDS_KEPT);
+            if (slotSecond.get(slot) == second) {
+                total += slotCount.get(slot);
+            }
+        }
+        return total / (double) window;
+    }
+    
+    public long getRequests() {
+        return requests.sum();
+    }
+    
+    public HistogramSnapshot getLatency() {
+        return latency.snapshot();
+    }
+    
+    /**
+     * Write the counters as a JSON object, latencies in microseconds
+     * @param json destination
+     */
+    public void write(JsonWriter json) {
+        HistogramSnapshot snapshot = latency.snapshot();
+        double uptimeSeconds = (System.nanoTime() - startNanos) / 1e9;
+        json.beginObject()
+            .field("uptimeSeconds", (long) uptimeSeconds)
+            .field("requests", requests.sum())
+            .field("clientErrors", clientErrors.sum())
+            .field("serverErrors", serverErrors.sum())
+            .field("requestsPerSecond10s", Math.round(requestsPerSecond(10)))
+            .field("requestsPerSecondOverall", Math.round(requests.sum() / Math.max(1e-9, uptimeSeconds)))
+            .name("latencyMicros").beginObject()
+            .field("mean", snapshot.getMean() / 1000)
+            .field("p50", snapshot.getP50() / 1000)
+            .field("p99", snapshot.getP99() / 1000)
+            .field("p999", snapshot.getP999() / 1000)
+            .field("max", snapshot.getMax() / 1000)
+            .endObject()
+            .endObject();
+    }
+    
+    @Override
+    public String toString() {
+        HistogramSnapshot snapshot = latency.snapshot();
+        return String.format("requests=%d, rps(10s)=%.1f, errors=%d/%d, latency p50=%.2f ms p99=%.2f ms max=%.2f ms",
+                             requests.sum(), requestsPerSecond(10), clientErrors.sum(), serverErrors.sum(),
+                             snapshot.getP50() / 1e6, snapshot.getP99() / 1e6, snapshot.getMax() / 1e6);
+    }
+    
+    private static long currentSecond() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+    }
+}
@@ -0,0 +1,209 @@
+package com.shop.http;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.shop.dao.CartConflictException;
+import com.shop.service.NotLoggedInException;
+import com.shop.util.AppConfig;
+import com.shop.util.ExecutorFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HTTP front end on the JDK's built-in com.sun.net.httpserver, no servlet container
+ *
+ * Requests are dispatched to ExecutorFactory.newTaskExecutor: virtual threads on Java 21+,
+ * otherwise a bounded platform pool whose full queue makes the accept thread run the request
+ * itself, which pushes back on clients. Connections are HTTP/1.1 keep-alive; the JDK's idle
+ * limits can be tuned with -Dsun.net.httpserver.idleInterval and maxIdleConnections.
+ *
+ * Routes are registered per method and path pattern, where a {name} segment matches any
+ * single segment. Errors are mapped to statuses in one place:
+ *   HttpError -> its status, IllegalArgumentException -> 400, NotLoggedInException -> 401,
+ *   CartConflictException (stock, price, removed product) -> 409, SQLTransientException and
+ *   SQLNonTransientConnectionException (database overloaded or unreachable) -> 503, anything else -> 500.
+ */
+public class ShopHttpServer implements AutoCloseable {
+    
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ServerStats stats = new ServerStats();
+    private final List<RouteEntry> routes = new ArrayList<>();
+    private final int maxBodyBytes;
+    
+    /**
+     * Create a server from the http.* configuration keys
+     * @return unstarted ShopHttpServer
+     * @throws IOException if the port cannot be bound
+     */
+    public static ShopHttpServer fromConfig() throws IOException {
+        return new ShopHttpServer(AppConfig.getInt("http.port", 8080),
+                                  AppConfig.getInt("http.backlog", 1024),
+                                  AppConfig.getInt("http.threads", Runtime.getRuntime().availableProcessors() * 8),
+                                  AppConfig.getInt("http.queueCapacity", 1000),
+                                  AppConfig.getInt("http.maxBodyBytes", 65536));
+    }
+    
+    /**
+     * Constructor for ShopHttpServer
+     * @param port TCP port, 0 for any free port
+     * @param backlog pending connections the OS queues before refusing
+     * @param threads request threads when virtual threads are unavailable
+     * @param queueCapacity queued requests for the platform pool
+     * @param maxBodyBytes largest accepted request body
+     * @throws IOException if the port cannot be bound
+     */
+    public ShopHttpServer(int port, int backlog, int threads, int queueCapacity, int maxBodyBytes) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(port), backlog);
+        this.executor = ExecutorFactory.newTaskExecutor("http", threads, queueCapacity);
+        this.maxBodyBytes = maxBodyBytes;
+        server.setExecutor(executor);
+        server.createContext("/", this::dispatch);
+    }
+    
+    /**
+     * Register a route; must be called before start()
+     * @param method HTTP method, e.g. GET
+     * @param pattern path such as /api/products/{id}
+     * @param route handler
+     * @return this
+     */
+    public ShopHttpServer route(String method, String pattern, Route route) {
+        routes.add(new RouteEntry(method, pattern, route));
+        return this;
+    }
+    
+    public void start() {
+        server.start();
+    }
+    
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    public ServerStats getStats() {
+        return stats;
+    }
+    
+    /**
+     * Stop accepting connections, give in-flight requests a moment to finish, then stop the threads
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void dispatch(HttpExchange exchange) {
+        long start = System.nanoTime();
+        ApiResponse response = new ApiResponse(exchange);
+        
+        try {
+            String[] segments = split(exchange.getRequestURI().getPath());
+            Map<String, String> pathParams = new HashMap<>();
+            RouteEntry entry = match(exchange.getRequestMethod(), segments, pathParams);
+            
+            ApiRequest request = new ApiRequest(exchange, pathParams, maxBodyBytes);
+            entry.route.handle(request, response);
+            response.finish();
+        } catch (Exception e) {
+            try {
+                response.fail(statusOf(e), e.getMessage() != null ? e.getMessage() : e.toString());
+            } catch (IOException | RuntimeException ignored) {
+                // Client has gone away; nothing left to tell it
+            }
+            if (statusOf(e) >= 500) {
+                System.err.println("HTTP " + exchange.getRequestMethod() + " " + exchange.getRequestURI() +
+                                   " failed: " + e);
+            }
+        } finally {
+            exchange.close();
+            stats.record(response.getStatus(), System.nanoTime() - start);
+        }
+    }
+    
+    private RouteEntry match(String method, String[] segments, Map<String, String> pathParams) {
+        boolean pathMatched = false;
+        for (RouteEntry entry : routes) {
+            if (entry.matches(segments, pathParams)) {
+                if (entry.method.equals(method)) {
+                    return entry;
+                }
+                pathMatched = true;
+            }
+            pathParams.clear();
+        }
+        throw pathMatched
+            ? new HttpError(405, "Method " + method + " not allowed here.")
+            : new HttpError(404, "No such endpoint.");
+    }
+    
+    private static int statusOf(Exception e) {
+        if (e instanceof HttpError) {
+            return ((HttpError) e).getStatus();
+        }
+        if (e instanceof IllegalArgumentException) {
+            return 400;
+        }
+        if (e instanceof NotLoggedInException) {
+            return 401;
+        }
+        if (e instanceof CartConflictException) {
+            return 409;
+        }
+        // Pool exhausted or closed, stock reload in progress, order writer shut down: retry later
+        if (e instanceof SQLTransientException || e instanceof SQLNonTransientConnectionException) {
+            return 503;
+        }
+        return 500;
+    }
+    
+    private static String[] split(String path) {
+        String trimmed = path.replaceAll("^/+|/+$", "");
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("/+");
+    }
+    
+    /**
+     * One registered route with its pattern split into segments
+     */
+    private static final class RouteEntry {
+        
+        private final String method;
+        private final String[] pattern;
+        private final Route route;
+        
+        private RouteEntry(String method, String pattern, Route route) {
+            this.method = method;
+            this.pattern = split(pattern);
+            this.route = route;
+        }
+        
+        private boolean matches(String[] segments, Map<String, String> pathParams) {
+            if (segments.length != pattern.length) {
+                return false;
+            }
+            for (int i = 0; i < pattern.length; i++) {
+                if (pattern[i].startsWith("{") && pattern[i].endsWith("}")) {
+                    pathParams.put(pattern[i].substring(1, pattern[i].length() - 1), segments[i]);
+                } else if (!pattern[i].equals(segments[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
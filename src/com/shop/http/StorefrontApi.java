@@ -0,0 +1,312 @@
+package com.shop.http;
+
+import java.sql.SQLException;
+import java.util.EnumSet;
+import java.util.List;
+
+import com.shop.dao.AdminDao;
+import com.shop.dao.OrderHistoryQuery;
+import com.shop.dao.OrderSummaryDao;
+import com.shop.dao.Page;
+import com.shop.dao.ProductCursor;
+import com.shop.dao.UserColumn;
+import com.shop.metrics.MetricsRegistry;
+import com.shop.model.CartItem;
+import com.shop.model.Product;
+import com.shop.model.User;
+import com.shop.service.HomePage;
+import com.shop.service.ShopService;
+import com.shop.service.ShopperSession;
+import com.shop.util.DBUtil;
+import com.shop.util.JsonWriter;
+import com.shop.util.PoolStats;
+
+/**
+ * Storefront and admin endpoints, all backed by one shared ShopService
+ *
+ * Parameters come from the query string or a form-encoded body. The session id returned
+ * by POST /api/login is sent back in the X-Session-Id header or the SESSION cookie.
+ *
+ *   GET  /api/products?minPrice&maxPrice&afterPriceCents&afterId&size   catalog page
+ *   GET  /api/products/{id}                                             one product
+ *   GET  /api/search?q&limit                                            keyword search
+ *   POST /api/login (username, password)     POST /api/logout          GET /api/home
+ *   GET  /api/cart    POST /api/cart (productId, qty)    POST /api/checkout
+ *   GET  /api/orders?limit    GET /api/orders/summary
+ *   POST /api/admin/products (productId, name, description, price, quantity)
+ *   GET  /api/admin/products/{id}/stock    GET /api/admin/users?role&city&after&size
+ *   GET  /api/admin/users/{username}/orders?limit    GET /api/admin/users/{username}/summary
+ *   GET  /stats (server and pool counters)    GET /metrics (DAO latency histograms)
+ */
+public class StorefrontApi {
+    
+    private static final int MAX_PAGE_SIZE = 200;
+    
+    private final ShopService shopService;
+    private final AdminDao adminDao = new AdminDao();
+    private final OrderSummaryDao orderSummaryDao = new OrderSummaryDao();
+    private final int defaultPageSize;
+    
+    /**
+     * Constructor for StorefrontApi
+     * @param shopService service shared by all requests
+     * @param defaultPageSize page size when a request does not give one
+     */
+    public StorefrontApi(ShopService shopService, int defaultPageSize) {
+        this.shopService = shopService;
+        this.defaultPageSize = defaultPageSize;
+    }
+    
+    /**
+     * Register every endpoint on a server
+     * @param server server to register on
+     */
+    public void register(ShopHttpServer server) {
+        server.route("GET", "/api/products", this::listProducts)
+              .route("GET", "/api/products/{id}", this::getProduct)
+              .route("GET", "/api/search", this::search)
+              .route("POST", "/api/login", this::login)
+              .route("POST", "/api/logout", this::logout)
+              .route("GET", "/api/home", this::home)
+              .route("GET", "/api/cart", this::getCart)
+              .route("POST", "/api/cart", this::addToCart)
+              .route("POST", "/api/checkout", this::checkout)
+              .route("GET", "/api/orders", this::orders)
+              .route("GET", "/api/orders/summary", this::summary)
+              .route("POST", "/api/admin/products", this::addProduct)
+              .route("GET", "/api/admin/products/{id}/stock", this::checkQuantity)
+              .route("GET", "/api/admin/users", this::users)
+              .route("GET", "/api/admin/users/{username}/orders", this::userOrders)
+              .route("GET", "/api/admin/users/{username}/summary", this::userSummary)
+              .route("GET", "/stats", (request, response) -> stats(server, response))
+              .route("GET", "/metrics", this::metrics);
+    }
+    
+    private void listProducts(ApiRequest request, ApiResponse response) throws SQLException {
+        ProductCursor after = null;
+        String afterId = request.param("afterId");
+        if (afterId != null) {
+            after = new ProductCursor(request.longParam("afterPriceCents", 0), request.intParam("afterId", 0));
+        }
+        Page<Product> page = shopService.getProductDao().getProductsPage(
+            request.moneyParam("minPrice"), request.moneyParam("maxPrice"), after, pageSize(request, "size"));
+        
+        JsonWriter json = response.json();
+        json.beginObject();
+        writeProducts(json, page.getItems());
+        json.name("hasMore").value(page.hasMore());
+        if (page.hasMore()) {
+            json.name("next").beginObject()
+                .field("afterPriceCents", page.getLast().getPriceCents())
+                .field("afterId", page.getLast().getProductId())
+                .endObject();
+        }
+        json.endObject();
+    }
+    
+    private void getProduct(ApiRequest request, ApiResponse response) throws SQLException {
+        Product product = shopService.getProductDao().getById(request.intPathParam("id"));
+        if (product == null) {
+            throw new HttpError(404, "Product not found.");
+        }
+        ModelJson.product(response.json(), product);
+    }
+    
+    private void search(ApiRequest request, ApiResponse response) throws SQLException {
+        List<Product> products = shopService.getProductDao().search(request.requireParam("q"),
+                                                                    pageSize(request, "limit"));
+        JsonWriter json = response.json().beginObject();
+        writeProducts(json, products);
+        json.endObject();
+    }
+    
+    private void login(ApiRequest request, ApiResponse response) throws SQLException {
+        ShopperSession session = shopService.login(request.requireParam("username"),
+                                                   request.requireParam("password"));
+        if (session == null) {
+            throw new HttpError(401, "Invalid username or password.");
+        }
+        response.setHeader("Set-Cookie", ApiRequest.SESSION_COOKIE + "=" + session.getSessionId() +
+                                         "; Path=/; HttpOnly");
+        response.json().beginObject()
+            .field("sessionId", session.getSessionId())
+            .field("username", session.getUser().getUsername())
+            .field("role", session.getUser().getRole())
+            .endObject();
+    }
+    
+    private void logout(ApiRequest request, ApiResponse response) {
+        shopService.logout(request.sessionId());
+    }
+    
+    private void home(ApiRequest request, ApiResponse response) throws SQLException {
+        HomePage home = shopService.getHome(request.sessionId());
+        JsonWriter json = response.json().beginObject();
+        writeProducts(json, home.getCatalog().getItems());
+        json.name("orders").beginArray();
+        home.getRecentOrders().forEach(order -> ModelJson.order(json, order));
+        json.endArray().endObject();
+    }
+    
+    private void getCart(ApiRequest request, ApiResponse response) {
+        writeCart(response.json(), shopService.getCart(request.sessionId()));
+    }
+    
+    private void addToCart(ApiRequest request, ApiResponse response) throws SQLException {
+        int inCart = shopService.addToCart(request.sessionId(), request.intParam("productId", -1),
+                                           request.intParam("qty", 1));
+        response.json().beginObject().field("inCart", inCart).endObject();
+    }
+    
+    private void checkout(ApiRequest request, ApiResponse response) throws SQLException {
+        int orderId = shopService.checkout(request.sessionId());
+        response.setStatus(201);
+        response.json().beginObject().field("orderId", orderId).endObject();
+    }
+    
+    private void orders(ApiRequest request, ApiResponse response) throws SQLException {
+        ShopperSession session = shopService.requireSession(request.sessionId());
+        JsonWriter json = response.json().beginObject();
+        json.name("orders").beginArray();
+        int count = shopService.getOrderDao().streamOrdersForUser(session.getUser().getUserId(),
+                                                                  historyQuery(request),
+                                                                  order -> ModelJson.order(json, order));
+        json.endArray().field("count", count).endObject();
+    }
+    
+    private void summary(ApiRequest request, ApiResponse response) throws SQLException {
+        ShopperSession session = shopService.requireSession(request.sessionId());
+        ModelJson.summary(response.json(), orderSummaryDao.getSummary(session.getUser().getUserId()));
+    }
+    
+    private void addProduct(ApiRequest request, ApiResponse response) throws SQLException {
+        requireAdmin(request);
+        Product product = new Product();
+        product.setProductId(request.intParam("productId", -1));
+        product.setName(request.requireParam("name"));
+        product.setDescription(request.param("description"));
+        Long priceCents = request.moneyParam("price");
+        if (priceCents == null || priceCents <= 0) {
+            throw new IllegalArgumentException("price must be greater than 0.");
+        }
+        product.setPriceCents(priceCents);
+        product.setQuantity(request.intParam("quantity", 0));
+        if (product.getProductId() <= 0 || product.getQuantity() < 0) {
+            throw new IllegalArgumentException("productId must be positive and quantity not negative.");
+        }
+        
+        if (!adminDao.addProduct(product)) {
+            throw new HttpError(409, "Product was not added.");
+        }
+        response.setStatus(201);
+        ModelJson.product(response.json(), product);
+    }
+    
+    private void checkQuantity(ApiRequest request, ApiResponse response) throws SQLException {
+        requireAdmin(request);
+        int productId = request.intPathParam("id");
+        Integer quantity = adminDao.checkQuantity(productId);
+        if (quantity == null) {
+            throw new HttpError(404, "Product not found.");
+        }
+        response.json().beginObject().field("productId", productId).field("quantity", quantity).endObject();
+    }
+    
+    private void users(ApiRequest request, ApiResponse response) throws SQLException {
+        requireAdmin(request);
+        Page<User> page = adminDao.getUsersPage(request.param("role"), request.param("city"),
+                                                request.intParam("after", 0), pageSize(request, "size"),
+                                                EnumSet.allOf(UserColumn.class));
+        JsonWriter json = response.json().beginObject();
+        json.name("users").beginArray();
+        for (User user : page.getItems()) {
+            ModelJson.user(json, user);
+        }
+        json.endArray().name("hasMore").value(page.hasMore());
+        if (page.hasMore()) {
+            json.field("nextAfter", page.getLast().getUserId());
+        }
+        json.endObject();
+    }
+    
+    private void userOrders(ApiRequest request, ApiResponse response) throws SQLException {
+        requireAdmin(request);
+        JsonWriter json = response.json().beginObject();
+        json.name("orders").beginArray();
+        int count = adminDao.streamUserHistoryByUsername(request.pathParam("username"), historyQuery(request),
+                                                         order -> ModelJson.order(json, order));
+        json.endArray().field("count", count).endObject();
+    }
+    
+    private void userSummary(ApiRequest request, ApiResponse response) throws SQLException {
+        requireAdmin(request);
+        ModelJson.summary(response.json(), orderSummaryDao.getSummaryByUsername(request.pathParam("username")));
+    }
+    
+    private void stats(ShopHttpServer server, ApiResponse response) {
+        JsonWriter json = response.json().beginObject();
+        json.name("server");
+        server.getStats().write(json);
+        json.field("sessions", shopService.getSessions().size());
+        json.name("pool");
+        writePool(json, DBUtil.getPoolStats());
+        json.name("replicaPools").beginArray();
+        for (PoolStats replica : DBUtil.getReplicaPoolStats()) {
+            writePool(json, replica);
+        }
+        json.endArray().endObject();
+    }
+    
+    private void metrics(ApiRequest request, ApiResponse response) {
+        response.json().rawValue(MetricsRegistry.getInstance().snapshot().toJson());
+    }
+    
+    private void requireAdmin(ApiRequest request) {
+        ShopperSession session = shopService.requireSession(request.sessionId());
+        if (!"ADMIN".equalsIgnoreCase(session.getUser().getRole())) {
+            throw new HttpError(403, "Admin login required.");
+        }
+    }
+    
+    private int pageSize(ApiRequest request, String name) {
+        int size = request.intParam(name, defaultPageSize);
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException(name + " must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        return size;
+    }
+    
+    private static OrderHistoryQuery historyQuery(ApiRequest request) {
+        return OrderHistoryQuery.all().mostRecent(request.intParam("limit", 0));
+    }
+    
+    private static void writeProducts(JsonWriter json, List<Product> products) {
+        json.name("products").beginArray();
+        for (Product product : products) {
+            ModelJson.product(json, product);
+        }
+        json.endArray();
+    }
+    
+    private static void writeCart(JsonWriter json, List<CartItem> cart) {
+        long totalCents = 0;
+        json.beginObject().name("items").beginArray();
+        for (CartItem cartItem : cart) {
+            totalCents += cartItem.getLineTotalCents();
+            ModelJson.cartItem(json, cartItem);
+        }
+        json.endArray().field("totalCents", totalCents).endObject();
+    }
+    
+    private static void writePool(JsonWriter json, PoolStats pool) {
+        json.beginObject()
+            .field("active", pool.getActive())
+            .field("idle", pool.getIdle())
+            .field("waiters", pool.getWaiters())
+            .field("maxSize", pool.getMaxSize())
+            .field("acquireCount", pool.getAcquireCount())
+            .field("timeoutCount", pool.getTimeoutCount())
+            .field("averageWaitMicros", pool.getAverageWaitMicros())
+            .endObject();
+    }
+}
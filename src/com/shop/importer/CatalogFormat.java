@@ -0,0 +1,26 @@
+package com.shop.importer;
+
+/**
+ * Supported catalog file formats
+ */
+public enum CatalogFormat {
+    
+    /** Comma-separated values, optionally with a header row naming the columns */
+    CSV,
+    
+    /** One flat JSON object per line */
+    JSONL;
+    
+    /**
+     * Guess the format from a file name
+     * @param fileName name or path of the catalog file
+     * @return JSONL for .jsonl/.ndjson/.json files, CSV otherwise
+     */
+    public static CatalogFormat fromFileName(String fileName) {
+        String lower = fileName.toLowerCase();
+        if (lower.endsWith(".jsonl") || lower.endsWith(".ndjson") || lower.endsWith(".json")) {
+            return JSONL;
+        }
+        return CSV;
+    }
+}
@@ -0,0 +1,272 @@
+package com.shop.importer;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams records out of a CSV or JSON-lines catalog one line at a time
+ *
+ * Only the current line is held in memory, so files of any size can be read. CSV files may
+ * start with a header naming the columns (product_id, name, description, price, quantity in
+ * any order); without one the columns are taken in that order. Quoted CSV fields may contain
+ * commas and doubled quotes but not line breaks. JSON lines must be flat objects whose values
+ * are strings, numbers or null.
+ */
+public class CatalogReader implements Closeable {
+    
+    /** Column order of a CSV file without a header */
+    public static final List<String> DEFAULT_COLUMNS =
+        Arrays.asList("product_id", "name", "description", "price", "quantity");
+    
+    private final BufferedReader reader;
+    private final CatalogFormat format;
+    private List<String> columns;
+    private long lineNumber;
+    
+    /**
+     * Constructor for CatalogReader
+     * @param reader source of the catalog, closed together with this reader
+     * @param format format of the catalog
+     */
+    public CatalogReader(BufferedReader reader, CatalogFormat format) {
+        this.reader = reader;
+        this.format = format;
+    }
+    
+    /**
+     * Read the next record, skipping blank lines and the CSV header
+     * @return next CatalogRow, or null at end of file
+     * @throws IOException if the file cannot be read
+     */
+    public CatalogRow next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            if (format == CatalogFormat.JSONL) {
+                return parseJsonLine(line);
+            }
+            
+            List<String> values;
+            try {
+                values = splitCsv(line);
+            } catch (IllegalArgumentException e) {
+                return CatalogRow.malformed(lineNumber, e.getMessage());
+            }
+            if (columns == null) {
+                // First non-blank line: a header unless it starts with a product id
+                columns = DEFAULT_COLUMNS;
+                if (!values.isEmpty() && !values.get(0).trim().matches("-?\\d+")) {
+                    columns = new ArrayList<>(values.size());
+                    for (String value : values) {
+                        columns.add(value.trim().toLowerCase());
+                    }
+                    continue;
+                }
+            }
+            if (values.size() != columns.size()) {
+                return CatalogRow.malformed(lineNumber, "expected " + columns.size() + " columns but found " +
+                                            values.size());
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < values.size(); i++) {
+                fields.put(columns.get(i), values.get(i));
+            }
+            return CatalogRow.of(lineNumber, fields);
+        }
+        return null;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+    
+    /**
+     * Split one CSV line into fields
+     * @param line the line
+     * @return field values, unquoted
+     * @throws IllegalArgumentException if a quoted field is not terminated
+     */
+    static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        values.add(value.toString());
+        return values;
+    }
+    
+    private CatalogRow parseJsonLine(String line) {
+        try {
+            return CatalogRow.of(lineNumber, new FlatJsonParser(line).parseObject());
+        } catch (IllegalArgumentException e) {
+            return CatalogRow.malformed(lineNumber, "invalid JSON: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Parser for a single flat JSON object with string, number, boolean or null values
+     */
+    private static final class FlatJsonParser {
+        
+        private final String text;
+        private int position;
+        
+        private FlatJsonParser(String text) {
+            this.text = text;
+        }
+        
+        private Map<String, String> parseObject() {
+            Map<String, String> fields = new HashMap<>();
+            expect('{');
+            if (peek() == '}') {
+                position++;
+            } else {
+                while (true) {
+                    String key = parseString();
+                    expect(':');
+                    fields.put(key, parseValue());
+                    char c = next();
+                    if (c == '}') {
+                        break;
+                    }
+                    if (c != ',') {
+                        throw error("expected ',' or '}'");
+                    }
+                }
+            }
+            if (peek() != 0) {
+                throw error("unexpected trailing content");
+            }
+            return fields;
+        }
+        
+        private String parseValue() {
+            char c = peek();
+            if (c == '"') {
+                return parseString();
+            }
+            int start = position;
+            while (position < text.length() && ",}".indexOf(text.charAt(position)) < 0
+                   && !Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.isEmpty() || c == '{' || c == '[') {
+                throw error("unsupported value");
+            }
+            return literal;
+        }
+        
+        private String parseString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw error("truncated unicode escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("bad unicode escape");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        value.append(escaped);
+                }
+            }
+            throw error("unterminated string");
+        }
+        
+        private void expect(char expected) {
+            if (next() != expected) {
+                throw error("expected '" + expected + "'");
+            }
+        }
+        
+        private char next() {
+            char c = peek();
+            if (c == 0) {
+                throw error("unexpected end of line");
+            }
+            position++;
+            return c;
+        }
+        
+        private char peek() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+            return position < text.length() ? text.charAt(position) : 0;
+        }
+        
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at column " + (position + 1));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.shop.importer;
+
+import java.util.Map;
+
+/**
+ * One record read from a catalog file: either its fields by column name or a parse error
+ */
+public class CatalogRow {
+    
+    private final long lineNumber;
+    private final Map<String, String> fields;
+    private final String error;
+    
+    private CatalogRow(long lineNumber, Map<String, String> fields, String error) {
+        this.lineNumber = lineNumber;
+        this.fields = fields;
+        this.error = error;
+    }
+    
+    static CatalogRow of(long lineNumber, Map<String, String> fields) {
+        return new CatalogRow(lineNumber, fields, null);
+    }
+    
+    static CatalogRow malformed(long lineNumber, String error) {
+        return new CatalogRow(lineNumber, null, error);
+    }
+    
+    public long getLineNumber() {
+        return lineNumber;
+    }
+    
+    /**
+     * Get a field value
+     * @param column column name, e.g. "price"
+     * @return the value, or null if the column is missing or null
+     */
+    public String get(String column) {
+        return fields == null ? null : fields.get(column);
+    }
+    
+    /**
+     * Parse error for this line
+     * @return error message, or null if the line was parsed
+     */
+    public String getError() {
+        return error;
+    }
+}
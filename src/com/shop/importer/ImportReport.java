@@ -0,0 +1,87 @@
+package com.shop.importer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a ProductImporter run
+ *
+ * Only the first MAX_REJECT_SAMPLES rejected rows are kept with their reasons, so a file
+ * full of bad rows cannot grow the report without bound.
+ */
+public class ImportReport {
+    
+    public static final int MAX_REJECT_SAMPLES = 100;
+    
+    private long rowsRead;
+    private long imported;
+    private long rejected;
+    private int chunks;
+    private long elapsedNanos;
+    private final List<String> rejectSamples = new ArrayList<>();
+    
+    void rowRead() {
+        rowsRead++;
+    }
+    
+    void imported(int rows) {
+        imported += rows;
+        chunks++;
+    }
+    
+    void reject(long lineNumber, String reason) {
+        rejected++;
+        if (rejectSamples.size() < MAX_REJECT_SAMPLES) {
+            rejectSamples.add("line " + lineNumber + ": " + reason);
+        }
+    }
+    
+    void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+    
+    // Getters
+    
+    public long getRowsRead() {
+        return rowsRead;
+    }
+    
+    public long getImported() {
+        return imported;
+    }
+    
+    public long getRejected() {
+        return rejected;
+    }
+    
+    public int getChunks() {
+        return chunks;
+    }
+    
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+    
+    /**
+     * Reasons for the first rejected rows
+     * @return unmodifiable list of "line N: reason" messages
+     */
+    public List<String> getRejectSamples() {
+        return Collections.unmodifiableList(rejectSamples);
+    }
+    
+    /**
+     * Rows read per second over the whole run
+     * @return throughput in rows per second
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowsRead / (elapsedNanos / 1e9);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("read=%d, imported=%d, rejected=%d, chunks=%d, %.2f s, %.1f rows/s",
+                             rowsRead, imported, rejected, chunks, elapsedNanos / 1e9, getRowsPerSecond());
+    }
+}
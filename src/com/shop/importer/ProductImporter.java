@@ -0,0 +1,314 @@
+package com.shop.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.shop.dao.ConsistencyKeys;
+import com.shop.dao.InventoryLedger;
+import com.shop.dao.ProductCache;
+import com.shop.dao.ProductSearchIndex;
+import com.shop.metrics.MetricsRegistry;
+import com.shop.model.Money;
+import com.shop.model.Product;
+import com.shop.util.AppConfig;
+import com.shop.util.DBUtil;
+
+/**
+ * Bulk loader for supplier catalogs
+ *
+ * The file is streamed line by line and at most one chunk of validated products is held in
+ * memory. Each chunk is written in its own transaction as JDBC batches of batchSize rows, so
+ * a failure loses at most one chunk. If a chunk is rejected by the database (e.g. a duplicate
+ * product_id in insert-only mode) it is rolled back and replayed row by row, and only the
+ * offending rows are reported as rejected.
+ */
+public class ProductImporter {
+    
+    private static final String INSERT_SQL =
+        "INSERT INTO products(product_id, name, description, price, quantity) VALUES(?, ?, ?, ?, ?)";
+    private static final String UPSERT_SQL = INSERT_SQL +
+        " ON DUPLICATE KEY UPDATE name = VALUES(name), description = VALUES(description), " +
+        "price = VALUES(price), quantity = VALUES(quantity)";
+    
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99");
+    
+    private final int batchSize;
+    private final int chunkSize;
+    private final boolean upsert;
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+    
+    /**
+     * Create an importer from the import.* configuration keys
+     * @return ProductImporter
+     */
+    public static ProductImporter fromConfig() {
+        return new ProductImporter(AppConfig.getInt("import.batchSize", 1000),
+                                   AppConfig.getInt("import.chunkSize", 10000),
+                                   AppConfig.getBoolean("import.upsert", true));
+    }
+    
+    /**
+     * Constructor for ProductImporter
+     * @param batchSize rows per executeBatch call
+     * @param chunkSize rows per transaction
+     * @param upsert true to update products whose product_id already exists, false to reject them
+     */
+    public ProductImporter(int batchSize, int chunkSize, boolean upsert) {
+        if (batchSize <= 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException("batchSize and chunkSize must be positive");
+        }
+        this.batchSize = batchSize;
+        this.chunkSize = chunkSize;
+        this.upsert = upsert;
+    }
+    
+    /**
+     * Import a catalog file, choosing the format from its extension
+     * @param file CSV or JSON-lines file
+     * @return ImportReport with counts, throughput and rejected rows
+     * @throws IOException if the file cannot be read
+     * @throws SQLException if database error occurs
+     */
+    public ImportReport importFile(Path file) throws IOException, SQLException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importCatalog(reader, CatalogFormat.fromFileName(file.getFileName().toString()));
+        }
+    }
+    
+    /**
+     * Import a catalog from a reader
+     * @param reader catalog content
+     * @param format format of the content
+     * @return ImportReport with counts, throughput and rejected rows
+     * @throws IOException if the content cannot be read
+     * @throws SQLException if database error occurs
+     */
+    public ImportReport importCatalog(BufferedReader reader, CatalogFormat format) throws IOException, SQLException {
+        ImportReport report = new ImportReport();
+        long start = System.nanoTime();
+        List<ImportedProduct> chunk = new ArrayList<>(chunkSize);
+        
+        try {
+            CatalogReader catalog = new CatalogReader(reader, format);
+            CatalogRow row;
+            while ((row = catalog.next()) != null) {
+                report.rowRead();
+                if (row.getError() != null) {
+                    report.reject(row.getLineNumber(), row.getError());
+                    continue;
+                }
+                try {
+                    chunk.add(new ImportedProduct(row.getLineNumber(), toProduct(row)));
+                } catch (IllegalArgumentException e) {
+                    report.reject(row.getLineNumber(), e.getMessage());
+                    continue;
+                }
+                if (chunk.size() == chunkSize) {
+                    writeChunk(chunk, report);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writeChunk(chunk, report);
+            }
+        } finally {
+            // Whatever was committed is now newer than any cached stock; the ledger is reloaded per chunk
+            if (report.getImported() > 0) {
+                DBUtil.markWritten(ConsistencyKeys.CATALOG);
+                ProductCache.getInstance().clear();
+                ProductSearchIndex.getInstance().invalidate();
+            }
+            report.finish(System.nanoTime() - start);
+        }
+        return report;
+    }
+    
+    /**
+     * Validate a record and convert it to a Product
+     * @param row parsed record
+     * @return Product
+     * @throws IllegalArgumentException describing the first invalid field
+     */
+    static Product toProduct(CatalogRow row) {
+        Product product = new Product();
+        product.setProductId(parseInt(row, "product_id"));
+        if (product.getProductId() <= 0) {
+            throw new IllegalArgumentException("product_id must be positive");
+        }
+        
+        String name = row.get("name");
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("name is required");
+        }
+        if (name.length() > 100) {
+            throw new IllegalArgumentException("name is longer than 100 characters");
+        }
+        product.setName(name.trim());
+        
+        String description = row.get("description");
+        if (description != null && description.length() > 255) {
+            throw new IllegalArgumentException("description is longer than 255 characters");
+        }
+        product.setDescription(description);
+        
+        BigDecimal price;
+        try {
+            price = new BigDecimal(required(row, "price"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("price is not a number: " + row.get("price"));
+        }
+        if (price.signum() < 0 || price.compareTo(MAX_PRICE) > 0 || price.stripTrailingZeros().scale() > 2) {
+            throw new IllegalArgumentException("price must be between 0 and " + MAX_PRICE +
+                                               " with at most 2 decimals: " + price.toPlainString());
+        }
+        product.setPriceCents(Money.fromBigDecimal(price));
+        
+        product.setQuantity(parseInt(row, "quantity"));
+        if (product.getQuantity() < 0) {
+            throw new IllegalArgumentException("quantity must not be negative");
+        }
+        return product;
+    }
+    
+    private void writeChunk(List<ImportedProduct> chunk, ImportReport report) throws SQLException {
+        metrics.time("ProductImporter.writeChunk", () -> {
+            try {
+                writeBatched(chunk);
+                report.imported(chunk.size());
+            } catch (SQLException e) {
+                if (!isDataError(e)) {
+                    throw e;
+                }
+                // Find the bad rows; the chunk is small enough to replay one row at a time
+                report.imported(writeRowByRow(chunk, report));
+            }
+            reloadLedger(chunk);
+            return null;
+        });
+    }
+    
+    /**
+     * Bring the inventory ledger's counters for a committed chunk back in line with the database
+     * Only the chunk's products are reloaded, and reservations pause just while that happens
+     */
+    private static void reloadLedger(List<ImportedProduct> chunk) throws SQLException {
+        InventoryLedger ledger = InventoryLedger.getInstance();
+        if (!ledger.isEnabled()) {
+            return;
+        }
+        List<Integer> productIds = new ArrayList<>(chunk.size());
+        for (ImportedProduct imported : chunk) {
+            productIds.add(imported.product.getProductId());
+        }
+        ledger.reload(productIds);
+    }
+    
+    private void writeBatched(List<ImportedProduct> chunk) throws SQLException {
+        try (Connection connection = DBUtil.getConnection()) {
+            connection.setAutoCommit(false);
+            
+            try (PreparedStatement ps = connection.prepareStatement(upsert ? UPSERT_SQL : INSERT_SQL)) {
+                int pending = 0;
+                for (ImportedProduct imported : chunk) {
+                    bind(ps, imported.product);
+                    ps.addBatch();
+                    if (++pending == batchSize) {
+                        ps.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    ps.executeBatch();
+                }
+                connection.commit();
+            
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+    
+    private int writeRowByRow(List<ImportedProduct> chunk, ImportReport report) throws SQLException {
+        int written = 0;
+        
+        try (Connection connection = DBUtil.getConnection();
+             PreparedStatement ps = connection.prepareStatement(upsert ? UPSERT_SQL : INSERT_SQL)) {
+            for (ImportedProduct imported : chunk) {
+                try {
+                    bind(ps, imported.product);
+                    ps.executeUpdate();
+                    written++;
+                } catch (SQLException e) {
+                    if (!isDataError(e)) {
+                        throw e;
+                    }
+                    report.reject(imported.lineNumber, e.getMessage());
+                }
+            }
+        }
+        return written;
+    }
+    
+    private static void bind(PreparedStatement ps, Product product) throws SQLException {
+        ps.setInt(1, product.getProductId());
+        ps.setString(2, product.getName());
+        ps.setString(3, product.getDescription());
+        ps.setBigDecimal(4, Money.toBigDecimal(product.getPriceCents()));
+        ps.setInt(5, product.getQuantity());
+    }
+    
+    /**
+     * Whether the database refused the data itself (SQLState class 22 or 23) rather than failing
+     */
+    private static boolean isDataError(SQLException e) {
+        String state = e.getSQLState();
+        if (state == null && e instanceof BatchUpdateException && e.getNextException() != null) {
+            state = e.getNextException().getSQLState();
+        }
+        return state != null && (state.startsWith("22") || state.startsWith("23"));
+    }
+    
+    private static String required(CatalogRow row, String column) {
+        String value = row.get(column);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException(column + " is required");
+        }
+        return value.trim();
+    }
+    
+    private static int parseInt(CatalogRow row, String column) {
+        String value = required(row, column);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " is not a whole number: " + value);
+        }
+    }
+    
+    /**
+     * A validated product and the line it came from
+     */
+    private static final class ImportedProduct {
+        
+        private final long lineNumber;
+        private final Product product;
+        
+        private ImportedProduct(long lineNumber, Product product) {
+            this.lineNumber = lineNumber;
+            this.product = product;
+        }
+    }
+}
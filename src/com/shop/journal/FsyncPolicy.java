@@ -0,0 +1,33 @@
+package com.shop.journal;
+
+/**
+ * When journal writes are forced to disk
+ *
+ * Records live in memory-mapped files, so they survive a crash of the JVM as soon as they are
+ * written; the policy only decides how much an operating-system crash or power loss can take.
+ */
+public enum FsyncPolicy {
+    
+    /** Force the segment after every record; nothing acknowledged is ever lost */
+    ALWAYS,
+    
+    /** Force from a background thread every journal.fsyncIntervalMillis */
+    INTERVAL,
+    
+    /** Leave write-back to the operating system */
+    NEVER;
+    
+    /**
+     * Parse a configuration value
+     * @param value always, interval or never (any case)
+     * @return FsyncPolicy
+     * @throws IllegalArgumentException for any other value
+     */
+    public static FsyncPolicy parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("journal.fsync must be always, interval or never: " + value);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.shop.journal;
+
+/**
+ * Point-in-time snapshot of OrderJournal segments and counters
+ */
+public class JournalStats {
+    
+    private final boolean enabled;
+    private final String directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final int segments;
+    private final long bytes;
+    private final long appended;
+    private final long appendFailures;
+    
+    public JournalStats(boolean enabled, String directory, FsyncPolicy fsyncPolicy, int segments, long bytes,
+                        long appended, long appendFailures) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        this.segments = segments;
+        this.bytes = bytes;
+        this.appended = appended;
+        this.appendFailures = appendFailures;
+    }
+    
+    // Getters
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public String getDirectory() {
+        return directory;
+    }
+    
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+    
+    public int getSegments() {
+        return segments;
+    }
+    
+    public long getBytes() {
+        return bytes;
+    }
+    
+    public long getAppended() {
+        return appended;
+    }
+    
+    public long getAppendFailures() {
+        return appendFailures;
+    }
+    
+    @Override
+    public String toString() {
+        if (!enabled) {
+            return "disabled (journal.enabled=false)";
+        }
+        return String.format("%s: %d segments, %.1f MB, fsync=%s, appended=%d, failures=%d",
+                             directory, segments, bytes / 1048576.0, fsyncPolicy.name().toLowerCase(),
+                             appended, appendFailures);
+    }
+}
@@ -0,0 +1,132 @@
+package com.shop.journal;
+
+import java.util.List;
+
+import com.shop.model.CartItem;
+import com.shop.model.Money;
+import com.shop.model.Order;
+import com.shop.model.OrderLine;
+
+/**
+ * OrderPlaced record as stored in the order journal
+ *
+ * Lines are kept as parallel primitive arrays, matching the binary record layout; product
+ * names are not journaled since they can change after the order was placed.
+ */
+public class OrderEvent {
+    
+    private final int orderId;
+    private final int userId;
+    private final long orderTimeMillis;
+    private final long totalCents;
+    private final int[] productIds;
+    private final int[] quantities;
+    private final long[] priceCents;
+    
+    /**
+     * Constructor for OrderEvent
+     * @param orderId generated order identifier
+     * @param userId the user who placed the order
+     * @param orderTimeMillis commit time in epoch milliseconds
+     * @param totalCents order total in cents
+     * @param productIds product id of each line
+     * @param quantities quantity of each line
+     * @param priceCents unit price of each line, in cents
+     */
+    public OrderEvent(int orderId, int userId, long orderTimeMillis, long totalCents,
+                      int[] productIds, int[] quantities, long[] priceCents) {
+        if (productIds.length != quantities.length || productIds.length != priceCents.length) {
+            throw new IllegalArgumentException("Line arrays must have the same length");
+        }
+        this.orderId = orderId;
+        this.userId = userId;
+        this.orderTimeMillis = orderTimeMillis;
+        this.totalCents = totalCents;
+        this.productIds = productIds;
+        this.quantities = quantities;
+        this.priceCents = priceCents;
+    }
+    
+    /**
+     * Build the event for an order that has just been committed
+     * @param orderId generated order identifier
+     * @param userId the user who placed the order
+     * @param cart the committed cart
+     * @return OrderEvent stamped with the current time
+     */
+    public static OrderEvent placed(int orderId, int userId, List<CartItem> cart) {
+        int[] productIds = new int[cart.size()];
+        int[] quantities = new int[cart.size()];
+        long[] priceCents = new long[cart.size()];
+        long totalCents = 0;
+        for (int i = 0; i < cart.size(); i++) {
+            CartItem cartItem = cart.get(i);
+            productIds[i] = cartItem.getProductId();
+            quantities[i] = cartItem.getQty();
+            priceCents[i] = cartItem.getPriceCents();
+            totalCents += cartItem.getLineTotalCents();
+        }
+        return new OrderEvent(orderId, userId, System.currentTimeMillis(), totalCents,
+                              productIds, quantities, priceCents);
+    }
+    
+    /**
+     * Build the event for an order read back from the order tables
+     * @param order the order with its lines
+     * @return OrderEvent stamped with the order's own time
+     */
+    public static OrderEvent of(Order order) {
+        List<OrderLine> lines = order.getLines();
+        int[] productIds = new int[lines.size()];
+        int[] quantities = new int[lines.size()];
+        long[] priceCents = new long[lines.size()];
+        for (int i = 0; i < lines.size(); i++) {
+            OrderLine line = lines.get(i);
+            productIds[i] = line.getProductId();
+            quantities[i] = line.getQty();
+            priceCents[i] = line.getPriceAtPurchaseCents();
+        }
+        return new OrderEvent(order.getOrderId(), order.getUserId(), order.getOrderTime().getTime(),
+                              order.getTotalAmountCents(), productIds, quantities, priceCents);
+    }
+    
+    // Getters
+    
+    public int getOrderId() {
+        return orderId;
+    }
+    
+    public int getUserId() {
+        return userId;
+    }
+    
+    public long getOrderTimeMillis() {
+        return orderTimeMillis;
+    }
+    
+    public long getTotalCents() {
+        return totalCents;
+    }
+    
+    public int getLineCount() {
+        return productIds.length;
+    }
+    
+    public int getProductId(int line) {
+        return productIds[line];
+    }
+    
+    public int getQty(int line) {
+        return quantities[line];
+    }
+    
+    public long getPriceCents(int line) {
+        return priceCents[line];
+    }
+    
+    @Override
+    public String toString() {
+        return "Order #" + orderId + " | user " + userId + " | " + productIds.length + " lines | " +
+               Money.format(totalCents);
+    }
+}
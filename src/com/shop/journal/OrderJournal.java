@@ -0,0 +1,578 @@
+package com.shop.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import com.shop.util.AppConfig;
+import com.shop.util.ExecutorFactory;
+
+/**
+ * Append-only journal of placed orders in segmented memory-mapped files
+ *
+ * When enabled (journal.enabled=true), OrderDao appends one OrderPlaced record per committed
+ * order. A record is copied into the active segment through a MappedByteBuffer and forced to
+ * disk according to the FsyncPolicy; when it does not fit, the segment is sealed and the next
+ * one is created. Every record carries a CRC32 and its length is written last, so a record torn
+ * by a crash is detected and cleared when the journal is opened again.
+ *
+ * Record layout: int payloadLength, int crc32, then the payload: byte type, int orderId,
+ * int userId, long orderTimeMillis, long totalCents, int lineCount and per line int productId,
+ * int qty, long priceCents.
+ *
+ * replay() streams the records back without touching the database, so caches and derived views
+ * can be rebuilt from the journal; compact() drops old records from sealed segments. Journal
+ * failures never fail an order, since the order tables remain the source of truth.
+ *
+ * Orders are appended after they commit, so a crash in between leaves them out of the journal.
+ * getLastOrderId() tells how far the journal got; OrderDao.catchUpJournal() appends what the
+ * order tables have beyond it, and consumers can read the rest from the tables the same way.
+ */
+public class OrderJournal implements AutoCloseable {
+    
+    private static final OrderJournal INSTANCE = new OrderJournal(
+        AppConfig.getBoolean("journal.enabled", false),
+        Paths.get(AppConfig.get("journal.dir", "journal")),
+        AppConfig.getInt("journal.segmentBytes", 64 * 1024 * 1024),
+        FsyncPolicy.parse(AppConfig.get("journal.fsync", "interval")),
+        AppConfig.getLong("journal.fsyncIntervalMillis", 100));
+    
+    private static final int MAGIC = 0x4F4A524E; // "OJRN"
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int ORDER_PLACED_BYTES = 29;
+    private static final int LINE_BYTES = 16;
+    private static final int ORDER_TIME_OFFSET = RECORD_HEADER_BYTES + 9;
+    private static final byte ORDER_PLACED = 1;
+    private static final String SEGMENT_PREFIX = "orders-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentBytes;
+    private final FsyncPolicy fsyncPolicy;
+    private final ScheduledExecutorService syncer;
+    private final LongAdder appendFailures = new LongAdder();
+    
+    // Replay holds the read lock and compaction the write lock, so no segment is swapped mid-read
+    private final ReadWriteLock segmentsLock = new ReentrantReadWriteLock();
+    
+    // All fields below are guarded by this
+    private boolean opened;
+    private boolean closed;
+    private long activeNumber;
+    private MappedByteBuffer active;
+    private boolean dirty;
+    private long appended;
+    private int lastOrderId;
+    
+    /**
+     * Constructor for OrderJournal
+     * Nothing is opened until the first append or replay
+     * @param enabled when false appends are ignored and replay finds nothing
+     * @param directory directory holding the segment files
+     * @param segmentBytes size of each segment file
+     * @param fsyncPolicy when appended records are forced to disk
+     * @param fsyncIntervalMillis delay between background forces under FsyncPolicy.INTERVAL
+     */
+    public OrderJournal(boolean enabled, Path directory, int segmentBytes, FsyncPolicy fsyncPolicy,
+                        long fsyncIntervalMillis) {
+        if (segmentBytes < 4096) {
+            throw new IllegalArgumentException("journal.segmentBytes must be at least 4096");
+        }
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.fsyncPolicy = fsyncPolicy;
+        
+        if (enabled && fsyncPolicy == FsyncPolicy.INTERVAL) {
+            syncer = Executors.newSingleThreadScheduledExecutor(ExecutorFactory.namedDaemonThreads("journal-sync"));
+            syncer.scheduleWithFixedDelay(this::syncQuietly, fsyncIntervalMillis, fsyncIntervalMillis,
+                                          TimeUnit.MILLISECONDS);
+        } else {
+            syncer = null;
+        }
+    }
+    
+    /**
+     * Get the shared journal
+     * @return OrderJournal instance used by all DAOs
+     */
+    public static OrderJournal getInstance() {
+        return INSTANCE;
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Append a committed order
+     * Never throws: the order is already committed, so a failure is reported and counted instead
+     * @param event the committed order
+     */
+    public void append(OrderEvent event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            write(event);
+        } catch (IOException | RuntimeException e) {
+            appendFailures.increment();
+            System.err.println("Order journal append failed for order " + event.getOrderId() + ": " + e);
+        }
+    }
+    
+    private synchronized void write(OrderEvent event) throws IOException {
+        ensureOpen();
+        int payloadBytes = ORDER_PLACED_BYTES + LINE_BYTES * event.getLineCount();
+        int recordBytes = RECORD_HEADER_BYTES + payloadBytes;
+        if (recordBytes > segmentBytes - SEGMENT_HEADER_BYTES) {
+            throw new IOException("Order " + event.getOrderId() + " with " + event.getLineCount() +
+                                  " lines does not fit in a journal segment");
+        }
+        if (active.remaining() < recordBytes) {
+            roll();
+        }
+        
+        int start = active.position();
+        try {
+            active.position(start + RECORD_HEADER_BYTES);
+            active.put(ORDER_PLACED)
+                  .putInt(event.getOrderId())
+                  .putInt(event.getUserId())
+                  .putLong(event.getOrderTimeMillis())
+                  .putLong(event.getTotalCents())
+                  .putInt(event.getLineCount());
+            for (int line = 0; line < event.getLineCount(); line++) {
+                active.putInt(event.getProductId(line))
+                      .putInt(event.getQty(line))
+                      .putLong(event.getPriceCents(line));
+            }
+            active.putInt(start + 4, crc(active, start + RECORD_HEADER_BYTES, payloadBytes));
+            // Written last: a reader that sees the length sees the whole record
+            active.putInt(start, payloadBytes);
+        } catch (RuntimeException e) {
+            active.position(start);
+            throw e;
+        }
+        appended++;
+        lastOrderId = Math.max(lastOrderId, event.getOrderId());
+        
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            active.force();
+        } else {
+            dirty = true;
+        }
+    }
+    
+    /**
+     * Highest order id in the journal, found when it is opened and kept up to date by append()
+     * @return order_id, or 0 if the journal is disabled or empty
+     * @throws IOException if the journal cannot be opened
+     */
+    public synchronized int getLastOrderId() throws IOException {
+        if (!enabled) {
+            return 0;
+        }
+        ensureOpen();
+        return lastOrderId;
+    }
+    
+    /**
+     * Force everything appended so far to disk
+     */
+    public void sync() {
+        MappedByteBuffer segment;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            segment = active;
+            dirty = false;
+        }
+        segment.force();
+    }
+    
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            System.err.println("Order journal sync failed, will retry: " + e.getMessage());
+            synchronized (this) {
+                dirty = true;
+            }
+        }
+    }
+    
+    /**
+     * Stream every journaled order, oldest segment first, without touching the database
+     * Orders appear in commit order, which can differ slightly from order_id order
+     * @param afterOrderId only orders with a larger order_id are delivered; 0 for all
+     * @param consumer receives each order
+     * @return number of orders delivered
+     * @throws IOException if a segment cannot be read
+     */
+    public long replay(int afterOrderId, Consumer<OrderEvent> consumer) throws IOException {
+        if (!enabled) {
+            return 0;
+        }
+        segmentsLock.readLock().lock();
+        try {
+            List<Path> sealed;
+            ByteBuffer activeView;
+            synchronized (this) {
+                ensureOpen();
+                sealed = sealedSegments();
+                activeView = active.duplicate();
+                activeView.limit(active.position());
+            }
+            
+            long delivered = 0;
+            for (Path segment : sealed) {
+                delivered += replaySegment(map(segment, false), afterOrderId, consumer);
+            }
+            return delivered + replaySegment(activeView, afterOrderId, consumer);
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+    
+    private static long replaySegment(ByteBuffer segment, int afterOrderId, Consumer<OrderEvent> consumer) {
+        long delivered = 0;
+        int offset = SEGMENT_HEADER_BYTES;
+        int length;
+        while ((length = recordAt(segment, offset)) > 0) {
+            if (segment.get(offset + RECORD_HEADER_BYTES) == ORDER_PLACED) {
+                OrderEvent event = decode(segment, offset + RECORD_HEADER_BYTES);
+                if (event.getOrderId() > afterOrderId) {
+                    consumer.accept(event);
+                    delivered++;
+                }
+            }
+            offset += RECORD_HEADER_BYTES + length;
+        }
+        return delivered;
+    }
+    
+    /**
+     * Drop orders placed before a cutoff from sealed segments
+     * A segment left empty is deleted and one that keeps some orders is rewritten to a smaller
+     * file and swapped in atomically; the active segment is never touched
+     * @param cutoffMillis orders with an earlier order time are dropped
+     * @return number of orders dropped
+     * @throws IOException if a segment cannot be read or rewritten
+     */
+    public long compact(long cutoffMillis) throws IOException {
+        if (!enabled) {
+            return 0;
+        }
+        segmentsLock.writeLock().lock();
+        try {
+            List<Path> sealed;
+            synchronized (this) {
+                ensureOpen();
+                sealed = sealedSegments();
+            }
+            
+            long dropped = 0;
+            for (Path segment : sealed) {
+                dropped += compactSegment(segment, cutoffMillis);
+            }
+            return dropped;
+        } finally {
+            segmentsLock.writeLock().unlock();
+        }
+    }
+    
+    private long compactSegment(Path segment, long cutoffMillis) throws IOException {
+        ByteBuffer buffer = map(segment, false);
+        
+        long dropped = 0;
+        int keptBytes = 0;
+        int offset = SEGMENT_HEADER_BYTES;
+        int length;
+        while ((length = recordAt(buffer, offset)) > 0) {
+            if (isDropped(buffer, offset, cutoffMillis)) {
+                dropped++;
+            } else {
+                keptBytes += RECORD_HEADER_BYTES + length;
+            }
+            offset += RECORD_HEADER_BYTES + length;
+        }
+        
+        if (dropped == 0) {
+            return 0;
+        }
+        if (keptBytes == 0) {
+            Files.delete(segment);
+            return dropped;
+        }
+        
+        Path rewritten = segment.resolveSibling(segment.getFileName() + ".compact");
+        try (FileChannel channel = FileChannel.open(rewritten, StandardOpenOption.CREATE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING,
+                                                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_HEADER_BYTES + keptBytes);
+            out.putInt(MAGIC).putInt(VERSION);
+            
+            offset = SEGMENT_HEADER_BYTES;
+            while ((length = recordAt(buffer, offset)) > 0) {
+                if (!isDropped(buffer, offset, cutoffMillis)) {
+                    ByteBuffer record = buffer.duplicate();
+                    record.limit(offset + RECORD_HEADER_BYTES + length);
+                    record.position(offset);
+                    out.put(record);
+                }
+                offset += RECORD_HEADER_BYTES + length;
+            }
+            out.force();
+        }
+        Files.move(rewritten, segment, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return dropped;
+    }
+    
+    private static boolean isDropped(ByteBuffer buffer, int offset, long cutoffMillis) {
+        return buffer.get(offset + RECORD_HEADER_BYTES) == ORDER_PLACED
+            && buffer.getLong(offset + ORDER_TIME_OFFSET) < cutoffMillis;
+    }
+    
+    /**
+     * Snapshot of segment and append counters
+     * @return JournalStats
+     * @throws IOException if the journal directory cannot be listed
+     */
+    public JournalStats getStats() throws IOException {
+        int segments = 0;
+        long bytes = 0;
+        long appendedCount;
+        synchronized (this) {
+            if (enabled && Files.isDirectory(directory)) {
+                for (Path segment : listSegments()) {
+                    segments++;
+                    bytes += Files.size(segment);
+                }
+            }
+            appendedCount = appended;
+        }
+        return new JournalStats(enabled, directory.toString(), fsyncPolicy, segments, bytes, appendedCount,
+                                appendFailures.sum());
+    }
+    
+    /**
+     * Stop the background sync and force what has been appended
+     * Records already written survive a JVM exit without this; it only matters for power loss
+     */
+    @Override
+    public void close() {
+        if (syncer != null) {
+            syncer.shutdown();
+        }
+        synchronized (this) {
+            if (opened && !closed && fsyncPolicy != FsyncPolicy.NEVER) {
+                active.force();
+            }
+            closed = true;
+        }
+    }
+    
+    /**
+     * Map the newest segment, or create the first one, and find the end of its records
+     */
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Order journal is closed.");
+        }
+        if (opened) {
+            return;
+        }
+        
+        Files.createDirectories(directory);
+        List<Path> segments = listSegments();
+        if (segments.isEmpty()) {
+            createSegment(1);
+        } else {
+            Path newest = segments.get(segments.size() - 1);
+            activeNumber = segmentNumber(newest);
+            active = map(newest, true);
+            active.position(recover(active, newest));
+            
+            // Compaction only drops old orders, so the newest segment holding any has the last one
+            lastOrderId = maxOrderId(active);
+            for (int i = segments.size() - 2; i >= 0 && lastOrderId == 0; i--) {
+                lastOrderId = maxOrderId(map(segments.get(i), false));
+            }
+        }
+        opened = true;
+    }
+    
+    private static int maxOrderId(ByteBuffer segment) {
+        int max = 0;
+        int offset = SEGMENT_HEADER_BYTES;
+        int length;
+        while ((length = recordAt(segment, offset)) > 0) {
+            if (segment.get(offset + RECORD_HEADER_BYTES) == ORDER_PLACED) {
+                max = Math.max(max, segment.getInt(offset + RECORD_HEADER_BYTES + 1));
+            }
+            offset += RECORD_HEADER_BYTES + length;
+        }
+        return max;
+    }
+    
+    /**
+     * Find the end of the intact records and clear anything after it
+     * Bytes left by a torn record would otherwise follow the next append and end every replay there
+     */
+    private static int recover(MappedByteBuffer segment, Path file) {
+        int offset = SEGMENT_HEADER_BYTES;
+        int length;
+        while ((length = recordAt(segment, offset)) > 0) {
+            offset += RECORD_HEADER_BYTES + length;
+        }
+        
+        boolean torn = false;
+        for (int i = offset; i < segment.limit(); i++) {
+            if (segment.get(i) != 0) {
+                segment.put(i, (byte) 0);
+                torn = true;
+            }
+        }
+        if (torn) {
+            System.err.println("Order journal: discarded a torn record at " + file.getFileName() + ":" + offset);
+            segment.force();
+        }
+        return offset;
+    }
+    
+    private void roll() throws IOException {
+        if (fsyncPolicy != FsyncPolicy.NEVER) {
+            active.force();
+        }
+        dirty = false;
+        createSegment(activeNumber + 1);
+    }
+    
+    private void createSegment(long number) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE_NEW,
+                                                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            active = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        active.putInt(MAGIC).putInt(VERSION);
+        activeNumber = number;
+    }
+    
+    /**
+     * Map a whole segment file and check its header
+     * The mapping stays valid after the channel is closed
+     */
+    private static MappedByteBuffer map(Path segment, boolean writable) throws IOException {
+        MappedByteBuffer buffer;
+        if (writable) {
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            }
+        } else {
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        if (buffer.limit() < SEGMENT_HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not an order journal segment: " + segment);
+        }
+        return buffer;
+    }
+    
+    /**
+     * Payload length of the intact record at offset, or -1 where the records end
+     */
+    private static int recordAt(ByteBuffer segment, int offset) {
+        int limit = segment.limit();
+        if (offset > limit - RECORD_HEADER_BYTES) {
+            return -1;
+        }
+        int length = segment.getInt(offset);
+        if (length <= 0 || length > limit - offset - RECORD_HEADER_BYTES) {
+            return -1;
+        }
+        if (crc(segment, offset + RECORD_HEADER_BYTES, length) != segment.getInt(offset + 4)) {
+            return -1;
+        }
+        return length;
+    }
+    
+    private static OrderEvent decode(ByteBuffer segment, int offset) {
+        int orderId = segment.getInt(offset + 1);
+        int userId = segment.getInt(offset + 5);
+        long orderTimeMillis = segment.getLong(offset + 9);
+        long totalCents = segment.getLong(offset + 17);
+        int lineCount = segment.getInt(offset + 25);
+        
+        int[] productIds = new int[lineCount];
+        int[] quantities = new int[lineCount];
+        long[] priceCents = new long[lineCount];
+        int line = offset + ORDER_PLACED_BYTES;
+        for (int i = 0; i < lineCount; i++, line += LINE_BYTES) {
+            productIds[i] = segment.getInt(line);
+            quantities[i] = segment.getInt(line + 4);
+            priceCents[i] = segment.getLong(line + 8);
+        }
+        return new OrderEvent(orderId, userId, orderTimeMillis, totalCents, productIds, quantities, priceCents);
+    }
+    
+    private static int crc(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer payload = buffer.duplicate();
+        payload.limit(offset + length);
+        payload.position(offset);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+    
+    private List<Path> sealedSegments() throws IOException {
+        List<Path> segments = listSegments();
+        segments.remove(segmentPath(activeNumber));
+        return segments;
+    }
+    
+    /**
+     * Segment files, oldest first; zero-padded numbers make name order creation order
+     */
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path segment : stream) {
+                segments.add(segment);
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+    
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+    
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,55 @@
+package com.shop.metrics;
+
+/**
+ * Point-in-time summary of a LatencyHistogram, all values in nanoseconds
+ */
+public class HistogramSnapshot {
+    
+    private final long count;
+    private final long mean;
+    private final long p50;
+    private final long p99;
+    private final long p999;
+    private final long max;
+    
+    public HistogramSnapshot(long count, long mean, long p50, long p99, long p999, long max) {
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+    
+    // Getters
+    
+    public long getCount() {
+        return count;
+    }
+    
+    public long getMean() {
+        return mean;
+    }
+    
+    public long getP50() {
+        return p50;
+    }
+    
+    public long getP99() {
+        return p99;
+    }
+    
+    public long getP999() {
+        return p999;
+    }
+    
+    public long getMax() {
+        return max;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.1fus, p50=%.1fus, p99=%.1fus, p999=%.1fus, max=%.1fus",
+                             count, mean / 1e3, p50 / 1e3, p99 / 1e3, p999 / 1e3, max / 1e3);
+    }
+}
@@ -0,0 +1,127 @@
+package com.shop.metrics;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.shop.util.AppConfig;
+import com.shop.util.CancellableCall;
+
+/**
+ * In-process registry of per-operation call counts, error counts and latency histograms
+ *
+ * DAOs run each public operation through time(name, body). DBUtil hands out connections
+ * through acquire(), which times the pool wait and wraps the connection so statement execution
+ * is timed as well; whatever remains of an operation's latency is reported as mapping time.
+ * Disable with metrics.enabled=false, in which case time() and acquire() add no overhead.
+ */
+public class MetricsRegistry {
+    
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry(AppConfig.getBoolean("metrics.enabled", true));
+    
+    private final boolean enabled;
+    private final ConcurrentHashMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    
+    /**
+     * Constructor for MetricsRegistry
+     * @param enabled when false nothing is recorded
+     */
+    public MetricsRegistry(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    /**
+     * Get the shared registry
+     * @return MetricsRegistry instance used by all DAOs
+     */
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Run a DAO operation and record its latency and outcome
+     * @param name operation name, e.g. "ProductDao.getById"
+     * @param body the operation
+     * @param <T> result type
+     * @return whatever body returns
+     * @throws SQLException whatever body throws
+     */
+    public <T> T time(String name, SqlCallable<T> body) throws SQLException {
+        if (!enabled) {
+            return body.call();
+        }
+        
+        OperationMetrics metrics = operation(name);
+        TimedOperation operation = TimedOperation.begin();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = body.call();
+            failed = false;
+            return result;
+        } finally {
+            operation.end();
+            metrics.record(System.nanoTime() - start, operation.getAcquireNanos(), operation.getExecuteNanos(),
+                           failed);
+        }
+    }
+    
+    /**
+     * Obtain a connection, timing the wait and instrumenting its statements
+     * @param source where the connection comes from, normally the pool
+     * @return Connection whose statements report execute time to this registry
+     * @throws SQLException if no connection could be obtained
+     */
+    public Connection acquire(SqlCallable<Connection> source) throws SQLException {
+        if (!enabled) {
+            // Statements still need the proxy when a JdbcExecutor read may cancel them
+            return CancellableCall.current() == null ? source.call() : StatementTiming.wrap(source.call());
+        }
+        
+        long start = System.nanoTime();
+        try {
+            return StatementTiming.wrap(source.call());
+        } finally {
+            TimedOperation.addAcquire(System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * Get the metrics of one operation, creating them on first use
+     * @param name operation name
+     * @return OperationMetrics for name
+     */
+    public OperationMetrics operation(String name) {
+        OperationMetrics metrics = operations.get(name);
+        return metrics != null ? metrics : operations.computeIfAbsent(name, OperationMetrics::new);
+    }
+    
+    /**
+     * Take a snapshot of every operation recorded so far
+     * @return MetricsSnapshot sorted by operation name
+     */
+    public MetricsSnapshot snapshot() {
+        List<OperationSnapshot> snapshots = new ArrayList<>(operations.size());
+        for (OperationMetrics metrics : operations.values()) {
+            snapshots.add(metrics.snapshot());
+        }
+        snapshots.sort(Comparator.comparing(OperationSnapshot::getName));
+        return new MetricsSnapshot(System.currentTimeMillis(), snapshots);
+    }
+    
+    /**
+     * Forget everything recorded so far, e.g. after a warm-up
+     */
+    public void reset() {
+        for (OperationMetrics metrics : operations.values()) {
+            metrics.reset();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.shop.metrics;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Point-in-time snapshot of every operation in a MetricsRegistry, printable as text or JSON
+ */
+public class MetricsSnapshot {
+    
+    private final long capturedAtMillis;
+    private final List<OperationSnapshot> operations;
+    
+    public MetricsSnapshot(long capturedAtMillis, List<OperationSnapshot> operations) {
+        this.capturedAtMillis = capturedAtMillis;
+        this.operations = Collections.unmodifiableList(operations);
+    }
+    
+    public long getCapturedAtMillis() {
+        return capturedAtMillis;
+    }
+    
+    /**
+     * Operations sorted by name
+     * @return unmodifiable list of OperationSnapshot
+     */
+    public List<OperationSnapshot> getOperations() {
+        return operations;
+    }
+    
+    /**
+     * Render as a fixed-width table, latencies in microseconds
+     * @return multi-line text
+     */
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("%-40s %8s %6s %10s %10s %10s %10s %10s %10s %10s%n",
+                                  "OPERATION", "CALLS", "ERRORS", "P50_US", "P99_US", "P999_US", "MAX_US",
+                                  "ACQ_P99", "EXEC_P99", "MAP_P99"));
+        for (OperationSnapshot operation : operations) {
+            HistogramSnapshot total = operation.getTotal();
+            text.append(String.format("%-40s %8d %6d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                                      operation.getName(), operation.getCalls(), operation.getErrors(),
+                                      total.getP50() / 1e3, total.getP99() / 1e3, total.getP999() / 1e3,
+                                      total.getMax() / 1e3, operation.getAcquire().getP99() / 1e3,
+                                      operation.getExecute().getP99() / 1e3, operation.getMapping().getP99() / 1e3));
+        }
+        return text.toString();
+    }
+    
+    /**
+     * Render as a JSON document, latencies in nanoseconds
+     * @return JSON text
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"capturedAtMillis\":").append(capturedAtMillis).append(",\"operations\":[");
+        for (int i = 0; i < operations.size(); i++) {
+            OperationSnapshot operation = operations.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"name\":\"").append(escape(operation.getName())).append('"')
+                .append(",\"calls\":").append(operation.getCalls())
+                .append(",\"errors\":").append(operation.getErrors());
+            appendHistogram(json, "total", operation.getTotal());
+            appendHistogram(json, "acquire", operation.getAcquire());
+            appendHistogram(json, "execute", operation.getExecute());
+            appendHistogram(json, "mapping", operation.getMapping());
+            json.append('}');
+        }
+        return json.append("]}").toString();
+    }
+    
+    @Override
+    public String toString() {
+        return toText();
+    }
+    
+    private static void appendHistogram(StringBuilder json, String field, HistogramSnapshot histogram) {
+        json.append(",\"").append(field).append("\":{")
+            .append("\"count\":").append(histogram.getCount())
+            .append(",\"mean\":").append(histogram.getMean())
+            .append(",\"p50\":").append(histogram.getP50())
+            .append(",\"p99\":").append(histogram.getP99())
+            .append(",\"p999\":").append(histogram.getP999())
+            .append(",\"max\":").append(histogram.getMax())
+            .append('}');
+    }
+    
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20) {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,68 @@
+package com.shop.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for one named DAO operation
+ *
+ * Besides the end-to-end latency every call is split into three phases:
+ * acquire (waiting for a pooled connection), execute (inside Statement.execute*)
+ * and mapping (everything else: building SQL, reading rows, mapping objects).
+ */
+public class OperationMetrics {
+    
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final LatencyHistogram acquire = new LatencyHistogram();
+    private final LatencyHistogram execute = new LatencyHistogram();
+    private final LatencyHistogram mapping = new LatencyHistogram();
+    
+    public OperationMetrics(String name) {
+        this.name = name;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Record one finished call
+     * @param totalNanos end-to-end latency
+     * @param acquireNanos time spent acquiring connections
+     * @param executeNanos time spent executing statements
+     * @param failed true if the call threw
+     */
+    public void record(long totalNanos, long acquireNanos, long executeNanos, boolean failed) {
+        calls.increment();
+        if (failed) {
+            errors.increment();
+        }
+        total.record(totalNanos);
+        acquire.record(acquireNanos);
+        execute.record(executeNanos);
+        mapping.record(totalNanos - acquireNanos - executeNanos);
+    }
+    
+    /**
+     * Take a snapshot for reporting
+     * @return OperationSnapshot of the counters and histograms
+     */
+    public OperationSnapshot snapshot() {
+        return new OperationSnapshot(name, calls.sum(), errors.sum(), total.snapshot(), acquire.snapshot(),
+                                     execute.snapshot(), mapping.snapshot());
+    }
+    
+    /**
+     * Forget everything recorded so far
+     */
+    public void reset() {
+        calls.reset();
+        errors.reset();
+        total.reset();
+        acquire.reset();
+        execute.reset();
+        mapping.reset();
+    }
+}
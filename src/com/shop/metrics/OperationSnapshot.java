@@ -0,0 +1,56 @@
+package com.shop.metrics;
+
+/**
+ * Point-in-time snapshot of OperationMetrics
+ */
+public class OperationSnapshot {
+    
+    private final String name;
+    private final long calls;
+    private final long errors;
+    private final HistogramSnapshot total;
+    private final HistogramSnapshot acquire;
+    private final HistogramSnapshot execute;
+    private final HistogramSnapshot mapping;
+    
+    public OperationSnapshot(String name, long calls, long errors, HistogramSnapshot total,
+                             HistogramSnapshot acquire, HistogramSnapshot execute, HistogramSnapshot mapping) {
+        this.name = name;
+        this.calls = calls;
+        this.errors = errors;
+        this.total = total;
+        this.acquire = acquire;
+        this.execute = execute;
+        this.mapping = mapping;
+    }
+    
+    // Getters
+    
+    public String getName() {
+        return name;
+    }
+    
+    public long getCalls() {
+        return calls;
+    }
+    
+    public long getErrors() {
+        return errors;
+    }
+    
+    public HistogramSnapshot getTotal() {
+        return total;
+    }
+    
+    public HistogramSnapshot getAcquire() {
+        return acquire;
+    }
+    
+    public HistogramSnapshot getExecute() {
+        return execute;
+    }
+    
+    public HistogramSnapshot getMapping() {
+        return mapping;
+    }
+}
@@ -0,0 +1,13 @@
+package com.shop.metrics;
+
+import java.sql.SQLException;
+
+/**
+ * Body of a DAO operation timed by MetricsRegistry
+ * @param <T> result type
+ */
+@FunctionalInterface
+public interface SqlCallable<T> {
+    
+    T call() throws SQLException;
+}
@@ -0,0 +1,90 @@
+package com.shop.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import com.shop.util.CancellableCall;
+
+/**
+ * Dynamic proxies that time Statement.execute* calls
+ *
+ * The connection proxy wraps every Statement it creates; the statement proxy credits the time
+ * spent in execute, executeQuery, executeUpdate and executeBatch to the operations running on
+ * the calling thread, and registers the statement with the thread's CancellableCall so it can
+ * be timed out or cancelled. Calls made outside both pass straight through.
+ */
+final class StatementTiming {
+    
+    private StatementTiming() {
+    }
+    
+    static Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                                                   new Class<?>[] { Connection.class },
+                                                   new ConnectionHandler(connection));
+    }
+    
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+    
+    private static final class ConnectionHandler implements InvocationHandler {
+        
+        private final Connection connection;
+        
+        private ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = StatementTiming.invoke(connection, method, args);
+            
+            // createStatement, prepareStatement and prepareCall all return a Statement subtype
+            if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                Class<?> type = method.getReturnType();
+                return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                                              new StatementHandler(result));
+            }
+            return result;
+        }
+    }
+    
+    private static final class StatementHandler implements InvocationHandler {
+        
+        private final Object statement;
+        
+        private StatementHandler(Object statement) {
+            this.statement = statement;
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            CancellableCall call = CancellableCall.current();
+            if (!method.getName().startsWith("execute") || (TimedOperation.current() == null && call == null)) {
+                return StatementTiming.invoke(statement, method, args);
+            }
+            
+            if (call != null) {
+                call.beforeExecute((Statement) statement);
+            }
+            long start = System.nanoTime();
+            try {
+                return StatementTiming.invoke(statement, method, args);
+            } finally {
+                TimedOperation.addExecute(System.nanoTime() - start);
+                if (call != null) {
+                    call.afterExecute();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.shop.metrics;
+
+/**
+ * Phase timings of the DAO operations running on the current thread
+ *
+ * Operations nest (OrderDao.placeOrder calls OrderDao.insertOrder), so each one links to the
+ * operation that was active when it started. Phase time is credited to the whole chain, which
+ * keeps an outer operation's acquire + execute + mapping equal to its total.
+ */
+final class TimedOperation {
+    
+    private static final ThreadLocal<TimedOperation> CURRENT = new ThreadLocal<>();
+    
+    private final TimedOperation parent;
+    private long acquireNanos;
+    private long executeNanos;
+    
+    private TimedOperation(TimedOperation parent) {
+        this.parent = parent;
+    }
+    
+    static TimedOperation begin() {
+        TimedOperation operation = new TimedOperation(CURRENT.get());
+        CURRENT.set(operation);
+        return operation;
+    }
+    
+    static TimedOperation current() {
+        return CURRENT.get();
+    }
+    
+    void end() {
+        if (parent == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(parent);
+        }
+    }
+    
+    static void addAcquire(long nanos) {
+        for (TimedOperation operation = CURRENT.get(); operation != null; operation = operation.parent) {
+            operation.acquireNanos += nanos;
+        }
+    }
+    
+    static void addExecute(long nanos) {
+        for (TimedOperation operation = CURRENT.get(); operation != null; operation = operation.parent) {
+            operation.executeNanos += nanos;
+        }
+    }
+    
+    long getAcquireNanos() {
+        return acquireNanos;
+    }
+    
+    long getExecuteNanos() {
+        return executeNanos;
+    }
+}
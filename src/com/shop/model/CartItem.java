@@ -7,20 +7,20 @@ public class CartItem {
     
     private int productId;
     private String name;
-    private double price;
+    private long priceCents;
     private int qty;
     
     /**
      * Constructor for CartItem
      * @param productId unique product identifier
      * @param name product name
-     * @param price unit price of the product
+     * @param priceCents unit price of the product in cents
      * @param qty quantity in cart
      */
-    public CartItem(int productId, String name, double price, int qty) {
+    public CartItem(int productId, String name, long priceCents, int qty) {
         this.productId = productId;
         this.name = name;
-        this.price = price;
+        this.priceCents = priceCents;
         this.qty = qty;
     }
     
@@ -34,8 +34,8 @@ public class CartItem {
         return name;
     }
     
-    public double getPrice() {
-        return price;
+    public long getPriceCents() {
+        return priceCents;
     }
     
     public int getQty() {
@@ -48,9 +48,9 @@ public class CartItem {
     
     /**
      * Calculate line total for this item
-     * @return price * qty
+     * @return priceCents * qty, in cents
      */
-    public double getLineTotal() {
-        return price * qty;
+    public long getLineTotalCents() {
+        return Money.times(priceCents, qty);
     }
 }
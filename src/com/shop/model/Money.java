@@ -0,0 +1,75 @@
+package com.shop.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money helpers for amounts held as a primitive long number of cents
+ *
+ * Prices are DECIMAL(10,2) columns. Carrying them as long cents keeps cart and order
+ * arithmetic exact and allocation-free; BigDecimal is only used at the JDBC boundary
+ * and when parsing user input.
+ */
+public final class Money {
+    
+    /** Decimal places of every amount, matching the DECIMAL(10,2) columns */
+    public static final int SCALE = 2;
+    
+    private Money() {
+    }
+    
+    /**
+     * Convert a decimal amount to cents
+     * @param amount amount with at most two decimal places, e.g. from ResultSet.getBigDecimal
+     * @return amount in cents
+     * @throws ArithmeticException if the amount has more than two decimal places or does not fit a long
+     */
+    public static long fromBigDecimal(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+    
+    /**
+     * Convert cents to a decimal amount, e.g. for PreparedStatement.setBigDecimal
+     * @param cents amount in cents
+     * @return BigDecimal with two decimal places
+     */
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+    
+    /**
+     * Parse a decimal amount such as "12.5" or "12.50"
+     * @param text amount with at most two decimal places
+     * @return amount in cents
+     * @throws NumberFormatException if text is not a number or has more than two decimal places
+     */
+    public static long parse(String text) {
+        try {
+            return fromBigDecimal(new BigDecimal(text.trim()));
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("At most " + SCALE + " decimal places allowed: " + text);
+        }
+    }
+    
+    /**
+     * Multiply a unit price by a quantity
+     * @param unitCents unit price in cents
+     * @param qty quantity
+     * @return line total in cents
+     * @throws ArithmeticException on overflow
+     */
+    public static long times(long unitCents, int qty) {
+        return Math.multiplyExact(unitCents, qty);
+    }
+    
+    /**
+     * Format cents as a plain decimal string, e.g. 1250 as "12.50"
+     * @param cents amount in cents
+     * @return formatted amount
+     */
+    public static String format(long cents) {
+        long units = Math.abs(cents / 100);
+        long fraction = Math.abs(cents % 100);
+        return (cents < 0 ? "-" : "") + units + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
@@ -0,0 +1,59 @@
+package com.shop.model;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Order model class representing a placed order and its lines
+ */
+public class Order {
+    
+    private int orderId;
+    private int userId;
+    private Timestamp orderTime;
+    private long totalAmountCents;
+    private List<OrderLine> lines = new ArrayList<>();
+    
+    // Getters and Setters
+    
+    public int getOrderId() {
+        return orderId;
+    }
+    
+    public void setOrderId(int orderId) {
+        this.orderId = orderId;
+    }
+    
+    public int getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+    
+    public Timestamp getOrderTime() {
+        return orderTime;
+    }
+    
+    public void setOrderTime(Timestamp orderTime) {
+        this.orderTime = orderTime;
+    }
+    
+    public long getTotalAmountCents() {
+        return totalAmountCents;
+    }
+    
+    public void setTotalAmountCents(long totalAmountCents) {
+        this.totalAmountCents = totalAmountCents;
+    }
+    
+    public List<OrderLine> getLines() {
+        return lines;
+    }
+    
+    public void addLine(OrderLine line) {
+        lines.add(line);
+    }
+}
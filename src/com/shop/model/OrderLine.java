@@ -0,0 +1,44 @@
+package com.shop.model;
+
+/**
+ * OrderLine model class representing one purchased product within an order
+ */
+public class OrderLine {
+    
+    private int productId;
+    private String productName;
+    private int qty;
+    private long priceAtPurchaseCents;
+    
+    /**
+     * Constructor for OrderLine
+     * @param productId unique product identifier
+     * @param productName product name
+     * @param qty quantity purchased
+     * @param priceAtPurchaseCents unit price charged, in cents
+     */
+    public OrderLine(int productId, String productName, int qty, long priceAtPurchaseCents) {
+        this.productId = productId;
+        this.productName = productName;
+        this.qty = qty;
+        this.priceAtPurchaseCents = priceAtPurchaseCents;
+    }
+    
+    // Getters
+    
+    public int getProductId() {
+        return productId;
+    }
+    
+    public String getProductName() {
+        return productName;
+    }
+    
+    public int getQty() {
+        return qty;
+    }
+    
+    public long getPriceAtPurchaseCents() {
+        return priceAtPurchaseCents;
+    }
+}
@@ -0,0 +1,60 @@
+package com.shop.model;
+
+import java.sql.Timestamp;
+
+/**
+ * OrderSummary model class holding a user's lifetime order totals
+ */
+public class OrderSummary {
+    
+    private int userId;
+    private int orderCount;
+    private long totalSpentCents;
+    private Timestamp lastOrderTime;
+    private int distinctProducts;
+    
+    /**
+     * Constructor for OrderSummary
+     * @param userId the user the totals belong to
+     * @param orderCount orders placed
+     * @param totalSpentCents sum of order totals, in cents
+     * @param lastOrderTime time of the most recent order
+     * @param distinctProducts different products ever bought
+     */
+    public OrderSummary(int userId, int orderCount, long totalSpentCents, Timestamp lastOrderTime,
+                        int distinctProducts) {
+        this.userId = userId;
+        this.orderCount = orderCount;
+        this.totalSpentCents = totalSpentCents;
+        this.lastOrderTime = lastOrderTime;
+        this.distinctProducts = distinctProducts;
+    }
+    
+    // Getters
+    
+    public int getUserId() {
+        return userId;
+    }
+    
+    public int getOrderCount() {
+        return orderCount;
+    }
+    
+    public long getTotalSpentCents() {
+        return totalSpentCents;
+    }
+    
+    public Timestamp getLastOrderTime() {
+        return lastOrderTime;
+    }
+    
+    public int getDistinctProducts() {
+        return distinctProducts;
+    }
+    
+    @Override
+    public String toString() {
+        return orderCount + " orders, " + Money.format(totalSpentCents) + " spent, " +
+               distinctProducts + " distinct products, last order " + lastOrderTime;
+    }
+}
@@ -8,7 +8,7 @@ public class Product {
     private int productId;
     private String name;
     private String description;
-    private double price;
+    private long priceCents;
     private int quantity;
     
     // Getters and Setters
@@ -37,12 +37,12 @@ public class Product {
         this.description = description;
     }
     
-    public double getPrice() {
-        return price;
+    public long getPriceCents() {
+        return priceCents;
     }
     
-    public void setPrice(double price) {
-        this.price = price;
+    public void setPriceCents(long priceCents) {
+        this.priceCents = priceCents;
     }
     
     public int getQuantity() {
@@ -0,0 +1,40 @@
+package com.shop.service;
+
+import java.util.List;
+
+import com.shop.dao.Page;
+import com.shop.model.Order;
+import com.shop.model.Product;
+
+/**
+ * What a shopper sees after logging in: the first catalog page and their latest orders
+ */
+public class HomePage {
+    
+    private final Page<Product> catalog;
+    private final List<Order> recentOrders;
+    
+    /**
+     * Constructor for HomePage
+     * @param catalog first page of products
+     * @param recentOrders the shopper's most recent orders, newest first
+     */
+    public HomePage(Page<Product> catalog, List<Order> recentOrders) {
+        this.catalog = catalog;
+        this.recentOrders = recentOrders;
+    }
+    
+    // Getters
+    public Page<Product> getCatalog() {
+        return catalog;
+    }
+    
+    public List<Order> getRecentOrders() {
+        return recentOrders;
+    }
+    
+    @Override
+    public String toString() {
+        return "HomePage [products=" + catalog.getItems().size() + ", recentOrders=" + recentOrders.size() + "]";
+    }
+}
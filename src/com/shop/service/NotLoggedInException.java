@@ -0,0 +1,17 @@
+package com.shop.service;
+
+/**
+ * Thrown when an operation needs a shopper session and the caller has none, or it expired
+ */
+public class NotLoggedInException extends IllegalStateException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * Constructor for NotLoggedInException
+     * @param message error message
+     */
+    public NotLoggedInException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,73 @@
+package com.shop.service;
+
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.shop.model.User;
+
+/**
+ * Concurrent registry of active shopper sessions
+ */
+public class SessionRegistry {
+    
+    private final ConcurrentHashMap<String, ShopperSession> sessions = new ConcurrentHashMap<>();
+    
+    /**
+     * Open a new session for a logged-in user
+     * @param user authenticated user
+     * @return the new ShopperSession
+     */
+    public ShopperSession open(User user) {
+        ShopperSession session = new ShopperSession(UUID.randomUUID().toString(), user);
+        sessions.put(session.getSessionId(), session);
+        return session;
+    }
+    
+    /**
+     * Look up an active session and mark it as used
+     * @param sessionId session identifier
+     * @return ShopperSession, or null if unknown or closed
+     */
+    public ShopperSession get(String sessionId) {
+        if (sessionId == null) {
+            return null;
+        }
+        ShopperSession session = sessions.get(sessionId);
+        if (session != null) {
+            session.touch();
+        }
+        return session;
+    }
+    
+    /**
+     * Close a session, discarding its cart
+     * @param sessionId session identifier
+     * @return true if the session existed
+     */
+    public boolean close(String sessionId) {
+        return sessionId != null && sessions.remove(sessionId) != null;
+    }
+    
+    /**
+     * Close sessions that have not been used for a while
+     * @param maxIdleMillis idle time after which a session is closed
+     * @return number of sessions closed
+     */
+    public int expireIdle(long maxIdleMillis) {
+        long cutoff = System.currentTimeMillis() - maxIdleMillis;
+        int expired = 0;
+        Iterator<ShopperSession> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getLastAccessMillis() < cutoff) {
+                iterator.remove();
+                expired++;
+            }
+        }
+        return expired;
+    }
+    
+    public int size() {
+        return sessions.size();
+    }
+}
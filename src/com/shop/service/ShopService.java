@@ -0,0 +1,275 @@
+package com.shop.service;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import com.shop.dao.CartConflictException;
+import com.shop.dao.InventoryLedger;
+import com.shop.dao.OrderDao;
+import com.shop.dao.OrderHistoryQuery;
+import com.shop.dao.OrderWriter;
+import com.shop.dao.Page;
+import com.shop.dao.ProductDao;
+import com.shop.dao.UserDao;
+import com.shop.dao.async.AsyncOrderDao;
+import com.shop.dao.async.AsyncProductDao;
+import com.shop.dao.async.JdbcExecutor;
+import com.shop.model.CartItem;
+import com.shop.model.Order;
+import com.shop.model.Product;
+import com.shop.model.User;
+import com.shop.util.AppConfig;
+
+/**
+ * Thread-safe shopping operations shared by all concurrent sessions
+ *
+ * Every session uses the same DAO instances (and therefore the same connection pool
+ * and catalog cache); per-shopper state lives only in the ShopperSession.
+ */
+public class ShopService {
+    
+    private static final int HOME_RECENT_ORDERS = 5;
+    
+    private final ProductDao productDao;
+    private final UserDao userDao;
+    private final OrderDao orderDao;
+    private final SessionRegistry sessions = new SessionRegistry();
+    private final OrderWriter orderWriter;
+    private final JdbcExecutor jdbcExecutor = JdbcExecutor.fromConfig();
+    private final AsyncProductDao asyncProducts;
+    private final AsyncOrderDao asyncOrders;
+    
+    public ShopService() {
+        this(new ProductDao(), new UserDao(), new OrderDao());
+    }
+    
+    /**
+     * Constructor for ShopService
+     * @param productDao shared product DAO
+     * @param userDao shared user DAO
+     * @param orderDao shared order DAO
+     */
+    public ShopService(ProductDao productDao, UserDao userDao, OrderDao orderDao) {
+        this.productDao = productDao;
+        this.userDao = userDao;
+        this.orderDao = orderDao;
+        this.orderWriter = AppConfig.getBoolean("orders.groupCommit.enabled", false)
+            ? OrderWriter.fromConfig(orderDao)
+            : null;
+        long timeoutMillis = AppConfig.getLong("async.timeoutMillis", 5000);
+        this.asyncProducts = new AsyncProductDao(productDao, jdbcExecutor, timeoutMillis);
+        this.asyncOrders = new AsyncOrderDao(orderDao, jdbcExecutor, timeoutMillis);
+    }
+    
+    public ProductDao getProductDao() {
+        return productDao;
+    }
+    
+    public UserDao getUserDao() {
+        return userDao;
+    }
+    
+    public OrderDao getOrderDao() {
+        return orderDao;
+    }
+    
+    public SessionRegistry getSessions() {
+        return sessions;
+    }
+    
+    /**
+     * Authenticate and open a session
+     * @param username user's username
+     * @param password user's password
+     * @return new ShopperSession, or null if the credentials are wrong
+     * @throws SQLException if database error occurs
+     */
+    public ShopperSession login(String username, String password) throws SQLException {
+        User user = userDao.login(username, password);
+        return user == null ? null : sessions.open(user);
+    }
+    
+    /**
+     * Load the first catalog page and the shopper's recent orders concurrently
+     * @param sessionId session identifier
+     * @return HomePage
+     * @throws SQLException if database error occurs or either query times out
+     */
+    public HomePage getHome(String sessionId) throws SQLException {
+        ShopperSession session = requireSession(sessionId);
+        
+        CompletableFuture<Page<Product>> catalog = asyncProducts.getProductsPage(
+            null, null, null, AppConfig.getInt("ui.pageSize", 20));
+        CompletableFuture<List<Order>> recentOrders = asyncOrders.getOrdersForUser(
+            session.getUser().getUserId(), OrderHistoryQuery.all().mostRecent(HOME_RECENT_ORDERS));
+        try {
+            return new HomePage(await(catalog), await(recentOrders));
+        } finally {
+            // No point finishing the other query once one has failed
+            catalog.cancel(true);
+            recentOrders.cancel(true);
+        }
+    }
+    
+    /**
+     * Close a session
+     * @param sessionId session identifier
+     */
+    public void logout(String sessionId) {
+        sessions.close(sessionId);
+    }
+    
+    /**
+     * Add a product to the session's cart after checking it exists and has enough stock
+     * @param sessionId session identifier
+     * @param productId the product identifier
+     * @param quantity quantity to add
+     * @return quantity of the product now in the cart
+     * @throws IllegalArgumentException if the product is unknown, quantity is invalid or stock is short
+     * @throws SQLException if database error occurs
+     */
+    public int addToCart(String sessionId, int productId, int quantity) throws SQLException {
+        ShopperSession session = requireSession(sessionId);
+        
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than 0.");
+        }
+        
+        Product product = productDao.getById(productId);
+        if (product == null) {
+            throw new IllegalArgumentException("Product not found.");
+        }
+        
+        if (session.getQtyInCart(productId) + quantity > product.getQuantity()) {
+            throw new IllegalArgumentException("Not enough stock. Available: " + product.getQuantity());
+        }
+        
+        return session.addItem(new CartItem(productId, product.getName(), product.getPriceCents(), quantity));
+    }
+    
+    /**
+     * Get the session's cart
+     * @param sessionId session identifier
+     * @return copy of the cart lines
+     */
+    public List<CartItem> getCart(String sessionId) {
+        return requireSession(sessionId).getCartSnapshot();
+    }
+    
+    /**
+     * Place an order for everything in the session's cart and empty the cart
+     * The lines leave the cart before the order is placed and go back only if it fails, so
+     * concurrent checkouts of one session (a double click, a client retry) order them once.
+     * A failed order's lines go back at the current prices, without products that were removed,
+     * so the shopper can review the cart and check out again.
+     * @param sessionId session identifier
+     * @return the generated order_id
+     * @throws IllegalArgumentException if the cart is empty
+     * @throws SQLException if database error occurs, stock is insufficient, the cart was repriced
+     *         or the session is already checking out
+     */
+    public int checkout(String sessionId) throws SQLException {
+        ShopperSession session = requireSession(sessionId);
+        List<CartItem> cart = session.beginCheckout();
+        
+        if (cart == null) {
+            throw new CartConflictException("A checkout is already in progress for this session.");
+        }
+        if (cart.isEmpty()) {
+            throw new IllegalArgumentException("Your cart is empty. Cannot place order.");
+        }
+        
+        List<CartItem> unordered = cart;
+        try {
+            int orderId = placeOrder(session.getUser().getUserId(), cart);
+            unordered = null;
+            return orderId;
+        } catch (SQLException e) {
+            List<String> changes;
+            try {
+                changes = orderDao.repriceCart(cart);
+            } catch (SQLException repriceFailure) {
+                e.addSuppressed(repriceFailure);
+                throw e;
+            }
+            if (changes.isEmpty()) {
+                throw e;
+            }
+            throw new CartConflictException("Your cart was updated; review it and check out again. " +
+                                           String.join(" ", changes), e);
+        } finally {
+            session.endCheckout(unordered);
+        }
+    }
+    
+    /**
+     * Place an order directly or through the group-commit writer when it is enabled
+     */
+    private int placeOrder(int userId, List<CartItem> cart) throws SQLException {
+        if (orderWriter == null) {
+            return orderDao.placeOrder(userId, cart);
+        }
+        return await(orderWriter.submit(userId, cart));
+    }
+    
+    /**
+     * Wait for a DAO future, rethrowing its failure as an SQLException
+     * A full or closed executor and a timed-out call become SQLTransientException, as the database is overloaded
+     */
+    private static <T> T await(Future<T> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the database.", e);
+        } catch (CancellationException e) {
+            throw new SQLException("Database call was cancelled.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            if (e.getCause() instanceof RejectedExecutionException || e.getCause() instanceof TimeoutException) {
+                throw new SQLTransientException(e.getCause().getMessage(), e.getCause());
+            }
+            throw new SQLException("Database call failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+    
+    /**
+     * Stop the group-commit writer, if any, after writing queued orders, then the async DAO executor,
+     * then fold the inventory ledger's pending decrements into products
+     */
+    public void shutdown() {
+        if (orderWriter != null) {
+            orderWriter.close();
+        }
+        jdbcExecutor.close();
+        try {
+            InventoryLedger.getInstance().shutdown();
+        } catch (SQLException e) {
+            System.err.println("Inventory flush failed at exit; pending rows are applied on the next start: " +
+                               e.getMessage());
+        }
+    }
+    
+    /**
+     * Look up a session
+     * @param sessionId session identifier
+     * @return ShopperSession
+     * @throws NotLoggedInException if the session is unknown or closed
+     */
+    public ShopperSession requireSession(String sessionId) {
+        ShopperSession session = sessions.get(sessionId);
+        if (session == null) {
+            throw new NotLoggedInException("Unknown or expired session.");
+        }
+        return session;
+    }
+}
@@ -0,0 +1,144 @@
+package com.shop.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+
+import com.shop.model.CartItem;
+import com.shop.model.User;
+
+/**
+ * One logged-in shopper and their cart
+ *
+ * A session may be used by several threads (e.g. concurrent HTTP requests with the same
+ * session id), so cart access is synchronized on the session.
+ */
+public class ShopperSession {
+    
+    private final String sessionId;
+    private final User user;
+    private final List<CartItem> cart = new ArrayList<>();
+    private boolean checkingOut;
+    private volatile long lastAccessMillis = System.currentTimeMillis();
+    
+    /**
+     * Constructor for ShopperSession
+     * @param sessionId unique session identifier
+     * @param user the logged-in user
+     */
+    public ShopperSession(String sessionId, User user) {
+        this.sessionId = sessionId;
+        this.user = user;
+    }
+    
+    public String getSessionId() {
+        return sessionId;
+    }
+    
+    public User getUser() {
+        return user;
+    }
+    
+    public long getLastAccessMillis() {
+        return lastAccessMillis;
+    }
+    
+    void touch() {
+        lastAccessMillis = System.currentTimeMillis();
+    }
+    
+    /**
+     * Add a quantity of a product, merging with an existing line for the same product
+     * The merged line takes the new item's name and price, which were just read from the catalog
+     * @param item line to add
+     * @return quantity of the product now in the cart
+     */
+    public synchronized int addItem(CartItem item) {
+        for (ListIterator<CartItem> lines = cart.listIterator(); lines.hasNext(); ) {
+            CartItem cartItem = lines.next();
+            if (cartItem.getProductId() == item.getProductId()) {
+                CartItem merged = new CartItem(item.getProductId(), item.getName(), item.getPriceCents(),
+                                               cartItem.getQty() + item.getQty());
+                lines.set(merged);
+                return merged.getQty();
+            }
+        }
+        cart.add(item);
+        return item.getQty();
+    }
+    
+    /**
+     * Quantity of a product already in the cart
+     * @param productId the product identifier
+     * @return quantity, 0 if absent
+     */
+    public synchronized int getQtyInCart(int productId) {
+        for (CartItem cartItem : cart) {
+            if (cartItem.getProductId() == productId) {
+                return cartItem.getQty();
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * Copy of the cart lines, safe to iterate without holding the session lock
+     * @return list of CartItem copies
+     */
+    public synchronized List<CartItem> getCartSnapshot() {
+        List<CartItem> snapshot = new ArrayList<>(cart.size());
+        for (CartItem cartItem : cart) {
+            snapshot.add(new CartItem(cartItem.getProductId(), cartItem.getName(),
+                                      cartItem.getPriceCents(), cartItem.getQty()));
+        }
+        return snapshot;
+    }
+    
+    /**
+     * Take every line out of the cart for checkout
+     * Until endCheckout() a second checkout of this session is refused, so a double submit
+     * cannot order the same lines twice; lines added meanwhile stay in the cart
+     * @return the lines taken (empty if the cart is empty), or null if a checkout is already running
+     */
+    public synchronized List<CartItem> beginCheckout() {
+        if (checkingOut) {
+            return null;
+        }
+        List<CartItem> taken = new ArrayList<>(cart);
+        cart.clear();
+        checkingOut = !taken.isEmpty();
+        return taken;
+    }
+    
+    /**
+     * Finish a checkout started with beginCheckout()
+     * A line added during the checkout keeps its price when an unordered line is merged into it
+     * @param unordered lines to put back because the order was not placed, or null if it was
+     */
+    public synchronized void endCheckout(List<CartItem> unordered) {
+        checkingOut = false;
+        if (unordered == null) {
+            return;
+        }
+        for (CartItem unorderedItem : unordered) {
+            boolean merged = false;
+            for (CartItem cartItem : cart) {
+                if (cartItem.getProductId() == unorderedItem.getProductId()) {
+                    cartItem.setQty(cartItem.getQty() + unorderedItem.getQty());
+                    merged = true;
+                    break;
+                }
+            }
+            if (!merged) {
+                cart.add(unorderedItem);
+            }
+        }
+    }
+    
+    /**
+     * Remove every line from the cart
+     */
+    public synchronized void clearCart() {
+        cart.clear();
+    }
+}
@@ -0,0 +1,111 @@
+package com.shop.util;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Application configuration loaded from shop.properties
+ *
+ * Lookup order for every key (first match wins):
+ *   1. JVM system property (e.g. -Ddb.url=...)
+ *   2. File named by the shop.config system property, if set
+ *   3. shop.properties on the classpath
+ */
+public class AppConfig {
+    
+    private static final String CONFIG_RESOURCE = "shop.properties";
+    private static final String CONFIG_FILE_PROPERTY = "shop.config";
+    
+    private static final Properties PROPERTIES = load();
+    
+    private AppConfig() {
+    }
+    
+    /**
+     * Get a configuration value
+     * @param key configuration key
+     * @param defaultValue value returned when the key is not configured
+     * @return configured value or defaultValue
+     */
+    public static String get(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = PROPERTIES.getProperty(key);
+        }
+        return value == null ? defaultValue : value.trim();
+    }
+    
+    /**
+     * Get a mandatory configuration value
+     * @param key configuration key
+     * @return configured value
+     * @throws IllegalStateException if the key is not configured
+     */
+    public static String require(String key) {
+        String value = get(key, null);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalStateException("Missing configuration value: " + key);
+        }
+        return value;
+    }
+    
+    public static int getInt(String key, int defaultValue) {
+        String value = get(key, null);
+        return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+    }
+    
+    public static long getLong(String key, long defaultValue) {
+        String value = get(key, null);
+        return value == null || value.isEmpty() ? defaultValue : Long.parseLong(value);
+    }
+    
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key, null);
+        return value == null || value.isEmpty() ? defaultValue : Boolean.parseBoolean(value);
+    }
+    
+    /**
+     * Collect every key starting with prefix, with the prefix removed
+     * e.g. subset("db.property.") turns db.property.useSSL=false into useSSL=false
+     * @param prefix key prefix
+     * @return matching entries
+     */
+    public static Properties subset(String prefix) {
+        Properties result = new Properties();
+        for (String key : PROPERTIES.stringPropertyNames()) {
+            if (key.startsWith(prefix)) {
+                result.setProperty(key.substring(prefix.length()), PROPERTIES.getProperty(key).trim());
+            }
+        }
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith(prefix)) {
+                result.setProperty(key.substring(prefix.length()), System.getProperty(key).trim());
+            }
+        }
+        return result;
+    }
+    
+    private static Properties load() {
+        Properties properties = new Properties();
+        
+        try (InputStream in = AppConfig.class.getClassLoader().getResourceAsStream(CONFIG_RESOURCE)) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read " + CONFIG_RESOURCE + ": " + e.getMessage(), e);
+        }
+        
+        String configFile = System.getProperty(CONFIG_FILE_PROPERTY);
+        if (configFile != null) {
+            try (InputStream in = new FileInputStream(configFile)) {
+                properties.load(in);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot read " + configFile + ": " + e.getMessage(), e);
+            }
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,92 @@
+package com.shop.util;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deadline and cancellation of the DAO call running on the current thread
+ *
+ * JdbcExecutor opens one around every read it runs. Statements on connections from DBUtil
+ * report to it before they execute: each gets a query timeout for the time left, and the one
+ * executing can be cancelled in the database from another thread. Interrupting the thread
+ * alone does not stop a query, as JDBC drivers ignore interrupts while waiting for a result.
+ */
+public final class CancellableCall {
+    
+    private static final ThreadLocal<CancellableCall> CURRENT = new ThreadLocal<>();
+    
+    private final long deadlineNanos;
+    private final boolean timed;
+    private Statement executing;
+    private boolean cancelled;
+    
+    private CancellableCall(long timeoutMillis) {
+        this.timed = timeoutMillis > 0;
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+    
+    /**
+     * Start a call on the current thread
+     * @param timeoutMillis time the call's statements may take in total, 0 for no limit
+     * @return CancellableCall; end() it in a finally block
+     */
+    public static CancellableCall begin(long timeoutMillis) {
+        CancellableCall call = new CancellableCall(timeoutMillis);
+        CURRENT.set(call);
+        return call;
+    }
+    
+    /**
+     * The call running on the current thread
+     * @return CancellableCall, or null outside JdbcExecutor reads
+     */
+    public static CancellableCall current() {
+        return CURRENT.get();
+    }
+    
+    public void end() {
+        CURRENT.remove();
+    }
+    
+    /**
+     * Register a statement that is about to execute and limit it to the time left
+     * @param statement the statement
+     * @throws SQLException if the call was cancelled or its time is up
+     */
+    public synchronized void beforeExecute(Statement statement) throws SQLException {
+        if (cancelled) {
+            throw new SQLException("Database call was cancelled.");
+        }
+        if (timed) {
+            long remainingNanos = deadlineNanos - System.nanoTime();
+            if (remainingNanos <= 0) {
+                throw new SQLTimeoutException("Database call timed out.");
+            }
+            // Whole seconds only; cancel() stops the statement at the exact deadline
+            long remainingSeconds = TimeUnit.NANOSECONDS.toSeconds(remainingNanos + 999_999_999L);
+            statement.setQueryTimeout((int) Math.min(Integer.MAX_VALUE, remainingSeconds));
+        }
+        executing = statement;
+    }
+    
+    public synchronized void afterExecute() {
+        executing = null;
+    }
+    
+    /**
+     * Cancel the statement executing now and refuse to run any later one
+     * May be called from any thread
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        if (executing != null) {
+            try {
+                executing.cancel();
+            } catch (SQLException e) {
+                // The driver cannot cancel; the query timeout still ends the statement
+            }
+        }
+    }
+}
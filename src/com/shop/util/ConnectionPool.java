@@ -0,0 +1,468 @@
+package com.shop.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded JDBC connection pool
+ *
+ * Physical connections are opened through DriverManager and handed out wrapped in a proxy
+ * whose close() returns the connection to the pool instead of closing the socket, so DAO code
+ * keeps using try-with-resources unchanged.
+ */
+public class ConnectionPool {
+    
+    private final String url;
+    private final Properties connectionProperties;
+    private final int minIdle;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long validationBypassMillis;
+    private final int validationTimeoutSeconds;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final ScheduledExecutorService evictor;
+    
+    // Guarded by lock
+    private int total;
+    private int waiters;
+    private boolean closed;
+    private long acquireCount;
+    private long timeoutCount;
+    private long createdCount;
+    private long destroyedCount;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+    
+    /**
+     * Create a pool from configuration keys starting with prefix
+     * (e.g. "db." reads db.url, db.user, db.password, db.pool.maxSize, db.property.*)
+     * @param prefix configuration key prefix
+     * @return started pool
+     */
+    public static ConnectionPool fromConfig(String prefix) {
+        return fromConfig(prefix, prefix);
+    }
+    
+    /**
+     * Create a pool from keys starting with prefix, using keys starting with defaultsPrefix
+     * for anything not set (e.g. a replica under "db.replica.r1." inherits db.user and db.pool.*)
+     * @param prefix configuration key prefix
+     * @param defaultsPrefix prefix of the keys used as defaults
+     * @return started pool
+     */
+    public static ConnectionPool fromConfig(String prefix, String defaultsPrefix) {
+        String driver = setting(prefix, defaultsPrefix, "driver");
+        if (driver != null && !driver.isEmpty()) {
+            try {
+                Class.forName(driver);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("JDBC driver not found: " + driver, e);
+            }
+        }
+        
+        Properties properties = AppConfig.subset(defaultsPrefix + "property.");
+        properties.putAll(AppConfig.subset(prefix + "property."));
+        String user = setting(prefix, defaultsPrefix, "user");
+        String password = setting(prefix, defaultsPrefix, "password");
+        if (user != null) {
+            properties.setProperty("user", user);
+        }
+        if (password != null) {
+            properties.setProperty("password", password);
+        }
+        
+        return new ConnectionPool(
+            AppConfig.require(prefix + "url"),
+            properties,
+            intSetting(prefix, defaultsPrefix, "pool.minIdle", 2),
+            intSetting(prefix, defaultsPrefix, "pool.maxSize", 10),
+            longSetting(prefix, defaultsPrefix, "pool.acquireTimeoutMillis", 5000),
+            longSetting(prefix, defaultsPrefix, "pool.idleTimeoutMillis", 600000),
+            longSetting(prefix, defaultsPrefix, "pool.evictionIntervalMillis", 30000),
+            longSetting(prefix, defaultsPrefix, "pool.validationBypassMillis", 500),
+            intSetting(prefix, defaultsPrefix, "pool.validationTimeoutSeconds", 2));
+    }
+    
+    private static String setting(String prefix, String defaultsPrefix, String key) {
+        return AppConfig.get(prefix + key, AppConfig.get(defaultsPrefix + key, null));
+    }
+    
+    private static int intSetting(String prefix, String defaultsPrefix, String key, int defaultValue) {
+        return AppConfig.getInt(prefix + key, AppConfig.getInt(defaultsPrefix + key, defaultValue));
+    }
+    
+    private static long longSetting(String prefix, String defaultsPrefix, String key, long defaultValue) {
+        return AppConfig.getLong(prefix + key, AppConfig.getLong(defaultsPrefix + key, defaultValue));
+    }
+    
+    /**
+     * Constructor for ConnectionPool
+     * @param url JDBC URL
+     * @param connectionProperties driver properties including user and password
+     * @param minIdle idle connections kept open even when unused
+     * @param maxSize upper bound on open connections
+     * @param acquireTimeoutMillis how long getConnection waits for a free connection
+     * @param idleTimeoutMillis idle connections above minIdle are closed after this long
+     * @param evictionIntervalMillis how often the idle evictor runs
+     * @param validationBypassMillis connections used more recently than this are not re-validated
+     * @param validationTimeoutSeconds timeout passed to Connection.isValid
+     */
+    public ConnectionPool(String url, Properties connectionProperties, int minIdle, int maxSize,
+                          long acquireTimeoutMillis, long idleTimeoutMillis, long evictionIntervalMillis,
+                          long validationBypassMillis, int validationTimeoutSeconds) {
+        if (maxSize < 1 || minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: minIdle=" + minIdle + ", maxSize=" + maxSize);
+        }
+        this.url = url;
+        this.connectionProperties = connectionProperties;
+        this.minIdle = minIdle;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationBypassMillis = validationBypassMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.evictor.scheduleWithFixedDelay(this::evictIdle, evictionIntervalMillis,
+                                            evictionIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Borrow a connection, waiting up to the acquire timeout when the pool is exhausted
+     * @return Connection that returns itself to the pool on close()
+     * @throws SQLException if no connection becomes available in time or opening one fails
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+        
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            PooledConnection candidate = null;
+            boolean create = false;
+            
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLNonTransientConnectionException("Connection pool is closed.");
+                    }
+                    if (!idle.isEmpty()) {
+                        candidate = idle.pollFirst();
+                        break;
+                    }
+                    if (total < maxSize) {
+                        total++;
+                        create = true;
+                        break;
+                    }
+                    if (remaining <= 0) {
+                        timeoutCount++;
+                        throw new SQLTransientConnectionException(
+                            "Timed out after " + acquireTimeoutMillis + " ms waiting for a database connection (" +
+                            stats() + ")");
+                    }
+                    waiters++;
+                    try {
+                        remaining = available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLTransientConnectionException(
+                            "Interrupted while waiting for a database connection.", e);
+                    } finally {
+                        waiters--;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            
+            if (create) {
+                candidate = openPhysical();
+            } else if (!isUsable(candidate)) {
+                destroy(candidate);
+                continue;
+            }
+            
+            recordAcquire(System.nanoTime() - start);
+            return candidate.lease();
+        }
+    }
+    
+    /**
+     * Snapshot of current pool counters
+     * @return PoolStats
+     */
+    public PoolStats getStats() {
+        lock.lock();
+        try {
+            return stats();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Number of connections currently borrowed, for least-loaded routing
+     * @return borrowed connection count
+     */
+    public int getActiveCount() {
+        lock.lock();
+        try {
+            return total - idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Close every idle connection and reject further borrows
+     * Connections still in use are closed when they are returned
+     */
+    public void close() {
+        evictor.shutdownNow();
+        Deque<PooledConnection> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayDeque<>(idle);
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (PooledConnection pooled : toClose) {
+            destroy(pooled);
+        }
+    }
+    
+    private PoolStats stats() {
+        int idleCount = idle.size();
+        return new PoolStats(total - idleCount, idleCount, waiters, maxSize, acquireCount, timeoutCount,
+                             createdCount, destroyedCount,
+                             TimeUnit.NANOSECONDS.toMicros(totalWaitNanos),
+                             TimeUnit.NANOSECONDS.toMicros(maxWaitNanos));
+    }
+    
+    private PooledConnection openPhysical() throws SQLException {
+        try {
+            Connection physical = DriverManager.getConnection(url, connectionProperties);
+            lock.lock();
+            try {
+                createdCount++;
+            } finally {
+                lock.unlock();
+            }
+            return new PooledConnection(physical);
+        } catch (SQLException | RuntimeException e) {
+            lock.lock();
+            try {
+                total--;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+    
+    private boolean isUsable(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.lastUsedMillis < validationBypassMillis) {
+            return true;
+        }
+        try {
+            return pooled.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+    
+    private void recordAcquire(long waitNanos) {
+        lock.lock();
+        try {
+            acquireCount++;
+            totalWaitNanos += waitNanos;
+            if (waitNanos > maxWaitNanos) {
+                maxWaitNanos = waitNanos;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void release(PooledConnection pooled) {
+        boolean healthy = resetState(pooled.physical);
+        
+        lock.lock();
+        try {
+            if (healthy && !closed) {
+                pooled.lastUsedMillis = System.currentTimeMillis();
+                idle.addFirst(pooled);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        destroy(pooled);
+    }
+    
+    private boolean resetState(Connection physical) {
+        try {
+            if (physical.isClosed()) {
+                return false;
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (physical.isReadOnly()) {
+                physical.setReadOnly(false);
+            }
+            physical.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+    
+    private void destroy(PooledConnection pooled) {
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            // Connection is being discarded anyway
+        }
+        lock.lock();
+        try {
+            total--;
+            destroyedCount++;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Close connections idle longer than idleTimeout (keeping minIdle) and top the pool back up to minIdle
+     */
+    private void evictIdle() {
+        Deque<PooledConnection> expired = new ArrayDeque<>();
+        int missing;
+        
+        lock.lock();
+        try {
+            long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+            // Oldest idle connections sit at the tail because release() pushes to the head
+            Iterator<PooledConnection> iterator = idle.descendingIterator();
+            while (iterator.hasNext() && idle.size() > minIdle) {
+                PooledConnection pooled = iterator.next();
+                if (pooled.lastUsedMillis < cutoff) {
+                    iterator.remove();
+                    expired.add(pooled);
+                }
+            }
+            missing = closed ? 0 : Math.min(minIdle - idle.size(), maxSize - (total - expired.size()));
+            if (missing > 0) {
+                total += missing;
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        for (PooledConnection pooled : expired) {
+            destroy(pooled);
+        }
+        for (int i = 0; i < missing; i++) {
+            try {
+                release(openPhysical());
+            } catch (SQLException | RuntimeException e) {
+                // openPhysical() already gave the slot back; retry on the next run
+            }
+        }
+    }
+    
+    /**
+     * Physical connection plus the bookkeeping the pool needs
+     */
+    private final class PooledConnection {
+        
+        private final Connection physical;
+        private volatile long lastUsedMillis = System.currentTimeMillis();
+        
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+        
+        private Connection lease() {
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                                                       new Class<?>[] { Connection.class },
+                                                       new LeaseHandler(this));
+        }
+    }
+    
+    /**
+     * One borrow of a pooled connection; close() hands the connection back exactly once
+     */
+    private final class LeaseHandler implements InvocationHandler {
+        
+        private final PooledConnection pooled;
+        private boolean returned;
+        
+        private LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + pooled.physical + "]";
+                default:
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool.");
+                    }
+                    try {
+                        return method.invoke(pooled.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
@@ -1,24 +1,139 @@
 package com.shop.util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+import com.shop.metrics.MetricsRegistry;
 
 /**
  * Database utility class for managing JDBC connections
+ *
+ * Connections come from a shared ConnectionPool configured through the db.* keys
+ * in shop.properties (see AppConfig). Point db.url at an embedded database
+ * (e.g. jdbc:h2:mem:shop;MODE=MySQL;DB_CLOSE_DELAY=-1) to run without a MySQL server.
+ *
+ * getConnection() always returns a primary connection and is used for writes and for reads
+ * that must be current. getReadConnection() serves read-only queries from the replicas listed
+ * in db.replicas, unless the read's consistency key was written within db.readYourWritesMillis;
+ * without replicas it simply returns a primary connection.
  */
 public class DBUtil {
     
-    private static final String URL = "jdbc:mysql://localhost:3306/ecommerceDB?useSSL=false&serverTimezone=UTC";
-    private static final String USER = "root";
-    private static final String PASSWORD = "qwertyuiop1@PP";
+    private static final RecentWrites RECENT_WRITES =
+        new RecentWrites(AppConfig.getLong("db.readYourWritesMillis", 2000));
+    
+    private static volatile Pools pools;
+    
+    private DBUtil() {
+    }
     
     /**
-     * Get a database connection
+     * Get a database connection from the primary pool
+     * Closing the returned connection hands it back to the pool; the wait and the statements
+     * executed on it are recorded by MetricsRegistry
      * @return Connection object
-     * @throws SQLException if connection fails
+     * @throws SQLException if no connection could be obtained
      */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        ConnectionPool primary = getPools().primary;
+        return MetricsRegistry.getInstance().acquire(primary::getConnection);
+    }
+    
+    /**
+     * Get a connection for a read-only query, from a replica when one may serve it
+     * Falls back to the primary if no replica is configured, the key was written recently
+     * or every replica is unavailable. Do not write through the returned connection.
+     * @param consistencyKey key whose recent writes the caller must see, or null if lag is acceptable
+     * @return Connection object
+     * @throws SQLException if no connection could be obtained
+     */
+    public static Connection getReadConnection(String consistencyKey) throws SQLException {
+        ReplicaSet replicas = getPools().replicas;
+        if (replicas == null || (consistencyKey != null && RECENT_WRITES.isRecent(consistencyKey))) {
+            return getConnection();
+        }
+        try {
+            return MetricsRegistry.getInstance().acquire(replicas::getConnection);
+        } catch (SQLException e) {
+            return getConnection();
+        }
+    }
+    
+    /**
+     * Whether getReadConnection(consistencyKey) would go to the primary because the key was written recently
+     * Lets a caller reading many keys at once (e.g. a catalog page) pick the primary for all of them
+     * @param consistencyKey key whose recent writes the caller must see
+     * @return true if replicas are configured and the key was written within db.readYourWritesMillis
+     */
+    public static boolean isRecentlyWritten(String consistencyKey) {
+        return getPools().replicas != null && RECENT_WRITES.isRecent(consistencyKey);
+    }
+    
+    /**
+     * Record a committed write so reads of the same key go to the primary until replicas catch up
+     * @param consistencyKey key that was written
+     */
+    public static void markWritten(String consistencyKey) {
+        RECENT_WRITES.markWritten(consistencyKey);
+    }
+    
+    /**
+     * Get current connection pool statistics
+     * @return PoolStats snapshot of the primary pool
+     */
+    public static PoolStats getPoolStats() {
+        return getPools().primary.getStats();
+    }
+    
+    /**
+     * Get current statistics of the replica pools
+     * @return PoolStats per replica, empty when no replicas are configured
+     */
+    public static List<PoolStats> getReplicaPoolStats() {
+        ReplicaSet replicas = getPools().replicas;
+        return replicas == null ? Collections.<PoolStats>emptyList() : replicas.getStats();
+    }
+    
+    /**
+     * Close all pooled connections
+     */
+    public static synchronized void shutdown() {
+        if (pools != null) {
+            pools.primary.close();
+            if (pools.replicas != null) {
+                pools.replicas.close();
+            }
+            pools = null;
+        }
+    }
+    
+    private static Pools getPools() {
+        Pools current = pools;
+        if (current == null) {
+            synchronized (DBUtil.class) {
+                current = pools;
+                if (current == null) {
+                    current = new Pools(ConnectionPool.fromConfig("db."), ReplicaSet.fromConfig());
+                    pools = current;
+                }
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * The primary pool and the optional replicas, created together
+     */
+    private static final class Pools {
+        
+        private final ConnectionPool primary;
+        private final ReplicaSet replicas;
+        
+        private Pools(ConnectionPool primary, ReplicaSet replicas) {
+            this.primary = primary;
+            this.replicas = replicas;
+        }
     }
 }
@@ -0,0 +1,89 @@
+package com.shop.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates executors for request and session work
+ *
+ * On Java 21+ a virtual-thread-per-task executor is used, looked up reflectively so the
+ * code still compiles and runs on Java 8, where a bounded platform-thread pool is used instead.
+ */
+public class ExecutorFactory {
+    
+    private ExecutorFactory() {
+    }
+    
+    /**
+     * Check whether the running JVM supports virtual threads
+     * @return true on Java 21 or later
+     */
+    public static boolean isVirtualThreadsAvailable() {
+        return virtualThreadFactoryMethod() != null;
+    }
+    
+    /**
+     * Executor for many mostly-blocked tasks such as shopper sessions or HTTP requests
+     * @param name thread name prefix for the platform-thread fallback
+     * @param maxThreads pool size for the platform-thread fallback
+     * @param queueCapacity queued tasks for the fallback before the submitter runs the task itself
+     * @return ExecutorService
+     */
+    public static ExecutorService newTaskExecutor(String name, int maxThreads, int queueCapacity) {
+        if (AppConfig.getBoolean("executor.virtualThreads", true)) {
+            Method factory = virtualThreadFactoryMethod();
+            if (factory != null) {
+                try {
+                    return (ExecutorService) factory.invoke(null);
+                } catch (ReflectiveOperationException e) {
+                    // Fall through to the platform-thread pool
+                }
+            }
+        }
+        return newBoundedExecutor(name, maxThreads, queueCapacity);
+    }
+    
+    /**
+     * Fixed-size platform-thread pool with a bounded queue
+     * When the queue is full the submitting thread runs the task, which slows producers down
+     * @param name thread name prefix
+     * @param threads pool size
+     * @param queueCapacity maximum queued tasks
+     * @return ExecutorService
+     */
+    public static ExecutorService newBoundedExecutor(String name, int threads, int queueCapacity) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                                                             new ArrayBlockingQueue<>(queueCapacity),
+                                                             namedDaemonThreads(name),
+                                                             new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+    
+    /**
+     * Thread factory producing daemon threads named prefix-1, prefix-2, ...
+     * @param prefix thread name prefix
+     * @return ThreadFactory
+     */
+    public static ThreadFactory namedDaemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    private static Method virtualThreadFactoryMethod() {
+        try {
+            return java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.shop.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Minimal streaming JSON writer
+ *
+ * Values are appended to the destination as they are written, so a large array (a product
+ * listing, an order history) never has to be held as a string or tree first. Commas are
+ * inserted automatically; callers are trusted to nest begin/end calls correctly.
+ */
+public class JsonWriter {
+    
+    private static final int MAX_DEPTH = 64;
+    
+    private final Appendable out;
+    // hasElements[depth] is true once the current object or array has a member
+    private final boolean[] hasElements = new boolean[MAX_DEPTH];
+    private final char[] closers = new char[MAX_DEPTH];
+    private int depth;
+    private boolean afterName;
+    
+    /**
+     * Constructor for JsonWriter
+     * @param out destination, e.g. a buffered Writer or PrintStream
+     */
+    public JsonWriter(Appendable out) {
+        this.out = out;
+    }
+    
+    public JsonWriter beginObject() {
+        return open('{', '}');
+    }
+    
+    public JsonWriter endObject() {
+        return close('}');
+    }
+    
+    public JsonWriter beginArray() {
+        return open('[', ']');
+    }
+    
+    public JsonWriter endArray() {
+        return close(']');
+    }
+    
+    /**
+     * Write an object member name; the next call writes its value
+     * @param name member name
+     * @return this
+     */
+    public JsonWriter name(String name) {
+        separate();
+        string(name);
+        append(':');
+        afterName = true;
+        return this;
+    }
+    
+    public JsonWriter value(String value) {
+        if (value == null) {
+            return nullValue();
+        }
+        separate();
+        string(value);
+        return this;
+    }
+    
+    public JsonWriter value(long value) {
+        separate();
+        append(Long.toString(value));
+        return this;
+    }
+    
+    public JsonWriter value(boolean value) {
+        separate();
+        append(value ? "true" : "false");
+        return this;
+    }
+    
+    public JsonWriter nullValue() {
+        separate();
+        append("null");
+        return this;
+    }
+    
+    /**
+     * Write an already encoded JSON value as is
+     * @param json well-formed JSON text
+     * @return this
+     */
+    public JsonWriter rawValue(String json) {
+        separate();
+        append(json);
+        return this;
+    }
+    
+    /**
+     * Shorthand for name(name).value(value)
+     */
+    public JsonWriter field(String name, String value) {
+        return name(name).value(value);
+    }
+    
+    /**
+     * Shorthand for name(name).value(value)
+     */
+    public JsonWriter field(String name, long value) {
+        return name(name).value(value);
+    }
+    
+    /**
+     * Close every object and array opened below a nesting depth
+     * Lets a caller that failed half-way through a value still emit well-formed JSON
+     * @param targetDepth depth to return to, 0 for top level
+     * @return this
+     */
+    public JsonWriter closeTo(int targetDepth) {
+        if (afterName) {
+            nullValue();
+        }
+        while (depth > targetDepth) {
+            close(closers[depth]);
+        }
+        return this;
+    }
+    
+    /**
+     * Number of currently open objects and arrays
+     * @return nesting depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+    
+    /**
+     * Start a new top-level value, e.g. the next line of a JSON-lines stream
+     * @return this
+     */
+    public JsonWriter newline() {
+        append('\n');
+        hasElements[0] = false;
+        return this;
+    }
+    
+    private JsonWriter open(char bracket, char closer) {
+        separate();
+        append(bracket);
+        hasElements[++depth] = false;
+        closers[depth] = closer;
+        return this;
+    }
+    
+    private JsonWriter close(char bracket) {
+        depth--;
+        append(bracket);
+        return this;
+    }
+    
+    private void separate() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (hasElements[depth]) {
+            append(',');
+        }
+        hasElements[depth] = true;
+    }
+    
+    private void string(String value) {
+        append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                append('\\');
+                append(c);
+            } else if (c < 0x20) {
+                append(String.format("\\u%04x", (int) c));
+            } else {
+                append(c);
+            }
+        }
+        append('"');
+    }
+    
+    private void append(char c) {
+        try {
+            out.append(c);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private void append(String text) {
+        try {
+            out.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.shop.util;
+
+/**
+ * Point-in-time snapshot of ConnectionPool counters
+ */
+public class PoolStats {
+    
+    private final int active;
+    private final int idle;
+    private final int waiters;
+    private final int maxSize;
+    private final long acquireCount;
+    private final long timeoutCount;
+    private final long createdCount;
+    private final long destroyedCount;
+    private final long totalWaitMicros;
+    private final long maxWaitMicros;
+    
+    public PoolStats(int active, int idle, int waiters, int maxSize, long acquireCount, long timeoutCount,
+                     long createdCount, long destroyedCount, long totalWaitMicros, long maxWaitMicros) {
+        this.active = active;
+        this.idle = idle;
+        this.waiters = waiters;
+        this.maxSize = maxSize;
+        this.acquireCount = acquireCount;
+        this.timeoutCount = timeoutCount;
+        this.createdCount = createdCount;
+        this.destroyedCount = destroyedCount;
+        this.totalWaitMicros = totalWaitMicros;
+        this.maxWaitMicros = maxWaitMicros;
+    }
+    
+    // Getters
+    
+    public int getActive() {
+        return active;
+    }
+    
+    public int getIdle() {
+        return idle;
+    }
+    
+    public int getWaiters() {
+        return waiters;
+    }
+    
+    public int getMaxSize() {
+        return maxSize;
+    }
+    
+    public long getAcquireCount() {
+        return acquireCount;
+    }
+    
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+    
+    public long getCreatedCount() {
+        return createdCount;
+    }
+    
+    public long getDestroyedCount() {
+        return destroyedCount;
+    }
+    
+    public long getTotalWaitMicros() {
+        return totalWaitMicros;
+    }
+    
+    public long getMaxWaitMicros() {
+        return maxWaitMicros;
+    }
+    
+    /**
+     * Average time spent inside getConnection per successful borrow
+     * @return average wait in microseconds
+     */
+    public long getAverageWaitMicros() {
+        return acquireCount == 0 ? 0 : totalWaitMicros / acquireCount;
+    }
+    
+    @Override
+    public String toString() {
+        return "active=" + active + ", idle=" + idle + ", waiters=" + waiters + ", max=" + maxSize +
+               ", acquired=" + acquireCount + ", timeouts=" + timeoutCount +
+               ", created=" + createdCount + ", destroyed=" + destroyedCount +
+               ", avgWaitUs=" + getAverageWaitMicros() + ", maxWaitUs=" + maxWaitMicros;
+    }
+}
@@ -0,0 +1,66 @@
+package com.shop.util;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which consistency keys were written recently, for read-your-writes routing
+ *
+ * A key (e.g. one user's orders) written less than windowMillis ago may not have reached
+ * the replicas yet, so reads for that key are sent to the primary. Entries older than the
+ * window are dropped lazily, keeping the map as small as the set of recently written keys.
+ */
+public class RecentWrites {
+    
+    private static final int SWEEP_THRESHOLD = 10_000;
+    
+    private final long windowNanos;
+    private final ConcurrentHashMap<String, Long> lastWrites = new ConcurrentHashMap<>();
+    
+    /**
+     * Constructor for RecentWrites
+     * @param windowMillis how long after a write its key keeps reading from the primary
+     */
+    public RecentWrites(long windowMillis) {
+        this.windowNanos = windowMillis * 1_000_000L;
+    }
+    
+    /**
+     * Record a committed write
+     * @param key consistency key that was written
+     */
+    public void markWritten(String key) {
+        lastWrites.put(key, System.nanoTime());
+        if (lastWrites.size() > SWEEP_THRESHOLD) {
+            sweep();
+        }
+    }
+    
+    /**
+     * Whether a key was written within the window
+     * @param key consistency key
+     * @return true if reads of key should go to the primary
+     */
+    public boolean isRecent(String key) {
+        Long writtenAt = lastWrites.get(key);
+        if (writtenAt == null) {
+            return false;
+        }
+        if (System.nanoTime() - writtenAt < windowNanos) {
+            return true;
+        }
+        lastWrites.remove(key, writtenAt);
+        return false;
+    }
+    
+    private void sweep() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<String, Long>> iterator = lastWrites.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().getValue() >= windowNanos) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.shop.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read replicas behind one getConnection(), chosen round-robin or by fewest borrowed connections
+ *
+ * If the chosen replica cannot hand out a connection the others are tried in turn; only when
+ * every replica fails is the last error thrown.
+ */
+public class ReplicaSet {
+    
+    /**
+     * How the next replica is picked
+     */
+    public enum Selection {
+        ROUND_ROBIN,
+        LEAST_LOADED;
+        
+        /**
+         * Parse a configuration value such as "round-robin" or "least-loaded"
+         * @param value configured value
+         * @return Selection
+         */
+        public static Selection fromConfig(String value) {
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+    
+    private final List<ConnectionPool> replicas;
+    private final Selection selection;
+    private final AtomicInteger next = new AtomicInteger();
+    
+    /**
+     * Create the replica pools listed in db.replicas, or return null when none are configured
+     * Each db.replica.&lt;name&gt;.* setting falls back to the matching db.* setting
+     * @return ReplicaSet or null
+     */
+    public static ReplicaSet fromConfig() {
+        String names = AppConfig.get("db.replicas", "");
+        if (names.isEmpty()) {
+            return null;
+        }
+        List<ConnectionPool> pools = new ArrayList<>();
+        for (String name : names.split(",")) {
+            if (!name.trim().isEmpty()) {
+                pools.add(ConnectionPool.fromConfig("db.replica." + name.trim() + ".", "db."));
+            }
+        }
+        return pools.isEmpty()
+            ? null
+            : new ReplicaSet(pools, Selection.fromConfig(AppConfig.get("db.replicaSelection", "round-robin")));
+    }
+    
+    /**
+     * Constructor for ReplicaSet
+     * @param replicas one pool per replica
+     * @param selection replica selection strategy
+     */
+    public ReplicaSet(List<ConnectionPool> replicas, Selection selection) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("At least one replica is required");
+        }
+        this.replicas = Collections.unmodifiableList(new ArrayList<>(replicas));
+        this.selection = selection;
+    }
+    
+    /**
+     * Borrow a connection from the selected replica, trying the others if it fails
+     * @return Connection that returns itself to its replica pool on close()
+     * @throws SQLException if no replica could provide a connection
+     */
+    public Connection getConnection() throws SQLException {
+        int first = select();
+        SQLException failure = null;
+        for (int attempt = 0; attempt < replicas.size(); attempt++) {
+            try {
+                return replicas.get((first + attempt) % replicas.size()).getConnection();
+            } catch (SQLException e) {
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+    
+    /**
+     * Current statistics of every replica pool, in configuration order
+     * @return list of PoolStats
+     */
+    public List<PoolStats> getStats() {
+        List<PoolStats> stats = new ArrayList<>(replicas.size());
+        for (ConnectionPool replica : replicas) {
+            stats.add(replica.getStats());
+        }
+        return stats;
+    }
+    
+    /**
+     * Close every replica pool
+     */
+    public void close() {
+        for (ConnectionPool replica : replicas) {
+            replica.close();
+        }
+    }
+    
+    private int select() {
+        if (selection == Selection.ROUND_ROBIN || replicas.size() == 1) {
+            return Math.floorMod(next.getAndIncrement(), replicas.size());
+        }
+        int best = 0;
+        int bestActive = Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.size(); i++) {
+            int active = replicas.get(i).getActiveCount();
+            if (active < bestActive) {
+                best = i;
+                bestActive = active;
+            }
+        }
+        return best;
+    }
+}